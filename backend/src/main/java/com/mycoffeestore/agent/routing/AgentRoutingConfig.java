@@ -115,6 +115,28 @@ public class AgentRoutingConfig {
         PARALLEL
     }
 
+    /**
+     * 并行结果合并方式
+     * 定义 PARALLEL 策略如何合并各分支的结果
+     */
+    @Schema(description = "并行结果合并方式")
+    public enum ParallelMergeMode {
+        /**
+         * 首个成功 - 采用最先成功完成的分支，其余分支立即取消
+         */
+        FIRST_SUCCESSFUL,
+
+        /**
+         * 全部（带截止时间） - 等待所有分支，超过截止时间仍未完成的分支取消，返回已完成的部分结果
+         */
+        ALL_WITH_DEADLINE,
+
+        /**
+         * 交错流式 - 各分支的输出带 Agent 标签，到达即推送给前端
+         */
+        INTERLEAVED
+    }
+
     /**
      * 路由规则配置
      * 定义每个意图类型对应的 Agent 执行链
@@ -153,6 +175,18 @@ public class AgentRoutingConfig {
         @Schema(description = "是否聚合结果")
         private Boolean aggregateResults;
 
+        /**
+         * 并行结果合并方式（仅 PARALLEL 策略，未设置时为 ALL_WITH_DEADLINE）
+         */
+        @Schema(description = "并行结果合并方式")
+        private ParallelMergeMode parallelMergeMode;
+
+        /**
+         * 并行分支截止时间（毫秒，仅 PARALLEL 策略，未设置或不大于 0 时不限制）
+         */
+        @Schema(description = "并行分支截止时间（毫秒）")
+        private Long parallelTimeout;
+
         /**
          * 上下文传递配置
          */
@@ -307,7 +341,8 @@ public class AgentRoutingConfig {
     @Schema(description = "意图识别专用 ChatModel")
     public org.springframework.ai.chat.model.ChatModel intentRecognitionChatModel() {
         log.info("初始化意图识别专用 ChatModel");
-        return chatModelFactory.createChatModel();
+        // 启用 llm.failover 时带熔断与故障转移，避免上游变慢时每次识别都等满阻塞超时
+        return chatModelFactory.createFailoverChatModel();
     }
 
     /**
@@ -0,0 +1,158 @@
+package com.mycoffeestore.agent.routing;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.RoutingKeywordProperties;
+import com.mycoffeestore.util.AhoCorasickMatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由关键词匹配器
+ * <p>
+ * 把 {@link RoutingKeywordProperties} 中的所有关键词分组编译为一个共享的 Aho-Corasick 自动机，
+ * 意图识别、Agent 路由和推荐偏好筛选对同一条输入只需扫描一遍即可得到各分组的命中数。
+ * 配置了外部关键词文件时，定时检查文件修改时间并热加载（整体替换自动机，读取无锁）。
+ *
+ * @author zhoulu
+ * @since 2026-03-11
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoutingKeywordMatcher {
+
+    /**
+     * Agent 路由分组
+     */
+    public static final String ROUTER_ORDER = "router_order";
+    public static final String ROUTER_COFFEE = "router_coffee";
+    public static final String ROUTER_SERVICE = "router_service";
+    public static final String ROUTER_COFFEE_PRODUCT = "router_coffee_product";
+
+    /**
+     * 推荐偏好分组
+     */
+    public static final String PREFERENCE_MILD = "preference_mild";
+    public static final String PREFERENCE_STRONG = "preference_strong";
+    public static final String PREFERENCE_SWEET = "preference_sweet";
+    public static final String COFFEE_MILK = "coffee_milk";
+    public static final String COFFEE_STRONG = "coffee_strong";
+    public static final String COFFEE_SWEET = "coffee_sweet";
+
+    private final RoutingKeywordProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 当前生效的自动机
+     */
+    private volatile AhoCorasickMatcher matcher = AhoCorasickMatcher.build(Map.of());
+
+    /**
+     * 外部关键词文件的最后修改时间
+     */
+    private volatile long lastModified = -1;
+
+    private ScheduledExecutorService reloadExecutor;
+
+    @PostConstruct
+    public void init() {
+        reload();
+
+        if (properties.getLocation() != null && !properties.getLocation().isBlank()) {
+            long interval = Math.max(1, properties.getReloadInterval());
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r);
+                thread.setName("routing-keyword-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadExecutor.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.SECONDS);
+            log.info("路由关键词文件热加载已启动: {}，间隔: {}s", properties.getLocation(), interval);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 单遍扫描输入，返回各分组命中的关键词数量
+     *
+     * @param text 输入文本
+     * @return 命中结果
+     */
+    public AhoCorasickMatcher.Hits match(String text) {
+        return matcher.match(text);
+    }
+
+    /**
+     * 重新加载关键词并重建自动机
+     * 配置中的分组打底，外部文件中的同名分组覆盖
+     */
+    public synchronized void reload() {
+        Map<String, List<String>> groups = new LinkedHashMap<>(properties.getGroups());
+
+        Path file = externalFile();
+        if (file != null) {
+            try {
+                if (Files.exists(file)) {
+                    Map<String, List<String>> external = objectMapper.readValue(file.toFile(),
+                            new TypeReference<Map<String, List<String>>>() {
+                            });
+                    groups.putAll(external);
+                    lastModified = Files.getLastModifiedTime(file).toMillis();
+                } else {
+                    log.warn("路由关键词文件不存在，仅使用配置中的关键词: {}", file);
+                }
+            } catch (IOException e) {
+                log.error("读取路由关键词文件失败，保留当前关键词: {}", file, e);
+                return;
+            }
+        }
+
+        AhoCorasickMatcher rebuilt = AhoCorasickMatcher.build(groups);
+        this.matcher = rebuilt;
+        log.info("路由关键词自动机已构建，分组数: {}, 关键词数: {}", rebuilt.getGroups().size(), rebuilt.getKeywordCount());
+    }
+
+    /**
+     * 外部文件有变化时重新加载
+     */
+    private void reloadIfChanged() {
+        Path file = externalFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            if (Files.exists(file) && Files.getLastModifiedTime(file).toMillis() != lastModified) {
+                log.info("检测到路由关键词文件变化，重新加载: {}", file);
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("检查路由关键词文件失败: {}", e.getMessage());
+        }
+    }
+
+    private Path externalFile() {
+        String location = properties.getLocation();
+        return location == null || location.isBlank() ? null : Paths.get(location);
+    }
+}
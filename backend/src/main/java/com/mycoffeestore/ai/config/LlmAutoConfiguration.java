@@ -1,7 +1,10 @@
 package com.mycoffeestore.ai.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.ai.core.LlmConnectionPools;
+import com.mycoffeestore.ai.core.ProviderConcurrencyLimiter;
 import com.mycoffeestore.ai.factory.ChatModelFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,18 +26,42 @@ import org.springframework.context.annotation.Configuration;
 @EnableConfigurationProperties(LlmProperties.class)
 public class LlmAutoConfiguration {
 
+    /**
+     * 配置 LLM 提供商并发限制器 Bean
+     * 所有指向同一提供商的 WebClient 共享同一组信号量
+     */
+    @Bean
+    @Schema(description = "LLM 提供商并发限制器 Bean")
+    public ProviderConcurrencyLimiter providerConcurrencyLimiter(LlmProperties llmProperties, MeterRegistry meterRegistry) {
+        return new ProviderConcurrencyLimiter(llmProperties, meterRegistry);
+    }
+
+    /**
+     * 配置 LLM 提供商连接池 Bean
+     * 每个提供商一个共享连接池，容器关闭时释放
+     */
+    @Bean
+    @Schema(description = "LLM 提供商连接池 Bean")
+    public LlmConnectionPools llmConnectionPools(LlmProperties llmProperties, MeterRegistry meterRegistry) {
+        return new LlmConnectionPools(llmProperties, meterRegistry);
+    }
+
     /**
      * 配置 ChatModelFactory Bean
      */
     @Bean
     @Schema(description = "ChatModelFactory Bean")
-    public ChatModelFactory chatModelFactory(LlmProperties llmProperties, ObjectMapper objectMapper) {
+    public ChatModelFactory chatModelFactory(LlmProperties llmProperties, ObjectMapper objectMapper,
+                                             ProviderConcurrencyLimiter providerConcurrencyLimiter,
+                                             LlmConnectionPools llmConnectionPools,
+                                             MeterRegistry meterRegistry) {
         log.info("初始化 ChatModelFactory，默认提供商: {}", llmProperties.getProvider());
 
         // 验证配置
         validateConfiguration(llmProperties);
 
-        return new ChatModelFactory(llmProperties, objectMapper);
+        return new ChatModelFactory(llmProperties, objectMapper, providerConcurrencyLimiter,
+                llmConnectionPools, meterRegistry);
     }
 
     /**
@@ -6,6 +6,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * LLM 通用配置属性
  * 统一管理所有 LLM 提供商的配置
@@ -49,6 +52,12 @@ public class LlmProperties {
     @Schema(description = "通用配置")
     private CommonConfig common = new CommonConfig();
 
+    /**
+     * 多提供商故障转移配置
+     */
+    @Schema(description = "多提供商故障转移配置")
+    private FailoverConfig failover = new FailoverConfig();
+
     /**
      * ModelScope 专用配置
      */
@@ -72,6 +81,12 @@ public class LlmProperties {
 
         @Schema(description = "温度参数")
         private Double temperature = 0.7;
+
+        @Schema(description = "最大并发请求数（0 表示不限制）")
+        private Integer maxConcurrency = 32;
+
+        @Schema(description = "连接池配置")
+        private ConnectionPoolConfig pool = new ConnectionPoolConfig();
     }
 
     /**
@@ -83,11 +98,20 @@ public class LlmProperties {
         @Schema(description = "API 密钥")
         private String apiKey;
 
+        @Schema(description = "API 基础地址（OpenAI 兼容模式）")
+        private String baseUrl = "https://dashscope.aliyuncs.com/compatible-mode/v1";
+
         @Schema(description = "模型名称")
         private String model = "qwen-max";
 
         @Schema(description = "超时时间（毫秒）")
         private Long timeout = 60000L;
+
+        @Schema(description = "最大并发请求数（0 表示不限制）")
+        private Integer maxConcurrency = 32;
+
+        @Schema(description = "连接池配置")
+        private ConnectionPoolConfig pool = new ConnectionPoolConfig();
     }
 
     /**
@@ -107,6 +131,12 @@ public class LlmProperties {
 
         @Schema(description = "超时时间（毫秒）")
         private Long timeout = 60000L;
+
+        @Schema(description = "最大并发请求数（0 表示不限制）")
+        private Integer maxConcurrency = 32;
+
+        @Schema(description = "连接池配置")
+        private ConnectionPoolConfig pool = new ConnectionPoolConfig();
     }
 
     /**
@@ -124,4 +154,107 @@ public class LlmProperties {
         @Schema(description = "是否启用缓存")
         private Boolean enableCache = true;
     }
+
+    /**
+     * 提供商连接池配置
+     * 同一提供商的所有 WebClient（含连接测试）共享一个连接池
+     */
+    @Data
+    @Schema(description = "提供商连接池配置")
+    public static class ConnectionPoolConfig {
+        @Schema(description = "最大连接数（HTTP/2 下为最大 TCP 连接数，每个连接可多路复用）")
+        private Integer maxConnections = 64;
+
+        @Schema(description = "等待获取连接的最大请求数，超出时立即失败")
+        private Integer pendingAcquireMaxCount = 128;
+
+        @Schema(description = "等待获取连接的超时时间（毫秒）")
+        private Long pendingAcquireTimeout = 5000L;
+
+        @Schema(description = "连接最大空闲时间（毫秒），应小于上游负载均衡的空闲断开时间")
+        private Long maxIdleTime = 30000L;
+
+        @Schema(description = "连接最大存活时间（毫秒）")
+        private Long maxLifeTime = 300000L;
+
+        @Schema(description = "后台清理空闲连接的间隔（毫秒）")
+        private Long evictInterval = 30000L;
+
+        @Schema(description = "HTTPS 地址是否协商 HTTP/2（ALPN，不支持时回退 HTTP/1.1）")
+        private Boolean http2 = true;
+
+        @Schema(description = "启动时预先建立的连接数（0 表示只预热事件循环和 DNS）")
+        private Integer prewarmConnections = 2;
+    }
+
+    /**
+     * 多提供商故障转移配置
+     * 按 chain 顺序调用，每个提供商 / 模型一个熔断器，熔断或失败时转移到下一个
+     */
+    @Data
+    @Schema(description = "多提供商故障转移配置")
+    public static class FailoverConfig {
+        @Schema(description = "是否启用")
+        private Boolean enabled = false;
+
+        /**
+         * 调用链，元素格式为 provider 或 provider:model，如 modelscope、dashscope:qwen-plus
+         */
+        @Schema(description = "调用链（provider 或 provider:model）")
+        private List<String> chain = new ArrayList<>(List.of("modelscope"));
+
+        @Schema(description = "单次尝试超时时间（毫秒）")
+        private Long attemptTimeout = 20000L;
+
+        @Schema(description = "熔断器配置")
+        private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+
+        @Schema(description = "对冲请求配置")
+        private HedgeConfig hedge = new HedgeConfig();
+    }
+
+    /**
+     * 熔断器配置（按调用次数的滑动窗口）
+     */
+    @Data
+    @Schema(description = "熔断器配置")
+    public static class CircuitBreakerConfig {
+        @Schema(description = "滑动窗口大小（调用次数）")
+        private Integer slidingWindowSize = 20;
+
+        @Schema(description = "计算失败率所需的最少调用次数")
+        private Integer minimumCalls = 10;
+
+        @Schema(description = "失败率阈值（百分比），达到后熔断")
+        private Integer failureRateThreshold = 50;
+
+        @Schema(description = "熔断持续时间（毫秒），之后进入半开状态")
+        private Long openDuration = 30000L;
+
+        @Schema(description = "半开状态允许的试探调用次数")
+        private Integer halfOpenCalls = 2;
+    }
+
+    /**
+     * 对冲请求配置
+     * 主调用超过其历史延迟分位数仍未返回时，向下一个健康的提供商并行发起请求，先成功者胜出
+     */
+    @Data
+    @Schema(description = "对冲请求配置")
+    public static class HedgeConfig {
+        @Schema(description = "是否启用")
+        private Boolean enabled = false;
+
+        @Schema(description = "触发对冲的延迟分位数")
+        private Double percentile = 0.95;
+
+        @Schema(description = "最小对冲延迟（毫秒）")
+        private Long minDelay = 500L;
+
+        @Schema(description = "统计分位数所需的最少样本数")
+        private Integer minSamples = 20;
+
+        @Schema(description = "延迟样本窗口大小")
+        private Integer windowSize = 200;
+    }
 }
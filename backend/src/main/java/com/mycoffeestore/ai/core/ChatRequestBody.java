@@ -0,0 +1,100 @@
+package com.mycoffeestore.ai.core;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * 已编码的 Chat Completions 请求体（某一轮的不可变快照）
+ * <p>
+ * 由 {@link ChatRequestBodyBuilder} 生成：请求头部字段、已编码的消息与结尾三段字节，
+ * 作为 {@link BodyInserter} 直接写入请求的 {@link DataBuffer}（reactor-netty 下为池化的 ByteBuf），
+ * 不经过 JsonNode 与 String。
+ *
+ * @author zhoulu
+ * @since 2026-03-18
+ */
+public final class ChatRequestBody implements BodyInserter<byte[], ReactiveHttpOutputMessage> {
+
+    static final byte[] SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] prefix;
+    private final byte[] messages;
+    private final int messagesLength;
+    private final MessageDigest digest;
+
+    /**
+     * @param prefix         头部字段（以 {@code "messages":[} 结尾）
+     * @param messages       已编码消息的缓冲区（只读取前 messagesLength 字节，之后的追加不影响本快照）
+     * @param messagesLength 本轮消息的字节数
+     * @param digest         头部与消息的 SHA-256 中间状态（本快照独占）
+     */
+    ChatRequestBody(byte[] prefix, byte[] messages, int messagesLength, MessageDigest digest) {
+        this.prefix = prefix;
+        this.messages = messages;
+        this.messagesLength = messagesLength;
+        this.digest = digest;
+    }
+
+    /**
+     * 请求体字节数
+     */
+    public int size() {
+        return prefix.length + messagesLength + SUFFIX.length;
+    }
+
+    /**
+     * 请求体的 SHA-256（十六进制，与对完整请求体字符串计算的结果一致，用作请求合并键）
+     */
+    public String key() {
+        try {
+            MessageDigest copy = (MessageDigest) digest.clone();
+            copy.update(SUFFIX);
+            return HexFormat.of().formatHex(copy.digest());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 写入由 factory 分配的缓冲区
+     *
+     * @param factory 缓冲区工厂
+     * @return 包含完整请求体的缓冲区（由调用方负责释放）
+     */
+    public DataBuffer write(DataBufferFactory factory) {
+        DataBuffer buffer = factory.allocateBuffer(size());
+        buffer.write(prefix);
+        buffer.write(messages, 0, messagesLength);
+        buffer.write(SUFFIX);
+        return buffer;
+    }
+
+    @Override
+    public Mono<Void> insert(ReactiveHttpOutputMessage message, Context context) {
+        message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        message.getHeaders().setContentLength(size());
+        return message.writeWith(Mono.fromSupplier(() -> write(message.bufferFactory()))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release));
+    }
+
+    /**
+     * 完整请求体 JSON（仅用于日志与测试）
+     */
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[size()];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        System.arraycopy(messages, 0, bytes, prefix.length, messagesLength);
+        System.arraycopy(SUFFIX, 0, bytes, prefix.length + messagesLength, SUFFIX.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
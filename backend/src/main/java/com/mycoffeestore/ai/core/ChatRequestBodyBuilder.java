@@ -0,0 +1,102 @@
+package com.mycoffeestore.ai.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chat Completions 请求体增量构建器（每个对话一个实例）
+ * <p>
+ * 工具调用循环中消息列表只追加不修改，每轮只把新增的消息编码为字节追加到缓冲区：
+ * <ul>
+ *     <li>模型、参数、工具定义等头部字段在创建时编码一次</li>
+ *     <li>之前轮次的消息字节直接复用，不再对整个消息列表 {@code valueToTree} 并 {@code toString}</li>
+ *     <li>请求体的 SHA-256 随追加增量计算，请求合并不必再对整个请求体求摘要</li>
+ * </ul>
+ * 缓冲区扩容时复制到新数组，已生成的 {@link ChatRequestBody} 快照仍指向旧数组，内容不受之后的追加影响。
+ *
+ * @author zhoulu
+ * @since 2026-03-18
+ */
+public class ChatRequestBodyBuilder {
+
+    private static final byte[] MESSAGES_FIELD = ",\"messages\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final byte[] prefix;
+    private final MessageDigest digest;
+
+    private byte[] messages = new byte[4096];
+    private int length;
+
+    /**
+     * 已编码的消息数
+     */
+    private int encodedCount;
+
+    /**
+     * @param objectMapper 序列化消息使用的 ObjectMapper
+     * @param head         头部字段（不含 messages）
+     */
+    public ChatRequestBodyBuilder(ObjectMapper objectMapper, ObjectNode head) {
+        this.objectMapper = objectMapper;
+        try {
+            // {"model":...} 去掉结尾的 }，接上 ,"messages":[
+            byte[] headBytes = objectMapper.writeValueAsBytes(head);
+            byte[] bytes = Arrays.copyOf(headBytes, headBytes.length - 1 + MESSAGES_FIELD.length);
+            System.arraycopy(MESSAGES_FIELD, 0, bytes, headBytes.length - 1, MESSAGES_FIELD.length);
+            this.prefix = bytes;
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("请求头部字段序列化失败", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(prefix);
+    }
+
+    /**
+     * 编码新增的消息并生成本轮请求体
+     *
+     * @param allMessages 完整消息列表（相对上一轮只追加）
+     * @return 本轮请求体
+     */
+    public synchronized ChatRequestBody build(List<Map<String, Object>> allMessages) {
+        if (allMessages.size() < encodedCount) {
+            throw new IllegalStateException("消息列表只能追加: encoded=" + encodedCount + ", size=" + allMessages.size());
+        }
+        for (int i = encodedCount; i < allMessages.size(); i++) {
+            if (i > 0) {
+                append(SEPARATOR);
+            }
+            try {
+                append(objectMapper.writeValueAsBytes(allMessages.get(i)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("消息序列化失败", e);
+            }
+        }
+        encodedCount = allMessages.size();
+        try {
+            return new ChatRequestBody(prefix, messages, length, (MessageDigest) digest.clone());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void append(byte[] bytes) {
+        if (length + bytes.length > messages.length) {
+            messages = Arrays.copyOf(messages, Math.max(messages.length * 2, length + bytes.length));
+        }
+        System.arraycopy(bytes, 0, messages, length, bytes.length);
+        length += bytes.length;
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,206 @@
+package com.mycoffeestore.ai.core;
+
+import com.mycoffeestore.ai.config.LlmProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * LLM 提供商连接池
+ * <p>
+ * 每个提供商一个共享的 reactor-netty {@link ConnectionProvider}，ChatModelFactory、ModelScopeConfig
+ * 创建的 WebClient 以及连接测试都从这里取 {@link HttpClient}，不再各自创建默认连接池：
+ * <ul>
+ *     <li>最大连接数、等待队列长度与等待超时、空闲 / 存活时间、后台清理均可按提供商配置</li>
+ *     <li>HTTPS 地址通过 ALPN 协商 HTTP/2，上游不支持时回退 HTTP/1.1</li>
+ *     <li>应用启动完成后预热事件循环、DNS 与 TLS，并预先建立少量连接，避免首个请求承担握手延迟</li>
+ * </ul>
+ * 未在 {@link LlmProvider} 中定义的提供商（如数据库中新增的提供商）按提供商代码各自使用默认配置的连接池。
+ * <p>
+ * 指标：{@code llm.pool.connections{provider,remote,state=active|idle|pending|allocated}}、
+ * {@code llm.pool.max_connections{provider,remote}}
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Slf4j
+@Schema(description = "LLM 提供商连接池")
+public class LlmConnectionPools {
+
+    private final LlmProperties llmProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 连接池名称（提供商代码） -> 连接池
+     */
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+
+    public LlmConnectionPools(LlmProperties llmProperties, MeterRegistry meterRegistry) {
+        this.llmProperties = llmProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 获取使用提供商共享连接池的 HttpClient
+     * 调用方可在返回值上继续设置响应超时等参数，连接池保持共享
+     *
+     * @param provider LLM 提供商
+     * @param baseUrl  API 基础地址（决定是否协商 HTTP/2）
+     * @param timeout  连接超时时间（毫秒）
+     * @return HttpClient
+     */
+    @Schema(description = "获取使用提供商共享连接池的 HttpClient")
+    public HttpClient httpClient(LlmProvider provider, String baseUrl, long timeout) {
+        return httpClient(provider.getCode(), poolConfig(provider), baseUrl, timeout);
+    }
+
+    /**
+     * 按提供商代码获取 HttpClient（用于连接测试等只知道提供商代码的场景）
+     *
+     * @param providerCode 提供商代码
+     * @param baseUrl      API 基础地址
+     * @param timeout      连接超时时间（毫秒）
+     * @return HttpClient
+     */
+    @Schema(description = "按提供商代码获取 HttpClient")
+    public HttpClient httpClient(String providerCode, String baseUrl, long timeout) {
+        LlmProvider provider = resolve(providerCode);
+        if (provider != null) {
+            return httpClient(provider, baseUrl, timeout);
+        }
+        return httpClient(providerCode.toLowerCase(), new LlmProperties.ConnectionPoolConfig(), baseUrl, timeout);
+    }
+
+    /**
+     * 应用启动完成后预热已配置 API Key 的提供商
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        prewarm(LlmProvider.MODELSCOPE, llmProperties.getModelscope().getBaseUrl(),
+                llmProperties.getModelscope().getApiKey(), llmProperties.getModelscope().getTimeout());
+        prewarm(LlmProvider.DASHSCOPE, llmProperties.getDashscope().getBaseUrl(),
+                llmProperties.getDashscope().getApiKey(), llmProperties.getDashscope().getTimeout());
+        prewarm(LlmProvider.OPENAI, llmProperties.getOpenai().getBaseUrl(),
+                llmProperties.getOpenai().getApiKey(), llmProperties.getOpenai().getTimeout());
+    }
+
+    /**
+     * 关闭所有连接池（Spring 容器关闭时调用）
+     */
+    public void close() {
+        providers.values().forEach(ConnectionProvider::dispose);
+        providers.clear();
+    }
+
+    private HttpClient httpClient(String name, LlmProperties.ConnectionPoolConfig config, String baseUrl, long timeout) {
+        ConnectionProvider connectionProvider = providers.computeIfAbsent(name, key -> createProvider(key, config));
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout);
+        if (Boolean.TRUE.equals(config.getHttp2()) && baseUrl != null && baseUrl.startsWith("https")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return httpClient;
+    }
+
+    private ConnectionProvider createProvider(String name, LlmProperties.ConnectionPoolConfig config) {
+        log.info("创建 LLM 连接池: provider={}, maxConnections={}, pendingAcquireMaxCount={}, http2={}",
+                name, config.getMaxConnections(), config.getPendingAcquireMaxCount(), config.getHttp2());
+        return ConnectionProvider.builder("llm-" + name)
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(config.getPendingAcquireTimeout()))
+                .maxIdleTime(Duration.ofMillis(config.getMaxIdleTime()))
+                .maxLifeTime(Duration.ofMillis(config.getMaxLifeTime()))
+                .evictInBackground(Duration.ofMillis(config.getEvictInterval()))
+                .metrics(true, () -> (poolName, id, remoteAddress, metrics) -> registerMetrics(name, remoteAddress, metrics))
+                .build();
+    }
+
+    /**
+     * 每个远端地址的子连接池创建时注册指标（指标对象只由 Gauge 引用，需强引用）
+     */
+    private void registerMetrics(String name, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        String remote = remoteAddress instanceof InetSocketAddress address
+                ? address.getHostString() + ":" + address.getPort()
+                : String.valueOf(remoteAddress);
+        registerGauge(name, remote, "active", metrics, ConnectionPoolMetrics::acquiredSize);
+        registerGauge(name, remote, "idle", metrics, ConnectionPoolMetrics::idleSize);
+        registerGauge(name, remote, "pending", metrics, ConnectionPoolMetrics::pendingAcquireSize);
+        registerGauge(name, remote, "allocated", metrics, ConnectionPoolMetrics::allocatedSize);
+        Gauge.builder("llm.pool.max_connections", metrics, ConnectionPoolMetrics::maxAllocatedSize)
+                .description("LLM 连接池最大连接数")
+                .tag("provider", name)
+                .tag("remote", remote)
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+
+    private void registerGauge(String name, String remote, String state, ConnectionPoolMetrics metrics,
+                               ToDoubleFunction<ConnectionPoolMetrics> value) {
+        Gauge.builder("llm.pool.connections", metrics, value)
+                .description("LLM 连接池连接数")
+                .tag("provider", name)
+                .tag("remote", remote)
+                .tag("state", state)
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+
+    private void prewarm(LlmProvider provider, String baseUrl, String apiKey, Long timeout) {
+        if (apiKey == null || apiKey.isBlank() || baseUrl == null) {
+            return;
+        }
+        HttpClient httpClient = httpClient(provider, baseUrl, timeout);
+        int connections = Math.max(0, poolConfig(provider).getPrewarmConnections());
+
+        // 预热事件循环、DNS 解析器与 TLS；再并发请求轻量接口，让连接建立后留在池中
+        httpClient.warmup()
+                .thenMany(Flux.range(0, connections)
+                        .flatMap(i -> httpClient
+                                .headers(headers -> headers.set("Authorization", "Bearer " + apiKey))
+                                .get()
+                                .uri(baseUrl + "/models")
+                                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                                .onErrorResume(error -> {
+                                    log.debug("LLM 连接预热请求失败: provider={}, error={}", provider.getCode(), error.getMessage());
+                                    return Mono.empty();
+                                })))
+                .doOnComplete(() -> log.info("LLM 连接池预热完成: provider={}, connections={}", provider.getCode(), connections))
+                .subscribe(status -> { }, error -> log.warn("LLM 连接池预热失败: provider={}, error={}",
+                        provider.getCode(), error.getMessage()));
+    }
+
+    private LlmProperties.ConnectionPoolConfig poolConfig(LlmProvider provider) {
+        return switch (provider) {
+            case MODELSCOPE -> llmProperties.getModelscope().getPool();
+            case DASHSCOPE -> llmProperties.getDashscope().getPool();
+            case OPENAI -> llmProperties.getOpenai().getPool();
+        };
+    }
+
+    private LlmProvider resolve(String providerCode) {
+        for (LlmProvider provider : LlmProvider.values()) {
+            if (provider.getCode().equalsIgnoreCase(providerCode)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,368 @@
+package com.mycoffeestore.ai.core;
+
+import com.mycoffeestore.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * LLM 调用指标
+ * <p>
+ * 每次模型调用通过 {@link #start} 得到一个 {@link Call}，在流上报告首个增量、用量与结束信号：
+ * <ul>
+ *     <li>{@code llm.ttft}：首字延迟（非流式调用为完整响应耗时）</li>
+ *     <li>{@code llm.duration{outcome=success|error|cancelled}}：调用总耗时</li>
+ *     <li>{@code llm.tokens.per_second}：生成速度（首字之后的输出 Token / 秒），没有 usage 时按增量块数估算</li>
+ *     <li>{@code llm.tokens{type=prompt|completion}}：上游返回的 usage</li>
+ *     <li>{@code llm.errors{error=timeout|http_xxx|connect|business_xxx|other}}：上游错误</li>
+ *     <li>{@code agent.tool.rounds}：一次对话的工具调用轮数</li>
+ *     <li>{@code agent.tool.duration{tool, outcome}}：单个工具的执行耗时</li>
+ * </ul>
+ * 以上指标都带 agent 标签，LLM 指标另带 provider、model 标签；耗时与速度按 SLO 阈值发布直方图桶。
+ * <p>
+ * ChatModel 由多个 Agent 共用，调用方通过 Reactor Context（{@link #agentContext}）或在阻塞调用外层使用
+ * {@link #callAs} 指定 agent 标签。
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Component
+public class LlmMetrics {
+
+    /**
+     * Reactor Context 中 agent 标签的键
+     */
+    public static final String AGENT_KEY = LlmMetrics.class.getName() + ".agent";
+
+    /**
+     * 未指定 agent 时的标签值
+     */
+    public static final String UNKNOWN = "unknown";
+
+    private static final Duration[] TTFT_SLO = {
+        Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(2),
+        Duration.ofSeconds(3), Duration.ofSeconds(5), Duration.ofSeconds(10)
+    };
+
+    private static final Duration[] DURATION_SLO = {
+        Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(10),
+        Duration.ofSeconds(20), Duration.ofSeconds(30), Duration.ofSeconds(60)
+    };
+
+    private static final double[] TOKENS_PER_SECOND_SLO = {5, 10, 20, 40, 80, 160};
+
+    private static final double[] TOOL_ROUNDS_SLO = {0, 1, 2, 3, 4, 5};
+
+    private static final Duration[] TOOL_SLO = {
+        Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+        Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5)
+    };
+
+    private static final ThreadLocal<String> CURRENT_AGENT = new ThreadLocal<>();
+
+    private static final LlmMetrics NOOP = new LlmMetrics(new CompositeMeterRegistry());
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * (agent, provider, model) -> 调用指标
+     */
+    private final Map<CallKey, CallMeters> callMeters = new ConcurrentHashMap<>();
+
+    public LlmMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 不输出任何指标的实例（未配置指标的 ChatModel 使用）
+     */
+    public static LlmMetrics noop() {
+        return NOOP;
+    }
+
+    /**
+     * 指定 agent 标签的 Reactor Context
+     *
+     * @param agent Agent 名称
+     * @return Context
+     */
+    public static Context agentContext(String agent) {
+        return agent != null ? Context.of(AGENT_KEY, agent) : Context.empty();
+    }
+
+    /**
+     * 当前线程通过 {@link #callAs} 指定的 agent 标签转为 Reactor Context（阻塞调用转异步时传递标签）
+     */
+    public static Context currentAgentContext() {
+        return agentContext(CURRENT_AGENT.get());
+    }
+
+    /**
+     * 读取 agent 标签：优先 Reactor Context，其次当前线程，都没有时为 {@link #UNKNOWN}
+     *
+     * @param context Reactor Context
+     * @return agent 标签
+     */
+    public static String agentOf(ContextView context) {
+        String current = CURRENT_AGENT.get();
+        return context.getOrDefault(AGENT_KEY, current != null ? current : UNKNOWN);
+    }
+
+    /**
+     * 以指定 agent 标签执行阻塞调用
+     *
+     * @param agent 标签
+     * @param call  阻塞调用
+     * @return 调用结果
+     */
+    public static <T> T callAs(String agent, Supplier<T> call) {
+        String previous = CURRENT_AGENT.get();
+        CURRENT_AGENT.set(agent);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT_AGENT.set(previous);
+            } else {
+                CURRENT_AGENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 开始一次模型调用
+     *
+     * @param agent    Agent 名称
+     * @param provider 提供商
+     * @param model    模型名称
+     * @return 调用观察者
+     */
+    public Call start(String agent, String provider, String model) {
+        CallKey key = new CallKey(agent != null ? agent : UNKNOWN,
+                provider != null ? provider : UNKNOWN,
+                model != null ? model : UNKNOWN);
+        return new Call(key, callMeters.computeIfAbsent(key, this::register));
+    }
+
+    /**
+     * 记录一次对话的工具调用轮数
+     *
+     * @param agent  Agent 名称
+     * @param rounds 轮数
+     */
+    public void recordToolRounds(String agent, int rounds) {
+        DistributionSummary.builder("agent.tool.rounds")
+                .description("一次对话的工具调用轮数")
+                .tag("agent", agent != null ? agent : UNKNOWN)
+                .serviceLevelObjectives(TOOL_ROUNDS_SLO)
+                .register(meterRegistry)
+                .record(rounds);
+    }
+
+    /**
+     * 记录单个工具的执行耗时
+     *
+     * @param agent   Agent 名称
+     * @param tool    工具名
+     * @param nanos   耗时（纳秒）
+     * @param outcome 结果（success / error / timeout / queue_timeout / rejected）
+     */
+    public void recordTool(String agent, String tool, long nanos, String outcome) {
+        Timer.builder("agent.tool.duration")
+                .description("Agent 工具执行耗时")
+                .tag("agent", agent != null ? agent : UNKNOWN)
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .serviceLevelObjectives(TOOL_SLO)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private CallMeters register(CallKey key) {
+        return new CallMeters(
+                Timer.builder("llm.ttft")
+                        .description("LLM 首字延迟")
+                        .tags("agent", key.agent(), "provider", key.provider(), "model", key.model())
+                        .serviceLevelObjectives(TTFT_SLO)
+                        .register(meterRegistry),
+                durationTimer(key, "success"),
+                durationTimer(key, "error"),
+                durationTimer(key, "cancelled"),
+                DistributionSummary.builder("llm.tokens.per_second")
+                        .description("LLM 生成速度（Token/秒）")
+                        .tags("agent", key.agent(), "provider", key.provider(), "model", key.model())
+                        .serviceLevelObjectives(TOKENS_PER_SECOND_SLO)
+                        .register(meterRegistry),
+                tokenCounter(key, "prompt"),
+                tokenCounter(key, "completion"));
+    }
+
+    private Timer durationTimer(CallKey key, String outcome) {
+        return Timer.builder("llm.duration")
+                .description("LLM 调用总耗时")
+                .tags("agent", key.agent(), "provider", key.provider(), "model", key.model())
+                .tag("outcome", outcome)
+                .serviceLevelObjectives(DURATION_SLO)
+                .register(meterRegistry);
+    }
+
+    private Counter tokenCounter(CallKey key, String type) {
+        return Counter.builder("llm.tokens")
+                .description("LLM 用量 Token 数")
+                .tags("agent", key.agent(), "provider", key.provider(), "model", key.model())
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private void countError(CallKey key, Throwable error) {
+        Counter.builder("llm.errors")
+                .description("LLM 上游错误数")
+                .tags("agent", key.agent(), "provider", key.provider(), "model", key.model())
+                .tag("error", errorType(error))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 错误分类（标签值有限）
+     */
+    static String errorType(Throwable error) {
+        Throwable cause = Exceptions.unwrap(error);
+        if (cause instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (cause instanceof WebClientResponseException responseException) {
+            return "http_" + responseException.getStatusCode().value();
+        }
+        if (cause instanceof WebClientRequestException) {
+            return "connect";
+        }
+        if (cause instanceof BusinessException businessException) {
+            return "business_" + businessException.getCode();
+        }
+        return "other";
+    }
+
+    private record CallKey(String agent, String provider, String model) {
+    }
+
+    private record CallMeters(Timer ttft,
+                              Timer success,
+                              Timer error,
+                              Timer cancelled,
+                              DistributionSummary tokensPerSecond,
+                              Counter promptTokens,
+                              Counter completionTokens) {
+    }
+
+    /**
+     * 单次模型调用的观察者
+     * 结束信号（成功、出错、取消）只记录第一个；首字与增量回调可在流的任意线程调用，但同一时刻只有一个线程
+     */
+    public final class Call {
+
+        private final CallKey key;
+        private final CallMeters meters;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private long firstTokenNanos;
+        private int deltas;
+        private boolean streaming = true;
+        private Integer completionTokens;
+
+        private Call(CallKey key, CallMeters meters) {
+            this.key = key;
+            this.meters = meters;
+        }
+
+        /**
+         * 收到一个文本或工具调用增量（第一个增量记录首字延迟）
+         */
+        public void delta() {
+            if (deltas++ == 0) {
+                firstTokenNanos = System.nanoTime();
+                meters.ttft().record(firstTokenNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * 收到完整的非流式响应（首字延迟即响应耗时）
+         */
+        public void response() {
+            streaming = false;
+            delta();
+        }
+
+        /**
+         * 上游返回的用量
+         *
+         * @param promptTokens     输入 Token 数（可为 null）
+         * @param completionTokens 输出 Token 数（可为 null）
+         */
+        public void usage(Integer promptTokens, Integer completionTokens) {
+            if (promptTokens != null) {
+                meters.promptTokens().increment(promptTokens);
+            }
+            if (completionTokens != null) {
+                meters.completionTokens().increment(completionTokens);
+                this.completionTokens = completionTokens;
+            }
+        }
+
+        /**
+         * 调用成功结束
+         */
+        public void success() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            long end = System.nanoTime();
+            meters.success().record(end - startNanos, TimeUnit.NANOSECONDS);
+
+            int tokens = completionTokens != null ? completionTokens : deltas;
+            // 非流式调用没有首字之后的生成阶段，按总耗时计算
+            long generation = streaming && deltas > 0 ? end - firstTokenNanos : end - startNanos;
+            if (tokens > 0 && generation > 0) {
+                meters.tokensPerSecond().record(tokens * 1e9 / generation);
+            }
+        }
+
+        /**
+         * 调用出错结束
+         *
+         * @param error 错误
+         */
+        public void error(Throwable error) {
+            if (finished.compareAndSet(false, true)) {
+                meters.error().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                countError(key, error);
+            }
+        }
+
+        /**
+         * 调用被取消（客户端断开、推测执行被放弃、对冲请求落败）
+         */
+        public void cancel() {
+            if (finished.compareAndSet(false, true)) {
+                meters.cancelled().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
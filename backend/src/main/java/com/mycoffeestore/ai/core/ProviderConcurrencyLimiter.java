@@ -0,0 +1,120 @@
+package com.mycoffeestore.ai.core;
+
+import com.mycoffeestore.ai.config.LlmProperties;
+import com.mycoffeestore.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LLM 提供商并发限制器
+ * <p>
+ * 每个提供商一个全局信号量，以 {@link ExchangeFilterFunction} 的形式挂到该提供商的所有 WebClient 上：
+ * 请求发出前非阻塞地获取许可，响应体读完、出错或被取消时释放；获取不到时直接以
+ * {@link BusinessException}（code 503）失败，由调用方转成 SSE 错误事件。
+ * 同一提供商的多个 WebClient（不同工厂实例、ModelScopeConfig）共享同一个信号量。
+ * <p>
+ * 指标：{@code llm.provider.inflight{provider}}、{@code llm.provider.rejected{provider}}
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+@Slf4j
+@Schema(description = "LLM 提供商并发限制器")
+public class ProviderConcurrencyLimiter {
+
+    private final LlmProperties llmProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 提供商 -> 信号量
+     */
+    private final Map<LlmProvider, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    public ProviderConcurrencyLimiter(LlmProperties llmProperties, MeterRegistry meterRegistry) {
+        this.llmProperties = llmProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 获取提供商的并发限制过滤器
+     *
+     * @param provider LLM 提供商
+     * @return WebClient 过滤器；未配置上限时直接放行
+     */
+    @Schema(description = "获取提供商的并发限制过滤器")
+    public ExchangeFilterFunction filter(LlmProvider provider) {
+        int maxConcurrency = maxConcurrency(provider);
+        if (maxConcurrency <= 0) {
+            return (request, next) -> next.exchange(request);
+        }
+
+        Semaphore semaphore = semaphores.computeIfAbsent(provider, p -> register(p, maxConcurrency));
+        Counter rejected = Counter.builder("llm.provider.rejected")
+                .description("因并发上限被拒绝的 LLM 请求数")
+                .tag("provider", provider.getCode())
+                .register(meterRegistry);
+
+        return (request, next) -> Mono.defer(() -> {
+            if (!semaphore.tryAcquire()) {
+                rejected.increment();
+                log.warn("LLM 提供商并发已达上限: provider={}, max={}", provider.getCode(), maxConcurrency);
+                return Mono.error(new BusinessException(503, "AI 服务繁忙，请稍后重试"));
+            }
+
+            // 响应体结束、请求出错或被取消都会触发，保证只释放一次
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    semaphore.release();
+                }
+            };
+            return next.exchange(request)
+                    .map(response -> response.mutate()
+                            .body(body -> body.doFinally(signal -> release.run()))
+                            .build())
+                    .doOnError(error -> release.run())
+                    .doOnCancel(release);
+        });
+    }
+
+    /**
+     * 当前可用许可数
+     *
+     * @param provider LLM 提供商
+     * @return 可用许可数；未限制时返回 -1
+     */
+    @Schema(description = "当前可用许可数")
+    public int availablePermits(LlmProvider provider) {
+        Semaphore semaphore = semaphores.get(provider);
+        return semaphore != null ? semaphore.availablePermits() : -1;
+    }
+
+    private Semaphore register(LlmProvider provider, int maxConcurrency) {
+        Semaphore semaphore = new Semaphore(maxConcurrency);
+        Gauge.builder("llm.provider.inflight", semaphore, s -> maxConcurrency - s.availablePermits())
+                .description("正在进行的 LLM 请求数")
+                .tag("provider", provider.getCode())
+                .register(meterRegistry);
+        log.info("LLM 提供商并发上限: provider={}, max={}", provider.getCode(), maxConcurrency);
+        return semaphore;
+    }
+
+    private int maxConcurrency(LlmProvider provider) {
+        Integer value = switch (provider) {
+            case MODELSCOPE -> llmProperties.getModelscope().getMaxConcurrency();
+            case DASHSCOPE -> llmProperties.getDashscope().getMaxConcurrency();
+            case OPENAI -> llmProperties.getOpenai().getMaxConcurrency();
+        };
+        return value != null ? value : 0;
+    }
+}
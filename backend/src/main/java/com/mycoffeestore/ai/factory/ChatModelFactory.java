@@ -2,20 +2,27 @@ package com.mycoffeestore.ai.factory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycoffeestore.ai.config.LlmProperties;
+import com.mycoffeestore.ai.core.LlmConnectionPools;
+import com.mycoffeestore.ai.core.LlmMetrics;
 import com.mycoffeestore.ai.core.LlmProvider;
+import com.mycoffeestore.ai.core.ProviderConcurrencyLimiter;
 import com.mycoffeestore.ai.modelscope.ModelScopeChatModel;
 import com.mycoffeestore.ai.modelscope.ModelScopeStreamingChatModel;
+import com.mycoffeestore.ai.resilience.FailoverChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.media.Schema;
-import io.netty.channel.ChannelOption;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -33,6 +40,9 @@ public class ChatModelFactory {
 
     private final LlmProperties llmProperties;
     private final ObjectMapper objectMapper;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final LlmConnectionPools connectionPools;
+    private final MeterRegistry meterRegistry;
 
     /**
      * 缓存已创建的 WebClient 实例
@@ -49,6 +59,11 @@ public class ChatModelFactory {
      */
     private final Map<String, ModelScopeStreamingChatModel> streamingChatModelCache = new ConcurrentHashMap<>();
 
+    /**
+     * 故障转移 ChatModel（熔断器与延迟统计需要跨调用保留，只创建一次）
+     */
+    private FailoverChatModel failoverChatModel;
+
     /**
      * 创建 ChatModel（使用默认提供商）
      *
@@ -163,6 +178,9 @@ public class ChatModelFactory {
         chatModelCache.clear();
         streamingChatModelCache.clear();
         webClientCache.clear();
+        synchronized (this) {
+            failoverChatModel = null;
+        }
     }
 
     /**
@@ -178,71 +196,103 @@ public class ChatModelFactory {
     }
 
     /**
-     * 实际创建 ChatModel
+     * 创建故障转移 ChatModel
+     * 按 llm.failover.chain 组装调用链；未启用时返回默认提供商的 ChatModel
+     *
+     * @return ChatModel 实例
      */
-    private ModelScopeChatModel doCreateChatModel(LlmProvider provider, String model) {
-        switch (provider) {
-            case MODELSCOPE:
-                WebClient webClient = getOrCreateWebClient(provider);
-                ModelScopeChatModel chatModel = new ModelScopeChatModel(webClient, objectMapper);
-
-                // 配置默认选项
-                String modelName = model != null ? model : llmProperties.getModelscope().getModel();
-                chatModel.setDefaultOptions(
-                        com.mycoffeestore.ai.config.ModelScopeChatOptions.builder()
-                                .model(modelName)
-                                .temperature(llmProperties.getModelscope().getTemperature())
-                                .maxTokens(llmProperties.getCommon().getMaxTokens())
-                                .stream(llmProperties.getCommon().getStream())
-                                .build()
-                );
-
-                return chatModel;
+    @Schema(description = "创建故障转移 ChatModel")
+    public synchronized ChatModel createFailoverChatModel() {
+        LlmProperties.FailoverConfig failover = llmProperties.getFailover();
+        if (!Boolean.TRUE.equals(failover.getEnabled()) || failover.getChain().isEmpty()) {
+            return createChatModel();
+        }
+        if (failoverChatModel != null) {
+            return failoverChatModel;
+        }
 
-            case DASHSCOPE:
-                throw new UnsupportedOperationException("DashScope 尚未实现");
+        List<FailoverChatModel.MemberSpec> specs = new ArrayList<>();
+        for (String entry : failover.getChain()) {
+            int colon = entry.indexOf(':');
+            LlmProvider provider = LlmProvider.fromCode(colon < 0 ? entry.trim() : entry.substring(0, colon).trim());
+            String model = colon < 0 ? null : entry.substring(colon + 1).trim();
+            specs.add(new FailoverChatModel.MemberSpec(buildCacheKey(provider, model), createChatModel(provider, model)));
+        }
+        log.info("创建故障转移 ChatModel，调用链: {}", specs.stream().map(FailoverChatModel.MemberSpec::name).toList());
+        failoverChatModel = new FailoverChatModel(specs, failover, meterRegistry);
+        return failoverChatModel;
+    }
 
-            case OPENAI:
-                throw new UnsupportedOperationException("OpenAI 尚未实现");
+    /**
+     * 实际创建 ChatModel
+     * 三个提供商都使用 OpenAI 兼容的 /chat/completions 接口，共用同一实现
+     */
+    private ModelScopeChatModel doCreateChatModel(LlmProvider provider, String model) {
+        WebClient webClient = getOrCreateWebClient(provider);
+        ModelScopeChatModel chatModel = new ModelScopeChatModel(webClient, objectMapper);
+        ProviderSettings settings = providerSettings(provider);
+
+        // 配置默认选项（温度参数只在 ModelScope 下配置，其余提供商沿用）
+        chatModel.setDefaultOptions(
+                com.mycoffeestore.ai.config.ModelScopeChatOptions.builder()
+                        .model(model != null ? model : settings.model())
+                        .temperature(llmProperties.getModelscope().getTemperature())
+                        .maxTokens(llmProperties.getCommon().getMaxTokens())
+                        .stream(llmProperties.getCommon().getStream())
+                        .build()
+        );
+        chatModel.setTimeout(Duration.ofMillis(settings.timeout()));
+        chatModel.setMetrics(new LlmMetrics(meterRegistry), provider.getCode());
 
-            default:
-                throw new IllegalArgumentException("不支持的提供商: " + provider);
-        }
+        return chatModel;
     }
 
     /**
      * 实际创建 StreamingChatModel
+     * 与 {@link #doCreateChatModel} 相同，三个提供商共用 OpenAI 兼容的流式实现，
+     * 模型名、超时与 baseUrl（经由 WebClient）均按提供商配置
      */
     private ModelScopeStreamingChatModel doCreateStreamingChatModel(LlmProvider provider, String model) {
+        WebClient webClient = getOrCreateWebClient(provider);
+        ModelScopeStreamingChatModel streamingModel = new ModelScopeStreamingChatModel(webClient, objectMapper);
+        ProviderSettings settings = providerSettings(provider);
+
+        // 配置默认选项
+        streamingModel.setDefaultOptions(
+                com.mycoffeestore.ai.config.ModelScopeChatOptions.builder()
+                        .model(model != null ? model : settings.model())
+                        .temperature(llmProperties.getModelscope().getTemperature())
+                        .maxTokens(llmProperties.getCommon().getMaxTokens())
+                        .stream(true)
+                        .build()
+        );
+        streamingModel.setTimeout(Duration.ofMillis(settings.timeout()));
+
+        return streamingModel;
+    }
+
+    /**
+     * 读取提供商的默认模型与超时配置
+     */
+    private ProviderSettings providerSettings(LlmProvider provider) {
         switch (provider) {
             case MODELSCOPE:
-                WebClient webClient = getOrCreateWebClient(provider);
-                ModelScopeStreamingChatModel streamingModel = new ModelScopeStreamingChatModel(webClient, objectMapper);
-
-                // 配置默认选项
-                String modelName = model != null ? model : llmProperties.getModelscope().getModel();
-                streamingModel.setDefaultOptions(
-                        com.mycoffeestore.ai.config.ModelScopeChatOptions.builder()
-                                .model(modelName)
-                                .temperature(llmProperties.getModelscope().getTemperature())
-                                .maxTokens(llmProperties.getCommon().getMaxTokens())
-                                .stream(true)
-                                .build()
-                );
-
-                return streamingModel;
-
+                return new ProviderSettings(llmProperties.getModelscope().getModel(), llmProperties.getModelscope().getTimeout());
             case DASHSCOPE:
-                throw new UnsupportedOperationException("DashScope 尚未实现");
-
+                return new ProviderSettings(llmProperties.getDashscope().getModel(), llmProperties.getDashscope().getTimeout());
             case OPENAI:
-                throw new UnsupportedOperationException("OpenAI 尚未实现");
-
+                return new ProviderSettings(llmProperties.getOpenai().getModel(), llmProperties.getOpenai().getTimeout());
             default:
                 throw new IllegalArgumentException("不支持的提供商: " + provider);
         }
     }
 
+    /**
+     * 提供商的默认模型名与超时（毫秒）
+     */
+    private record ProviderSettings(String model, Long timeout) {
+    }
+
     /**
      * 获取或创建 WebClient
      */
@@ -274,8 +324,7 @@ public class ChatModelFactory {
     private WebClient createModelScopeWebClient() {
         LlmProperties.ModelScopeConfig config = llmProperties.getModelscope();
 
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getTimeout().intValue())
+        HttpClient httpClient = connectionPools.httpClient(LlmProvider.MODELSCOPE, config.getBaseUrl(), config.getTimeout())
                 .responseTimeout(Duration.ofMillis(config.getTimeout()));
 
         return WebClient.builder()
@@ -283,6 +332,7 @@ public class ChatModelFactory {
                 .defaultHeader("Authorization", "Bearer " + config.getApiKey())
                 .defaultHeader("Content-Type", "application/json")
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(concurrencyLimiter.filter(LlmProvider.MODELSCOPE))
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
                 .build();
     }
@@ -293,15 +343,15 @@ public class ChatModelFactory {
     private WebClient createDashScopeWebClient() {
         LlmProperties.DashScopeConfig config = llmProperties.getDashscope();
 
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getTimeout().intValue())
+        HttpClient httpClient = connectionPools.httpClient(LlmProvider.DASHSCOPE, config.getBaseUrl(), config.getTimeout())
                 .responseTimeout(Duration.ofMillis(config.getTimeout()));
 
         return WebClient.builder()
-                .baseUrl("https://dashscope.aliyuncs.com/api/v1")
+                .baseUrl(config.getBaseUrl())
                 .defaultHeader("Authorization", "Bearer " + config.getApiKey())
                 .defaultHeader("Content-Type", "application/json")
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(concurrencyLimiter.filter(LlmProvider.DASHSCOPE))
                 .build();
     }
 
@@ -311,8 +361,7 @@ public class ChatModelFactory {
     private WebClient createOpenAIWebClient() {
         LlmProperties.OpenAIConfig config = llmProperties.getOpenai();
 
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getTimeout().intValue())
+        HttpClient httpClient = connectionPools.httpClient(LlmProvider.OPENAI, config.getBaseUrl(), config.getTimeout())
                 .responseTimeout(Duration.ofMillis(config.getTimeout()));
 
         return WebClient.builder()
@@ -320,6 +369,7 @@ public class ChatModelFactory {
                 .defaultHeader("Authorization", "Bearer " + config.getApiKey())
                 .defaultHeader("Content-Type", "application/json")
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(concurrencyLimiter.filter(LlmProvider.OPENAI))
                 .build();
     }
 
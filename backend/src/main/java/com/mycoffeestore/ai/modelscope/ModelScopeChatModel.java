@@ -3,6 +3,10 @@ package com.mycoffeestore.ai.modelscope;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycoffeestore.ai.config.ModelScopeChatOptions;
+import com.mycoffeestore.ai.core.LlmMetrics;
+import com.mycoffeestore.ai.stream.ChatStreamChunk;
+import com.mycoffeestore.ai.stream.ChatStreamParser;
+import com.mycoffeestore.exception.BusinessException;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.AssistantMessage;
@@ -40,6 +44,21 @@ public class ModelScopeChatModel implements ChatModel {
     private final ObjectMapper objectMapper;
     private ModelScopeChatOptions defaultOptions;
 
+    /**
+     * 同步调用的超时时间
+     */
+    private Duration timeout = Duration.ofMillis(60000);
+
+    /**
+     * 调用指标（agent 标签由调用方通过 Reactor Context 或 {@link LlmMetrics#callAs} 指定）
+     */
+    private LlmMetrics metrics = LlmMetrics.noop();
+
+    /**
+     * 指标中的提供商标签
+     */
+    private String provider = LlmMetrics.UNKNOWN;
+
     public ModelScopeChatModel(WebClient webClient, ObjectMapper objectMapper) {
         this.webClient = webClient;
         this.objectMapper = objectMapper;
@@ -52,6 +71,24 @@ public class ModelScopeChatModel implements ChatModel {
         this.defaultOptions = options;
     }
 
+    /**
+     * 设置同步调用的超时时间
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * 设置调用指标
+     *
+     * @param metrics  指标
+     * @param provider 提供商标签
+     */
+    public void setMetrics(LlmMetrics metrics, String provider) {
+        this.metrics = metrics;
+        this.provider = provider;
+    }
+
     @Override
     public ChatOptions getDefaultOptions() {
         return (ChatOptions) defaultOptions;
@@ -81,28 +118,28 @@ public class ModelScopeChatModel implements ChatModel {
 
     // ==================== 内部实现方法 ====================
 
+    /**
+     * 异步调用（不阻塞调用线程），供故障转移 / 对冲请求组合使用
+     *
+     * @param prompt 提示词
+     * @return 响应
+     */
+    @Schema(description = "异步调用")
+    public Mono<ChatResponse> callAsync(Prompt prompt) {
+        return Mono.defer(() -> requestInternal(prompt.getInstructions(), null))
+                .map(content -> new ChatResponse(List.of(new Generation(new AssistantMessage(content)))));
+    }
+
     /**
      * 内部同步调用实现
      */
     private String callInternal(List<Message> messages, ModelScopeChatOptions options) {
         try {
-            ModelScopeChatOptions effectiveOptions = options != null ? options :
-                (defaultOptions != null ? defaultOptions : ModelScopeChatOptions.defaultOptions());
-
-            // 构建请求体
-            Map<String, Object> requestBody = buildRequestBody(messages, effectiveOptions);
-
             // 使用 WebClient 进行同步调用
-            String response = webClient.post()
-                    .uri("/chat/completions")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(objectMapper.writeValueAsString(requestBody))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(Duration.ofMillis(60000));
-
-            // 解析响应
-            return parseResponse(response);
+            return requestInternal(messages, options).block(timeout);
+        } catch (BusinessException e) {
+            // 并发上限等业务异常原样抛出，保留错误码
+            throw e;
         } catch (WebClientResponseException e) {
             log.error("ModelScope API 调用失败: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("ModelScope API 调用失败: " + e.getMessage(), e);
@@ -112,6 +149,35 @@ public class ModelScopeChatModel implements ChatModel {
         }
     }
 
+    /**
+     * 构建并发送非流式请求，返回解析后的文本内容
+     */
+    private Mono<String> requestInternal(List<Message> messages, ModelScopeChatOptions options) {
+        try {
+            ModelScopeChatOptions effectiveOptions = options != null ? options :
+                (defaultOptions != null ? defaultOptions : ModelScopeChatOptions.defaultOptions());
+
+            // 构建请求体
+            String requestBody = objectMapper.writeValueAsString(buildRequestBody(messages, effectiveOptions));
+
+            return Mono.deferContextual(context -> {
+                LlmMetrics.Call call = metrics.start(LlmMetrics.agentOf(context), provider, effectiveOptions.getModel());
+                return webClient.post()
+                        .uri("/chat/completions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .map(response -> parseResponse(response, call))
+                        .doOnSuccess(response -> call.success())
+                        .doOnError(call::error)
+                        .doOnCancel(call::cancel);
+            });
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
     /**
      * 内部流式调用实现
      */
@@ -134,17 +200,24 @@ public class ModelScopeChatModel implements ChatModel {
                     .extraParams(effectiveOptions.getExtraParams())
                     .build();
 
-            // 构建请求体
+            // 构建请求体（最后一个块返回 usage，用于用量与生成速度指标）
             Map<String, Object> requestBody = buildRequestBody(messages, streamOptions);
-
-            return webClient.post()
-                    .uri("/chat/completions")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(objectMapper.writeValueAsString(requestBody))
-                    .retrieve()
-                    .bodyToFlux(String.class)
-                    .flatMap(this::parseStreamLine)
-                    .doOnError(error -> log.error("ModelScope 流式调用异常", error));
+            requestBody.put("stream_options", Map.of("include_usage", true));
+            String json = objectMapper.writeValueAsString(requestBody);
+
+            return Flux.deferContextual(context -> {
+                LlmMetrics.Call call = metrics.start(LlmMetrics.agentOf(context), provider, streamOptions.getModel());
+                return webClient.post()
+                        .uri("/chat/completions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(json)
+                        .retrieve()
+                        .bodyToFlux(String.class)
+                        .flatMap(line -> parseStreamLine(line, call))
+                        .doOnComplete(call::success)
+                        .doOnError(call::error)
+                        .doOnCancel(call::cancel);
+            }).doOnError(error -> log.error("ModelScope 流式调用异常", error));
 
         } catch (Exception e) {
             log.error("ModelScope 流式调用构建异常", e);
@@ -184,9 +257,15 @@ public class ModelScopeChatModel implements ChatModel {
     /**
      * 解析同步响应
      */
-    private String parseResponse(String response) {
+    private String parseResponse(String response, LlmMetrics.Call call) {
         try {
             JsonNode root = objectMapper.readTree(response);
+            call.response();
+            JsonNode usage = root.get("usage");
+            if (usage != null && usage.isObject()) {
+                call.usage(usage.hasNonNull("prompt_tokens") ? usage.get("prompt_tokens").asInt() : null,
+                        usage.hasNonNull("completion_tokens") ? usage.get("completion_tokens").asInt() : null);
+            }
             JsonNode choices = root.get("choices");
             if (choices != null && choices.isArray() && choices.size() > 0) {
                 JsonNode message = choices.get(0).get("message");
@@ -207,38 +286,19 @@ public class ModelScopeChatModel implements ChatModel {
     /**
      * 解析流式响应行
      */
-    private Mono<String> parseStreamLine(String line) {
-        // 处理 SSE 格式
-        String data = line.trim();
-        if (data.isEmpty() || data.equals("[DONE]")) {
+    private Mono<String> parseStreamLine(String line, LlmMetrics.Call call) {
+        ChatStreamChunk chunk = ChatStreamParser.parse(line);
+        if (chunk == null) {
             return Mono.empty();
         }
-
-        // 去掉 "data: " 前缀
-        if (data.startsWith("data:")) {
-            data = data.substring(5).trim();
-        }
-        if (data.isEmpty() || data.equals("[DONE]")) {
-            return Mono.empty();
+        if (chunk.getUsage() != null) {
+            call.usage(chunk.getUsage().getPromptTokens(), chunk.getUsage().getCompletionTokens());
         }
-
-        try {
-            JsonNode root = objectMapper.readTree(data);
-            JsonNode choices = root.get("choices");
-            if (choices != null && choices.isArray() && choices.size() > 0) {
-                JsonNode delta = choices.get(0).get("delta");
-                if (delta != null && delta.has("content")) {
-                    String content = delta.get("content").asText();
-                    if (!content.isEmpty()) {
-                        return Mono.just(content);
-                    }
-                }
-            }
-            return Mono.empty();
-        } catch (Exception e) {
-            log.debug("解析流式行失败: {} - {}", data, e.getMessage());
-            return Mono.empty();
+        if (chunk.hasContent()) {
+            call.delta();
+            return Mono.just(chunk.getContent());
         }
+        return Mono.empty();
     }
 
     /**
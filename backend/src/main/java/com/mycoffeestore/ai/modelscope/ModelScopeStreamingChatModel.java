@@ -1,8 +1,9 @@
 package com.mycoffeestore.ai.modelscope;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycoffeestore.ai.config.ModelScopeChatOptions;
+import com.mycoffeestore.ai.stream.ChatStreamChunk;
+import com.mycoffeestore.ai.stream.ChatStreamParser;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +12,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +34,11 @@ public class ModelScopeStreamingChatModel {
     private final ObjectMapper objectMapper;
     private ModelScopeChatOptions defaultOptions;
 
+    /**
+     * 相邻两个流式分片之间的最大间隔，超过则中断流
+     */
+    private Duration timeout = Duration.ofMillis(60000);
+
     /**
      * 设置默认聊天选项
      */
@@ -39,6 +46,13 @@ public class ModelScopeStreamingChatModel {
         this.defaultOptions = options;
     }
 
+    /**
+     * 设置流式分片的间隔超时
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
     /**
      * 流式调用
      *
@@ -81,6 +95,7 @@ public class ModelScopeStreamingChatModel {
                     .bodyValue(objectMapper.writeValueAsString(requestBody))
                     .retrieve()
                     .bodyToFlux(String.class)
+                    .timeout(timeout)
                     .flatMap(this::parseStreamChunk)
                     .doOnComplete(() -> log.debug("ModelScope 流式调用完成"))
                     .doOnError(error -> log.error("ModelScope 流式调用异常", error));
@@ -132,62 +147,17 @@ public class ModelScopeStreamingChatModel {
      * 解析流式响应块
      */
     private Flux<ChatResponse> parseStreamChunk(String chunk) {
-        // 处理 SSE 格式
-        String data = chunk.trim();
-        if (data.isEmpty() || data.equals("[DONE]")) {
+        ChatStreamChunk parsed = ChatStreamParser.parse(chunk);
+        if (parsed == null) {
             return Flux.empty();
         }
 
-        // 去掉 "data: " 前缀
-        if (data.startsWith("data:")) {
-            data = data.substring(5).trim();
-        }
-        if (data.isEmpty() || data.equals("[DONE]")) {
-            return Flux.empty();
-        }
-
-        try {
-            JsonNode root = objectMapper.readTree(data);
-            JsonNode choices = root.get("choices");
-
-            if (choices != null && choices.isArray() && choices.size() > 0) {
-                JsonNode choice = choices.get(0);
-                JsonNode delta = choice.get("delta");
-
-                if (delta != null) {
-                    ChatResponse response = new ChatResponse();
-
-                    // 解析内容
-                    if (delta.has("content") && !delta.get("content").isNull()) {
-                        response.setContent(delta.get("content").asText());
-                    }
-
-                    // 解析角色
-                    if (delta.has("role") && !delta.get("role").isNull()) {
-                        response.setRole(delta.get("role").asText());
-                    }
-
-                    // 解析完成原因
-                    JsonNode finishReason = choice.get("finish_reason");
-                    if (finishReason != null && !finishReason.isNull()) {
-                        response.setFinishReason(finishReason.asText());
-                    }
-
-                    // 解析索引
-                    JsonNode index = choice.get("index");
-                    if (index != null && !index.isNull()) {
-                        response.setIndex(index.asInt());
-                    }
-
-                    return Flux.just(response);
-                }
-            }
-
-            return Flux.empty();
-        } catch (Exception e) {
-            log.debug("解析流式块失败: {} - {}", data, e.getMessage());
-            return Flux.empty();
-        }
+        return Flux.just(ChatResponse.builder()
+                .content(parsed.getContent())
+                .role(parsed.getRole())
+                .finishReason(parsed.getFinishReason())
+                .index(parsed.getIndex())
+                .build());
     }
 
     /**
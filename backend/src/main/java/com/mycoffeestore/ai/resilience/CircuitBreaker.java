@@ -0,0 +1,183 @@
+package com.mycoffeestore.ai.resilience;
+
+import com.mycoffeestore.ai.config.LlmProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器（按调用次数的滑动窗口）
+ * <ul>
+ *     <li>CLOSED：正常放行，窗口内调用数达到 minimumCalls 且失败率达到阈值时转为 OPEN</li>
+ *     <li>OPEN：直接拒绝，openDuration 后转为 HALF_OPEN</li>
+ *     <li>HALF_OPEN：最多放行 halfOpenCalls 个试探调用，全部成功则恢复 CLOSED，任一失败重新 OPEN</li>
+ * </ul>
+ * 调用被取消（如对冲请求的落败方）时只归还许可，不计入成功或失败。
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Slf4j
+@Schema(description = "熔断器")
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final LlmProperties.CircuitBreakerConfig config;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+
+    /**
+     * 滑动窗口：true 表示失败
+     */
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, LlmProperties.CircuitBreakerConfig config) {
+        this(name, config, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, LlmProperties.CircuitBreakerConfig config, LongSupplier clock) {
+        this.name = name;
+        this.config = config;
+        this.clock = clock;
+        this.window = new boolean[Math.max(1, config.getSlidingWindowSize())];
+    }
+
+    /**
+     * 尝试获取调用许可
+     *
+     * @return 是否允许调用
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < config.getOpenDuration()) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                halfOpenInFlight = 0;
+                halfOpenSuccesses = 0;
+                // fall through
+            case HALF_OPEN:
+            default:
+                if (halfOpenInFlight >= config.getHalfOpenCalls()) {
+                    return false;
+                }
+                halfOpenInFlight++;
+                return true;
+        }
+    }
+
+    /**
+     * 当前是否可能放行调用（不占用许可）
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> clock.getAsLong() - openedAt >= config.getOpenDuration();
+            case HALF_OPEN -> halfOpenInFlight < config.getHalfOpenCalls();
+        };
+    }
+
+    /**
+     * 记录一次成功调用
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+            if (++halfOpenSuccesses >= config.getHalfOpenCalls()) {
+                resetWindow();
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * 记录一次失败调用
+     */
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= config.getMinimumCalls()
+                    && windowFailures * 100 >= config.getFailureRateThreshold() * windowCount) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * 调用被取消，只归还许可
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+    /**
+     * 当前状态（OPEN 超时后仍返回 OPEN，直到下一次获取许可）
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        openedAt = clock.getAsLong();
+        resetWindow();
+        transitionTo(State.OPEN);
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void transitionTo(State newState) {
+        if (state != newState) {
+            log.warn("熔断器状态变更: {} {} -> {}", name, state, newState);
+            state = newState;
+        }
+    }
+}
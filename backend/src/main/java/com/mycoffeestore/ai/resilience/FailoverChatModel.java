@@ -0,0 +1,296 @@
+package com.mycoffeestore.ai.resilience;
+
+import com.mycoffeestore.ai.config.LlmProperties;
+import com.mycoffeestore.ai.core.LlmMetrics;
+import com.mycoffeestore.ai.modelscope.ModelScopeChatModel;
+import com.mycoffeestore.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多提供商故障转移 ChatModel
+ * <p>
+ * 按调用链顺序尝试各提供商 / 模型：
+ * <ul>
+ *     <li>每个成员一个熔断器，熔断中的成员直接跳过</li>
+ *     <li>单次尝试超过 attemptTimeout 或失败时转移到下一个成员，不再等满 60 秒阻塞超时</li>
+ *     <li>启用对冲时，主调用超过其历史延迟分位数（不低于 minDelay）仍未返回，
+ *     向下一个健康成员并行发起请求，先成功者胜出，落败方被取消</li>
+ *     <li>流式调用只在尚未输出任何内容前转移，已输出内容后的错误直接向下游传递</li>
+ * </ul>
+ * 指标：{@code llm.circuit.state{member}}（0 关闭 / 1 打开 / 2 半开）、
+ * {@code llm.failover.calls{member,result}}、{@code llm.hedge.requests{member}}
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Slf4j
+@Schema(description = "多提供商故障转移 ChatModel")
+public class FailoverChatModel implements ChatModel {
+
+    private final List<Member> members;
+    private final LlmProperties.FailoverConfig config;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 调用链成员
+     */
+    public final class Member {
+
+        private final String name;
+        private final ModelScopeChatModel model;
+        private final CircuitBreaker circuitBreaker;
+        private final LatencyWindow latency;
+        private final Counter hedgeCounter;
+
+        private Member(String name, ModelScopeChatModel model) {
+            this.name = name;
+            this.model = model;
+            this.circuitBreaker = new CircuitBreaker(name, config.getCircuitBreaker());
+            this.latency = new LatencyWindow(config.getHedge().getWindowSize());
+            Gauge.builder("llm.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                    .description("熔断器状态（0 关闭 / 1 打开 / 2 半开）")
+                    .tag("member", name)
+                    .register(meterRegistry);
+            this.hedgeCounter = Counter.builder("llm.hedge.requests")
+                    .description("发起的对冲请求数")
+                    .tag("member", name)
+                    .register(meterRegistry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        private void count(String result) {
+            Counter.builder("llm.failover.calls")
+                    .description("故障转移链上各成员的调用结果")
+                    .tag("member", name)
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 调用链成员定义
+     *
+     * @param name  成员名称（provider:model）
+     * @param model 模型客户端
+     */
+    public record MemberSpec(String name, ModelScopeChatModel model) {
+    }
+
+    public FailoverChatModel(List<MemberSpec> specs, LlmProperties.FailoverConfig config, MeterRegistry meterRegistry) {
+        if (specs.isEmpty()) {
+            throw new IllegalArgumentException("故障转移调用链不能为空");
+        }
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.members = specs.stream().map(spec -> new Member(spec.name(), spec.model())).toList();
+    }
+
+    /**
+     * 调用链成员（按优先级）
+     */
+    public List<Member> getMembers() {
+        return members;
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return members.get(0).model.getDefaultOptions();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        // 每次尝试都有 attemptTimeout，整体最多等待调用链长度倍
+        Duration total = Duration.ofMillis(config.getAttemptTimeout() * (members.size() + 1));
+        // 对冲请求在其他线程发起，调用方线程上的 agent 指标标签经 Context 传递
+        return callAsync(prompt).contextWrite(LlmMetrics.currentAgentContext()).block(total);
+    }
+
+    /**
+     * 异步调用
+     *
+     * @param prompt 提示词
+     * @return 响应
+     */
+    @Schema(description = "异步调用")
+    public Mono<ChatResponse> callAsync(Prompt prompt) {
+        return Mono.defer(() -> callFrom(0, prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> streamFrom(0, prompt));
+    }
+
+    /**
+     * 从第 index 个成员开始尝试（跳过熔断中的成员）
+     */
+    private Mono<ChatResponse> callFrom(int index, Prompt prompt) {
+        int primaryIndex = nextAvailable(index);
+        if (primaryIndex < 0) {
+            return Mono.error(allUnavailable());
+        }
+        Member primary = members.get(primaryIndex);
+        Mono<ChatResponse> primaryCall = attempt(primary, prompt);
+
+        long hedgeDelay = hedgeDelay(primary);
+        if (hedgeDelay < 0 || primaryIndex + 1 >= members.size()) {
+            return primaryCall.onErrorResume(error -> {
+                log.warn("LLM 调用失败，转移到下一个提供商: member={}, error={}", primary.name, error.getMessage());
+                return callFrom(primaryIndex + 1, prompt);
+            });
+        }
+
+        // 对冲：延迟后向下一个健康成员发起同样的请求，先成功者胜出
+        Mono<ChatResponse> hedgeCall = Mono.delay(Duration.ofMillis(hedgeDelay))
+                .then(Mono.defer(() -> {
+                    int backupIndex = nextAvailable(primaryIndex + 1);
+                    if (backupIndex < 0) {
+                        return Mono.error(allUnavailable());
+                    }
+                    Member backup = members.get(backupIndex);
+                    backup.hedgeCounter.increment();
+                    log.info("LLM 主调用超过 {}ms 未返回，发起对冲请求: {} -> {}", hedgeDelay, primary.name, backup.name);
+                    return attempt(backup, prompt);
+                }));
+        return Mono.firstWithValue(primaryCall, hedgeCall)
+                .onErrorResume(error -> {
+                    log.warn("LLM 主调用与对冲请求均失败: member={}, error={}", primary.name, error.getMessage());
+                    return callFrom(primaryIndex + 2, prompt);
+                });
+    }
+
+    /**
+     * 单个成员的一次尝试：熔断判断、超时、结果记录
+     */
+    private Mono<ChatResponse> attempt(Member member, Prompt prompt) {
+        return Mono.defer(() -> {
+            if (!member.circuitBreaker.tryAcquirePermission()) {
+                member.count("not_permitted");
+                return Mono.error(new BusinessException(503, member.name + " 熔断中"));
+            }
+            long start = System.currentTimeMillis();
+            AtomicBoolean finished = new AtomicBoolean();
+            return member.model.callAsync(prompt)
+                    .timeout(Duration.ofMillis(config.getAttemptTimeout()))
+                    .doOnSuccess(response -> {
+                        if (finished.compareAndSet(false, true)) {
+                            member.latency.record(System.currentTimeMillis() - start);
+                            member.circuitBreaker.onSuccess();
+                            member.count("success");
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (finished.compareAndSet(false, true)) {
+                            member.circuitBreaker.onError();
+                            member.count("failure");
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (finished.compareAndSet(false, true)) {
+                            member.circuitBreaker.releasePermission();
+                            member.count("cancelled");
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 流式调用：尚未输出内容时失败才转移到下一个成员
+     */
+    private Flux<ChatResponse> streamFrom(int index, Prompt prompt) {
+        int memberIndex = nextAvailable(index);
+        if (memberIndex < 0) {
+            return Flux.error(allUnavailable());
+        }
+        Member member = members.get(memberIndex);
+        if (!member.circuitBreaker.tryAcquirePermission()) {
+            member.count("not_permitted");
+            return streamFrom(memberIndex + 1, prompt);
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicBoolean emitted = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        return member.model.stream(prompt)
+                .timeout(Duration.ofMillis(config.getAttemptTimeout()))
+                .doOnNext(response -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        // 流式调用以首个分片的延迟作为样本
+                        member.latency.record(System.currentTimeMillis() - start);
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (finished.compareAndSet(false, true)) {
+                        member.circuitBreaker.onSuccess();
+                        member.count("success");
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (finished.compareAndSet(false, true)) {
+                        member.circuitBreaker.releasePermission();
+                        member.count("cancelled");
+                    }
+                })
+                .onErrorResume(error -> {
+                    if (finished.compareAndSet(false, true)) {
+                        member.circuitBreaker.onError();
+                        member.count("failure");
+                    }
+                    if (emitted.get()) {
+                        return Flux.error(error);
+                    }
+                    log.warn("LLM 流式调用失败，转移到下一个提供商: member={}, error={}", member.name, error.getMessage());
+                    return streamFrom(memberIndex + 1, prompt);
+                });
+    }
+
+    /**
+     * 对冲延迟（毫秒）；未启用或样本不足时返回 -1
+     */
+    private long hedgeDelay(Member member) {
+        LlmProperties.HedgeConfig hedge = config.getHedge();
+        if (!Boolean.TRUE.equals(hedge.getEnabled())) {
+            return -1;
+        }
+        long percentile = member.latency.percentile(hedge.getPercentile(), hedge.getMinSamples());
+        return percentile < 0 ? -1 : Math.max(hedge.getMinDelay(), percentile);
+    }
+
+    /**
+     * 从 index 开始第一个未熔断的成员下标；全部熔断时返回 -1
+     */
+    private int nextAvailable(int index) {
+        for (int i = index; i < members.size(); i++) {
+            if (members.get(i).circuitBreaker.isCallPermitted()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private BusinessException allUnavailable() {
+        return new BusinessException(503, "AI 服务暂时不可用，请稍后重试");
+    }
+}
@@ -0,0 +1,56 @@
+package com.mycoffeestore.ai.resilience;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Arrays;
+
+/**
+ * 最近 N 次调用的延迟样本，用于计算对冲请求的触发阈值
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Schema(description = "延迟样本窗口")
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int index;
+    private int count;
+
+    public LatencyWindow(int size) {
+        this.samples = new long[Math.max(1, size)];
+    }
+
+    /**
+     * 记录一次延迟
+     *
+     * @param millis 延迟（毫秒）
+     */
+    public synchronized void record(long millis) {
+        samples[index] = millis;
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * 计算分位数
+     *
+     * @param percentile 分位数（0~1）
+     * @param minSamples 最少样本数
+     * @return 延迟（毫秒）；样本不足时返回 -1
+     */
+    public long percentile(double percentile, int minSamples) {
+        long[] copy;
+        synchronized (this) {
+            if (count == 0 || count < minSamples) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        int rank = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, rank))];
+    }
+}
@@ -0,0 +1,128 @@
+package com.mycoffeestore.ai.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式响应增量块
+ * 对应 OpenAI 兼容流式响应中 choices[0] 的增量数据，只保留 Agent 需要的字段
+ *
+ * @author zhoulu
+ * @since 2026-03-10
+ */
+@Data
+@NoArgsConstructor
+public class ChatStreamChunk {
+
+    /**
+     * choice 索引
+     */
+    private Integer index;
+
+    /**
+     * 角色（一般只在第一个块出现）
+     */
+    private String role;
+
+    /**
+     * 文本增量
+     */
+    private String content;
+
+    /**
+     * 完成原因（stop / tool_calls / length）
+     */
+    private String finishReason;
+
+    /**
+     * 工具调用增量（大多数块没有，懒加载）
+     */
+    private List<ToolCallDelta> toolCalls;
+
+    /**
+     * 用量（开启 stream_options.include_usage 时在最后一个块返回，choices 为空）
+     */
+    private Usage usage;
+
+    /**
+     * 是否有非空文本增量
+     */
+    public boolean hasContent() {
+        return content != null && !content.isEmpty();
+    }
+
+    /**
+     * 是否包含工具调用增量
+     */
+    public boolean hasToolCalls() {
+        return toolCalls != null && !toolCalls.isEmpty();
+    }
+
+    /**
+     * 获取工具调用增量（不会返回 null）
+     */
+    public List<ToolCallDelta> getToolCalls() {
+        return toolCalls != null ? toolCalls : Collections.emptyList();
+    }
+
+    void addToolCall(ToolCallDelta toolCall) {
+        if (toolCalls == null) {
+            toolCalls = new ArrayList<>(1);
+        }
+        toolCalls.add(toolCall);
+    }
+
+    /**
+     * 用量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Usage {
+
+        /**
+         * 输入 Token 数
+         */
+        private Integer promptTokens;
+
+        /**
+         * 输出 Token 数
+         */
+        private Integer completionTokens;
+    }
+
+    /**
+     * 工具调用增量
+     * arguments 可能被拆分到多个块中传输，需要调用方按 index 累积
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ToolCallDelta {
+
+        /**
+         * 工具调用索引
+         */
+        private int index;
+
+        /**
+         * 工具调用 ID（一般只在第一个块出现）
+         */
+        private String id;
+
+        /**
+         * 函数名（一般只在第一个块出现）
+         */
+        private String name;
+
+        /**
+         * 参数片段
+         */
+        private String arguments;
+    }
+}
@@ -0,0 +1,259 @@
+package com.mycoffeestore.ai.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * OpenAI 兼容流式响应解析器
+ * <p>
+ * 基于 Jackson 流式 {@link JsonParser} 增量解析 SSE 数据行，只提取
+ * {@code choices[0].delta.content}、{@code choices[0].delta.tool_calls} 和
+ * {@code choices[0].finish_reason} 以及 {@code usage}，其余字段直接跳过，不构建 JsonNode 树。
+ * <p>
+ * 数据行不做 trim/substring，而是定位 JSON 的起止位置后复制到线程复用的字符缓冲区中解析。
+ * 解析器无状态，可在多线程间共享。
+ *
+ * @author zhoulu
+ * @since 2026-03-10
+ */
+@Slf4j
+public final class ChatStreamParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String DATA_PREFIX = "data:";
+
+    private static final String DONE_MARKER = "[DONE]";
+
+    /**
+     * 线程复用的字符缓冲区，初始 1KB，按需扩容
+     */
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[1024]);
+
+    private ChatStreamParser() {
+    }
+
+    /**
+     * 解析一行流式响应
+     *
+     * @param line 原始数据行（可能带 "data:" 前缀，也可能已被 SSE 解码器去掉）
+     * @return 增量块；空行、[DONE]、既无 choices 也无 usage 或解析失败时返回 null
+     */
+    public static ChatStreamChunk parse(String line) {
+        if (line == null) {
+            return null;
+        }
+
+        int end = line.length();
+        int start = skipWhitespace(line, 0, end);
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+
+        // 去掉可能的 "data:" 前缀
+        if (line.startsWith(DATA_PREFIX, start)) {
+            start = skipWhitespace(line, start + DATA_PREFIX.length(), end);
+        }
+        if (start >= end || line.charAt(start) != '{') {
+            // 空行、[DONE] 或非 JSON 数据
+            return null;
+        }
+
+        int length = end - start;
+        char[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+            BUFFER.set(buffer);
+        }
+        line.getChars(start, end, buffer, 0);
+
+        try (JsonParser parser = JSON_FACTORY.createParser(buffer, 0, length)) {
+            return parseRoot(parser);
+        } catch (IOException | RuntimeException e) {
+            log.debug("解析流式响应行失败: {} - {}", line, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 判断数据行是否为流结束标记 [DONE]
+     */
+    public static boolean isDone(String line) {
+        if (line == null) {
+            return false;
+        }
+        int start = skipWhitespace(line, 0, line.length());
+        if (line.startsWith(DATA_PREFIX, start)) {
+            start = skipWhitespace(line, start + DATA_PREFIX.length(), line.length());
+        }
+        return line.startsWith(DONE_MARKER, start);
+    }
+
+    private static int skipWhitespace(String line, int from, int end) {
+        int i = from;
+        while (i < end && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 解析根对象，只进入 choices 数组的第一个元素与 usage 对象
+     */
+    private static ChatStreamChunk parseRoot(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        ChatStreamChunk chunk = null;
+        ChatStreamChunk.Usage usage = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    chunk = parseChoice(parser);
+                    // 跳过剩余的 choice
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                usage = parseUsage(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (usage != null && (usage.getPromptTokens() != null || usage.getCompletionTokens() != null)) {
+            if (chunk == null) {
+                chunk = new ChatStreamChunk();
+            }
+            chunk.setUsage(usage);
+        }
+        return chunk;
+    }
+
+    /**
+     * 解析 usage 对象
+     */
+    private static ChatStreamChunk.Usage parseUsage(JsonParser parser) throws IOException {
+        ChatStreamChunk.Usage usage = new ChatStreamChunk.Usage();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NUMBER_INT && "prompt_tokens".equals(field)) {
+                usage.setPromptTokens(parser.getIntValue());
+            } else if (value == JsonToken.VALUE_NUMBER_INT && "completion_tokens".equals(field)) {
+                usage.setCompletionTokens(parser.getIntValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * 解析单个 choice 对象
+     */
+    private static ChatStreamChunk parseChoice(JsonParser parser) throws IOException {
+        ChatStreamChunk chunk = new ChatStreamChunk();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "index" -> {
+                    if (value == JsonToken.VALUE_NUMBER_INT) {
+                        chunk.setIndex(parser.getIntValue());
+                    }
+                }
+                case "finish_reason" -> chunk.setFinishReason(textOrNull(parser, value));
+                case "delta" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        parseDelta(parser, chunk);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * 解析 delta 对象
+     */
+    private static void parseDelta(JsonParser parser, ChatStreamChunk chunk) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "content" -> chunk.setContent(textOrNull(parser, value));
+                case "role" -> chunk.setRole(textOrNull(parser, value));
+                case "tool_calls" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            chunk.addToolCall(parseToolCall(parser));
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * 解析 tool_calls 数组中的单个元素
+     */
+    private static ChatStreamChunk.ToolCallDelta parseToolCall(JsonParser parser) throws IOException {
+        ChatStreamChunk.ToolCallDelta toolCall = new ChatStreamChunk.ToolCallDelta();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "index" -> {
+                    if (value == JsonToken.VALUE_NUMBER_INT) {
+                        toolCall.setIndex(parser.getIntValue());
+                    }
+                }
+                case "id" -> toolCall.setId(textOrNull(parser, value));
+                case "function" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String funcField = parser.getCurrentName();
+                            JsonToken funcValue = parser.nextToken();
+                            if ("name".equals(funcField)) {
+                                toolCall.setName(textOrNull(parser, funcValue));
+                            } else if ("arguments".equals(funcField)) {
+                                toolCall.setArguments(textOrNull(parser, funcValue));
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return toolCall;
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+}
@@ -0,0 +1,40 @@
+package com.mycoffeestore.config;
+
+import com.mycoffeestore.util.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天入口的自适应并发限制器
+ * <p>
+ * V1 / V2 聊天共用 {@code chat}（两者最终都调用同一上游模型），路由聊天单独使用 {@code routing}，
+ * 上限各自按对应入口的延迟调整。
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+@Component
+public class AdaptiveLimiters {
+
+    private final AdaptiveConcurrencyLimiter chat;
+    private final AdaptiveConcurrencyLimiter routing;
+
+    public AdaptiveLimiters(AgentProperties agentProperties, MeterRegistry meterRegistry) {
+        this.chat = new AdaptiveConcurrencyLimiter("chat", agentProperties.getAdaptiveLimit(), meterRegistry);
+        this.routing = new AdaptiveConcurrencyLimiter("routing", agentProperties.getAdaptiveLimit(), meterRegistry);
+    }
+
+    /**
+     * V1 / V2 聊天限制器
+     */
+    public AdaptiveConcurrencyLimiter chat() {
+        return chat;
+    }
+
+    /**
+     * 路由聊天限制器
+     */
+    public AdaptiveConcurrencyLimiter routing() {
+        return routing;
+    }
+}
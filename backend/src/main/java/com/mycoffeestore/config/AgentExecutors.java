@@ -0,0 +1,123 @@
+package com.mycoffeestore.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Agent 相关线程池
+ * <p>
+ * 按负载划分为路由编排、Agent 执行、并行分支、持久化四个有界线程池，替代公共 ForkJoinPool：
+ * <ul>
+ *     <li>线程命名为 {@code agent-<负载>-<序号>}，便于排查</li>
+ *     <li>等待队列有界，队列满且线程数达到上限时抛出 {@link RejectedExecutionException}，
+ *     调用方据此快速返回 503 / SSE 错误，而不是无限排队</li>
+ *     <li>通过 Micrometer {@code executor.*} 指标暴露活跃线程、队列长度、完成数，
+ *     拒绝次数记录在 {@code executor.rejected{name}}</li>
+ * </ul>
+ * 路由任务只阻塞等待意图识别，Agent 执行结果以事件流返回，两者使用不同线程池，避免相互占满导致饥饿；
+ * PARALLEL 策略的各分支在独立的并行分支线程池中启动，避免扇出占满 Agent 执行线程池。
+ *
+ * @author zhoulu
+ * @since 2026-03-15
+ */
+@Slf4j
+@Component
+public class AgentExecutors {
+
+    private final ExecutorService routing;
+    private final ExecutorService execution;
+    private final ExecutorService persistence;
+    private final ExecutorService parallel;
+    private final Scheduler parallelScheduler;
+
+    public AgentExecutors(AgentProperties agentProperties, MeterRegistry meterRegistry) {
+        AgentProperties.ExecutorsConfig config = agentProperties.getExecutors();
+        this.routing = boundedExecutor("agent-routing", config.getRouting(), meterRegistry);
+        this.execution = boundedExecutor("agent-execution", config.getExecution(), meterRegistry);
+        this.persistence = boundedExecutor("agent-persistence", config.getPersistence(), meterRegistry);
+        this.parallel = boundedExecutor("agent-parallel", config.getParallel(), meterRegistry);
+        this.parallelScheduler = Schedulers.fromExecutorService(parallel, "agent-parallel");
+    }
+
+    /**
+     * 路由编排线程池
+     */
+    public ExecutorService routing() {
+        return routing;
+    }
+
+    /**
+     * Agent 执行线程池
+     */
+    public ExecutorService execution() {
+        return execution;
+    }
+
+    /**
+     * 持久化线程池
+     */
+    public ExecutorService persistence() {
+        return persistence;
+    }
+
+    /**
+     * 并行分支线程池（Reactor 调度器形式，线程池已满时订阅以 {@link RejectedExecutionException} 失败）
+     */
+    public Scheduler parallel() {
+        return parallelScheduler;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService executor : List.of(routing, execution, parallel, persistence)) {
+            executor.shutdown();
+        }
+        try {
+            persistence.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService boundedExecutor(String name, AgentProperties.PoolConfig pool,
+                                                   MeterRegistry meterRegistry) {
+        int coreSize = Math.max(1, pool.getCoreSize());
+        int maxSize = Math.max(coreSize, pool.getMaxSize());
+        AtomicInteger threadIndex = new AtomicInteger();
+        Counter rejected = Counter.builder("executor.rejected")
+                .description("线程池拒绝的任务数")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize, maxSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, pool.getQueueCapacity())),
+                r -> {
+                    Thread thread = new Thread(r);
+                    thread.setName(name + "-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, rejectedBy) -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException(name + " 线程池已满");
+                });
+        log.info("线程池已创建: {}，核心线程: {}，最大线程: {}，队列容量: {}",
+                name, coreSize, maxSize, pool.getQueueCapacity());
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, name);
+    }
+}
@@ -68,6 +68,36 @@ public class AgentProperties {
     @Schema(description = "Agent 专用配置")
     private AgentConfig agents = new AgentConfig();
 
+    /**
+     * 工具执行配置
+     */
+    @Schema(description = "工具执行配置")
+    private ToolExecutionConfig toolExecution = new ToolExecutionConfig();
+
+    /**
+     * 按负载划分的线程池配置
+     */
+    @Schema(description = "线程池配置")
+    private ExecutorsConfig executors = new ExecutorsConfig();
+
+    /**
+     * 聊天请求限流配置（按用户 / IP）
+     */
+    @Schema(description = "聊天请求限流配置")
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+
+    /**
+     * 自适应并发限制配置（聊天 / 路由入口）
+     */
+    @Schema(description = "自适应并发限制配置")
+    private AdaptiveLimitConfig adaptiveLimit = new AdaptiveLimitConfig();
+
+    /**
+     * SSE 文本增量合并配置
+     */
+    @Schema(description = "SSE 文本增量合并配置")
+    private SseFlushConfig sseFlush = new SseFlushConfig();
+
     /**
      * 实现类型枚举
      */
@@ -106,6 +136,24 @@ public class AgentProperties {
          */
         @Schema(description = "客服 Agent 配置")
         private CustomerServiceConfig customerService = new CustomerServiceConfig();
+
+        /**
+         * 指定 Agent 是否开启 LLM 请求合并
+         *
+         * @param agentType Agent 类型
+         * @return 是否开启
+         */
+        public boolean isCoalesceEnabled(String agentType) {
+            if (agentType == null) {
+                return false;
+            }
+            return switch (agentType) {
+                case "coffee_advisor" -> coffeeAdvisor.isCoalesce();
+                case "order_assistant" -> orderAssistant.isCoalesce();
+                case "customer_service" -> customerService.isCoalesce();
+                default -> false;
+            };
+        }
     }
 
     /**
@@ -125,6 +173,12 @@ public class AgentProperties {
          */
         @Schema(description = "最大推荐数量")
         private int maxRecommendations = 3;
+
+        /**
+         * 是否合并同时到达的相同 LLM 请求（仅适用于低温度、输出确定的场景）
+         */
+        @Schema(description = "是否合并同时到达的相同 LLM 请求")
+        private boolean coalesce = false;
     }
 
     /**
@@ -144,6 +198,12 @@ public class AgentProperties {
          */
         @Schema(description = "是否需要登录确认")
         private boolean requireLogin = true;
+
+        /**
+         * 是否合并同时到达的相同 LLM 请求（仅适用于低温度、输出确定的场景）
+         */
+        @Schema(description = "是否合并同时到达的相同 LLM 请求")
+        private boolean coalesce = false;
     }
 
     /**
@@ -163,5 +223,223 @@ public class AgentProperties {
          */
         @Schema(description = "是否显示门店信息")
         private boolean showStoreInfo = true;
+
+        /**
+         * 是否合并同时到达的相同 LLM 请求（仅适用于低温度、输出确定的场景）
+         */
+        @Schema(description = "是否合并同时到达的相同 LLM 请求")
+        private boolean coalesce = false;
+    }
+
+    /**
+     * 工具执行配置
+     * 同一轮中的多个只读工具调用并发执行
+     */
+    @Data
+    @Schema(description = "工具执行配置")
+    public static class ToolExecutionConfig {
+        /**
+         * 工具执行线程数
+         */
+        @Schema(description = "工具执行线程数")
+        private int parallelism = 8;
+
+        /**
+         * 等待队列容量，队列满时拒绝执行，工具以错误结果返回给模型
+         */
+        @Schema(description = "等待队列容量")
+        private int queueCapacity = 64;
+
+        /**
+         * 单个工具执行超时时间（秒），从开始执行时计时，超时后以错误结果返回给模型（写操作提示结果未知、不要重试）；
+         * 在队列中等待超过该时间仍未开始的工具不再执行，提示模型可以重试
+         */
+        @Schema(description = "单个工具执行超时时间（秒）")
+        private long timeout = 10;
+    }
+
+    /**
+     * 按负载划分的线程池配置
+     */
+    @Data
+    @Schema(description = "线程池配置")
+    public static class ExecutorsConfig {
+        /**
+         * 路由编排（意图识别 + 策略编排，只等待意图识别结果）
+         */
+        @Schema(description = "路由编排线程池")
+        private PoolConfig routing = new PoolConfig(8, 32, 100);
+
+        /**
+         * Agent 执行（单次 Agent 对话）
+         */
+        @Schema(description = "Agent 执行线程池")
+        private PoolConfig execution = new PoolConfig(16, 64, 200);
+
+        /**
+         * PARALLEL 策略的并行分支
+         */
+        @Schema(description = "并行分支线程池")
+        private PoolConfig parallel = new PoolConfig(8, 32, 100);
+
+        /**
+         * 对话记忆持久化
+         */
+        @Schema(description = "持久化线程池")
+        private PoolConfig persistence = new PoolConfig(2, 4, 1000);
+    }
+
+    /**
+     * 单个线程池配置
+     */
+    @Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    @Schema(description = "线程池配置")
+    public static class PoolConfig {
+        /**
+         * 核心线程数
+         */
+        @Schema(description = "核心线程数")
+        private int coreSize;
+
+        /**
+         * 最大线程数（队列满后扩容到该值）
+         */
+        @Schema(description = "最大线程数")
+        private int maxSize;
+
+        /**
+         * 等待队列容量，队列满且线程数达到上限时拒绝
+         */
+        @Schema(description = "等待队列容量")
+        private int queueCapacity;
+    }
+
+    /**
+     * 聊天请求限流配置
+     * 登录用户按 userId、未登录按客户端 IP 分别计算令牌桶
+     */
+    @Data
+    @Schema(description = "聊天请求限流配置")
+    public static class RateLimitConfig {
+        /**
+         * 是否启用限流
+         */
+        @Schema(description = "是否启用限流")
+        private boolean enabled = true;
+
+        /**
+         * 令牌桶容量（允许的突发请求数）
+         */
+        @Schema(description = "令牌桶容量")
+        private int capacity = 10;
+
+        /**
+         * 每分钟补充的令牌数
+         */
+        @Schema(description = "每分钟补充的令牌数")
+        private double refillPerMinute = 30;
+
+        /**
+         * 锁分段数
+         */
+        @Schema(description = "锁分段数")
+        private int stripes = 64;
+
+        /**
+         * 最多保留的令牌桶数量，超过后淘汰最久未使用的
+         */
+        @Schema(description = "最多保留的令牌桶数量")
+        private long maxKeys = 100000;
+
+        /**
+         * 令牌桶空闲多久后回收（秒），回收后重新以满桶开始
+         */
+        @Schema(description = "令牌桶空闲回收时间（秒）")
+        private long idleTimeout = 600;
+    }
+
+    /**
+     * 自适应并发限制配置
+     * 根据上游首字延迟 / 完成耗时自动调整允许的在途请求数
+     */
+    @Data
+    @Schema(description = "自适应并发限制配置")
+    public static class AdaptiveLimitConfig {
+        /**
+         * 是否启用（关闭时只统计在途请求数，不拒绝）
+         */
+        @Schema(description = "是否启用")
+        private boolean enabled = true;
+
+        /**
+         * 初始上限
+         */
+        @Schema(description = "初始上限")
+        private int initialLimit = 20;
+
+        /**
+         * 最小上限
+         */
+        @Schema(description = "最小上限")
+        private int minLimit = 4;
+
+        /**
+         * 最大上限
+         */
+        @Schema(description = "最大上限")
+        private int maxLimit = 200;
+
+        /**
+         * 延迟容忍系数，本次延迟不超过长期延迟的该倍数时不下调
+         */
+        @Schema(description = "延迟容忍系数")
+        private double tolerance = 1.5;
+
+        /**
+         * 平滑系数（0~1），越小调整越平缓
+         */
+        @Schema(description = "平滑系数")
+        private double smoothing = 0.2;
+
+        /**
+         * 长期延迟的 EMA 窗口（样本数）
+         */
+        @Schema(description = "长期延迟窗口（样本数）")
+        private int longWindow = 600;
+
+        /**
+         * 上游出错或超时时的下调比例
+         */
+        @Schema(description = "出错时的下调比例")
+        private double backoffRatio = 0.9;
+    }
+
+    /**
+     * SSE 文本增量合并配置
+     * 模型常常每个分片只输出一两个字，逐个写出会产生大量小写入与 flush，
+     * 合并后按时间间隔或缓冲长度批量写出，工具 / 结束等事件前总是先写出已缓冲的文本
+     */
+    @Data
+    @Schema(description = "SSE 文本增量合并配置")
+    public static class SseFlushConfig {
+        /**
+         * 是否启用（关闭时每个增量立即写出）
+         */
+        @Schema(description = "是否启用")
+        private boolean enabled = true;
+
+        /**
+         * 写出间隔（毫秒），从缓冲第一个增量开始计时
+         */
+        @Schema(description = "写出间隔（毫秒）")
+        private long intervalMillis = 30;
+
+        /**
+         * 缓冲字符数达到该值时立即写出
+         */
+        @Schema(description = "缓冲字符数上限")
+        private int maxBufferChars = 256;
     }
 }
@@ -2,8 +2,11 @@ package com.mycoffeestore.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycoffeestore.ai.config.LlmProperties;
+import com.mycoffeestore.ai.core.LlmConnectionPools;
+import com.mycoffeestore.ai.core.ProviderConcurrencyLimiter;
 import com.mycoffeestore.ai.factory.ChatModelFactory;
 import com.mycoffeestore.ai.modelscope.ModelScopeChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +33,9 @@ public class ChatModelConfiguration {
 
     private final LlmProperties llmProperties;
     private final ObjectMapper objectMapper;
+    private final ProviderConcurrencyLimiter providerConcurrencyLimiter;
+    private final LlmConnectionPools llmConnectionPools;
+    private final MeterRegistry meterRegistry;
 
     /**
      * 创建 ModelScope ChatModel Bean
@@ -42,7 +48,8 @@ public class ChatModelConfiguration {
         log.info("初始化 ModelScope ChatModel");
 
         // 创建 ChatModelFactory
-        ChatModelFactory factory = new ChatModelFactory(llmProperties, objectMapper);
+        ChatModelFactory factory = new ChatModelFactory(llmProperties, objectMapper, providerConcurrencyLimiter,
+                llmConnectionPools, meterRegistry);
 
         // 使用工厂创建 ModelScopeChatModel
         ModelScopeChatModel chatModel = factory.createChatModel();
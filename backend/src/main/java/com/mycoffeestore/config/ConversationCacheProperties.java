@@ -0,0 +1,41 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Agent 会话历史缓存配置属性
+ * 按估算内存占用（消息内容长度）限制总量，超出时淘汰最久未使用的会话；会话空闲超时后过期
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Data
+@Component
+@Schema(description = "Agent 会话历史缓存配置属性")
+@ConfigurationProperties(prefix = "agent.conversation-cache")
+public class ConversationCacheProperties {
+
+    /**
+     * 缓存总内存上限（按消息内容估算）
+     */
+    @Schema(description = "缓存总内存上限")
+    private DataSize maxWeight = DataSize.ofMegabytes(64);
+
+    /**
+     * 会话空闲过期时间（最后一次读写之后）
+     */
+    @Schema(description = "会话空闲过期时间")
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * 单个会话最多保留的消息数（系统提示不计入，超出时丢弃最早的消息）
+     */
+    @Schema(description = "单个会话最多保留的消息数")
+    private int maxMessages = 40;
+}
@@ -0,0 +1,43 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * LLM 意图识别结果缓存配置属性
+ *
+ * @author zhoulu
+ * @since 2026-03-12
+ */
+@Data
+@Component
+@Schema(description = "LLM 意图识别结果缓存配置属性")
+@ConfigurationProperties(prefix = "routing.intent-cache")
+public class IntentCacheProperties {
+
+    /**
+     * 是否启用缓存
+     */
+    @Schema(description = "是否启用缓存")
+    private boolean enabled = true;
+
+    /**
+     * 最大缓存条目数
+     */
+    @Schema(description = "最大缓存条目数")
+    private long maxSize = 10000;
+
+    /**
+     * 缓存有效期（秒）
+     */
+    @Schema(description = "缓存有效期（秒）")
+    private long ttl = 600;
+
+    /**
+     * 参与缓存的输入最大长度（规范化后），过长的输入几乎不会重复，不缓存
+     */
+    @Schema(description = "参与缓存的输入最大长度")
+    private int maxKeyLength = 128;
+}
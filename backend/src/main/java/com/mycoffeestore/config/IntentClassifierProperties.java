@@ -0,0 +1,86 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地意图分类器配置属性
+ * 关键词匹配之后、LLM 之前的第二级识别：字符 n-gram 多项式朴素贝叶斯
+ *
+ * @author zhoulu
+ * @since 2026-03-13
+ */
+@Data
+@Component
+@Schema(description = "本地意图分类器配置属性")
+@ConfigurationProperties(prefix = "routing.intent-classifier")
+public class IntentClassifierProperties {
+
+    /**
+     * 是否启用本地分类器
+     */
+    @Schema(description = "是否启用本地分类器")
+    private boolean enabled = true;
+
+    /**
+     * 模型文件路径，存在时启动加载，文件变化后自动热加载
+     */
+    @Schema(description = "模型文件路径")
+    private String modelPath = "data/intent-classifier/model.json";
+
+    /**
+     * 种子样本（classpath 资源，JSON Lines）
+     */
+    @Schema(description = "种子样本资源路径")
+    private String seedLocation = "classpath:intent/seed-samples.jsonl";
+
+    /**
+     * LLM 标注样本日志文件（JSON Lines），用于训练与离线评估
+     */
+    @Schema(description = "LLM 标注样本日志文件")
+    private String sampleLogPath = "data/intent-classifier/samples.jsonl";
+
+    /**
+     * 是否记录 LLM 识别结果作为训练样本
+     */
+    @Schema(description = "是否记录 LLM 识别结果作为训练样本")
+    private boolean logSamples = true;
+
+    /**
+     * 分类结果被采纳的最低置信度，低于该值继续走 LLM
+     */
+    @Schema(description = "最低置信度")
+    private double minConfidence = 0.85;
+
+    /**
+     * 模型训练样本数达到该值后才参与识别，样本太少时只记录不判定
+     */
+    @Schema(description = "参与识别所需的最少训练样本数")
+    private int minTrainingSamples = 200;
+
+    /**
+     * 新增样本数达到该值时自动重新训练，0 表示不自动训练
+     */
+    @Schema(description = "自动重新训练的新增样本阈值")
+    private int retrainThreshold = 100;
+
+    /**
+     * 字符 n-gram 最小长度
+     */
+    @Schema(description = "字符 n-gram 最小长度")
+    private int minNgram = 1;
+
+    /**
+     * 字符 n-gram 最大长度
+     */
+    @Schema(description = "字符 n-gram 最大长度")
+    private int maxNgram = 3;
+
+    /**
+     * 模型文件检查与自动训练的间隔（秒）
+     */
+    @Schema(description = "模型文件检查间隔（秒）")
+    private long reloadInterval = 30;
+}
@@ -1,6 +1,8 @@
 package com.mycoffeestore.config;
 
-import io.netty.channel.ChannelOption;
+import com.mycoffeestore.ai.core.LlmConnectionPools;
+import com.mycoffeestore.ai.core.LlmProvider;
+import com.mycoffeestore.ai.core.ProviderConcurrencyLimiter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,14 +23,16 @@ import java.time.Duration;
 public class ModelScopeConfig {
 
     private final ModelScopeProperties properties;
+    private final ProviderConcurrencyLimiter providerConcurrencyLimiter;
+    private final LlmConnectionPools llmConnectionPools;
 
     /**
      * 创建 Modelscope WebClient
+     * 与 ChatModelFactory 创建的 ModelScope 客户端共享并发上限和连接池
      */
     @Bean
     public WebClient modelScopeWebClient() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getTimeout().intValue())
+        HttpClient httpClient = llmConnectionPools.httpClient(LlmProvider.MODELSCOPE, properties.getBaseUrl(), properties.getTimeout())
                 .responseTimeout(Duration.ofMillis(properties.getTimeout()));
 
         return WebClient.builder()
@@ -36,6 +40,7 @@ public class ModelScopeConfig {
                 .defaultHeader("Authorization", "Bearer " + properties.getApiKey())
                 .defaultHeader("Content-Type", "application/json")
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(providerConcurrencyLimiter.filter(LlmProvider.MODELSCOPE))
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
                 .build();
     }
@@ -66,5 +66,10 @@ public class RedisProperties {
          * 是否启用 Redis（当 Redis 不可用时自动降级）
          */
         private boolean enabled = true;
+
+        /**
+         * 最后活跃时间批量刷库间隔（秒），活跃时间先记在内存中，按该间隔合并写入数据库
+         */
+        private long activeTimeFlushInterval = 5;
     }
 }
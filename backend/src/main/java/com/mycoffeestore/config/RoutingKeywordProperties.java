@@ -0,0 +1,82 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路由关键词配置属性
+ * 意图识别、Agent 路由和偏好筛选共用的关键词分组，启动时编译为一个 Aho-Corasick 自动机
+ *
+ * @author zhoulu
+ * @since 2026-03-11
+ */
+@Data
+@Component
+@Schema(description = "路由关键词配置属性")
+@ConfigurationProperties(prefix = "routing.keywords")
+public class RoutingKeywordProperties {
+
+    /**
+     * 外部关键词文件路径（JSON：分组名称 -> 关键词数组），为空则只使用 groups 配置
+     * 文件中的分组会覆盖同名的 groups 配置，修改文件后自动热加载
+     */
+    @Schema(description = "外部关键词文件路径")
+    private String location;
+
+    /**
+     * 外部关键词文件检查间隔（秒）
+     */
+    @Schema(description = "外部关键词文件检查间隔（秒）")
+    private long reloadInterval = 30;
+
+    /**
+     * 关键词分组（分组名称 -> 关键词列表）
+     */
+    @Schema(description = "关键词分组")
+    private Map<String, List<String>> groups = defaultGroups();
+
+    private static Map<String, List<String>> defaultGroups() {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+
+        // 意图识别（分组名称与 IntentType 代码一致）
+        groups.put("order_purchase", List.of("买", "下单", "订购", "支付", "结账", "购买", "要一杯", "来一杯", "我想买", "我要买"));
+        groups.put("complaint", List.of("投诉", "问题", "不满", "质量差", "服务差", "难喝", "慢", "态度差", "不新鲜", "投诉"));
+        groups.put("consult", List.of("推荐", "建议", "哪种", "什么好", "口味", "风味", "酸", "苦", "浓", "淡", "咨询", "推荐"));
+        groups.put("order_query", List.of("订单", "我的订单", "订单状态", "查订单", "订单到哪", "配送", "进度"));
+
+        // Agent 路由
+        groups.put("router_order", List.of(
+                "下单", "点单", "购买", "买", "订单", "购物车", "支付", "结算",
+                "加购", "要一杯", "要一单", "我要", "来一杯", "来一单",
+                "order", "cart", "buy", "purchase"));
+        groups.put("router_coffee", List.of(
+                "推荐", "建议", "什么咖啡", "哪种", "哪款", "口味", "风味",
+                "酸", "苦", "甜", "香", "浓", "淡", "推荐款", "推荐咖啡",
+                "recommend", "suggest", "coffee", "flavor", "taste"));
+        groups.put("router_service", List.of(
+                "营业时间", "地址", "位置", "门店", "配送", "送达", "退款",
+                "投诉", "联系", "电话", "营业", "配送范围", "配送费",
+                "hours", "address", "location", "store", "delivery", "refund"));
+        groups.put("router_coffee_product", List.of(
+                "美式", "拿铁", "卡布奇诺", "摩卡", "浓缩", "玛奇朵",
+                "latte", "cappuccino", "mocha", "espresso", "macchiato"));
+
+        // 推荐偏好（用户偏好描述）
+        groups.put("preference_mild", List.of("酸", "苦"));
+        groups.put("preference_strong", List.of("浓", "烈"));
+        groups.put("preference_sweet", List.of("甜"));
+
+        // 推荐偏好（咖啡名称）
+        groups.put("coffee_milk", List.of("拿铁", "卡布奇诺", "摩卡", "焦糖"));
+        groups.put("coffee_strong", List.of("美式", "浓缩"));
+        groups.put("coffee_sweet", List.of("焦糖", "摩卡", "玛奇朵"));
+
+        return groups;
+    }
+}
@@ -0,0 +1,32 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 推测执行配置属性
+ * 关键词与本地分类器都无法确定意图时，在 LLM 意图识别期间先启动最可能的 Agent
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Data
+@Component
+@Schema(description = "推测执行配置属性")
+@ConfigurationProperties(prefix = "routing.speculative")
+public class SpeculativeRoutingProperties {
+
+    /**
+     * 是否启用推测执行
+     */
+    @Schema(description = "是否启用推测执行")
+    private boolean enabled = true;
+
+    /**
+     * 关键词预测的最低置信度，低于该值不推测执行
+     */
+    @Schema(description = "关键词预测的最低置信度")
+    private double minConfidence = 0.6;
+}
@@ -0,0 +1,90 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 工具结果缓存配置属性
+ * 只读工具的结果按（工具名, 规范化参数, 用户ID）缓存序列化后的 JSON，各工具可单独配置 TTL
+ *
+ * @author zhoulu
+ * @since 2026-03-14
+ */
+@Data
+@Component
+@Schema(description = "Agent 工具结果缓存配置属性")
+@ConfigurationProperties(prefix = "agent.tool-cache")
+public class ToolCacheProperties {
+
+    /**
+     * 失效事件：商品目录变更
+     */
+    public static final String INVALIDATE_ON_CATALOG = "catalog";
+
+    /**
+     * 失效事件：订单变更
+     */
+    public static final String INVALIDATE_ON_ORDER = "order";
+
+    /**
+     * 是否启用缓存
+     */
+    @Schema(description = "是否启用缓存")
+    private boolean enabled = true;
+
+    /**
+     * 最大缓存条目数
+     */
+    @Schema(description = "最大缓存条目数")
+    private long maxSize = 5000;
+
+    /**
+     * 可缓存的工具（工具名 -> 缓存策略），未配置的工具不缓存
+     */
+    @Schema(description = "可缓存的工具")
+    private Map<String, ToolPolicy> tools = defaultTools();
+
+    /**
+     * 单个工具的缓存策略
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "工具缓存策略")
+    public static class ToolPolicy {
+
+        /**
+         * 缓存有效期（秒）
+         */
+        @Schema(description = "缓存有效期（秒）")
+        private long ttl = 60;
+
+        /**
+         * 结果是否与用户相关（是则缓存键包含用户ID）
+         */
+        @Schema(description = "结果是否与用户相关")
+        private boolean userScoped;
+
+        /**
+         * 触发失效的事件（catalog / order）
+         */
+        @Schema(description = "触发失效的事件")
+        private List<String> invalidateOn = List.of();
+    }
+
+    private static Map<String, ToolPolicy> defaultTools() {
+        Map<String, ToolPolicy> tools = new LinkedHashMap<>();
+        tools.put("search_coffee", new ToolPolicy(60, false, List.of(INVALIDATE_ON_CATALOG)));
+        tools.put("get_coffee_detail", new ToolPolicy(60, false, List.of(INVALIDATE_ON_CATALOG)));
+        tools.put("get_categories", new ToolPolicy(600, false, List.of(INVALIDATE_ON_CATALOG)));
+        return tools;
+    }
+}
@@ -0,0 +1,159 @@
+package com.mycoffeestore.config;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 工具结果投影配置属性
+ * 工具结果返回给模型前按工具裁剪为紧凑 JSON（字段白名单、数值压缩、列表截断），减少提示词 Token；
+ * 列表条数与文本长度可按 Agent 覆盖
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Data
+@Component
+@Schema(description = "Agent 工具结果投影配置属性")
+@ConfigurationProperties(prefix = "agent.tool-projection")
+public class ToolProjectionProperties {
+
+    /**
+     * 是否启用投影
+     */
+    @Schema(description = "是否启用投影")
+    private boolean enabled = true;
+
+    /**
+     * 列表最多保留的条数（超出部分以计数代替）
+     */
+    @Schema(description = "列表最多保留的条数")
+    private int maxListItems = 5;
+
+    /**
+     * 文本字段最大长度（超出部分截断）
+     */
+    @Schema(description = "文本字段最大长度")
+    private int maxTextLength = 60;
+
+    /**
+     * 各工具的投影规则（工具名 -> 规则），未配置的工具只做数值压缩与空值剔除
+     */
+    @Schema(description = "各工具的投影规则")
+    private Map<String, ToolProjection> tools = defaultTools();
+
+    /**
+     * 各 Agent 的覆盖配置（Agent 类型 -> 配置）
+     */
+    @Schema(description = "各 Agent 的覆盖配置")
+    private Map<String, AgentProjection> agents = new LinkedHashMap<>();
+
+    /**
+     * 单个工具的投影规则
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "工具投影规则")
+    public static class ToolProjection {
+
+        /**
+         * 保留的字段（作用于结果中各层对象，为空表示保留全部字段）
+         */
+        @Schema(description = "保留的字段")
+        private List<String> fields = List.of();
+
+        /**
+         * 列表最多保留的条数（为空时使用 Agent 或全局配置）
+         */
+        @Schema(description = "列表最多保留的条数")
+        private Integer maxListItems;
+
+        /**
+         * 文本字段最大长度（为空时使用 Agent 或全局配置）
+         */
+        @Schema(description = "文本字段最大长度")
+        private Integer maxTextLength;
+    }
+
+    /**
+     * 单个 Agent 的覆盖配置
+     */
+    @Data
+    @Schema(description = "Agent 投影配置")
+    public static class AgentProjection {
+
+        /**
+         * 该 Agent 是否启用投影
+         */
+        @Schema(description = "是否启用投影")
+        private boolean enabled = true;
+
+        /**
+         * 列表最多保留的条数（为空时使用全局配置）
+         */
+        @Schema(description = "列表最多保留的条数")
+        private Integer maxListItems;
+
+        /**
+         * 文本字段最大长度（为空时使用全局配置）
+         */
+        @Schema(description = "文本字段最大长度")
+        private Integer maxTextLength;
+    }
+
+    /**
+     * 指定 Agent 是否启用投影
+     *
+     * @param agentType Agent 类型（为空表示非 Agent 调用，不投影）
+     * @return 是否启用
+     */
+    public boolean isEnabledFor(String agentType) {
+        if (!enabled || agentType == null) {
+            return false;
+        }
+        AgentProjection agent = agents.get(agentType);
+        return agent == null || agent.isEnabled();
+    }
+
+    private static Map<String, ToolProjection> defaultTools() {
+        List<String> orderItem = List.of("coffeeId", "coffeeName", "quantity", "price", "subtotal");
+        Map<String, ToolProjection> tools = new LinkedHashMap<>();
+        tools.put("search_coffee", new ToolProjection(
+                List.of("total", "list", "coffeeId", "name", "description", "price", "originalPrice", "category", "stock"),
+                null, null));
+        tools.put("get_coffee_detail", new ToolProjection(
+                List.of("coffeeId", "name", "description", "price", "originalPrice", "categoryName", "stock", "sales"),
+                null, 200));
+        tools.put("get_categories", new ToolProjection(List.of("code", "name", "count"), 20, null));
+        tools.put("get_cart", new ToolProjection(
+                List.of("totalQuantity", "totalPrice", "items", "coffeeId", "coffeeName", "price", "quantity", "subtotal", "stock"),
+                20, null));
+        tools.put("create_order", new ToolProjection(concat(
+                List.of("orderId", "totalAmount", "orderTypeName", "statusName", "remark", "items", "createTime"), orderItem),
+                20, null));
+        tools.put("get_order_list", new ToolProjection(
+                List.of("total", "list", "orderId", "totalAmount", "orderTypeName", "statusName", "itemCount", "items",
+                        "coffeeName", "quantity", "createTime"),
+                null, null));
+        tools.put("get_order_detail", new ToolProjection(concat(
+                List.of("orderId", "totalAmount", "orderTypeName", "statusName", "remark", "items", "createTime", "updateTime"),
+                orderItem),
+                20, null));
+        return tools;
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> result = new ArrayList<>(first);
+        result.addAll(second);
+        return List.copyOf(result);
+    }
+}
@@ -1,9 +1,15 @@
 package com.mycoffeestore.controller;
 
+import com.mycoffeestore.config.AdaptiveLimiters;
+import com.mycoffeestore.config.AgentExecutors;
 import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
 import com.mycoffeestore.dto.agent.AgentChatRequestV2DTO;
 import com.mycoffeestore.service.agent.AgentService;
 import com.mycoffeestore.service.agent.AgentServiceV2;
+import com.mycoffeestore.service.agent.ReactiveAgentService;
+import com.mycoffeestore.util.AdaptiveConcurrencyLimiter;
+import com.mycoffeestore.util.ChatRateLimiter;
+import com.mycoffeestore.util.LimitedSseEmitter;
 import com.mycoffeestore.util.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -12,14 +18,17 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * AI Agent 控制器
@@ -34,10 +43,24 @@ import java.util.concurrent.CompletableFuture;
 @Tag(name = "AI Agent", description = "AI Agent 对话接口")
 public class AgentController {
 
+    /**
+     * 服务繁忙时的错误事件数据
+     */
+    private static final String BUSY_EVENT_DATA = "{\"type\":\"error\",\"code\":503,\"message\":\"服务繁忙，请稍后重试\"}";
+
+    /**
+     * 触发用户 / IP 限流时的错误事件数据
+     */
+    private static final String RATE_LIMITED_EVENT_DATA = "{\"type\":\"error\",\"code\":429,\"message\":\"请求过于频繁，请稍后重试\"}";
+
     private static final Set<String> VALID_AGENT_TYPES = Set.of("coffee_advisor", "customer_service", "order_assistant", "general_chat");
 
     private final AgentService agentService;
     private final AgentServiceV2 agentServiceV2;
+    private final ReactiveAgentService reactiveAgentService;
+    private final AgentExecutors agentExecutors;
+    private final ChatRateLimiter chatRateLimiter;
+    private final AdaptiveLimiters adaptiveLimiters;
     private final JwtUtil jwtUtil;
 
     /**
@@ -63,17 +86,26 @@ public class AgentController {
         // 可选提取 userId（未登录为 null）
         Long userId = extractUserIdOptional(httpRequest);
 
-        // 创建 SSE 发射器，60 秒超时
-        SseEmitter emitter = new SseEmitter(60000L);
+        // 用户 / IP 限流
+        if (!chatRateLimiter.tryAcquire(ChatRateLimiter.keyOf(userId, httpRequest))) {
+            return rejectedEmitter(RATE_LIMITED_EVENT_DATA);
+        }
+
+        // 自适应并发限制：上游延迟升高时上限随之收缩，超出部分直接返回繁忙错误
+        AdaptiveConcurrencyLimiter.Token token = adaptiveLimiters.chat().tryAcquire();
+        if (token == null) {
+            return rejectedEmitter(BUSY_EVENT_DATA);
+        }
+
+        // 创建 SSE 发射器，60 秒超时；连接结束时释放并发令牌并提交延迟样本
+        LimitedSseEmitter emitter = new LimitedSseEmitter(60000L, token);
 
         // 设置超时和错误回调
         emitter.onTimeout(() -> log.warn("SSE 连接超时"));
         emitter.onError(e -> log.warn("SSE 连接错误: {}", e.getMessage()));
 
-        // 异步执行聊天
-        CompletableFuture.runAsync(() -> {
-            agentService.chatStream(request, userId, emitter);
-        });
+        // 异步执行聊天（线程池满时立即返回繁忙错误）
+        submitOrReject(emitter, () -> agentService.chatStream(request, userId, emitter));
 
         return emitter;
     }
@@ -101,21 +133,109 @@ public class AgentController {
         // 可选提取 userId（未登录为 null）
         Long userId = extractUserIdOptional(httpRequest);
 
-        // 创建 SSE 发射器，60 秒超时
-        SseEmitter emitter = new SseEmitter(60000L);
+        // 用户 / IP 限流
+        if (!chatRateLimiter.tryAcquire(ChatRateLimiter.keyOf(userId, httpRequest))) {
+            return rejectedEmitter(RATE_LIMITED_EVENT_DATA);
+        }
+
+        // 自适应并发限制：上游延迟升高时上限随之收缩，超出部分直接返回繁忙错误
+        AdaptiveConcurrencyLimiter.Token token = adaptiveLimiters.chat().tryAcquire();
+        if (token == null) {
+            return rejectedEmitter(BUSY_EVENT_DATA);
+        }
+
+        // 创建 SSE 发射器，60 秒超时；连接结束时释放并发令牌并提交延迟样本
+        LimitedSseEmitter emitter = new LimitedSseEmitter(60000L, token);
 
         // 设置超时和错误回调
         emitter.onTimeout(() -> log.warn("SSE 连接超时"));
         emitter.onError(e -> log.warn("SSE 连接错误: {}", e.getMessage()));
 
-        // 异步执行聊天（V2 版本）
-        CompletableFuture.runAsync(() -> {
-            agentServiceV2.chatStreamV2(request, userId, emitter);
-        });
+        // 异步执行聊天（V2 版本，线程池满时立即返回繁忙错误）
+        submitOrReject(emitter, () -> agentServiceV2.chatStreamV2(request, userId, emitter));
 
         return emitter;
     }
 
+    /**
+     * V3 版本：响应式 Agent 流式聊天
+     * 请求体与 V1 相同；直接返回由上游模型流组合出的 SSE 事件流，
+     * 不创建 SseEmitter、不占用公共线程池，客户端断开时取消上游请求
+     *
+     * @param request     聊天请求
+     * @param httpRequest HTTP 请求（用于提取 JWT Token）
+     * @return SSE 事件流
+     */
+    @PostMapping(value = "/v3/agent/chat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "V3 响应式 Agent 流式聊天", description = "与 V1 相同的请求与事件格式，端到端响应式实现")
+    public Flux<ServerSentEvent<String>> chatV3(@RequestBody @Valid AgentChatRequestDTO request,
+                                                HttpServletRequest httpRequest) {
+
+        log.info("收到 V3 Agent 聊天请求，角色: {}，消息数: {}", request.getAgentType(), request.getMessages().size());
+
+        // 校验 agentType 有效性
+        if (!VALID_AGENT_TYPES.contains(request.getAgentType())) {
+            throw new IllegalArgumentException("无效的角色类型: " + request.getAgentType() + "，支持: " + VALID_AGENT_TYPES);
+        }
+
+        // 可选提取 userId（未登录为 null）
+        Long userId = extractUserIdOptional(httpRequest);
+
+        // 用户 / IP 限流
+        if (!chatRateLimiter.tryAcquire(ChatRateLimiter.keyOf(userId, httpRequest))) {
+            return Flux.just(ServerSentEvent.builder(RATE_LIMITED_EVENT_DATA).event("error").build());
+        }
+
+        return reactiveAgentService.chat(request, userId)
+                .doOnCancel(() -> log.info("V3 Agent 聊天连接已断开"));
+    }
+
+    /**
+     * 提交到 Agent 执行线程池；线程池已满时发送 503 错误事件并结束连接
+     *
+     * @param emitter SSE 发射器
+     * @param task    聊天任务
+     */
+    private void submitOrReject(LimitedSseEmitter emitter, Runnable task) {
+        try {
+            agentExecutors.execution().execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Agent 执行线程池已满，拒绝请求: {}", e.getMessage());
+            // 请求未到达上游：只释放名额，随后的繁忙错误事件不计为上游失败
+            emitter.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+            sendErrorAndComplete(emitter, BUSY_EVENT_DATA);
+        }
+    }
+
+    /**
+     * 创建一个只包含错误事件、已结束的 SSE 连接
+     *
+     * @param data 错误事件数据（JSON）
+     * @return SSE 发射器
+     */
+    private SseEmitter rejectedEmitter(String data) {
+        SseEmitter emitter = new SseEmitter(60000L);
+        sendErrorAndComplete(emitter, data);
+        return emitter;
+    }
+
+    /**
+     * 发送错误事件并结束连接
+     *
+     * @param emitter SSE 发射器
+     * @param data    错误事件数据（JSON）
+     */
+    private void sendErrorAndComplete(SseEmitter emitter, String data) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("error")
+                    .data(data));
+        } catch (IOException e) {
+            log.debug("SSE 发送失败: {}", e.getMessage());
+        }
+        emitter.complete();
+    }
+
     /**
      * 可选提取用户ID
      * 尝试从 Authorization header 解析 JWT，失败返回 null
@@ -0,0 +1,72 @@
+package com.mycoffeestore.dto.agent;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+/**
+ * Agent 流式事件
+ * 与 SSE 事件一一对应：name 为事件名（message / done / error），data 序列化后作为事件数据，
+ * data.type 区分 text / tool_call / tool_result / done / error
+ *
+ * @param name 事件名
+ * @param data 事件数据
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Schema(description = "Agent 流式事件")
+public record AgentEvent(String name, Map<String, Object> data) {
+
+    public static final String TYPE_TEXT = "text";
+    public static final String TYPE_DONE = "done";
+    public static final String TYPE_ERROR = "error";
+
+    /**
+     * message 事件
+     */
+    public static AgentEvent message(Map<String, Object> data) {
+        return new AgentEvent("message", data);
+    }
+
+    /**
+     * 文本增量
+     */
+    public static AgentEvent text(String content) {
+        return message(Map.of("type", TYPE_TEXT, "content", content));
+    }
+
+    /**
+     * 对话结束
+     */
+    public static AgentEvent done() {
+        return new AgentEvent("done", Map.of("type", TYPE_DONE));
+    }
+
+    /**
+     * 事件数据类型
+     */
+    public String type() {
+        Object type = data.get("type");
+        return type != null ? type.toString() : null;
+    }
+
+    public boolean isText() {
+        return TYPE_TEXT.equals(type());
+    }
+
+    public boolean isDone() {
+        return TYPE_DONE.equals(type());
+    }
+
+    public boolean isError() {
+        return TYPE_ERROR.equals(type());
+    }
+
+    /**
+     * 文本内容（非文本事件返回 null）
+     */
+    public String content() {
+        Object content = data.get("content");
+        return content != null ? content.toString() : null;
+    }
+}
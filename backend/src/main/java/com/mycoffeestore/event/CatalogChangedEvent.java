@@ -0,0 +1,23 @@
+package com.mycoffeestore.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Set;
+
+/**
+ * 商品目录变更事件
+ * 咖啡信息或库存发生变化时发布（下单扣减库存、取消订单恢复库存）
+ *
+ * @author zhoulu
+ * @since 2026-03-14
+ */
+@Data
+@AllArgsConstructor
+public class CatalogChangedEvent {
+
+    /**
+     * 发生变化的咖啡ID
+     */
+    private Set<Long> coffeeIds;
+}
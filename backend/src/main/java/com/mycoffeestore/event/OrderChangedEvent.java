@@ -0,0 +1,26 @@
+package com.mycoffeestore.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 订单变更事件
+ * 订单创建、取消或状态变化时发布
+ *
+ * @author zhoulu
+ * @since 2026-03-14
+ */
+@Data
+@AllArgsConstructor
+public class OrderChangedEvent {
+
+    /**
+     * 订单所属用户ID
+     */
+    private Long userId;
+
+    /**
+     * 订单号
+     */
+    private String orderNo;
+}
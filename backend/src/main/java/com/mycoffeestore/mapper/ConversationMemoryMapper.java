@@ -2,6 +2,11 @@ package com.mycoffeestore.mapper;
 
 import com.mycoffeestore.entity.ConversationMemory;
 import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * 对话记忆 Mapper
@@ -10,4 +15,26 @@ import com.mybatisflex.core.BaseMapper;
  * @since 2026-03-07
  */
 public interface ConversationMemoryMapper extends BaseMapper<ConversationMemory> {
+
+    /**
+     * 批量更新会话的最后活跃时间
+     * <p>
+     * 使用单条 {@code UPDATE ... FROM (VALUES ...)} 语句，一次写入多个会话的活跃时间；
+     * 只会把时间往后推，不会用较旧的时间覆盖较新的记录
+     *
+     * @param activeTimes sessionId -> 最后活跃时间
+     * @return 更新的记录数
+     */
+    @Update({"<script>",
+            "UPDATE mcs_conversation_memory AS m",
+            "SET last_active_at = v.last_active_at, update_time = now()",
+            "FROM (VALUES",
+            "<foreach collection='activeTimes' index='sessionId' item='activeAt' separator=','>",
+            "(CAST(#{sessionId} AS VARCHAR), CAST(#{activeAt} AS TIMESTAMP))",
+            "</foreach>",
+            ") AS v(session_id, last_active_at)",
+            "WHERE m.session_id = v.session_id",
+            "AND (m.last_active_at IS NULL OR m.last_active_at &lt; v.last_active_at)",
+            "</script>"})
+    int batchUpdateLastActiveAt(@Param("activeTimes") Map<String, LocalDateTime> activeTimes);
 }
@@ -40,4 +40,34 @@ public interface AgentRouterService {
      * @return 路由理由
      */
     String getRouteReason(String userMessage);
+
+    /**
+     * 一次性计算路由结果、置信度和理由（只扫描一遍用户消息）
+     *
+     * @param userMessage 用户消息
+     * @return 路由结果
+     */
+    RouteResult analyze(String userMessage);
+
+    /**
+     * 路由结果
+     */
+    @lombok.Builder
+    @lombok.Data
+    class RouteResult {
+        /**
+         * Agent 类型
+         */
+        private String agentType;
+
+        /**
+         * 置信度（0.0-1.0）
+         */
+        private double confidence;
+
+        /**
+         * 路由理由
+         */
+        private String reason;
+    }
 }
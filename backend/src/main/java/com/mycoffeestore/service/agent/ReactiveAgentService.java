@@ -0,0 +1,72 @@
+package com.mycoffeestore.service.agent;
+
+import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 响应式 AI Agent 服务接口
+ * 返回由上游模型流直接组合出的事件流，不占用每连接的阻塞线程
+ *
+ * @author zhoulu
+ * @since 2026-03-15
+ */
+public interface ReactiveAgentService {
+
+    /**
+     * 流式聊天事件
+     * 路由链可逐个转发各步骤的文本增量，同时累积步骤输出作为下一个 Agent 的输入
+     *
+     * @param request 聊天请求
+     * @param userId  用户ID（可为 null，表示未登录）
+     * @return 事件流（以 done 或 error 事件结束，取消订阅时取消上游请求）
+     */
+    default Flux<AgentEvent> events(AgentChatRequestDTO request, Long userId) {
+        return events(request, userId, WriteToolGate.OPEN);
+    }
+
+    /**
+     * 流式聊天事件（写操作工具经闸门放行）
+     * 尚未确认的调用（如推测执行）传入闸门：写操作工具（加购、下单）执行前等待闸门放行，
+     * 闸门异常结束或取消订阅时不再执行（已在工具线程池队列中的调用出队后跳过）
+     *
+     * @param request   聊天请求
+     * @param userId    用户ID（可为 null，表示未登录）
+     * @param writeGate 写操作工具闸门
+     * @return 事件流（以 done 或 error 事件结束，取消订阅时取消上游请求）
+     */
+    Flux<AgentEvent> events(AgentChatRequestDTO request, Long userId, WriteToolGate writeGate);
+
+    /**
+     * 流式聊天
+     *
+     * @param request 聊天请求
+     * @param userId  用户ID（可为 null，表示未登录）
+     * @return SSE 事件流（事件名 message / done，数据为 JSON，与 V1 接口一致）
+     */
+    Flux<ServerSentEvent<String>> chat(AgentChatRequestDTO request, Long userId);
+
+    /**
+     * 写操作工具闸门
+     */
+    @FunctionalInterface
+    interface WriteToolGate {
+
+        /**
+         * 直接放行
+         */
+        WriteToolGate OPEN = toolName -> CompletableFuture.completedFuture(null);
+
+        /**
+         * 写操作工具执行前调用
+         *
+         * @param toolName 工具名
+         * @return 放行时正常完成；异常完成时该工具不执行
+         */
+        CompletionStage<Void> admit(String toolName);
+    }
+}
@@ -1,22 +1,47 @@
 package com.mycoffeestore.service.impl.agent;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.mycoffeestore.ai.core.ChatRequestBody;
+import com.mycoffeestore.ai.core.ChatRequestBodyBuilder;
+import com.mycoffeestore.ai.core.LlmMetrics;
+import com.mycoffeestore.ai.stream.ChatStreamChunk;
+import com.mycoffeestore.ai.stream.ChatStreamParser;
+import com.mycoffeestore.config.AgentProperties;
 import com.mycoffeestore.config.ModelScopeProperties;
 import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import com.mycoffeestore.exception.BusinessException;
 import com.mycoffeestore.service.agent.AgentService;
+import com.mycoffeestore.service.agent.ReactiveAgentService;
 import com.mycoffeestore.util.AgentToolExecutor;
+import com.mycoffeestore.util.RequestCoalescer;
+import com.mycoffeestore.util.SseDeltaCoalescer;
+import com.mycoffeestore.util.SseEventEncoder;
+import com.mycoffeestore.util.ToolDefinitionRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * AI Agent 服务实现
@@ -30,18 +55,55 @@ import java.util.*;
 @Primary
 @RequiredArgsConstructor
 @org.springframework.core.annotation.Order(2)
-public class AgentServiceImpl implements AgentService {
+public class AgentServiceImpl implements AgentService, ReactiveAgentService {
 
     private final WebClient modelScopeWebClient;
     private final ModelScopeProperties modelScopeProperties;
     private final AgentToolExecutor toolExecutor;
     private final ObjectMapper objectMapper;
+    private final AgentProperties agentProperties;
+    private final RequestCoalescer requestCoalescer;
+    private final ToolDefinitionRegistry toolRegistry;
+    private final LlmMetrics llmMetrics;
+    private final SseDeltaCoalescer sseDeltaCoalescer;
+    private final SseEventEncoder sseEventEncoder;
+
+    /**
+     * 工具执行线程池（有界队列，队列满时拒绝，工具以错误结果返回）
+     */
+    private ThreadPoolExecutor toolCallExecutor;
 
     /**
      * 最大工具调用轮次（防止无限循环）
      */
     private static final int MAX_TOOL_ROUNDS = 5;
 
+    /**
+     * 指标中的提供商标签（直连 ModelScope）
+     */
+    private static final String PROVIDER = "modelscope";
+
+    /**
+     * 只读工具超时结果：可以直接重试
+     */
+    private static final String TOOL_TIMEOUT_RESULT = "{\"error\":\"工具执行超时，请稍后重试\"}";
+
+    /**
+     * 工具线程池已满时的结果（工具未执行，可以重试）
+     */
+    private static final String TOOL_REJECTED_RESULT = "{\"error\":\"服务繁忙，工具暂时无法执行，请稍后重试\"}";
+
+    /**
+     * 工具在线程池队列中等待超时的结果（工具未执行，可以重试）
+     */
+    private static final String TOOL_QUEUE_TIMEOUT_RESULT = "{\"error\":\"服务繁忙，工具未执行，请稍后重试\"}";
+
+    /**
+     * 写操作工具超时结果：操作可能已经生效，重试会重复加购 / 下单
+     */
+    private static final String WRITE_TOOL_TIMEOUT_RESULT =
+            "{\"error\":\"操作结果未知，请勿重试；请先查询购物车或订单列表确认是否已生效\"}";
+
     /**
      * System Prompt 模板
      */
@@ -82,24 +144,46 @@ public class AgentServiceImpl implements AgentService {
         """
     );
 
-    @Override
-    public void chatStream(AgentChatRequestDTO request, Long userId, SseEmitter emitter) {
-        try {
-            // 构建消息列表
-            List<Map<String, Object>> messages = buildMessages(request);
-
-            // 获取工具定义
-            List<Map<String, Object>> tools = toolExecutor.getToolDefinitions(request.getAgentType());
+    @PostConstruct
+    public void init() {
+        AgentProperties.ToolExecutionConfig config = agentProperties.getToolExecution();
+        int parallelism = Math.max(1, config.getParallelism());
+        AtomicInteger threadIndex = new AtomicInteger();
+        toolCallExecutor = new ThreadPoolExecutor(parallelism, parallelism,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                r -> {
+                    Thread thread = new Thread(r);
+                    thread.setName("agent-tool-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 提交线程可能是响应流所在的 IO 线程，不能在其中执行阻塞的工具
+                new ThreadPoolExecutor.AbortPolicy());
+        toolCallExecutor.allowCoreThreadTimeOut(true);
+    }
 
-            // 执行流式对话（支持工具调用循环）
-            executeStreamChat(messages, tools, userId, emitter, 0);
-        } catch (Exception e) {
-            log.error("Agent 聊天异常: {}", e.getMessage(), e);
-            sendSseEvent(emitter, "error", Map.of("type", "error", "message", "AI 服务暂时不可用，请稍后重试"));
-            completeSse(emitter);
+    @PreDestroy
+    public void destroy() {
+        if (toolCallExecutor != null) {
+            toolCallExecutor.shutdown();
         }
     }
 
+    @Override
+    public void chatStream(AgentChatRequestDTO request, Long userId, SseEmitter emitter) {
+        // 订阅事件流并转发到 SseEmitter，连接期间不占用阻塞线程；文本增量合并后批量写出
+        sseDeltaCoalescer.coalesce(events(request, userId)).subscribe(
+                event -> sseEventEncoder.send(emitter, event),
+                error -> {
+                    log.error("Agent 聊天异常: {}", error.getMessage(), error);
+                    sseEventEncoder.send(emitter, new AgentEvent("error",
+                            Map.of("type", "error", "message", "AI 服务暂时不可用，请稍后重试")));
+                    completeSse(emitter);
+                },
+                () -> completeSse(emitter));
+    }
+
     /**
      * 构建消息列表（system prompt + 用户对话历史）
      */
@@ -119,200 +203,246 @@ public class AgentServiceImpl implements AgentService {
     }
 
     /**
-     * 执行流式对话，支持工具调用循环
+     * 响应式流式对话
+     * 直接由上游 WebClient 流组合出事件流，工具轮次首尾相接，
+     * 只有工具执行本身在工具线程池中运行，打开的连接不占用任何阻塞线程；订阅取消时取消上游请求，
+     * 尚未开始的工具调用不再执行。
+     */
+    @Override
+    public Flux<AgentEvent> events(AgentChatRequestDTO request, Long userId, WriteToolGate writeGate) {
+        return Flux.defer(() -> {
+                    // 构建消息列表，工具定义使用启动时编译好的片段
+                    List<Map<String, Object>> messages = buildMessages(request);
+                    ToolDefinitionRegistry.CompiledTools tools = toolRegistry.forAgent(request.getAgentType());
+                    ChatRequestBodyBuilder body = newRequestBody(tools);
+                    return chatRound(messages, body, request.getAgentType(), userId, writeGate, 0);
+                })
+                .onErrorResume(error -> {
+                    log.error("Agent 响应式聊天异常: {}", error.getMessage(), error);
+                    return Flux.just(AgentEvent.message(errorData(error, "AI 服务暂时不可用")));
+                });
+    }
+
+    @Override
+    public Flux<ServerSentEvent<String>> chat(AgentChatRequestDTO request, Long userId) {
+        return sseDeltaCoalescer.coalesce(events(request, userId)).map(sseEventEncoder::toServerSentEvent);
+    }
+
+    /**
+     * 单轮响应式对话：模型流 → 工具调用 → 下一轮
      */
-    private void executeStreamChat(List<Map<String, Object>> messages,
-                                    List<Map<String, Object>> tools,
-                                    Long userId,
-                                    SseEmitter emitter,
-                                    int round) {
+    private Flux<AgentEvent> chatRound(List<Map<String, Object>> messages,
+                                                    ChatRequestBodyBuilder body,
+                                                    String agentType,
+                                                    Long userId,
+                                                    WriteToolGate writeGate,
+                                                    int round) {
         if (round >= MAX_TOOL_ROUNDS) {
             log.warn("工具调用轮次超过上限: {}", MAX_TOOL_ROUNDS);
-            sendSseEvent(emitter, "message", Map.of("type", "text", "content", "抱歉，处理过程过于复杂，请简化你的请求。"));
-            sendSseEvent(emitter, "done", Map.of("type", "done"));
-            completeSse(emitter);
-            return;
+            llmMetrics.recordToolRounds(agentType, round);
+            return Flux.just(
+                    AgentEvent.text("抱歉，处理过程过于复杂，请简化你的请求。"),
+                    AgentEvent.done());
         }
 
-        try {
-            // 构建请求体
-            ObjectNode requestBody = objectMapper.createObjectNode();
-            requestBody.put("model", modelScopeProperties.getModel());
-            requestBody.set("messages", objectMapper.valueToTree(messages));
-            requestBody.put("stream", true);
-            requestBody.put("temperature", 0.6);
-            requestBody.put("max_tokens", 4096);
-
-            // 添加工具定义
-            if (!tools.isEmpty()) {
-                requestBody.set("tools", objectMapper.valueToTree(tools));
-            }
-
-            // 关闭思考模式（Kimi-K2.5 Instant Mode）
-            ObjectNode extraBody = objectMapper.createObjectNode();
-            ObjectNode chatTemplateKwargs = objectMapper.createObjectNode();
-            chatTemplateKwargs.put("thinking", false);
-            extraBody.set("chat_template_kwargs", chatTemplateKwargs);
-            requestBody.set("extra_body", extraBody);
-
-            log.info("调用 Modelscope API，轮次: {}，消息数: {}", round, messages.size());
-
-            // 流式请求
-            Flux<String> responseFlux = modelScopeWebClient.post()
-                    .uri("/chat/completions")
-                    .bodyValue(requestBody.toString())
-                    .retrieve()
-                    .bodyToFlux(String.class);
-
-            // 收集流式响应
-            StringBuilder contentBuilder = new StringBuilder();
-            List<Map<String, Object>> toolCalls = new ArrayList<>();
-            // 用于累积 tool_call 的 arguments
-            Map<Integer, StringBuilder> toolCallArgsBuilders = new HashMap<>();
-            Map<Integer, String> toolCallIds = new HashMap<>();
-            Map<Integer, String> toolCallNames = new HashMap<>();
-
-            responseFlux
-                .doOnNext(line -> {
-                    // 处理 SSE 数据行
-                    processStreamLine(line, contentBuilder, toolCalls,
-                            toolCallArgsBuilders, toolCallIds, toolCallNames,
-                            emitter);
+        StreamRound streamRound = new StreamRound();
+        Flux<AgentEvent> textEvents = Flux.defer(() -> {
+                    LlmMetrics.Call call = llmMetrics.start(agentType, PROVIDER, modelScopeProperties.getModel());
+                    streamRound.call = call;
+                    return requestStream(messages, body, agentType, round)
+                            .doOnComplete(call::success)
+                            .doOnError(call::error)
+                            .doOnCancel(call::cancel);
                 })
-                .doOnComplete(() -> {
-                    // 组装完整的 tool_calls
-                    finalizeToolCalls(toolCalls, toolCallArgsBuilders, toolCallIds, toolCallNames);
-
-                    if (!toolCalls.isEmpty()) {
-                        // 有工具调用，执行工具并递归
-                        handleToolCalls(messages, tools, toolCalls, contentBuilder.toString(), userId, emitter, round);
-                    } else {
-                        // 没有工具调用，完成
-                        sendSseEvent(emitter, "done", Map.of("type", "done"));
-                        completeSse(emitter);
+                .concatMap(line -> {
+                    String content = streamRound.accept(line);
+                    return content != null
+                            ? Mono.just(AgentEvent.text(content))
+                            : Mono.empty();
+                });
+
+        Flux<AgentEvent> followUp = Mono.fromSupplier(streamRound::toolCalls)
+                .flatMapMany(toolCalls -> {
+                    if (toolCalls.isEmpty()) {
+                        llmMetrics.recordToolRounds(agentType, round);
+                        return Flux.just(AgentEvent.done());
                     }
-                })
-                .doOnError(error -> {
-                    log.error("Modelscope API 流式调用失败: {}", error.getMessage(), error);
-                    sendSseEvent(emitter, "message", Map.of("type", "error", "message", "AI 服务暂时不可用"));
-                    completeSse(emitter);
-                })
-                .subscribe();
-
-        } catch (Exception e) {
-            log.error("构建 Modelscope 请求失败: {}", e.getMessage(), e);
-            sendSseEvent(emitter, "message", Map.of("type", "error", "message", "请求构建失败"));
-            completeSse(emitter);
-        }
+                    messages.add(assistantMessage(streamRound.content(), toolCalls));
+
+                    // 工具事件在每个工具开始 / 结束时推送，全部完成后按原顺序拼入结果并进入下一轮
+                    return Flux.<AgentEvent>create(sink -> {
+                                AtomicBoolean cancelled = new AtomicBoolean();
+                                List<CompletableFuture<String>> results = scheduleToolCalls(toolCalls, agentType, userId,
+                                        writeGate, cancelled, data -> sink.next(AgentEvent.message(data)));
+                                // 取消订阅时，等待前序调用的工具不再提交，已在线程池队列中的工具出队后直接跳过
+                                sink.onDispose(() -> {
+                                    cancelled.set(true);
+                                    results.forEach(result -> result.cancel(false));
+                                });
+                                CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                                        .whenComplete((ignored, error) -> {
+                                            if (error != null) {
+                                                sink.error(error);
+                                                return;
+                                            }
+                                            appendToolResults(messages, toolCalls, results);
+                                            sink.complete();
+                                        });
+                            })
+                            .concatWith(Flux.defer(() -> chatRound(messages, body, agentType, userId, writeGate, round + 1)));
+                });
+
+        return textEvents.concatWith(followUp);
     }
 
     /**
-     * 处理流式响应的每一行数据
+     * 创建对话的请求体构建器：模型参数与工具定义只在对话开始时编码一次
      */
-    private void processStreamLine(String line,
-                                    StringBuilder contentBuilder,
-                                    List<Map<String, Object>> toolCalls,
-                                    Map<Integer, StringBuilder> toolCallArgsBuilders,
-                                    Map<Integer, String> toolCallIds,
-                                    Map<Integer, String> toolCallNames,
-                                    SseEmitter emitter) {
-        // WebClient bodyToFlux(String.class) 会自动处理 SSE data: 前缀
-        String data = line.trim();
-        if (data.isEmpty() || data.equals("[DONE]")) {
-            return;
+    private ChatRequestBodyBuilder newRequestBody(ToolDefinitionRegistry.CompiledTools tools) {
+        ObjectNode head = objectMapper.createObjectNode();
+        head.put("model", modelScopeProperties.getModel());
+        head.put("stream", true);
+        head.put("temperature", 0.6);
+        head.put("max_tokens", 4096);
+        // 最后一个块返回 usage，用于用量与生成速度指标
+        head.putObject("stream_options").put("include_usage", true);
+
+        // 添加工具定义（直接拼入预先序列化的 JSON 片段）
+        if (!tools.isEmpty()) {
+            head.putRawValue("tools", new RawValue(tools.json()));
         }
 
-        // 去掉可能的 "data: " 前缀
-        if (data.startsWith("data:")) {
-            data = data.substring(5).trim();
-        }
-        if (data.isEmpty() || data.equals("[DONE]")) {
-            return;
-        }
+        // 关闭思考模式（Kimi-K2.5 Instant Mode）
+        ObjectNode extraBody = objectMapper.createObjectNode();
+        ObjectNode chatTemplateKwargs = objectMapper.createObjectNode();
+        chatTemplateKwargs.put("thinking", false);
+        extraBody.set("chat_template_kwargs", chatTemplateKwargs);
+        head.set("extra_body", extraBody);
 
-        try {
-            JsonNode json = objectMapper.readTree(data);
-            JsonNode choices = json.get("choices");
-            if (choices == null || !choices.isArray() || choices.isEmpty()) {
-                return;
-            }
+        return new ChatRequestBodyBuilder(objectMapper, head);
+    }
 
-            JsonNode choice = choices.get(0);
-            JsonNode delta = choice.get("delta");
-            if (delta == null) {
-                return;
-            }
+    /**
+     * 发起一轮流式模型请求
+     * 只编码上一轮之后新增的消息，请求体直接写入请求的缓冲区
+     */
+    private Flux<String> requestStream(List<Map<String, Object>> messages,
+                                       ChatRequestBodyBuilder bodyBuilder,
+                                       String agentType,
+                                       int round) {
+        ChatRequestBody body = bodyBuilder.build(messages);
+
+        log.info("调用 Modelscope API，轮次: {}，消息数: {}，请求体: {} 字节", round, messages.size(), body.size());
+
+        Supplier<Flux<String>> upstream = () -> modelScopeWebClient.post()
+                .uri("/chat/completions")
+                .body(body)
+                .retrieve()
+                .bodyToFlux(String.class);
+
+        // 低温度 Agent 可开启请求合并，同时到达的相同请求共享一次上游调用
+        if (agentProperties.getAgents().isCoalesceEnabled(agentType)) {
+            return requestCoalescer.coalesceByKey(body.key(), upstream);
+        }
+        return upstream.get();
+    }
 
-            // 处理文本内容
-            if (delta.has("content") && !delta.get("content").isNull()) {
-                String content = delta.get("content").asText();
-                if (!content.isEmpty()) {
-                    contentBuilder.append(content);
-                    sendSseEvent(emitter, "message", Map.of("type", "text", "content", content));
+    /**
+     * 单轮流式响应的累积状态：文本内容与按 index 分片到达的 tool_calls
+     */
+    private static class StreamRound {
+
+        private final StringBuilder contentBuilder = new StringBuilder();
+        private final Map<Integer, StringBuilder> toolCallArgsBuilders = new HashMap<>();
+        private final Map<Integer, String> toolCallIds = new HashMap<>();
+        private final Map<Integer, String> toolCallNames = new HashMap<>();
+
+        /**
+         * 本轮模型调用的指标观察者
+         */
+        private LlmMetrics.Call call;
+
+        /**
+         * 处理流式响应的一行数据
+         *
+         * @return 本行的文本增量，没有时返回 null
+         */
+        String accept(String line) {
+            // WebClient bodyToFlux(String.class) 会自动处理 SSE data: 前缀，解析器兼容两种格式
+            ChatStreamChunk chunk = ChatStreamParser.parse(line);
+            if (chunk == null) {
+                return null;
+            }
+            if (call != null) {
+                if (chunk.hasContent() || chunk.hasToolCalls()) {
+                    call.delta();
+                }
+                if (chunk.getUsage() != null) {
+                    call.usage(chunk.getUsage().getPromptTokens(), chunk.getUsage().getCompletionTokens());
                 }
             }
 
             // 处理工具调用
-            if (delta.has("tool_calls") && delta.get("tool_calls").isArray()) {
-                for (JsonNode tc : delta.get("tool_calls")) {
-                    int index = tc.has("index") ? tc.get("index").asInt() : 0;
+            for (ChatStreamChunk.ToolCallDelta tc : chunk.getToolCalls()) {
+                int index = tc.getIndex();
 
-                    // 收集 tool call id
-                    if (tc.has("id") && !tc.get("id").isNull()) {
-                        toolCallIds.put(index, tc.get("id").asText());
-                    }
+                // 收集 tool call id
+                if (tc.getId() != null) {
+                    toolCallIds.put(index, tc.getId());
+                }
 
-                    // 收集 function name
-                    if (tc.has("function")) {
-                        JsonNode func = tc.get("function");
-                        if (func.has("name") && !func.get("name").isNull()) {
-                            toolCallNames.put(index, func.get("name").asText());
-                        }
-                        // 累积 arguments（可能分多个 chunk 传输）
-                        if (func.has("arguments") && !func.get("arguments").isNull()) {
-                            toolCallArgsBuilders
-                                    .computeIfAbsent(index, k -> new StringBuilder())
-                                    .append(func.get("arguments").asText());
-                        }
-                    }
+                // 收集 function name
+                if (tc.getName() != null) {
+                    toolCallNames.put(index, tc.getName());
+                }
+
+                // 累积 arguments（可能分多个 chunk 传输）
+                if (tc.getArguments() != null) {
+                    toolCallArgsBuilders
+                            .computeIfAbsent(index, k -> new StringBuilder())
+                            .append(tc.getArguments());
                 }
             }
-        } catch (Exception e) {
-            log.debug("解析流式响应行失败: {} - {}", data, e.getMessage());
+
+            // 处理文本内容
+            if (chunk.hasContent()) {
+                contentBuilder.append(chunk.getContent());
+                return chunk.getContent();
+            }
+            return null;
         }
-    }
 
-    /**
-     * 组装完整的 tool_calls 列表
-     */
-    private void finalizeToolCalls(List<Map<String, Object>> toolCalls,
-                                    Map<Integer, StringBuilder> argsBuilders,
-                                    Map<Integer, String> ids,
-                                    Map<Integer, String> names) {
-        for (Integer index : names.keySet()) {
-            String id = ids.getOrDefault(index, "call_" + UUID.randomUUID().toString().replace("-", "").substring(0, 8));
-            String name = names.get(index);
-            String args = argsBuilders.containsKey(index) ? argsBuilders.get(index).toString() : "{}";
-
-            Map<String, Object> toolCall = new HashMap<>();
-            toolCall.put("id", id);
-            toolCall.put("type", "function");
-            toolCall.put("function", Map.of("name", name, "arguments", args));
-            toolCalls.add(toolCall);
+        /**
+         * 已累积的文本内容
+         */
+        String content() {
+            return contentBuilder.toString();
+        }
+
+        /**
+         * 组装完整的 tool_calls 列表
+         */
+        List<Map<String, Object>> toolCalls() {
+            List<Map<String, Object>> toolCalls = new ArrayList<>();
+            for (Integer index : new TreeSet<>(toolCallNames.keySet())) {
+                String id = toolCallIds.getOrDefault(index, "call_" + UUID.randomUUID().toString().replace("-", "").substring(0, 8));
+                String name = toolCallNames.get(index);
+                String args = toolCallArgsBuilders.containsKey(index) ? toolCallArgsBuilders.get(index).toString() : "{}";
+
+                Map<String, Object> toolCall = new HashMap<>();
+                toolCall.put("id", id);
+                toolCall.put("type", "function");
+                toolCall.put("function", Map.of("name", name, "arguments", args));
+                toolCalls.add(toolCall);
+            }
+            return toolCalls;
         }
     }
 
     /**
-     * 处理工具调用：执行工具 → 拼入消息 → 递归调用模型
+     * 构建包含 tool_calls 的 assistant 消息
      */
-    private void handleToolCalls(List<Map<String, Object>> messages,
-                                  List<Map<String, Object>> tools,
-                                  List<Map<String, Object>> toolCalls,
-                                  String assistantContent,
-                                  Long userId,
-                                  SseEmitter emitter,
-                                  int round) {
-        // 添加 assistant 消息（包含 tool_calls）
+    private Map<String, Object> assistantMessage(String assistantContent, List<Map<String, Object>> toolCalls) {
         Map<String, Object> assistantMsg = new HashMap<>();
         assistantMsg.put("role", "assistant");
         if (assistantContent != null && !assistantContent.isEmpty()) {
@@ -321,58 +451,167 @@ public class AgentServiceImpl implements AgentService {
             assistantMsg.put("content", null);
         }
         assistantMsg.put("tool_calls", toolCalls);
-        messages.add(assistantMsg);
+        return assistantMsg;
+    }
 
-        // 逐个执行工具
+    /**
+     * 调度一轮工具调用
+     * <p>
+     * 只读工具并发执行；写操作（加购、下单）等待之前的调用全部完成后再执行，
+     * 其后的调用也等待它完成，保证副作用顺序与模型给出的顺序一致；写操作执行前还需经闸门放行。
+     *
+     * @param toolCalls 本轮 tool_calls
+     * @param agentType Agent 类型（决定工具结果的投影）
+     * @param userId    用户ID
+     * @param writeGate 写操作工具闸门
+     * @param cancelled 本轮是否已取消（取消后尚未开始的工具不再执行）
+     * @param events    tool_call / tool_result 事件回调（可能在多个线程中调用）
+     * @return 与 toolCalls 一一对应的结果
+     */
+    private List<CompletableFuture<String>> scheduleToolCalls(List<Map<String, Object>> toolCalls,
+                                                              String agentType,
+                                                              Long userId,
+                                                              WriteToolGate writeGate,
+                                                              AtomicBoolean cancelled,
+                                                              Consumer<Map<String, Object>> events) {
+        List<CompletableFuture<String>> results = new ArrayList<>(toolCalls.size());
+        List<CompletableFuture<String>> sinceBarrier = new ArrayList<>();
+        CompletableFuture<?> barrier = CompletableFuture.completedFuture(null);
         for (Map<String, Object> toolCall : toolCalls) {
             @SuppressWarnings("unchecked")
             Map<String, String> function = (Map<String, String>) toolCall.get("function");
             String toolName = function.get("name");
             String toolArgs = function.get("arguments");
-            String toolCallId = (String) toolCall.get("id");
-
-            // 通知前端正在执行工具
-            sendSseEvent(emitter, "message", Map.of(
-                    "type", "tool_call",
-                    "toolName", toolName,
-                    "toolArgs", toolArgs
-            ));
-
-            // 执行工具
-            log.info("执行工具: {} 参数: {}", toolName, toolArgs);
-            String result = toolExecutor.executeTool(toolName, toolArgs, userId);
-
-            // 通知前端工具执行结果
-            sendSseEvent(emitter, "message", Map.of(
-                    "type", "tool_result",
-                    "toolName", toolName,
-                    "result", result
-            ));
-
-            // 添加 tool 结果消息
+
+            CompletableFuture<String> result;
+            if (toolExecutor.isReadOnly(toolName)) {
+                result = barrier.thenCompose(ignored -> executeToolAsync(toolName, toolArgs, agentType, userId, cancelled, events));
+                sinceBarrier.add(result);
+            } else {
+                sinceBarrier.add(barrier.thenApply(ignored -> ""));
+                result = CompletableFuture.allOf(sinceBarrier.toArray(new CompletableFuture[0]))
+                        .thenCompose(ignored -> writeGate.admit(toolName))
+                        .thenCompose(ignored -> executeToolAsync(toolName, toolArgs, agentType, userId, cancelled, events));
+                barrier = result;
+                sinceBarrier.clear();
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * 按 tool_calls 原顺序添加 tool 结果消息
+     */
+    private void appendToolResults(List<Map<String, Object>> messages,
+                                   List<Map<String, Object>> toolCalls,
+                                   List<CompletableFuture<String>> results) {
+        for (int i = 0; i < toolCalls.size(); i++) {
             Map<String, Object> toolResultMsg = new HashMap<>();
             toolResultMsg.put("role", "tool");
-            toolResultMsg.put("tool_call_id", toolCallId);
-            toolResultMsg.put("content", result);
+            toolResultMsg.put("tool_call_id", toolCalls.get(i).get("id"));
+            toolResultMsg.put("content", results.get(i).join());
             messages.add(toolResultMsg);
         }
-
-        // 递归调用模型，获取基于工具结果的回复
-        executeStreamChat(messages, tools, userId, emitter, round + 1);
     }
 
     /**
-     * 发送 SSE 事件
+     * 在工具执行线程池中执行单个工具，超时后以错误结果返回
+     * <ul>
+     *     <li>执行超时从工具开始执行时计时；写操作超时时工具仍可能执行成功，结果提示模型不要重试，先查询确认</li>
+     *     <li>在队列中等待超过超时时间仍未开始的工具不再执行，以可重试的结果返回</li>
+     *     <li>排队期间本轮被取消时工具不执行</li>
+     * </ul>
      */
-    private void sendSseEvent(SseEmitter emitter, String eventName, Map<String, Object> data) {
+    private CompletableFuture<String> executeToolAsync(String toolName, String toolArgs, String agentType,
+                                                       Long userId, AtomicBoolean cancelled,
+                                                       Consumer<Map<String, Object>> events) {
+        long timeout = agentProperties.getToolExecution().getTimeout();
+        long start = System.nanoTime();
+        CompletableFuture<String> execution = new CompletableFuture<>();
+        // 任务开始与排队超时二者先到者生效；running 只在工具真正开始执行时置位
+        AtomicBoolean claimed = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean();
+        CompletableFuture<Void> queueTimeout = new CompletableFuture<Void>()
+                .completeOnTimeout(null, timeout, TimeUnit.SECONDS);
         try {
-            String json = objectMapper.writeValueAsString(data);
-            emitter.send(SseEmitter.event()
-                    .name(eventName)
-                    .data(json));
-        } catch (IOException e) {
-            log.warn("SSE 发送失败: {}", e.getMessage());
+            toolCallExecutor.execute(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                queueTimeout.cancel(false);
+                if (cancelled.get()) {
+                    log.info("对话已取消，跳过排队中的工具: {}", toolName);
+                    execution.cancel(false);
+                    return;
+                }
+                running.set(true);
+                execution.completeOnTimeout(null, timeout, TimeUnit.SECONDS);
+
+                // 通知前端正在执行工具
+                events.accept(Map.of(
+                        "type", "tool_call",
+                        "toolName", toolName,
+                        "toolArgs", toolArgs
+                ));
+
+                // 执行工具
+                log.info("执行工具: {} 参数: {}", toolName, toolArgs);
+                try {
+                    execution.complete(toolExecutor.executeTool(toolName, toolArgs, userId, agentType));
+                } catch (Throwable error) {
+                    execution.completeExceptionally(error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满时快速失败，工具未执行，以错误结果返回给模型
+            queueTimeout.cancel(false);
+            log.warn("工具执行线程池已满，拒绝执行: {}", toolName);
+            llmMetrics.recordTool(agentType, toolName, System.nanoTime() - start, "rejected");
+            return CompletableFuture.completedFuture(toolResult(toolName, TOOL_REJECTED_RESULT, events));
+        }
+        queueTimeout.thenRun(() -> {
+            if (claimed.compareAndSet(false, true)) {
+                execution.complete(null);
+            }
+        });
+
+        return execution.thenApply(result -> {
+            if (result == null && !running.get()) {
+                log.warn("工具排队超时，未执行: {} ({}s)", toolName, timeout);
+                llmMetrics.recordTool(agentType, toolName, System.nanoTime() - start, "queue_timeout");
+                return toolResult(toolName, TOOL_QUEUE_TIMEOUT_RESULT, events);
+            }
+            String outcome = result == null ? "timeout" : result.startsWith("{\"error\"") ? "error" : "success";
+            llmMetrics.recordTool(agentType, toolName, System.nanoTime() - start, outcome);
+            if (result == null) {
+                log.warn("工具执行超时: {} ({}s)", toolName, timeout);
+                result = toolExecutor.isReadOnly(toolName) ? TOOL_TIMEOUT_RESULT : WRITE_TOOL_TIMEOUT_RESULT;
+            }
+            return toolResult(toolName, result, events);
+        });
+    }
+
+    /**
+     * 通知前端工具执行结果
+     */
+    private static String toolResult(String toolName, String result, Consumer<Map<String, Object>> events) {
+        events.accept(Map.of(
+                "type", "tool_result",
+                "toolName", toolName,
+                "result", result
+        ));
+        return result;
+    }
+
+    /**
+     * 构建错误事件数据；限流 / 并发上限等业务异常带上错误码和原始提示
+     */
+    private static Map<String, Object> errorData(Throwable error, String defaultMessage) {
+        if (error instanceof BusinessException businessException) {
+            return Map.of("type", "error", "code", businessException.getCode(), "message", businessException.getMessage());
         }
+        return Map.of("type", "error", "message", defaultMessage);
     }
 
     /**
@@ -17,7 +17,6 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * AI Agent 服务实现 V2
@@ -63,15 +62,13 @@ public class AgentServiceV2Impl implements AgentServiceV2 {
             // 6. 构建 V1 请求（复用现有逻辑）
             AgentChatRequestDTO v1Request = buildV1Request(request, history, actualAgentType);
 
-            // 7. 执行流式聊天
-            CompletableFuture.runAsync(() -> {
-                try {
-                    agentService.chatStream(v1Request, userId, emitter);
-                } catch (Exception e) {
-                    log.error("V2 聊天执行失败: {}", e.getMessage(), e);
-                    sendError(emitter, "聊天执行失败: " + e.getMessage());
-                }
-            });
+            // 7. 执行流式聊天（调用方已在 agent-execution 线程池中，直接执行，避免重复占用线程）
+            try {
+                agentService.chatStream(v1Request, userId, emitter);
+            } catch (Exception e) {
+                log.error("V2 聊天执行失败: {}", e.getMessage(), e);
+                sendError(emitter, "聊天执行失败: " + e.getMessage());
+            }
 
         } catch (Exception e) {
             log.error("V2 聊天初始化失败: {}", e.getMessage(), e);
@@ -90,13 +87,12 @@ public class AgentServiceV2Impl implements AgentServiceV2 {
             return request.getAgentType();
         }
 
-        // 智能路由
-        String routedAgent = agentRouterService.route(request.getMessage());
-        String reason = agentRouterService.getRouteReason(request.getMessage());
-        double confidence = agentRouterService.getConfidence(request.getMessage());
+        // 智能路由（单遍扫描同时得到路由、置信度和理由）
+        AgentRouterService.RouteResult routeResult = agentRouterService.analyze(request.getMessage());
 
-        log.info("智能路由结果: {} (置信度: {}, 理由: {})", routedAgent, confidence, reason);
-        return routedAgent;
+        log.info("智能路由结果: {} (置信度: {}, 理由: {})",
+                routeResult.getAgentType(), routeResult.getConfidence(), routeResult.getReason());
+        return routeResult.getAgentType();
     }
 
     /**
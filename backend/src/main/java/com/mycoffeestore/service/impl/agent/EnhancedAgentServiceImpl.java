@@ -1,13 +1,20 @@
 package com.mycoffeestore.service.impl.agent;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycoffeestore.agent.AgentRegistry;
+import com.mycoffeestore.ai.core.LlmMetrics;
 import com.mycoffeestore.config.AgentConfig;
+import com.mycoffeestore.config.AgentExecutors;
 import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
+import com.mycoffeestore.dto.agent.AgentEvent;
 import com.mycoffeestore.entity.ConversationEntity;
+import com.mycoffeestore.exception.BusinessException;
 import com.mycoffeestore.mapper.ConversationMapper;
 import com.mycoffeestore.service.agent.AgentService;
+import com.mycoffeestore.service.agent.ReactiveAgentService;
 import com.mycoffeestore.util.AgentToolExecutor;
+import com.mycoffeestore.util.ConversationHistoryCache;
+import com.mycoffeestore.util.SseDeltaCoalescer;
+import com.mycoffeestore.util.SseEventEncoder;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,15 +23,17 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 增强的 Agent 服务实现
@@ -45,25 +54,19 @@ import java.util.concurrent.ConcurrentHashMap;
 @RequiredArgsConstructor
 @Schema(description = "增强的 Agent 服务实现")
 @org.springframework.core.annotation.Order(0)
-public class EnhancedAgentServiceImpl implements AgentService {
+public class EnhancedAgentServiceImpl implements AgentService, ReactiveAgentService {
 
     private final AgentRegistry agentRegistry;
-    private final ObjectMapper objectMapper;
+    private final AgentExecutors agentExecutors;
     private final AgentToolExecutor toolExecutor;
     private final ConversationMapper conversationMapper;
+    private final SseDeltaCoalescer sseDeltaCoalescer;
+    private final SseEventEncoder sseEventEncoder;
 
     /**
-     * 会话缓存
-     * Key: conversationId
-     * Value: 消息历史
+     * 会话历史缓存（按内存占用与空闲时间淘汰）
      */
-    @Schema(description = "会话缓存")
-    private final Map<String, List<Message>> conversationCache = new ConcurrentHashMap<>();
-
-    /**
-     * 最大会话缓存数量
-     */
-    private static final int MAX_CONVERSATION_CACHE = 1000;
+    private final ConversationHistoryCache conversationCache;
 
     /**
      * 最大工具调用轮次（防止无限循环）
@@ -72,50 +75,82 @@ public class EnhancedAgentServiceImpl implements AgentService {
 
     @Override
     public void chatStream(AgentChatRequestDTO request, Long userId, SseEmitter emitter) {
-        log.info("Enhanced Agent 服务收到聊天请求: agentType={}, userId={}", request.getAgentType(), userId);
-
-        CompletableFuture.runAsync(() -> {
-            try {
-                // 获取对应的 Agent 配置
-                AgentConfig.AgentConfigInfo config = agentRegistry.getAgentConfig(request.getAgentType());
-                if (config == null) {
-                    sendSseEvent(emitter, "error", Map.of(
+        // 订阅事件流并转发到 SseEmitter，文本增量合并后批量写出
+        sseDeltaCoalescer.coalesce(events(request, userId)).subscribe(
+                event -> sseEventEncoder.send(emitter, event),
+                error -> {
+                    log.error("Agent 聊天异常: {}", error.getMessage(), error);
+                    sseEventEncoder.send(emitter, errorEvent(Map.of(
                             "type", "error",
-                            "message", "Agent 不存在: " + request.getAgentType()
-                    ));
+                            "message", "AI 服务暂时不可用，请稍后重试"
+                    )));
                     completeSse(emitter);
-                    return;
-                }
-
-                // 构建会话 ID
-                String conversationId = buildConversationId(userId, request.getAgentType());
-                String sessionId = generateSessionId();
-
-                // 获取或创建对话历史
-                List<Message> messages = getOrCreateConversationHistory(conversationId, sessionId, config);
-
-                // 添加用户消息
-                if (!request.getMessages().isEmpty()) {
-                    AgentChatRequestDTO.Message lastMessage = request.getMessages()
-                            .get(request.getMessages().size() - 1);
-                    messages.add(new UserMessage(lastMessage.getContent()));
-
-                    // 保存用户消息到数据库
-                    saveUserMessage(sessionId, request.getAgentType(), userId, lastMessage.getContent());
-                }
+                },
+                () -> completeSse(emitter));
+    }
 
-                // 使用 ModelScopeChatModel 执行对话
-                executeChatWithModelScope(config, messages, emitter, conversationId, sessionId, userId, 0);
+    /**
+     * 流式聊天事件
+     * 会话准备（加载历史、保存用户消息）在 Agent 执行线程池中进行，之后的模型流不占用阻塞线程；
+     * 该服务不调用工具，写操作工具闸门不起作用
+     *
+     * @param request   聊天请求
+     * @param userId    用户 ID
+     * @param writeGate 写操作工具闸门
+     * @return 事件流
+     */
+    @Override
+    @Schema(description = "流式聊天事件")
+    public Flux<AgentEvent> events(AgentChatRequestDTO request, Long userId, WriteToolGate writeGate) {
+        log.info("Enhanced Agent 服务收到聊天请求: agentType={}, userId={}", request.getAgentType(), userId);
 
-            } catch (Exception e) {
-                log.error("Agent 聊天异常: {}", e.getMessage(), e);
-                sendSseEvent(emitter, "error", Map.of(
-                        "type", "error",
-                        "message", "AI 服务暂时不可用，请稍后重试"
-                ));
-                completeSse(emitter);
-            }
-        });
+        return Flux.defer(() -> {
+                    // 获取对应的 Agent 配置
+                    AgentConfig.AgentConfigInfo config = agentRegistry.getAgentConfig(request.getAgentType());
+                    if (config == null) {
+                        return Flux.just(errorEvent(Map.of(
+                                "type", "error",
+                                "message", "Agent 不存在: " + request.getAgentType()
+                        )));
+                    }
+
+                    // 构建会话 ID
+                    String conversationId = buildConversationId(userId, request.getAgentType());
+                    String sessionId = generateSessionId();
+
+                    // 获取或创建对话历史
+                    List<Message> messages = getOrCreateConversationHistory(conversationId, sessionId, config);
+
+                    // 添加用户消息（原子追加，得到包含本条消息的快照）
+                    if (!request.getMessages().isEmpty()) {
+                        AgentChatRequestDTO.Message lastMessage = request.getMessages()
+                                .get(request.getMessages().size() - 1);
+                        messages = conversationCache.append(conversationId, messages,
+                                new UserMessage(lastMessage.getContent()));
+
+                        // 保存用户消息到数据库
+                        saveUserMessage(sessionId, request.getAgentType(), userId, lastMessage.getContent());
+                    }
+
+                    // 使用 ModelScopeChatModel 执行对话
+                    return executeChatWithModelScope(config, messages, conversationId, sessionId, userId, 0);
+                })
+                .subscribeOn(Schedulers.fromExecutor(agentExecutors.execution()))
+                .onErrorResume(error -> {
+                    if (Exceptions.unwrap(error) instanceof RejectedExecutionException) {
+                        log.warn("Agent 执行线程池已满，拒绝请求: agentType={}, userId={}", request.getAgentType(), userId);
+                        return Flux.just(errorEvent(Map.of(
+                                "type", "error",
+                                "code", 503,
+                                "message", "服务繁忙，请稍后重试"
+                        )));
+                    }
+                    log.error("Agent 聊天异常: {}", error.getMessage(), error);
+                    return Flux.just(errorEvent(Map.of(
+                            "type", "error",
+                            "message", "AI 服务暂时不可用，请稍后重试"
+                    )));
+                });
     }
 
     /**
@@ -123,114 +158,103 @@ public class EnhancedAgentServiceImpl implements AgentService {
      *
      * @param config          Agent 配置
      * @param messages        消息历史
-     * @param emitter         SSE 发射器
      * @param conversationId 会话 ID
      * @param sessionId      会话唯一 ID
      * @param userId         用户 ID
      * @param round          当前轮次
+     * @return 事件流
      */
     @Schema(description = "使用 ModelScopeChatModel 执行对话")
-    private void executeChatWithModelScope(AgentConfig.AgentConfigInfo config,
-                                          List<Message> messages,
-                                          SseEmitter emitter,
-                                          String conversationId,
-                                          String sessionId,
-                                          Long userId,
-                                          int round) {
+    private Flux<AgentEvent> executeChatWithModelScope(AgentConfig.AgentConfigInfo config,
+                                                       List<Message> messages,
+                                                       String conversationId,
+                                                       String sessionId,
+                                                       Long userId,
+                                                       int round) {
         if (round >= MAX_TOOL_ROUNDS) {
             log.warn("工具调用轮次超过上限: {}", MAX_TOOL_ROUNDS);
-            sendSseEvent(emitter, "message", Map.of("type", "text", "content", "抱歉，处理过程过于复杂，请简化你的请求。"));
-            sendSseEvent(emitter, "done", Map.of("type", "done"));
-            completeSse(emitter);
-            return;
+            return Flux.just(AgentEvent.text("抱歉，处理过程过于复杂，请简化你的请求。"), AgentEvent.done());
         }
 
-        try {
-            // 获取 ChatModel
-            Object chatModel = config.getChatModel();
-            if (chatModel == null) {
-                sendSseEvent(emitter, "error", Map.of(
-                        "type", "error",
-                        "message", "ChatModel 未配置"
-                ));
-                completeSse(emitter);
-                return;
-            }
-
-            // 转换消息格式（ModelScopeChatModel 现在直接使用 Spring AI Message）
-            List<Message> modelScopeMessages = convertToModelScopeMessages(messages);
-
-            // 执行流式对话
-            if (chatModel instanceof com.mycoffeestore.ai.modelscope.ModelScopeChatModel) {
-                com.mycoffeestore.ai.modelscope.ModelScopeChatModel modelScopeChatModel =
-                        (com.mycoffeestore.ai.modelscope.ModelScopeChatModel) chatModel;
-
-                // 创建 Prompt 对象
-                org.springframework.ai.chat.prompt.Prompt prompt =
-                        new org.springframework.ai.chat.prompt.Prompt(modelScopeMessages);
-
-                Flux<org.springframework.ai.chat.model.ChatResponse> responseFlux = modelScopeChatModel.stream(prompt);
-
-                StringBuilder fullContent = new StringBuilder();
-
-                responseFlux
-                        .doOnNext(response -> {
-                            String content = response.getResult().getOutput().getContent();
-                            fullContent.append(content);
-                            sendSseEvent(emitter, "message", Map.of(
-                                    "type", "text",
-                                    "content", content
-                            ));
-                        })
-                        .doOnComplete(() -> {
-                            log.debug("对话完成");
-
-                            // 保存助手消息到数据库
-                            if (fullContent.length() > 0) {
-                                saveAssistantMessage(sessionId, config.getName(), userId, fullContent.toString());
-                            }
-
-                            sendSseEvent(emitter, "done", Map.of("type", "done"));
-                            completeSse(emitter);
-                            cleanupConversationCache();
-                        })
-                        .doOnError(error -> {
-                            log.error("对话错误: {}", error.getMessage(), error);
-                            sendSseEvent(emitter, "error", Map.of(
-                                    "type", "error",
-                                    "message", "AI 服务暂时不可用"
-                            ));
-                            completeSse(emitter);
-                        })
-                        .subscribe();
-
-            } else if (chatModel instanceof com.mycoffeestore.ai.modelscope.ModelScopeStreamingChatModel) {
-                com.mycoffeestore.ai.modelscope.ModelScopeStreamingChatModel streamingChatModel =
-                        (com.mycoffeestore.ai.modelscope.ModelScopeStreamingChatModel) chatModel;
-
-                // 使用流式 ChatModel
-                sendSseEvent(emitter, "error", Map.of(
-                        "type", "error",
-                        "message", "暂不支持流式 ChatModel"
-                ));
-                completeSse(emitter);
-
-            } else {
-                sendSseEvent(emitter, "error", Map.of(
-                        "type", "error",
-                        "message", "不支持的 ChatModel 类型"
-                ));
-                completeSse(emitter);
-            }
+        // 获取 ChatModel
+        Object chatModel = config.getChatModel();
+        if (chatModel == null) {
+            return Flux.just(errorEvent(Map.of(
+                    "type", "error",
+                    "message", "ChatModel 未配置"
+            )));
+        }
 
-        } catch (Exception e) {
-            log.error("执行对话失败: {}", e.getMessage(), e);
-            sendSseEvent(emitter, "error", Map.of(
+        // 转换消息格式（ModelScopeChatModel 现在直接使用 Spring AI Message）
+        List<Message> modelScopeMessages = convertToModelScopeMessages(messages);
+
+        // 执行流式对话
+        if (chatModel instanceof com.mycoffeestore.ai.modelscope.ModelScopeChatModel) {
+            com.mycoffeestore.ai.modelscope.ModelScopeChatModel modelScopeChatModel =
+                    (com.mycoffeestore.ai.modelscope.ModelScopeChatModel) chatModel;
+
+            // 创建 Prompt 对象
+            org.springframework.ai.chat.prompt.Prompt prompt =
+                    new org.springframework.ai.chat.prompt.Prompt(modelScopeMessages);
+
+            StringBuilder fullContent = new StringBuilder();
+
+            // 保存助手消息（数据库写入放到持久化线程池，不占用响应流所在的 IO 线程）
+            Mono<Void> saveAssistant = Mono.<Void>fromRunnable(() -> {
+                        if (fullContent.length() > 0) {
+                            saveAssistantMessage(sessionId, config.getName(), userId, fullContent.toString());
+                        }
+                    })
+                    .subscribeOn(Schedulers.fromExecutor(agentExecutors.persistence()))
+                    .onErrorResume(error -> {
+                        log.warn("保存助手消息失败: {}", error.getMessage());
+                        return Mono.empty();
+                    });
+
+            return modelScopeChatModel.stream(prompt)
+                    .contextWrite(LlmMetrics.agentContext(config.getName()))
+                    .map(response -> {
+                        String content = response.getResult().getOutput().getContent();
+                        fullContent.append(content);
+                        return AgentEvent.text(content);
+                    })
+                    .concatWith(saveAssistant.then(Mono.fromSupplier(() -> {
+                        log.debug("对话完成");
+                        return AgentEvent.done();
+                    })))
+                    .onErrorResume(error -> {
+                        log.error("对话错误: {}", error.getMessage(), error);
+                        return Flux.just(errorEvent(error instanceof BusinessException businessException
+                                ? Map.of(
+                                        "type", "error",
+                                        "code", businessException.getCode(),
+                                        "message", businessException.getMessage())
+                                : Map.of(
+                                        "type", "error",
+                                        "message", "AI 服务暂时不可用")));
+                    });
+
+        } else if (chatModel instanceof com.mycoffeestore.ai.modelscope.ModelScopeStreamingChatModel) {
+            // 使用流式 ChatModel
+            return Flux.just(errorEvent(Map.of(
                     "type", "error",
-                    "message", "请求构建失败"
-            ));
-            completeSse(emitter);
+                    "message", "暂不支持流式 ChatModel"
+            )));
         }
+        return Flux.just(errorEvent(Map.of(
+                "type", "error",
+                "message", "不支持的 ChatModel 类型"
+        )));
+    }
+
+    /**
+     * 构建错误事件（事件名 error）
+     *
+     * @param data 错误数据
+     * @return 错误事件
+     */
+    private static AgentEvent errorEvent(Map<String, Object> data) {
+        return new AgentEvent("error", data);
     }
 
     /**
@@ -256,12 +280,19 @@ public class EnhancedAgentServiceImpl implements AgentService {
      */
     @Schema(description = "获取或创建对话历史")
     private List<Message> getOrCreateConversationHistory(String conversationId, String sessionId, AgentConfig.AgentConfigInfo config) {
-        // 尝试从缓存获取
-        List<Message> cached = conversationCache.get(conversationId);
-        if (cached != null) {
-            return cached;
-        }
+        // 优先从缓存获取，未命中时从数据库加载
+        return conversationCache.getOrLoad(conversationId, () -> loadConversationHistory(sessionId, config));
+    }
 
+    /**
+     * 从数据库加载对话历史
+     *
+     * @param sessionId 会话唯一 ID
+     * @param config    Agent 配置
+     * @return 消息历史
+     */
+    @Schema(description = "从数据库加载对话历史")
+    private List<Message> loadConversationHistory(String sessionId, AgentConfig.AgentConfigInfo config) {
         // 从数据库加载历史记录
         List<Message> messages = new ArrayList<>();
 
@@ -293,8 +324,6 @@ public class EnhancedAgentServiceImpl implements AgentService {
             }
         }
 
-        // 缓存消息历史
-        conversationCache.put(conversationId, messages);
         return messages;
     }
 
@@ -379,40 +408,6 @@ public class EnhancedAgentServiceImpl implements AgentService {
         }
     }
 
-    /**
-     * 清理过期的对话缓存
-     */
-    @Schema(description = "清理过期的对话缓存")
-    private void cleanupConversationCache() {
-        if (conversationCache.size() > MAX_CONVERSATION_CACHE) {
-            int toRemove = conversationCache.size() / 2;
-            conversationCache.keySet()
-                    .stream()
-                    .limit(toRemove)
-                    .forEach(conversationCache::remove);
-            log.info("清理对话缓存，移除 {} 条记录", toRemove);
-        }
-    }
-
-    /**
-     * 发送 SSE 事件
-     *
-     * @param emitter    SSE 发射器
-     * @param eventName 事件名称
-     * @param data       数据
-     */
-    @Schema(description = "发送 SSE 事件")
-    private void sendSseEvent(SseEmitter emitter, String eventName, Map<String, Object> data) {
-        try {
-            String json = objectMapper.writeValueAsString(data);
-            emitter.send(SseEmitter.event()
-                    .name(eventName)
-                    .data(json));
-        } catch (Exception e) {
-            log.warn("SSE 发送失败: {}", e.getMessage());
-        }
-    }
-
     /**
      * 完成 SSE 连接
      *
@@ -1,9 +1,11 @@
 package com.mycoffeestore.service.impl.coffee;
 
+import com.mycoffeestore.agent.routing.RoutingKeywordMatcher;
 import com.mycoffeestore.dto.coffee.CoffeeRecommendationRequestDTO;
 import com.mycoffeestore.entity.Coffee;
 import com.mycoffeestore.mapper.CoffeeMapper;
 import com.mycoffeestore.service.coffee.CoffeeRecommendationService;
+import com.mycoffeestore.util.AhoCorasickMatcher;
 import com.mycoffeestore.vo.coffee.CoffeeRecommendationVO;
 import com.mybatisflex.core.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +28,7 @@ import java.util.stream.Collectors;
 public class CoffeeRecommendationServiceImpl implements CoffeeRecommendationService {
 
     private final CoffeeMapper coffeeMapper;
+    private final RoutingKeywordMatcher keywordMatcher;
 
     /**
      * 角色到咖啡分类的映射
@@ -146,33 +149,26 @@ public class CoffeeRecommendationServiceImpl implements CoffeeRecommendationServ
      * 根据偏好过滤咖啡
      */
     private List<Coffee> filterByPreference(List<Coffee> coffees, String preference) {
-        String pref = preference.toLowerCase();
+        // 单遍扫描偏好描述，得到各偏好分组的命中情况
+        AhoCorasickMatcher.Hits pref = keywordMatcher.match(preference);
 
-        // 简单的关键词匹配逻辑
-        if (pref.contains("酸") || pref.contains("苦")) {
+        String coffeeGroup;
+        if (pref.matches(RoutingKeywordMatcher.PREFERENCE_MILD)) {
             // 用户怕酸怕苦，优先推荐奶基咖啡
-            return coffees.stream()
-                    .filter(c -> c.getName().contains("拿铁") ||
-                                 c.getName().contains("卡布奇诺") ||
-                                 c.getName().contains("摩卡") ||
-                                 c.getName().contains("焦糖"))
-                    .collect(Collectors.toList());
-        } else if (pref.contains("浓") || pref.contains("烈")) {
+            coffeeGroup = RoutingKeywordMatcher.COFFEE_MILK;
+        } else if (pref.matches(RoutingKeywordMatcher.PREFERENCE_STRONG)) {
             // 用户喜欢浓郁，推荐美式和浓缩
-            return coffees.stream()
-                    .filter(c -> c.getName().contains("美式") ||
-                                 c.getName().contains("浓缩"))
-                    .collect(Collectors.toList());
-        } else if (pref.contains("甜")) {
+            coffeeGroup = RoutingKeywordMatcher.COFFEE_STRONG;
+        } else if (pref.matches(RoutingKeywordMatcher.PREFERENCE_SWEET)) {
             // 用户喜欢甜，推荐带糖的咖啡
-            return coffees.stream()
-                    .filter(c -> c.getName().contains("焦糖") ||
-                                 c.getName().contains("摩卡") ||
-                                 c.getName().contains("玛奇朵"))
-                    .collect(Collectors.toList());
+            coffeeGroup = RoutingKeywordMatcher.COFFEE_SWEET;
+        } else {
+            return coffees;
         }
 
-        return coffees;
+        return coffees.stream()
+                .filter(c -> keywordMatcher.match(c.getName()).matches(coffeeGroup))
+                .collect(Collectors.toList());
     }
 
     /**
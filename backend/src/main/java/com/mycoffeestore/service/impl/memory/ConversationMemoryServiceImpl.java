@@ -2,12 +2,15 @@ package com.mycoffeestore.service.impl.memory;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.AgentExecutors;
 import com.mycoffeestore.config.RedisProperties;
 import com.mycoffeestore.dto.agent.MemoryMessage;
 import com.mycoffeestore.entity.ConversationMemory;
 import com.mycoffeestore.mapper.ConversationMemoryMapper;
 import com.mycoffeestore.service.memory.ConversationMemoryService;
 import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -15,15 +18,19 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 对话记忆服务实现
  * 使用 Redis + PostgreSQL 分层存储
  * - Redis：存储热数据，24 小时 TTL
  * - PostgreSQL：持久化存储，支持历史查询
+ * - 最后活跃时间：先记录在内存中，定时合并为一条批量 UPDATE 写入数据库
  *
  * @author zhoulu
  * @since 2026-03-07
@@ -39,15 +46,39 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     private final RedisProperties redisProperties;
 
     /**
-     * 异步持久化线程池
+     * 异步持久化使用 agent-persistence 有界线程池
      */
-    private final Executor persistenceExecutor = Executors.newFixedThreadPool(2, r -> {
+    private final AgentExecutors agentExecutors;
+
+    /**
+     * 待刷库的最后活跃时间（sessionId -> 最后活跃时间）
+     */
+    private final ConcurrentMap<String, LocalDateTime> pendingActiveTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 最后活跃时间定时刷库线程
+     */
+    private final ScheduledExecutorService activeTimeFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread thread = new Thread(r);
-        thread.setName("conversation-memory-persistence");
+        thread.setName("conversation-active-time-flusher");
         thread.setDaemon(true);
         return thread;
     });
 
+    @PostConstruct
+    public void startActiveTimeFlusher() {
+        long interval = Math.max(1, redisProperties.getMemory().getActiveTimeFlushInterval());
+        activeTimeFlusher.scheduleWithFixedDelay(this::flushLastActiveTimes, interval, interval, TimeUnit.SECONDS);
+        log.info("最后活跃时间批量刷库已启动，间隔: {}s", interval);
+    }
+
+    @PreDestroy
+    public void stopActiveTimeFlusher() {
+        activeTimeFlusher.shutdown();
+        // 关闭前把内存中剩余的活跃时间写入数据库
+        flushLastActiveTimes();
+    }
+
     @Override
     public void save(MemoryMessage message) {
         if (message == null) {
@@ -224,18 +255,39 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
             return;
         }
 
-        try {
-            QueryWrapper queryWrapper = QueryWrapper.create()
-                    .where("session_id = ?", sessionId);
-            ConversationMemory memory = conversationMemoryMapper.selectOneByQuery(queryWrapper);
+        // 只记录到内存，由定时任务合并后批量写入数据库
+        pendingActiveTimes.merge(sessionId, LocalDateTime.now(),
+                (previous, current) -> current.isAfter(previous) ? current : previous);
+    }
 
-            if (memory != null) {
-                memory.setLastActiveAt(LocalDateTime.now());
-                memory.setUpdateTime(LocalDateTime.now());
-                conversationMemoryMapper.update(memory);
+    /**
+     * 将内存中累积的最后活跃时间批量写入数据库
+     * 每个 sessionId 只保留最新的时间，一次 UPDATE ... FROM (VALUES ...) 完成全部更新
+     */
+    public void flushLastActiveTimes() {
+        if (pendingActiveTimes.isEmpty()) {
+            return;
+        }
+
+        Map<String, LocalDateTime> batch = new HashMap<>();
+        for (String sessionId : pendingActiveTimes.keySet()) {
+            LocalDateTime activeAt = pendingActiveTimes.remove(sessionId);
+            if (activeAt != null) {
+                batch.put(sessionId, activeAt);
             }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            int updated = conversationMemoryMapper.batchUpdateLastActiveAt(batch);
+            log.debug("批量更新最后活跃时间，会话数: {}, 更新记录数: {}", batch.size(), updated);
         } catch (Exception e) {
-            log.error("更新最后活跃时间失败，sessionId: {}", sessionId, e);
+            log.error("批量更新最后活跃时间失败，会话数: {}", batch.size(), e);
+            // 放回内存等待下次刷库，期间若有更新的时间则保留更新的
+            batch.forEach((sessionId, activeAt) -> pendingActiveTimes.merge(sessionId, activeAt,
+                    (current, failed) -> current.isAfter(failed) ? current : failed));
         }
     }
 
@@ -324,41 +376,52 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
      * 异步持久化到数据库
      */
     private void persistToDatabaseAsync(String sessionId, List<MemoryMessage> messages) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                // 查询是否已存在记录
-                QueryWrapper queryWrapper = QueryWrapper.create()
-                        .where("session_id = ?", sessionId);
-                ConversationMemory existingMemory = conversationMemoryMapper.selectOneByQuery(queryWrapper);
-
-                // 构建 JSON
-                String messagesJson = objectMapper.writeValueAsString(messages);
-
-                if (existingMemory != null) {
-                    // 更新现有记录
-                    existingMemory.setMessages(messagesJson);
-                    existingMemory.setLastActiveAt(LocalDateTime.now());
-                    existingMemory.setUpdateTime(LocalDateTime.now());
-                    conversationMemoryMapper.update(existingMemory);
-                } else {
-                    // 创建新记录
-                    MemoryMessage firstMessage = messages.isEmpty() ? null : messages.get(0);
-                    ConversationMemory newMemory = ConversationMemory.builder()
-                            .sessionId(sessionId)
-                            .userId(firstMessage != null ? firstMessage.getUserId() : null)
-                            .agentType(firstMessage != null ? firstMessage.getAgentType() : null)
-                            .messages(messagesJson)
-                            .title(generateTitle(messages))
-                            .lastActiveAt(LocalDateTime.now())
-                            .build();
-                    conversationMemoryMapper.insert(newMemory);
-                }
+        try {
+            agentExecutors.persistence().execute(() -> persistToDatabase(sessionId, messages));
+        } catch (RejectedExecutionException e) {
+            // Redis 中仍有完整数据，下次追加消息时会整体重新持久化
+            log.warn("持久化线程池已满，跳过本次数据库写入，sessionId: {}", sessionId);
+        }
+    }
 
-                log.debug("异步持久化到数据库成功，sessionId: {}", sessionId);
-            } catch (Exception e) {
-                log.error("异步持久化到数据库失败，sessionId: {}", sessionId, e);
+    /**
+     * 持久化到数据库
+     */
+    private void persistToDatabase(String sessionId, List<MemoryMessage> messages) {
+        try {
+            // 查询是否已存在记录
+            QueryWrapper queryWrapper = QueryWrapper.create()
+                    .where("session_id = ?", sessionId);
+            ConversationMemory existingMemory = conversationMemoryMapper.selectOneByQuery(queryWrapper);
+
+            // 构建 JSON
+            String messagesJson = objectMapper.writeValueAsString(messages);
+
+            if (existingMemory != null) {
+                // 更新现有记录；last_active_at 置空使 update 跳过该列，交给批量刷库
+                existingMemory.setMessages(messagesJson);
+                existingMemory.setLastActiveAt(null);
+                existingMemory.setUpdateTime(LocalDateTime.now());
+                conversationMemoryMapper.update(existingMemory);
+                updateLastActiveTime(sessionId);
+            } else {
+                // 创建新记录
+                MemoryMessage firstMessage = messages.isEmpty() ? null : messages.get(0);
+                ConversationMemory newMemory = ConversationMemory.builder()
+                        .sessionId(sessionId)
+                        .userId(firstMessage != null ? firstMessage.getUserId() : null)
+                        .agentType(firstMessage != null ? firstMessage.getAgentType() : null)
+                        .messages(messagesJson)
+                        .title(generateTitle(messages))
+                        .lastActiveAt(LocalDateTime.now())
+                        .build();
+                conversationMemoryMapper.insert(newMemory);
             }
-        }, persistenceExecutor);
+
+            log.debug("异步持久化到数据库成功，sessionId: {}", sessionId);
+        } catch (Exception e) {
+            log.error("异步持久化到数据库失败，sessionId: {}", sessionId, e);
+        }
     }
 
     /**
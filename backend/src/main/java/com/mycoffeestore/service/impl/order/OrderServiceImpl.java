@@ -9,6 +9,8 @@ import com.mycoffeestore.dto.order.OrderItemDTO;
 import com.mycoffeestore.entity.*;
 import com.mycoffeestore.enums.OrderStatus;
 import com.mycoffeestore.enums.OrderType;
+import com.mycoffeestore.event.CatalogChangedEvent;
+import com.mycoffeestore.event.OrderChangedEvent;
 import com.mycoffeestore.exception.BusinessException;
 import com.mycoffeestore.mapper.*;
 import com.mycoffeestore.service.order.OrderService;
@@ -20,6 +22,7 @@ import com.mybatisflex.core.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -47,6 +50,7 @@ public class OrderServiceImpl implements OrderService {
     private final UserMapper userMapper;
     private final CartMapper cartMapper;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -143,6 +147,12 @@ public class OrderServiceImpl implements OrderService {
         // 清空购物车（如果是直接从购物车下单）
         cartMapper.deleteByQuery(QueryWrapper.create().eq(Cart::getUserId, userId));
 
+        // 库存与订单已变化（监听方在事务提交后处理）
+        eventPublisher.publishEvent(new CatalogChangedEvent(dto.getItems().stream()
+                .map(OrderItemDTO::getCoffeeId)
+                .collect(Collectors.toSet())));
+        eventPublisher.publishEvent(new OrderChangedEvent(userId, orderNo));
+
         return getDetailVO(order);
     }
 
@@ -242,6 +252,11 @@ public class OrderServiceImpl implements OrderService {
                 coffeeMapper.update(coffee);
             }
         }
+
+        eventPublisher.publishEvent(new CatalogChangedEvent(items.stream()
+                .map(OrderItem::getCoffeeId)
+                .collect(Collectors.toSet())));
+        eventPublisher.publishEvent(new OrderChangedEvent(userId, orderNo));
     }
 
     @Override
@@ -263,6 +278,8 @@ public class OrderServiceImpl implements OrderService {
         }
 
         orderMapper.update(order);
+
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getUserId(), orderNo));
     }
 
     /**
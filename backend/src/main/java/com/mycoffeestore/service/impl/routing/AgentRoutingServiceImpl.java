@@ -4,10 +4,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycoffeestore.agent.AgentRegistry;
 import com.mycoffeestore.agent.routing.AgentRoutingConfig;
 import com.mycoffeestore.config.AgentConfig;
+import com.mycoffeestore.config.AdaptiveLimiters;
+import com.mycoffeestore.config.AgentExecutors;
+import com.mycoffeestore.config.SpeculativeRoutingProperties;
 import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
-import com.mycoffeestore.service.agent.AgentService;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import com.mycoffeestore.service.agent.ReactiveAgentService;
 import com.mycoffeestore.service.memory.ConversationMemoryService;
 import com.mycoffeestore.service.routing.IntentRecognitionService;
+import com.mycoffeestore.util.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,10 +27,20 @@ import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -51,8 +68,12 @@ public class AgentRoutingServiceImpl {
     private final IntentRecognitionService intentRecognitionService;
     private final AgentRegistry agentRegistry;
     private final ConversationMemoryService memoryService;
-    private final AgentService agentService;
+    private final ReactiveAgentService reactiveAgentService;
     private final ObjectMapper objectMapper;
+    private final AgentExecutors agentExecutors;
+    private final AdaptiveLimiters adaptiveLimiters;
+    private final SpeculativeRoutingProperties speculativeProperties;
+    private final MeterRegistry meterRegistry;
 
     @Qualifier("defaultRouteRules")
     private final Map<AgentRoutingConfig.IntentType, AgentRoutingConfig.RouteRule> routeRules;
@@ -112,6 +133,37 @@ public class AgentRoutingServiceImpl {
          */
         @Schema(description = "SSE 发射器")
         private SseEmitter emitter;
+
+        /**
+         * 意图识别期间推测启动的 Agent（意图确认后由第一个 Agent 复用）
+         */
+        @Schema(description = "推测执行的 Agent")
+        private SpeculativeRun speculativeRun;
+    }
+
+    /**
+     * 推测执行的 Agent
+     *
+     * @param intentType 预测的意图
+     * @param agentName  推测启动的 Agent
+     * @param events     事件流（已连接上游，缓冲全部事件，复用时先重放已到达的部分）
+     * @param connection 上游连接（取消时断开，同时取消模型请求）
+     * @param writeGate  写操作工具闸门（复用时放行，取消时关闭；确认前到达的写操作一直等待）
+     */
+    private record SpeculativeRun(AgentRoutingConfig.IntentType intentType,
+                                  String agentName,
+                                  Flux<AgentEvent> events,
+                                  Disposable connection,
+                                  CompletableFuture<Void> writeGate) {
+
+        void confirm() {
+            writeGate.complete(null);
+        }
+
+        void cancel() {
+            connection.dispose();
+            writeGate.completeExceptionally(new CancellationException("推测执行已取消"));
+        }
     }
 
     /**
@@ -299,7 +351,16 @@ public class AgentRoutingServiceImpl {
      */
     @Schema(description = "处理路由聊天请求")
     public void processRoutingChat(AgentChatRequestDTO request, Long userId, SseEmitter emitter) {
-        CompletableFuture.runAsync(() -> {
+        // 自适应并发限制：按路由完成耗时调整上限，超出时直接返回繁忙错误
+        AdaptiveConcurrencyLimiter.Token token = adaptiveLimiters.routing().tryAcquire();
+        if (token == null) {
+            log.warn("路由并发已达自适应上限，拒绝请求: userId={}", userId);
+            sendBusyError(emitter);
+            return;
+        }
+
+        Runnable task = () -> {
+            ExecutionContext context = null;
             try {
                 long startTime = System.currentTimeMillis();
 
@@ -307,9 +368,17 @@ public class AgentRoutingServiceImpl {
                 String userInput = getLastUserMessage(request);
                 log.info("开始处理路由请求: userId={}, userInput={}", userId, userInput);
 
-                // 步骤 1: 意图识别
-                IntentRecognitionService.IntentRecognitionResult intentResult =
-                        intentRecognitionService.recognizeIntent(userInput);
+                context = ExecutionContext.builder()
+                        .userId(userId)
+                        .sessionId(memoryService.generateSessionId())
+                        .userInput(userInput)
+                        .executionHistory(new ArrayList<>())
+                        .contextData(new ConcurrentHashMap<>())
+                        .emitter(emitter)
+                        .build();
+
+                // 步骤 1: 意图识别（需要 LLM 识别时先推测启动最可能的 Agent）
+                IntentRecognitionService.IntentRecognitionResult intentResult = recognizeIntent(userInput, context);
 
                 sendSseEvent(emitter, "intent_recognized", Map.of(
                         "intent", intentResult.getIntentType().getCode(),
@@ -324,47 +393,180 @@ public class AgentRoutingServiceImpl {
                     routeRule = createFallbackRule();
                 }
 
-                // 步骤 3: 构建执行上下文
-                ExecutionContext context = ExecutionContext.builder()
-                        .userId(userId)
-                        .sessionId(memoryService.generateSessionId())
-                        .userInput(userInput)
-                        .intentResult(intentResult)
-                        .routeRule(routeRule)
-                        .executionHistory(new ArrayList<>())
-                        .contextData(new ConcurrentHashMap<>())
-                        .emitter(emitter)
-                        .build();
+                // 步骤 3: 补全执行上下文
+                context.setIntentResult(intentResult);
+                context.setRouteRule(routeRule);
+
+                // 步骤 4: 根据执行策略组合执行流（各步骤输出到达即推送，路由线程不等待执行完成）
+                Mono<RoutingResult> execution = switch (routeRule.getStrategy()) {
+                    case SEQUENTIAL -> executeSequential(context);
+                    case PARALLEL -> executeParallel(context);
+                    default -> executeSingle(context);
+                };
+
+                // 步骤 5: 执行结束后发送最终结果并释放并发令牌
+                ExecutionContext executionContext = context;
+                AtomicReference<AdaptiveConcurrencyLimiter.Outcome> outcome =
+                        new AtomicReference<>(AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+                execution
+                        .doFinally(signal -> {
+                            cancelSpeculative(executionContext);
+                            token.release(outcome.get());
+                        })
+                        .subscribe(result -> {
+                            result.setTotalDuration(System.currentTimeMillis() - startTime);
+                            handleRoutingResult(result, executionContext);
+                            if (Boolean.TRUE.equals(result.getSuccess())) {
+                                outcome.set(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+                            }
+                        }, error -> sendRoutingFailure(emitter, error));
 
-                // 步骤 4: 根据执行策略执行
-                RoutingResult result;
-                switch (routeRule.getStrategy()) {
-                    case SEQUENTIAL:
-                        result = executeSequential(context);
-                        break;
-                    case PARALLEL:
-                        result = executeParallel(context);
-                        break;
-                    case SINGLE:
-                    default:
-                        result = executeSingle(context);
-                        break;
-                }
+            } catch (Exception e) {
+                sendRoutingFailure(emitter, e);
+                cancelSpeculative(context);
+                token.release(AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+            }
+        };
 
-                result.setTotalDuration(System.currentTimeMillis() - startTime);
+        try {
+            agentExecutors.routing().execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("路由线程池已满，拒绝请求: userId={}", userId);
+            token.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+            sendBusyError(emitter);
+        }
+    }
 
-                // 步骤 5: 发送最终结果
-                handleRoutingResult(result, context);
+    /**
+     * 发送路由失败错误并结束连接
+     */
+    private void sendRoutingFailure(SseEmitter emitter, Throwable error) {
+        log.error("路由处理失败: {}", error.getMessage(), error);
+        sendSseEvent(emitter, "error", Map.of(
+                "type", "error",
+                "message", "路由处理失败: " + error.getMessage()
+        ));
+        completeSse(emitter);
+    }
 
-            } catch (Exception e) {
-                log.error("路由处理失败: {}", e.getMessage(), e);
-                sendSseEvent(emitter, "error", Map.of(
-                        "type", "error",
-                        "message", "路由处理失败: " + e.getMessage()
-                ));
-                completeSse(emitter);
+    /**
+     * 取消未被复用的推测执行（未命中、异常退出等）
+     */
+    private void cancelSpeculative(ExecutionContext context) {
+        if (context != null && context.getSpeculativeRun() != null) {
+            context.getSpeculativeRun().cancel();
+            context.setSpeculativeRun(null);
+        }
+    }
+
+    /**
+     * 意图识别（带推测执行）
+     * <p>
+     * 关键词或本地分类器能确定意图时直接返回；否则在 LLM 识别期间，按关键词预测的意图
+     * 先订阅其执行链上第一个 Agent 的事件流。LLM 识别的意图与预测一致时，
+     * 推测的事件流交给执行策略复用，首字延迟不再叠加识别耗时；不一致时断开事件流（同时取消模型请求），
+     * 按识别结果正常路由。推测执行的输出只在重放缓冲中保存，确认前不会发送给用户；
+     * 写操作工具（加购、下单）在复用前不会执行，未命中时随推测执行一起丢弃。
+     *
+     * @param userInput 用户输入
+     * @param context   执行上下文（确认后记录推测执行）
+     * @return 意图识别结果
+     */
+    private IntentRecognitionService.IntentRecognitionResult recognizeIntent(String userInput, ExecutionContext context) {
+        if (!speculativeProperties.isEnabled()) {
+            return intentRecognitionService.recognizeIntent(userInput);
+        }
+
+        long startTime = System.currentTimeMillis();
+        IntentRecognitionService.IntentRecognitionResult localResult = intentRecognitionService.recognizeLocally(userInput);
+        if (localResult != null) {
+            localResult.setDurationMs(System.currentTimeMillis() - startTime);
+            return localResult;
+        }
+
+        SpeculativeRun speculative = startSpeculative(userInput, context);
+        IntentRecognitionService.IntentRecognitionResult intentResult = intentRecognitionService.recognizeIntent(userInput);
+        if (speculative == null) {
+            return intentResult;
+        }
+
+        AgentRoutingConfig.RouteRule finalRule = routeRules.get(intentResult.getIntentType());
+        if (intentResult.getIntentType() == speculative.intentType()
+                && finalRule != null
+                && finalRule.getStrategy() != AgentRoutingConfig.ExecutionStrategy.PARALLEL) {
+            log.info("推测执行命中: intent={}, agent={}", speculative.intentType(), speculative.agentName());
+            countSpeculation("hit");
+            context.setSpeculativeRun(speculative);
+        } else {
+            log.info("推测执行未命中，取消: predicted={}, actual={}",
+                    speculative.intentType(), intentResult.getIntentType());
+            countSpeculation("miss");
+            speculative.cancel();
+        }
+        return intentResult;
+    }
+
+    /**
+     * 按关键词预测的意图推测启动第一个 Agent
+     *
+     * @return 推测执行；无可靠预测或并行策略时返回 null
+     */
+    private SpeculativeRun startSpeculative(String userInput, ExecutionContext context) {
+        IntentRecognitionService.IntentRecognitionResult prediction = intentRecognitionService.predictIntent(userInput);
+        if (prediction == null || prediction.getConfidence() < speculativeProperties.getMinConfidence()) {
+            return null;
+        }
+        AgentRoutingConfig.RouteRule rule = routeRules.get(prediction.getIntentType());
+        if (rule == null || rule.getAgentChain().isEmpty()
+                || rule.getStrategy() == AgentRoutingConfig.ExecutionStrategy.PARALLEL) {
+            return null;
+        }
+
+        String agentName = rule.getAgentChain().get(0);
+        CompletableFuture<Void> writeGate = new CompletableFuture<>();
+        ReactiveAgentService.WriteToolGate gate = toolName -> {
+            if (!writeGate.isDone()) {
+                log.info("推测执行的写操作工具等待意图确认: agent={}, tool={}", agentName, toolName);
             }
-        });
+            return writeGate;
+        };
+        ConnectableFlux<AgentEvent> events = agentEvents(agentName, context, gate).replay();
+        Disposable connection = events.connect();
+        log.info("推测启动 Agent: predicted={}, agent={}", prediction.getIntentType(), agentName);
+        return new SpeculativeRun(prediction.getIntentType(), agentName, events, connection, writeGate);
+    }
+
+    private void countSpeculation(String result) {
+        Counter.builder("routing.speculative")
+                .description("推测执行结果")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 执行链中的 Agent：第一个 Agent 与推测执行一致时复用推测的事件流
+     */
+    private Mono<RoutingResult> runAgent(String agentName, ExecutionContext context, int sequence) {
+        SpeculativeRun speculative = context.getSpeculativeRun();
+        if (sequence == 0 && speculative != null && speculative.agentName().equals(agentName)) {
+            context.setSpeculativeRun(null);
+            speculative.confirm();
+            return collectAgent(agentName, context, sequence, speculative.events(), forwardTo(context));
+        }
+        return executeAgent(agentName, context, sequence, forwardTo(context));
+    }
+
+    /**
+     * 发送服务繁忙错误并结束连接
+     */
+    private void sendBusyError(SseEmitter emitter) {
+        sendSseEvent(emitter, "error", Map.of(
+                "type", "error",
+                "code", 503,
+                "message", "服务繁忙，请稍后重试"
+        ));
+        completeSse(emitter);
     }
 
     /**
@@ -374,31 +576,36 @@ public class AgentRoutingServiceImpl {
      * @return 执行结果
      */
     @Schema(description = "单 Agent 执行")
-    private RoutingResult executeSingle(ExecutionContext context) {
+    private Mono<RoutingResult> executeSingle(ExecutionContext context) {
         log.info("执行单 Agent 策略: intent={}",
                 context.getIntentResult().getIntentType());
 
         List<String> agentChain = context.getRouteRule().getAgentChain();
         if (agentChain.isEmpty()) {
-            return RoutingResult.builder()
+            return Mono.just(RoutingResult.builder()
                     .success(false)
                     .errorMessage("Agent 执行链为空")
-                    .build();
+                    .build());
         }
 
         String agentName = agentChain.get(0);
-        return executeAgent(agentName, context, 0);
+        return runAgent(agentName, context, 0)
+                .map(result -> {
+                    result.setIntentType(context.getIntentResult().getIntentType());
+                    result.setStrategy(AgentRoutingConfig.ExecutionStrategy.SINGLE);
+                    return result;
+                });
     }
 
     /**
      * 顺序执行多个 Agent
-     * 每个 Agent 的输出会传递给下一个 Agent
+     * 每个 Agent 的文本增量到达即推送给前端，同时累积为该步骤的输出传递给下一个 Agent
      *
      * @param context 执行上下文
      * @return 执行结果
      */
     @Schema(description = "顺序执行多个 Agent")
-    private RoutingResult executeSequential(ExecutionContext context) {
+    Mono<RoutingResult> executeSequential(ExecutionContext context) {
         log.info("执行顺序策略: intent={}, agentChain={}",
                 context.getIntentResult().getIntentType(),
                 context.getRouteRule().getAgentChain());
@@ -407,121 +614,226 @@ public class AgentRoutingServiceImpl {
         List<AgentExecutionRecord> records = new ArrayList<>();
         StringBuilder aggregatedOutput = new StringBuilder();
 
-        for (int i = 0; i < agentChain.size(); i++) {
-            String agentName = agentChain.get(i);
-
-            // 通知前端正在执行的 Agent
-            sendSseEvent(context.getEmitter(), "agent_start", Map.of(
-                    "agentName", agentName,
-                    "sequence", i + 1,
-                    "total", agentChain.size()
-            ));
-
-            // 执行 Agent
-            RoutingResult result = executeAgent(agentName, context, i);
-            records.addAll(result.getExecutionRecords());
-
-            if (!result.getSuccess()) {
-                // 执行失败，停止后续执行
-                log.warn("Agent 执行失败，停止顺序执行: agent={}", agentName);
-                return RoutingResult.builder()
-                        .success(false)
+        return Flux.range(0, agentChain.size())
+                .concatMap(i -> Mono.defer(() -> {
+                    String agentName = agentChain.get(i);
+
+                    // 通知前端正在执行的 Agent
+                    sendSseEvent(context.getEmitter(), "agent_start", Map.of(
+                            "agentName", agentName,
+                            "sequence", i + 1,
+                            "total", agentChain.size()
+                    ));
+
+                    // 执行 Agent
+                    return runAgent(agentName, context, i).doOnNext(result -> {
+                        records.addAll(result.getExecutionRecords());
+                        if (!result.getSuccess()) {
+                            // 执行失败，停止后续执行
+                            log.warn("Agent 执行失败，停止顺序执行: agent={}", agentName);
+                            return;
+                        }
+
+                        // 将输出添加到上下文（传递给下一个 Agent）
+                        if (result.getFinalOutput() != null && !result.getFinalOutput().isEmpty()) {
+                            aggregatedOutput.append(result.getFinalOutput()).append("\n\n");
+
+                            // 根据配置传递上下文
+                            if (shouldPassContext(context, i)) {
+                                context.getContextData().put("previousAgentOutput", result.getFinalOutput());
+                                context.getContextData().put("previousAgentName", agentName);
+                            }
+                        }
+
+                        // 通知前端 Agent 执行完成
+                        sendSseEvent(context.getEmitter(), "agent_complete", Map.of(
+                                "agentName", agentName,
+                                "sequence", i + 1,
+                                "total", agentChain.size()
+                        ));
+                    });
+                }))
+                .takeUntil(result -> !result.getSuccess())
+                .last(RoutingResult.builder().success(true).build())
+                .map(last -> RoutingResult.builder()
+                        .success(last.getSuccess())
                         .intentType(context.getIntentResult().getIntentType())
                         .strategy(AgentRoutingConfig.ExecutionStrategy.SEQUENTIAL)
                         .executionRecords(records)
-                        .errorMessage(result.getErrorMessage())
-                        .build();
-            }
-
-            // 将输出添加到上下文（传递给下一个 Agent）
-            if (result.getFinalOutput() != null && !result.getFinalOutput().isEmpty()) {
-                aggregatedOutput.append(result.getFinalOutput()).append("\n\n");
-
-                // 根据配置传递上下文
-                if (shouldPassContext(context, i)) {
-                    context.getContextData().put("previousAgentOutput", result.getFinalOutput());
-                    context.getContextData().put("previousAgentName", agentName);
-                }
-            }
-
-            // 通知前端 Agent 执行完成
-            sendSseEvent(context.getEmitter(), "agent_complete", Map.of(
-                    "agentName", agentName,
-                    "sequence", i + 1,
-                    "total", agentChain.size()
-            ));
-        }
-
-        return RoutingResult.builder()
-                .success(true)
-                .intentType(context.getIntentResult().getIntentType())
-                .strategy(AgentRoutingConfig.ExecutionStrategy.SEQUENTIAL)
-                .executionRecords(records)
-                .finalOutput(aggregatedOutput.toString().trim())
-                .build();
+                        .finalOutput(last.getSuccess() ? aggregatedOutput.toString().trim() : null)
+                        .errorMessage(last.getErrorMessage())
+                        .build());
     }
 
     /**
      * 并行执行多个 Agent
-     * 所有 Agent 同时执行，结果聚合
+     * 各分支在并行分支线程池中同时启动，按路由规则的合并方式合并结果：
+     * <ul>
+     *     <li>FIRST_SUCCESSFUL：采用最先成功的分支，落败分支立即取消</li>
+     *     <li>ALL_WITH_DEADLINE：等待所有分支，超过截止时间的分支取消，返回已完成的部分结果</li>
+     *     <li>INTERLEAVED：同 ALL_WITH_DEADLINE，但各分支的事件带 Agent 标签，到达即推送</li>
+     * </ul>
+     * 非交错模式在合并后以一条文本事件推送最终输出。
      *
      * @param context 执行上下文
      * @return 执行结果
      */
     @Schema(description = "并行执行多个 Agent")
-    private RoutingResult executeParallel(ExecutionContext context) {
-        log.info("执行并行策略: intent={}, agentChain={}",
-                context.getIntentResult().getIntentType(),
-                context.getRouteRule().getAgentChain());
+    Mono<RoutingResult> executeParallel(ExecutionContext context) {
+        AgentRoutingConfig.RouteRule rule = context.getRouteRule();
+        AgentRoutingConfig.ParallelMergeMode mode = rule.getParallelMergeMode() != null
+                ? rule.getParallelMergeMode()
+                : AgentRoutingConfig.ParallelMergeMode.ALL_WITH_DEADLINE;
+        Duration deadline = rule.getParallelTimeout() != null && rule.getParallelTimeout() > 0
+                ? Duration.ofMillis(rule.getParallelTimeout())
+                : null;
+        log.info("执行并行策略: intent={}, agentChain={}, mode={}, deadline={}",
+                context.getIntentResult().getIntentType(), rule.getAgentChain(), mode, deadline);
+
+        List<String> agentChain = rule.getAgentChain();
+        Mono<List<RoutingResult>> merged;
+        if (mode == AgentRoutingConfig.ParallelMergeMode.FIRST_SUCCESSFUL) {
+            merged = firstSuccessful(context, agentChain, deadline);
+        } else {
+            boolean interleaved = mode == AgentRoutingConfig.ParallelMergeMode.INTERLEAVED;
+            merged = Flux.range(0, agentChain.size())
+                    .flatMapSequential(i -> parallelBranch(context, agentChain.get(i), i, deadline,
+                            interleaved ? labelledForwardTo(context, agentChain.get(i)) : null))
+                    .collectList();
+        }
 
-        List<String> agentChain = context.getRouteRule().getAgentChain();
+        return merged.map(results -> {
+            List<AgentExecutionRecord> allRecords = new ArrayList<>();
+            // 按分支顺序记录成功分支（同一 Agent 可在执行链中出现多次，不能以名称为键）
+            Map<Integer, AgentExecutionRecord> outputs = new LinkedHashMap<>();
+            String errorMessage = null;
+            for (RoutingResult result : results) {
+                allRecords.addAll(result.getExecutionRecords());
+                if (!result.getSuccess()) {
+                    errorMessage = errorMessage != null ? errorMessage : result.getErrorMessage();
+                    continue;
+                }
+                AgentExecutionRecord record = result.getExecutionRecords().get(0);
+                outputs.put(record.getSequence(), record);
+            }
 
-        // 创建并行执行任务
-        List<CompletableFuture<RoutingResult>> futures = agentChain.stream()
-                .map(agentName -> CompletableFuture.supplyAsync(() ->
-                        executeAgent(agentName, context, agentChain.indexOf(agentName))))
-                .toList();
+            if (outputs.isEmpty()) {
+                return RoutingResult.builder()
+                        .success(false)
+                        .intentType(context.getIntentResult().getIntentType())
+                        .strategy(AgentRoutingConfig.ExecutionStrategy.PARALLEL)
+                        .executionRecords(allRecords)
+                        .errorMessage(errorMessage != null ? errorMessage : "所有并行分支均未成功")
+                        .build();
+            }
 
-        // 等待所有任务完成
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            // 聚合输出
+            String finalOutput;
+            if (Boolean.TRUE.equals(rule.getAggregateResults())) {
+                finalOutput = aggregateOutputs(outputs);
+            } else {
+                // 只返回第一个成功的结果
+                finalOutput = outputs.values().stream()
+                        .map(AgentExecutionRecord::getOutput)
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElse("");
+            }
 
-        // 收集结果
-        List<AgentExecutionRecord> allRecords = new ArrayList<>();
-        Map<String, String> outputs = new LinkedHashMap<>();
+            if (mode != AgentRoutingConfig.ParallelMergeMode.INTERLEAVED && !finalOutput.isEmpty()) {
+                sendSseEvent(context.getEmitter(), "message", Map.of("type", "text", "content", finalOutput));
+            }
 
-        for (CompletableFuture<RoutingResult> future : futures) {
-            try {
-                RoutingResult result = future.get();
-                allRecords.addAll(result.getExecutionRecords());
+            return RoutingResult.builder()
+                    .success(true)
+                    .intentType(context.getIntentResult().getIntentType())
+                    .strategy(AgentRoutingConfig.ExecutionStrategy.PARALLEL)
+                    .executionRecords(allRecords)
+                    .finalOutput(finalOutput)
+                    .build();
+        });
+    }
 
-                String agentName = result.getExecutionRecords().isEmpty() ?
-                        "unknown" : result.getExecutionRecords().get(0).getAgentName();
-                outputs.put(agentName, result.getFinalOutput());
+    /**
+     * 首个成功合并：返回已结束的分支结果（成功者在内），其余分支被取消
+     */
+    private Mono<List<RoutingResult>> firstSuccessful(ExecutionContext context, List<String> agentChain,
+                                                      Duration deadline) {
+        List<RoutingResult> finished = Collections.synchronizedList(new ArrayList<>());
+        List<Mono<RoutingResult>> branches = new ArrayList<>(agentChain.size());
+        for (int i = 0; i < agentChain.size(); i++) {
+            branches.add(parallelBranch(context, agentChain.get(i), i, deadline, null)
+                    .doOnNext(finished::add)
+                    .filter(RoutingResult::getSuccess));
+        }
+        return Mono.firstWithValue(branches)
+                .doOnNext(winner -> log.info("并行分支胜出: agent={}",
+                        winner.getExecutionRecords().get(0).getAgentName()))
+                .then(Mono.fromSupplier(() -> sortedBySequence(finished)))
+                .onErrorResume(e -> Mono.fromSupplier(() -> sortedBySequence(finished)));
+    }
 
-            } catch (Exception e) {
-                log.error("并行执行任务失败: {}", e.getMessage(), e);
-            }
+    private static List<RoutingResult> sortedBySequence(List<RoutingResult> results) {
+        synchronized (results) {
+            List<RoutingResult> sorted = new ArrayList<>(results);
+            sorted.sort(Comparator.comparing(result -> result.getExecutionRecords().get(0).getSequence()));
+            return sorted;
         }
+    }
 
-        // 聚合输出
-        String finalOutput;
-        if (context.getRouteRule().getAggregateResults()) {
-            finalOutput = aggregateOutputs(outputs);
-        } else {
-            // 只返回第一个成功的结果
-            finalOutput = outputs.values().stream()
-                    .filter(Objects::nonNull)
-                    .findFirst()
-                    .orElse("");
+    /**
+     * 单个并行分支：在并行分支线程池中启动，超过截止时间取消并记为失败
+     *
+     * @param forwarder 事件转发（为 null 时不转发）
+     */
+    private Mono<RoutingResult> parallelBranch(ExecutionContext context, String agentName, int sequence,
+                                               Duration deadline, Consumer<AgentEvent> forwarder) {
+        Mono<RoutingResult> branch = executeAgent(agentName, context, sequence, forwarder)
+                .subscribeOn(agentExecutors.parallel())
+                .onErrorResume(e -> {
+                    // 并行分支线程池已满时该分支直接记为失败
+                    log.warn("并行分支启动失败: agent={}, error={}", agentName, e.getMessage());
+                    return Mono.just(failedResult(agentName, sequence, Exceptions.unwrap(e) instanceof RejectedExecutionException
+                            ? "服务繁忙，请稍后重试" : e.getMessage()));
+                })
+                .doOnCancel(() -> log.debug("取消并行分支: agent={}", agentName));
+        if (deadline == null) {
+            return branch;
         }
+        return branch.timeout(deadline, Mono.fromSupplier(() -> {
+            log.warn("并行分支超过截止时间，已取消: agent={}, deadline={}ms", agentName, deadline.toMillis());
+            return failedResult(agentName, sequence, "执行超时");
+        }));
+    }
 
-        return RoutingResult.builder()
-                .success(true)
-                .intentType(context.getIntentResult().getIntentType())
-                .strategy(AgentRoutingConfig.ExecutionStrategy.PARALLEL)
-                .executionRecords(allRecords)
-                .finalOutput(finalOutput)
+    /**
+     * 未执行即失败的分支结果
+     */
+    private RoutingResult failedResult(String agentName, int sequence, String errorMessage) {
+        AgentExecutionRecord record = AgentExecutionRecord.builder()
+                .agentName(agentName)
+                .sequence(sequence)
+                .startTime(System.currentTimeMillis())
                 .build();
+        return toRoutingResult(record, "", errorMessage);
+    }
+
+    /**
+     * 将 Agent 事件原样转发给前端
+     */
+    private Consumer<AgentEvent> forwardTo(ExecutionContext context) {
+        return event -> sendSseEvent(context.getEmitter(), event.name(), event.data());
+    }
+
+    /**
+     * 将 Agent 事件带上 Agent 标签转发给前端（交错流式）
+     */
+    private Consumer<AgentEvent> labelledForwardTo(ExecutionContext context, String agentName) {
+        return event -> {
+            Map<String, Object> data = new HashMap<>(event.data());
+            data.put("agentName", agentName);
+            sendSseEvent(context.getEmitter(), event.name(), data);
+        };
     }
 
     /**
@@ -530,63 +842,111 @@ public class AgentRoutingServiceImpl {
      * @param agentName Agent 名称
      * @param context   执行上下文
      * @param sequence  执行顺序
+     * @param forwarder 事件转发（为 null 时不转发）
      * @return 执行结果
      */
     @Schema(description = "执行单个 Agent")
-    private RoutingResult executeAgent(String agentName, ExecutionContext context, int sequence) {
-        long startTime = System.currentTimeMillis();
-
-        AgentExecutionRecord record = AgentExecutionRecord.builder()
-                .agentName(agentName)
-                .sequence(sequence)
-                .startTime(startTime)
-                .status(ExecutionStatus.RUNNING)
-                .build();
+    private Mono<RoutingResult> executeAgent(String agentName, ExecutionContext context, int sequence,
+                                             Consumer<AgentEvent> forwarder) {
+        return collectAgent(agentName, context, sequence,
+                agentEvents(agentName, context, ReactiveAgentService.WriteToolGate.OPEN), forwarder);
+    }
 
-        try {
+    /**
+     * 构建子 Agent 的请求并返回其事件流（订阅时才发起请求）
+     *
+     * @param writeGate 写操作工具闸门
+     */
+    private Flux<AgentEvent> agentEvents(String agentName, ExecutionContext context,
+                                         ReactiveAgentService.WriteToolGate writeGate) {
+        return Flux.defer(() -> {
             // 获取 Agent 配置
             AgentConfig.AgentConfigInfo agentConfig = agentRegistry.getAgentConfig(agentName);
             if (agentConfig == null) {
-                throw new IllegalArgumentException("Agent 不存在: " + agentName);
+                return Flux.error(new IllegalArgumentException("Agent 不存在: " + agentName));
             }
 
             // 构建聊天请求（包含上下文）
             AgentChatRequestDTO agentRequest = buildAgentRequest(agentName, context, agentConfig);
+            return reactiveAgentService.events(agentRequest, context.getUserId(), writeGate);
+        });
+    }
 
-            // 创建自定义 SSE 发射器来捕获输出
-            SseEmitterCapture capture = new SseEmitterCapture();
-
-            // 执行 Agent
-            agentService.chatStream(agentRequest, context.getUserId(), capture.getSseEmitter());
-
-            // 等待执行完成
-            capture.awaitCompletion();
-
-            // 构建执行记录
-            record.setOutput(capture.getOutput());
-            record.setEndTime(System.currentTimeMillis());
-            record.setDuration(record.getEndTime() - record.getStartTime());
-            record.setStatus(ExecutionStatus.SUCCESS);
-
-            return RoutingResult.builder()
-                    .success(true)
-                    .executionRecords(Collections.singletonList(record))
-                    .finalOutput(capture.getOutput())
+    /**
+     * 消费 Agent 事件流：按需转发给前端，同时累积文本作为该步骤的输出
+     * Agent 自身的 done 事件不转发，整个路由结束后统一发送 routing_complete；
+     * error 事件记为步骤失败，由 routing_error 通知前端
+     *
+     * @param agentName Agent 名称
+     * @param context   执行上下文
+     * @param sequence  执行顺序
+     * @param events    Agent 事件流
+     * @param forwarder 事件转发（为 null 时不转发）
+     * @return 执行结果
+     */
+    private Mono<RoutingResult> collectAgent(String agentName, ExecutionContext context, int sequence,
+                                             Flux<AgentEvent> events, Consumer<AgentEvent> forwarder) {
+        return Mono.defer(() -> {
+            AgentExecutionRecord record = AgentExecutionRecord.builder()
+                    .agentName(agentName)
+                    .sequence(sequence)
+                    .startTime(System.currentTimeMillis())
+                    .status(ExecutionStatus.RUNNING)
                     .build();
+            StringBuilder output = new StringBuilder();
+            AtomicReference<String> errorMessage = new AtomicReference<>();
+
+            return events
+                    .doOnNext(event -> {
+                        if (event.isText()) {
+                            output.append(event.content());
+                        } else if (event.isError()) {
+                            Object message = event.data().get("message");
+                            errorMessage.compareAndSet(null, message != null ? message.toString() : "Agent 执行失败");
+                            return;
+                        }
+                        if (forwarder != null && !event.isDone()) {
+                            forwarder.accept(event);
+                        }
+                    })
+                    .then(Mono.fromSupplier(() -> toRoutingResult(record, output.toString(), errorMessage.get())))
+                    .onErrorResume(e -> {
+                        log.error("Agent 执行失败: agent={}, error={}", agentName, e.getMessage(), e);
+                        return Mono.just(toRoutingResult(record, output.toString(), e.getMessage()));
+                    });
+        });
+    }
 
-        } catch (Exception e) {
-            log.error("Agent 执行失败: agent={}, error={}", agentName, e.getMessage(), e);
-            record.setEndTime(System.currentTimeMillis());
-            record.setDuration(record.getEndTime() - record.getStartTime());
-            record.setStatus(ExecutionStatus.FAILED);
-            record.setErrorMessage(e.getMessage());
+    /**
+     * 结束执行记录并构建单个 Agent 的执行结果
+     *
+     * @param record       执行记录
+     * @param output       Agent 输出
+     * @param errorMessage 错误信息（成功时为 null）
+     * @return 执行结果
+     */
+    private RoutingResult toRoutingResult(AgentExecutionRecord record, String output, String errorMessage) {
+        record.setEndTime(System.currentTimeMillis());
+        record.setDuration(record.getEndTime() - record.getStartTime());
 
+        if (errorMessage != null) {
+            log.warn("Agent 执行失败: agent={}, error={}", record.getAgentName(), errorMessage);
+            record.setStatus(ExecutionStatus.FAILED);
+            record.setErrorMessage(errorMessage);
             return RoutingResult.builder()
                     .success(false)
                     .executionRecords(Collections.singletonList(record))
-                    .errorMessage(e.getMessage())
+                    .errorMessage(errorMessage)
                     .build();
         }
+
+        record.setOutput(output);
+        record.setStatus(ExecutionStatus.SUCCESS);
+        return RoutingResult.builder()
+                .success(true)
+                .executionRecords(Collections.singletonList(record))
+                .finalOutput(output)
+                .build();
     }
 
     /**
@@ -654,16 +1014,16 @@ public class AgentRoutingServiceImpl {
     /**
      * 聚合多个 Agent 的输出
      *
-     * @param outputs Agent 输出映射
+     * @param outputs 成功分支的执行记录（按分支顺序）
      * @return 聚合后的输出
      */
     @Schema(description = "聚合多个 Agent 的输出")
-    private String aggregateOutputs(Map<String, String> outputs) {
+    private String aggregateOutputs(Map<Integer, AgentExecutionRecord> outputs) {
         StringBuilder sb = new StringBuilder();
 
-        for (Map.Entry<String, String> entry : outputs.entrySet()) {
-            sb.append("## ").append(entry.getKey()).append(" 的处理结果\n\n");
-            sb.append(entry.getValue()).append("\n\n");
+        for (AgentExecutionRecord record : outputs.values()) {
+            sb.append("## ").append(record.getAgentName()).append(" 的处理结果\n\n");
+            sb.append(record.getOutput()).append("\n\n");
         }
 
         return sb.toString().trim();
@@ -790,47 +1150,4 @@ public class AgentRoutingServiceImpl {
             log.debug("SSE 完成异常: {}", e.getMessage());
         }
     }
-
-    /**
-     * SSE 发射器捕获
-     * 用于捕获 Agent 执行的输出
-     */
-    @Schema(description = "SSE 发射器捕获")
-    private static class SseEmitterCapture {
-        private final SseEmitter sseEmitter = new SseEmitter(60000L);
-        private final StringBuilder output = new StringBuilder();
-        private final CompletableFuture<Void> completionFuture = new CompletableFuture<>();
-        private boolean completed = false;
-
-        public SseEmitter getSseEmitter() {
-            // 设置完成回调
-            sseEmitter.onCompletion(() -> {
-                completed = true;
-                completionFuture.complete(null);
-            });
-
-            sseEmitter.onTimeout(() -> {
-                completed = true;
-                completionFuture.complete(null);
-            });
-
-            return sseEmitter;
-        }
-
-        public String getOutput() {
-            return output.toString();
-        }
-
-        public void awaitCompletion() {
-            try {
-                completionFuture.get();
-            } catch (Exception e) {
-                log.warn("等待完成失败: {}", e.getMessage());
-            }
-        }
-
-        public boolean isCompleted() {
-            return completed;
-        }
-    }
 }
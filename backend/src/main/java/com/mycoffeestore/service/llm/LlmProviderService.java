@@ -2,6 +2,7 @@ package com.mycoffeestore.service.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.ai.core.LlmConnectionPools;
 import com.mycoffeestore.dto.llm.ConnectionTestRequestDTO;
 import com.mycoffeestore.entity.LlmModelConfig;
 import com.mycoffeestore.entity.LlmProvider;
@@ -15,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -23,6 +25,7 @@ import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.mycoffeestore.entity.table.LlmUserConfigTableDef.LLM_USER_CONFIG;
 
@@ -43,6 +46,17 @@ public class LlmProviderService {
     private final LlmUserConfigMapper userConfigMapper;
     private final EncryptionService encryptionService;
     private final ObjectMapper objectMapper;
+    private final LlmConnectionPools llmConnectionPools;
+
+    /**
+     * 连接测试超时时间
+     */
+    private static final Duration TEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * 连接测试 WebClient 缓存（提供商代码 + 地址），API Key 按请求设置
+     */
+    private final Map<String, WebClient> testClientCache = new ConcurrentHashMap<>();
 
     /**
      * 测试连接
@@ -128,15 +142,13 @@ public class LlmProviderService {
             ));
             requestBody.put("max_tokens", 10);
 
-            // 构建 WebClient
-            WebClient webClient = WebClient.builder()
-                    .baseUrl(provider.getApiEndpoint())
-                    .defaultHeader("Authorization", "Bearer " + apiKey)
-                    .build();
+            // 复用提供商共享连接池上的 WebClient
+            WebClient webClient = getTestClient(provider);
 
             // 发送请求
             String response = webClient.post()
                     .uri("/chat/completions")
+                    .header("Authorization", "Bearer " + apiKey)
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(objectMapper.writeValueAsString(requestBody))
                     .retrieve()
@@ -146,7 +158,7 @@ public class LlmProviderService {
                                     .flatMap(body -> Mono.error(new RuntimeException("API 调用失败: " + body)))
                     )
                     .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(30))
+                    .timeout(TEST_TIMEOUT)
                     .block();
 
             long responseTime = System.currentTimeMillis() - startTime;
@@ -179,4 +191,18 @@ public class LlmProviderService {
             );
         }
     }
+
+    /**
+     * 获取连接测试 WebClient
+     */
+    private WebClient getTestClient(LlmProvider provider) {
+        String providerCode = provider.getProviderCode() != null ? provider.getProviderCode() : "custom";
+        String endpoint = provider.getApiEndpoint();
+        return testClientCache.computeIfAbsent(providerCode + "|" + endpoint, key -> WebClient.builder()
+                .baseUrl(endpoint)
+                .clientConnector(new ReactorClientHttpConnector(
+                        llmConnectionPools.httpClient(providerCode, endpoint, TEST_TIMEOUT.toMillis())
+                                .responseTimeout(TEST_TIMEOUT)))
+                .build());
+    }
 }
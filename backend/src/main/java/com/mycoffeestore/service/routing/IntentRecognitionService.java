@@ -1,11 +1,18 @@
 package com.mycoffeestore.service.routing;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.mycoffeestore.agent.routing.AgentRoutingConfig;
+import com.mycoffeestore.agent.routing.RoutingKeywordMatcher;
+import com.mycoffeestore.ai.config.ModelScopeChatOptions;
+import com.mycoffeestore.ai.core.LlmMetrics;
+import com.mycoffeestore.util.AhoCorasickMatcher;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
@@ -15,9 +22,11 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -26,9 +35,10 @@ import java.util.regex.Pattern;
  *
  * 功能：
  * 1. 基于 LLM 的智能意图识别
- * 2. 关键词匹配快速识别
- * 3. 意图置信度评估
- * 4. 支持多意图识别
+ * 2. 关键词匹配快速识别（共享 Aho-Corasick 自动机，单遍扫描）
+ * 3. 本地字符 n-gram 分类器识别（微秒级，置信度足够时跳过 LLM）
+ * 4. 意图置信度评估
+ * 5. 支持多意图识别
  *
  * @author Backend Developer
  * @since 2026-03-07
@@ -43,37 +53,82 @@ public class IntentRecognitionService {
     private final org.springframework.ai.chat.model.ChatModel intentRecognitionChatModel;
 
     /**
-     * 意图关键词映射
-     * 用于快速识别常见意图
+     * 共享路由关键词自动机（分组名称与 IntentType 代码一致）
      */
-    @Schema(description = "意图关键词映射")
-    private static final List<IntentKeyword> INTENT_KEYWORDS = Arrays.asList(
-            // 购买订单意图关键词
-            new IntentKeyword(
-                    AgentRoutingConfig.IntentType.ORDER_PURCHASE,
-                    Arrays.asList("买", "下单", "订购", "支付", "结账", "购买", "要一杯", "来一杯", "我想买", "我要买")
-            ),
-            // 投诉意图关键词
-            new IntentKeyword(
-                    AgentRoutingConfig.IntentType.COMPLAINT,
-                    Arrays.asList("投诉", "问题", "不满", "质量差", "服务差", "难喝", "慢", "态度差", "不新鲜", "投诉")
-            ),
-            // 咨询意图关键词
-            new IntentKeyword(
-                    AgentRoutingConfig.IntentType.CONSULT,
-                    Arrays.asList("推荐", "建议", "哪种", "什么好", "口味", "风味", "酸", "苦", "浓", "淡", "咨询", "推荐")
-            ),
-            // 订单查询意图关键词
-            new IntentKeyword(
-                    AgentRoutingConfig.IntentType.ORDER_QUERY,
-                    Arrays.asList("订单", "我的订单", "订单状态", "查订单", "订单到哪", "配送", "进度")
-            )
-    );
+    private final RoutingKeywordMatcher keywordMatcher;
+
+    /**
+     * LLM 识别结果缓存（规范化输入精确匹配，single-flight）
+     */
+    private final IntentResultCache intentResultCache;
+
+    /**
+     * 本地意图分类器（关键词之后、LLM 之前的第二级识别）
+     */
+    private final LocalIntentClassifier localIntentClassifier;
+
+    /**
+     * 意图识别系统提示词（意图类型来自枚举，启动时构建一次）
+     */
+    private static final SystemMessage SYSTEM_MESSAGE = new SystemMessage(String.format("""
+            你是意图识别专家。分析用户输入，识别其意图类型。
+
+            ## 支持的意图类型
+            %s
+
+            ## 识别规则
+            1. 用户明确提到购买相关词汇 → order_purchase
+            2. 用户提到投诉或问题 → complaint
+            3. 用户询问咖啡相关问题 → consult
+            4. 用户询问订单相关信息 → order_query
+            5. 其他一般性对话 → general
+
+            ## 输出格式（JSON）
+            {
+              "intent": "意图类型代码",
+              "confidence": 置信度(0.0-1.0),
+              "reasoning": "识别理由"
+            }
+
+            仅返回 JSON，不要包含其他内容。
+            """, String.join("\n",
+            Arrays.stream(AgentRoutingConfig.IntentType.values())
+                    .map(intent -> String.format("- %s: %s", intent.getCode(), intent.getDescription()))
+                    .toArray(String[]::new))));
+
+    /**
+     * 意图识别调用选项（低温度、短输出）
+     */
+    private static final ModelScopeChatOptions INTENT_OPTIONS = ModelScopeChatOptions.builder()
+            .temperature(0.3)
+            .maxTokens(200)
+            .build();
+
+    /**
+     * 流式解析 LLM 返回 JSON 使用的工厂
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * LLM 调用指标中的 agent 标签
+     */
+    private static final String METRICS_AGENT = "intent_recognition";
+
+    /**
+     * JSON 解析失败时的兜底正则（预编译）
+     */
+    private static final Pattern INTENT_PATTERN = Pattern.compile("\"intent\"\\s*:\\s*\"?([^,}\\\"]+)\"?");
+    private static final Pattern CONFIDENCE_PATTERN = Pattern.compile("\"confidence\"\\s*:\\s*\"?([^,}\\\"]+)\"?");
+
+    /**
+     * 意图识别 ChatClient（线程安全，初始化一次后复用）
+     */
+    private ChatClient chatClient;
 
     /**
      * 意图识别结果
      */
-    @lombok.Builder
+    @lombok.Builder(toBuilder = true)
     @lombok.Data
     @Schema(description = "意图识别结果")
     public static class IntentRecognitionResult {
@@ -96,7 +151,7 @@ public class IntentRecognitionService {
         private List<String> recommendedAgents;
 
         /**
-         * 识别方法（keyword / llm / fallback）
+         * 识别方法（keyword / classifier / llm / fallback）
          */
         @Schema(description = "识别方法")
         private String recognitionMethod;
@@ -115,38 +170,13 @@ public class IntentRecognitionService {
     }
 
     /**
-     * 意图关键词映射
+     * 初始化意图识别 ChatClient
      */
-    @lombok.Builder
-    @lombok.Data
-    @Schema(description = "意图关键词映射")
-    private static class IntentKeyword {
-        /**
-         * 意图类型
-         */
-        private AgentRoutingConfig.IntentType intentType;
-
-        /**
-         * 关键词列表
-         */
-        private List<String> keywords;
-
-        /**
-         * 检查输入是否包含任何关键词
-         */
-        public boolean matches(String input) {
-            return keywords.stream()
-                    .anyMatch(keyword -> input.contains(keyword));
-        }
-
-        /**
-         * 计算匹配分数（匹配的关键词数量）
-         */
-        public int matchScore(String input) {
-            return (int) keywords.stream()
-                    .filter(input::contains)
-                    .count();
-        }
+    @PostConstruct
+    public void init() {
+        this.chatClient = ChatClient.builder(intentRecognitionChatModel)
+                .defaultOptions(INTENT_OPTIONS)
+                .build();
     }
 
     /**
@@ -163,17 +193,22 @@ public class IntentRecognitionService {
         log.debug("开始识别用户意图: {}", userInput);
 
         try {
-            // 步骤 1: 尝试关键词快速匹配
-            IntentRecognitionResult keywordResult = recognizeByKeywords(userInput);
-            if (keywordResult != null && keywordResult.getConfidence() > 0.7) {
-                keywordResult.setDurationMs(System.currentTimeMillis() - startTime);
-                log.info("关键词识别成功: intent={}, confidence={}",
-                        keywordResult.getIntentType(), keywordResult.getConfidence());
-                return keywordResult;
+            // 步骤 1、2: 关键词快速匹配与本地分类器
+            IntentRecognitionResult localResult = recognizeLocally(userInput);
+            if (localResult != null) {
+                localResult.setDurationMs(System.currentTimeMillis() - startTime);
+                return localResult;
             }
 
-            // 步骤 2: 使用 LLM 进行智能识别
-            IntentRecognitionResult llmResult = recognizeByLLM(userInput);
+            // 步骤 3: 使用 LLM 进行智能识别（相同输入命中缓存或共享进行中的调用）
+            IntentRecognitionResult llmResult = intentResultCache.getOrLoad(userInput, () -> {
+                IntentRecognitionResult result = recognizeByLLM(userInput);
+                if ("llm".equals(result.getRecognitionMethod())) {
+                    // LLM 标注结果作为本地分类器的训练样本
+                    localIntentClassifier.recordSample(userInput, result.getIntentType().getCode());
+                }
+                return result;
+            });
             llmResult.setDurationMs(System.currentTimeMillis() - startTime);
             log.info("LLM 识别完成: intent={}, confidence={}",
                     llmResult.getIntentType(), llmResult.getConfidence());
@@ -193,6 +228,42 @@ public class IntentRecognitionService {
         }
     }
 
+    /**
+     * 不调用 LLM 的意图识别：关键词高置信度命中或本地分类器判定
+     *
+     * @param userInput 用户输入
+     * @return 意图识别结果；需要 LLM 识别时返回 null
+     */
+    @Schema(description = "不调用 LLM 的意图识别")
+    public IntentRecognitionResult recognizeLocally(String userInput) {
+        // 尝试关键词快速匹配
+        IntentRecognitionResult keywordResult = recognizeByKeywords(userInput);
+        if (keywordResult != null && keywordResult.getConfidence() > 0.7) {
+            log.info("关键词识别成功: intent={}, confidence={}",
+                    keywordResult.getIntentType(), keywordResult.getConfidence());
+            return keywordResult;
+        }
+
+        // 本地分类器识别
+        IntentRecognitionResult classifierResult = recognizeByClassifier(userInput);
+        if (classifierResult != null) {
+            log.info("本地分类器识别成功: intent={}, confidence={}",
+                    classifierResult.getIntentType(), classifierResult.getConfidence());
+        }
+        return classifierResult;
+    }
+
+    /**
+     * 预测最可能的意图（不要求达到识别阈值，用于在 LLM 识别期间推测执行）
+     *
+     * @param userInput 用户输入
+     * @return 关键词命中最多的意图；没有任何命中时返回 null
+     */
+    @Schema(description = "预测最可能的意图")
+    public IntentRecognitionResult predictIntent(String userInput) {
+        return recognizeByKeywords(userInput);
+    }
+
     /**
      * 基于关键词的快速意图识别
      *
@@ -201,17 +272,18 @@ public class IntentRecognitionService {
      */
     @Schema(description = "基于关键词识别意图")
     private IntentRecognitionResult recognizeByKeywords(String userInput) {
-        String normalizedInput = userInput.toLowerCase().trim();
+        // 单遍扫描得到每个意图的关键词命中数
+        AhoCorasickMatcher.Hits hits = keywordMatcher.match(userInput);
 
         // 找出匹配分数最高的意图
-        IntentKeyword bestMatch = null;
+        AgentRoutingConfig.IntentType bestMatch = null;
         int bestScore = 0;
 
-        for (IntentKeyword intentKeyword : INTENT_KEYWORDS) {
-            int score = intentKeyword.matchScore(normalizedInput);
+        for (AgentRoutingConfig.IntentType intentType : AgentRoutingConfig.IntentType.values()) {
+            int score = hits.count(intentType.getCode());
             if (score > bestScore) {
                 bestScore = score;
-                bestMatch = intentKeyword;
+                bestMatch = intentType;
             }
         }
 
@@ -224,14 +296,43 @@ public class IntentRecognitionService {
         double confidence = Math.min(0.9, 0.5 + (bestScore * 0.1));
 
         return IntentRecognitionResult.builder()
-                .intentType(bestMatch.getIntentType())
+                .intentType(bestMatch)
                 .confidence(confidence)
-                .recommendedAgents(getRecommendedAgents(bestMatch.getIntentType()))
+                .recommendedAgents(getRecommendedAgents(bestMatch))
                 .recognitionMethod("keyword")
                 .userInput(userInput)
                 .build();
     }
 
+    /**
+     * 基于本地分类器的意图识别
+     *
+     * @param userInput 用户输入
+     * @return 意图识别结果，模型未就绪或置信度不足时返回 null
+     */
+    @Schema(description = "基于本地分类器识别意图")
+    private IntentRecognitionResult recognizeByClassifier(String userInput) {
+        NaiveBayesIntentModel.Prediction prediction = localIntentClassifier.classify(userInput);
+        if (prediction == null) {
+            return null;
+        }
+        AgentRoutingConfig.IntentType intentType = Arrays.stream(AgentRoutingConfig.IntentType.values())
+                .filter(intent -> intent.getCode().equals(prediction.intent()))
+                .findFirst()
+                .orElse(null);
+        if (intentType == null) {
+            return null;
+        }
+
+        return IntentRecognitionResult.builder()
+                .intentType(intentType)
+                .confidence(prediction.confidence())
+                .recommendedAgents(getRecommendedAgents(intentType))
+                .recognitionMethod("classifier")
+                .userInput(userInput)
+                .build();
+    }
+
     /**
      * 基于 LLM 的智能意图识别
      *
@@ -240,54 +341,12 @@ public class IntentRecognitionService {
      */
     @Schema(description = "基于 LLM 识别意图")
     private IntentRecognitionResult recognizeByLLM(String userInput) {
-        // 构建意图类型描述
-        String intentDescriptions = String.join("\n",
-                Arrays.stream(AgentRoutingConfig.IntentType.values())
-                        .map(intent -> String.format("- %s: %s", intent.getCode(), intent.getDescription()))
-                        .toArray(String[]::new)
-        );
-
-        // 构建系统消息
-        Message systemMessage = new SystemMessage(String.format("""
-                你是意图识别专家。分析用户输入，识别其意图类型。
-
-                ## 支持的意图类型
-                %s
-
-                ## 识别规则
-                1. 用户明确提到购买相关词汇 → order_purchase
-                2. 用户提到投诉或问题 → complaint
-                3. 用户询问咖啡相关问题 → consult
-                4. 用户询问订单相关信息 → order_query
-                5. 其他一般性对话 → general
-
-                ## 输出格式（JSON）
-                {
-                  "intent": "意图类型代码",
-                  "confidence": 置信度(0.0-1.0),
-                  "reasoning": "识别理由"
-                }
-
-                仅返回 JSON，不要包含其他内容。
-                """, intentDescriptions));
-
-        // 构建用户消息
-        Message userMessage = new UserMessage(userInput);
-
-        // 创建 ChatClient
-        ChatClient chatClient = ChatClient.builder((org.springframework.ai.chat.model.ChatModel) intentRecognitionChatModel)
-                .defaultOptions(com.mycoffeestore.ai.config.ModelScopeChatOptions.builder()
-                        .temperature(0.3)
-                        .maxTokens(200)
-                        .build())
-                .build();
-
         try {
-            // 调用 LLM
-            ChatResponse response = chatClient.prompt()
-                    .messages(systemMessage, userMessage)
+            // 调用 LLM（系统提示词包含 JSON 花括号，直接以 Message 传入，避免模板渲染）
+            ChatResponse response = LlmMetrics.callAs(METRICS_AGENT, () -> chatClient.prompt()
+                    .messages(SYSTEM_MESSAGE, new UserMessage(userInput))
                     .call()
-                    .chatResponse();
+                    .chatResponse());
 
             String responseText = response.getResult().getOutput().getContent();
             log.debug("LLM 意图识别原始响应: {}", responseText);
@@ -321,9 +380,10 @@ public class IntentRecognitionService {
             // 尝试提取 JSON
             String jsonText = extractJson(responseText);
 
-            // 简单解析（实际项目中应使用 Jackson 或 Gson）
-            String intentCode = extractJsonValue(jsonText, "intent");
-            String confidenceStr = extractJsonValue(jsonText, "confidence");
+            // 流式解析顶层字段，JSON 不合法时回退到正则
+            String[] values = extractJsonValues(jsonText);
+            String intentCode = values[0];
+            String confidenceStr = values[1];
 
             // 查找对应的意图类型
             AgentRoutingConfig.IntentType intentType = Arrays.stream(AgentRoutingConfig.IntentType.values())
@@ -381,23 +441,47 @@ public class IntentRecognitionService {
     }
 
     /**
-     * 从 JSON 中提取值
+     * 从 JSON 中提取 intent 和 confidence
+     * 使用流式解析只读取顶层字段，不构建 JsonNode 树
      *
-     * @param json      JSON 字符串
-     * @param key       键名
-     * @return 值
+     * @param json JSON 字符串
+     * @return [intent, confidence]，缺失的字段为空字符串
      */
-    @Schema(description = "从 JSON 中提取值")
-    private String extractJsonValue(String json, String key) {
-        String pattern = "\"" + key + "\"\\s*:\\s*\"?([^,}\\\"]+)\"?";
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-        java.util.regex.Matcher m = p.matcher(json);
-
-        if (m.find()) {
-            return m.group(1).trim();
+    @Schema(description = "从 JSON 中提取 intent 和 confidence")
+    private String[] extractJsonValues(String json) {
+        String[] values = {"", ""};
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return extractJsonValuesByPattern(json);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("intent".equals(field) && value.isScalarValue()) {
+                    values[0] = parser.getText().trim();
+                } else if ("confidence".equals(field) && value.isScalarValue()) {
+                    values[1] = parser.getText().trim();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return values;
+        } catch (IOException e) {
+            log.debug("流式解析意图 JSON 失败，回退到正则: {}", e.getMessage());
+            return extractJsonValuesByPattern(json);
         }
+    }
+
+    /**
+     * 使用预编译正则从 JSON 中提取 intent 和 confidence
+     */
+    private String[] extractJsonValuesByPattern(String json) {
+        return new String[]{matchGroup(INTENT_PATTERN, json), matchGroup(CONFIDENCE_PATTERN, json)};
+    }
 
-        return "";
+    private String matchGroup(Pattern pattern, String json) {
+        Matcher m = pattern.matcher(json);
+        return m.find() ? m.group(1).trim() : "";
     }
 
     /**
@@ -0,0 +1,174 @@
+package com.mycoffeestore.service.routing;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mycoffeestore.config.IntentCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * LLM 意图识别结果缓存
+ * <p>
+ * 按规范化后的用户输入（去掉空白和标点、转小写）做精确匹配缓存，有界 + TTL。
+ * 同一输入的并发请求只会触发一次 LLM 调用（single-flight），其余请求等待并共享结果。
+ * 降级结果（llm_fallback）不会被缓存。
+ * <p>
+ * 指标：
+ * <ul>
+ *     <li>{@code intent.cache.requests{result=hit|miss|coalesced|bypass}}：请求计数</li>
+ *     <li>{@code intent.cache.hit.ratio}：命中率（hit + coalesced 占全部可缓存请求的比例）</li>
+ *     <li>{@code intent.cache.size}：当前条目数</li>
+ * </ul>
+ *
+ * @author zhoulu
+ * @since 2026-03-12
+ */
+@Slf4j
+@Component
+public class IntentResultCache {
+
+    /**
+     * 缓存命中时的识别方法标记
+     */
+    public static final String METHOD_CACHE = "llm_cache";
+
+    private static final String METHOD_FALLBACK = "llm_fallback";
+
+    private final IntentCacheProperties properties;
+
+    private final AsyncCache<String, IntentRecognitionService.IntentRecognitionResult> cache;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+    private final Counter bypassCounter;
+
+    public IntentResultCache(IntentCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(properties.getTtl()))
+                .buildAsync();
+
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.coalescedCounter = requestCounter(meterRegistry, "coalesced");
+        this.bypassCounter = requestCounter(meterRegistry, "bypass");
+
+        Gauge.builder("intent.cache.hit.ratio", this, IntentResultCache::hitRatio)
+                .description("LLM 意图识别缓存命中率")
+                .register(meterRegistry);
+        Gauge.builder("intent.cache.size", cache, c -> c.synchronous().estimatedSize())
+                .description("LLM 意图识别缓存条目数")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("intent.cache.requests")
+                .description("LLM 意图识别缓存请求数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取缓存的识别结果，未命中时调用 loader 并缓存
+     *
+     * @param userInput 原始用户输入
+     * @param loader    未命中时的加载函数（LLM 调用）
+     * @return 识别结果（缓存命中时返回副本，识别方法为 llm_cache）
+     */
+    public IntentRecognitionService.IntentRecognitionResult getOrLoad(
+            String userInput, Supplier<IntentRecognitionService.IntentRecognitionResult> loader) {
+        String key = properties.isEnabled() ? normalize(userInput) : "";
+        if (key.isEmpty() || key.length() > properties.getMaxKeyLength()) {
+            bypassCounter.increment();
+            return loader.get();
+        }
+
+        CompletableFuture<IntentRecognitionService.IntentRecognitionResult> flight = new CompletableFuture<>();
+        CompletableFuture<IntentRecognitionService.IntentRecognitionResult> existing =
+                cache.asMap().putIfAbsent(key, flight);
+
+        if (existing != null) {
+            if (existing.isDone()) {
+                hitCounter.increment();
+            } else {
+                coalescedCounter.increment();
+            }
+            try {
+                return copyOf(existing.join(), userInput, METHOD_CACHE);
+            } catch (CompletionException e) {
+                // 共享的那次调用失败，自己再调用一次
+                log.debug("共享的意图识别调用失败，重新调用: {}", e.getMessage());
+                return loader.get();
+            }
+        }
+
+        missCounter.increment();
+        try {
+            IntentRecognitionService.IntentRecognitionResult result = loader.get();
+            flight.complete(copyOf(result, userInput, result.getRecognitionMethod()));
+            if (METHOD_FALLBACK.equals(result.getRecognitionMethod())) {
+                // 降级结果只共享给本次并发请求，不保留
+                cache.asMap().remove(key, flight);
+            }
+            return result;
+        } catch (Throwable e) {
+            // Error 也要结束共享调用，否则等待中的并发请求和之后的相同输入会一直阻塞
+            flight.completeExceptionally(e);
+            cache.asMap().remove(key, flight);
+            throw e;
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * 命中率：hit + coalesced 占可缓存请求的比例
+     */
+    public double hitRatio() {
+        double hits = hitCounter.count() + coalescedCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    /**
+     * 规范化用户输入：去掉空白和标点符号，转小写
+     *
+     * @param input 用户输入
+     * @return 规范化后的字符串，输入为 null 时返回空串
+     */
+    public static String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(input.length());
+        input.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .map(Character::toLowerCase)
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    private static IntentRecognitionService.IntentRecognitionResult copyOf(
+            IntentRecognitionService.IntentRecognitionResult result, String userInput, String method) {
+        return result.toBuilder()
+                .userInput(userInput)
+                .recognitionMethod(method)
+                .durationMs(null)
+                .build();
+    }
+}
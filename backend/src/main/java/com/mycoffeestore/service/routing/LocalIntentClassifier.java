@@ -0,0 +1,437 @@
+package com.mycoffeestore.service.routing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.IntentClassifierProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地意图分类器
+ * <p>
+ * 意图识别的第二级：关键词未命中时先用本地字符 n-gram 朴素贝叶斯模型判定，
+ * 置信度足够时直接返回，避免一次远程 LLM 调用（单次预测为微秒级）。
+ * <p>
+ * 模型生命周期：
+ * <ul>
+ *     <li>启动时加载模型文件；文件不存在时用种子样本 + LLM 标注样本训练并落盘</li>
+ *     <li>LLM 识别结果异步追加到样本日志，新增样本达到阈值后自动重新训练</li>
+ *     <li>定时检查模型文件修改时间，外部替换模型文件后热加载（整体替换，读取无锁）</li>
+ * </ul>
+ *
+ * @author zhoulu
+ * @since 2026-03-13
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalIntentClassifier {
+
+    /**
+     * 样本来源：种子样本
+     */
+    public static final String SOURCE_SEED = "seed";
+
+    /**
+     * 样本来源：LLM 标注
+     */
+    public static final String SOURCE_LLM = "llm";
+
+    private final IntentClassifierProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 当前生效的模型（未训练时为 null）
+     */
+    private volatile NaiveBayesIntentModel model;
+
+    /**
+     * 模型文件的最后修改时间
+     */
+    private volatile long lastModified = -1;
+
+    /**
+     * 上次训练后新增的样本数
+     */
+    private final AtomicInteger newSamples = new AtomicInteger();
+
+    /**
+     * 样本写入、模型热加载与自动训练共用的单线程执行器
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r);
+        thread.setName("intent-classifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 离线评估报告
+     */
+    @Data
+    @Builder
+    public static class EvaluationReport {
+
+        /**
+         * 评估样本数
+         */
+        private int total;
+
+        /**
+         * 预测与 LLM 标注一致的样本数
+         */
+        private int correct;
+
+        /**
+         * 准确率
+         */
+        private double accuracy;
+
+        /**
+         * 置信度达到阈值（会被采纳）的样本数
+         */
+        private int accepted;
+
+        /**
+         * 被采纳样本中的准确率
+         */
+        private double acceptedAccuracy;
+
+        /**
+         * 覆盖率：被采纳样本占比（即可省掉的 LLM 调用比例）
+         */
+        private double coverage;
+
+        /**
+         * 各意图的准确率
+         */
+        private Map<String, Double> perIntentAccuracy;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        executor.execute(() -> {
+            if (!reloadIfChanged()) {
+                try {
+                    retrain();
+                } catch (Exception e) {
+                    log.warn("训练本地意图分类器失败: {}", e.getMessage());
+                }
+            }
+        });
+        long interval = Math.max(1, properties.getReloadInterval());
+        executor.scheduleWithFixedDelay(this::checkModel, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 预测用户输入的意图
+     *
+     * @param userInput 用户输入
+     * @return 置信度达到阈值的预测结果，否则返回 null
+     */
+    public NaiveBayesIntentModel.Prediction classify(String userInput) {
+        NaiveBayesIntentModel current = model;
+        if (!properties.isEnabled() || current == null
+                || current.getSampleCount() < properties.getMinTrainingSamples()) {
+            return null;
+        }
+        NaiveBayesIntentModel.Prediction prediction = current.predict(userInput);
+        if (prediction == null || prediction.confidence() < properties.getMinConfidence()) {
+            return null;
+        }
+        return prediction;
+    }
+
+    /**
+     * 记录一条 LLM 标注样本（异步追加到样本日志）
+     *
+     * @param userInput  用户输入
+     * @param intentCode LLM 识别的意图代码
+     */
+    public void recordSample(String userInput, String intentCode) {
+        if (!properties.isEnabled() || !properties.isLogSamples()
+                || userInput == null || userInput.isBlank() || intentCode == null) {
+            return;
+        }
+        NaiveBayesIntentModel.Sample sample = new NaiveBayesIntentModel.Sample(userInput, intentCode, SOURCE_LLM);
+        try {
+            executor.execute(() -> appendSample(sample));
+        } catch (Exception e) {
+            log.debug("记录意图样本失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用种子样本 + LLM 标注样本重新训练，写入模型文件并替换当前模型
+     *
+     * @return 新模型
+     */
+    public synchronized NaiveBayesIntentModel retrain() throws IOException {
+        List<NaiveBayesIntentModel.Sample> samples = new ArrayList<>(loadSeedSamples());
+        samples.addAll(loadLoggedSamples());
+        if (samples.isEmpty()) {
+            throw new IOException("没有可用的训练样本");
+        }
+
+        NaiveBayesIntentModel trained = NaiveBayesIntentModel.train(
+                samples, properties.getMinNgram(), properties.getMaxNgram());
+        saveModel(trained);
+        this.model = trained;
+        newSamples.set(0);
+        log.info("本地意图分类器训练完成，样本数: {}, 特征数: {}",
+                trained.getSampleCount(), trained.getFeatures().size());
+        return trained;
+    }
+
+    /**
+     * 评估模型在 LLM 标注样本上的准确率
+     *
+     * @param target  待评估模型
+     * @param samples 评估样本（以样本中的意图为标准答案）
+     * @return 评估报告
+     */
+    public EvaluationReport evaluate(NaiveBayesIntentModel target, List<NaiveBayesIntentModel.Sample> samples) {
+        int correct = 0;
+        int accepted = 0;
+        int acceptedCorrect = 0;
+        Map<String, int[]> perIntent = new LinkedHashMap<>();
+
+        for (NaiveBayesIntentModel.Sample sample : samples) {
+            NaiveBayesIntentModel.Prediction prediction = target.predict(sample.getText());
+            boolean hit = prediction != null && prediction.intent().equals(sample.getIntent());
+            int[] stat = perIntent.computeIfAbsent(sample.getIntent(), k -> new int[2]);
+            stat[1]++;
+            if (hit) {
+                correct++;
+                stat[0]++;
+            }
+            if (prediction != null && prediction.confidence() >= properties.getMinConfidence()) {
+                accepted++;
+                if (hit) {
+                    acceptedCorrect++;
+                }
+            }
+        }
+
+        Map<String, Double> perIntentAccuracy = new LinkedHashMap<>();
+        perIntent.forEach((intent, stat) -> perIntentAccuracy.put(intent, ratio(stat[0], stat[1])));
+        return EvaluationReport.builder()
+                .total(samples.size())
+                .correct(correct)
+                .accuracy(ratio(correct, samples.size()))
+                .accepted(accepted)
+                .acceptedAccuracy(ratio(acceptedCorrect, accepted))
+                .coverage(ratio(accepted, samples.size()))
+                .perIntentAccuracy(perIntentAccuracy)
+                .build();
+    }
+
+    /**
+     * 留出法评估：LLM 标注样本打乱后按比例切分，用种子样本 + 训练部分训练，在留出部分上评估
+     *
+     * @param holdoutRatio 留出比例（0-1）
+     * @param seed         随机种子
+     * @return 评估报告
+     */
+    public EvaluationReport evaluateHoldout(double holdoutRatio, long seed) throws IOException {
+        List<NaiveBayesIntentModel.Sample> logged = new ArrayList<>(loadLoggedSamples());
+        Collections.shuffle(logged, new Random(seed));
+        int holdout = (int) Math.round(logged.size() * holdoutRatio);
+
+        List<NaiveBayesIntentModel.Sample> training = new ArrayList<>(loadSeedSamples());
+        training.addAll(logged.subList(holdout, logged.size()));
+        NaiveBayesIntentModel candidate = NaiveBayesIntentModel.train(
+                training, properties.getMinNgram(), properties.getMaxNgram());
+        return evaluate(candidate, logged.subList(0, holdout));
+    }
+
+    /**
+     * 获取当前模型
+     */
+    public NaiveBayesIntentModel getModel() {
+        return model;
+    }
+
+    /**
+     * 读取种子样本
+     */
+    public List<NaiveBayesIntentModel.Sample> loadSeedSamples() throws IOException {
+        String location = properties.getSeedLocation();
+        if (location == null || location.isBlank()) {
+            return List.of();
+        }
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        if (!resource.exists()) {
+            log.warn("意图种子样本不存在: {}", location);
+            return List.of();
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return readSamples(in, SOURCE_SEED);
+        }
+    }
+
+    /**
+     * 读取 LLM 标注样本日志
+     */
+    public List<NaiveBayesIntentModel.Sample> loadLoggedSamples() throws IOException {
+        Path file = path(properties.getSampleLogPath());
+        if (file == null || !Files.exists(file)) {
+            return List.of();
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return readSamples(in, SOURCE_LLM);
+        }
+    }
+
+    private List<NaiveBayesIntentModel.Sample> readSamples(InputStream in, String defaultSource) throws IOException {
+        List<NaiveBayesIntentModel.Sample> samples = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                NaiveBayesIntentModel.Sample sample = objectMapper.readValue(line, NaiveBayesIntentModel.Sample.class);
+                if (sample.getText() != null && sample.getIntent() != null) {
+                    if (sample.getSource() == null) {
+                        sample.setSource(defaultSource);
+                    }
+                    samples.add(sample);
+                }
+            } catch (IOException e) {
+                log.debug("跳过无法解析的意图样本: {}", line);
+            }
+        }
+        return samples;
+    }
+
+    private void appendSample(NaiveBayesIntentModel.Sample sample) {
+        Path file = path(properties.getSampleLogPath());
+        if (file == null) {
+            return;
+        }
+        try {
+            createParent(file);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(objectMapper.writeValueAsString(sample));
+                writer.write('\n');
+            }
+            newSamples.incrementAndGet();
+        } catch (IOException e) {
+            log.warn("写入意图样本失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时任务：模型文件被外部替换时热加载，新增样本达到阈值时重新训练
+     */
+    private void checkModel() {
+        try {
+            reloadIfChanged();
+            int threshold = properties.getRetrainThreshold();
+            if (threshold > 0 && newSamples.get() >= threshold) {
+                retrain();
+            }
+        } catch (Exception e) {
+            log.warn("检查本地意图分类器模型失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 模型文件有变化时重新加载
+     *
+     * @return 是否存在可用的模型文件
+     */
+    private boolean reloadIfChanged() {
+        Path file = path(properties.getModelPath());
+        if (file == null || !Files.exists(file)) {
+            return false;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified != lastModified) {
+                NaiveBayesIntentModel loaded = objectMapper.readValue(file.toFile(), NaiveBayesIntentModel.class);
+                this.model = loaded;
+                this.lastModified = modified;
+                log.info("本地意图分类器模型已加载: {}，样本数: {}", file, loaded.getSampleCount());
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("加载本地意图分类器模型失败，保留当前模型: {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免热加载读到写了一半的模型
+     */
+    private void saveModel(NaiveBayesIntentModel trained) throws IOException {
+        Path file = path(properties.getModelPath());
+        if (file == null) {
+            return;
+        }
+        createParent(file);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), trained);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastModified = Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private static void createParent(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    private static Path path(String location) {
+        return location == null || location.isBlank() ? null : Paths.get(location);
+    }
+
+    private static double ratio(int part, int total) {
+        return total == 0 ? 0.0 : (double) part / total;
+    }
+}
@@ -0,0 +1,211 @@
+package com.mycoffeestore.service.routing;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字符 n-gram 多项式朴素贝叶斯意图模型
+ * <p>
+ * 输入先按 {@link IntentResultCache#normalize(String)} 规范化（去空白标点、转小写），
+ * 再切分为长度 [minNgram, maxNgram] 的字符 n-gram 作为特征，拉普拉斯平滑。
+ * 预测时只累加模型中出现过的 n-gram 的对数似然；同一段字符会按每种长度各计一次，
+ * 因此对数似然按 n-gram 长度种数折算后再做 softmax，避免重叠特征把后验概率推到 0/1，使置信度阈值有意义。
+ * <p>
+ * 模型为普通 POJO，直接用 Jackson 读写；训练完成后不再修改，可在多线程间共享。
+ *
+ * @author zhoulu
+ * @since 2026-03-13
+ */
+@Data
+@NoArgsConstructor
+@Schema(description = "字符 n-gram 朴素贝叶斯意图模型")
+public class NaiveBayesIntentModel {
+
+    /**
+     * 平滑系数
+     */
+    private static final double ALPHA = 1.0;
+
+    /**
+     * 意图代码（下标即类别下标）
+     */
+    @Schema(description = "意图代码")
+    private List<String> labels;
+
+    @Schema(description = "n-gram 最小长度")
+    private int minNgram;
+
+    @Schema(description = "n-gram 最大长度")
+    private int maxNgram;
+
+    /**
+     * 训练样本数
+     */
+    @Schema(description = "训练样本数")
+    private int sampleCount;
+
+    /**
+     * 训练时间（毫秒时间戳）
+     */
+    @Schema(description = "训练时间")
+    private long trainedAt;
+
+    /**
+     * 各类别的对数先验
+     */
+    @Schema(description = "各类别的对数先验")
+    private double[] logPriors;
+
+    /**
+     * n-gram -> 各类别的对数似然
+     */
+    @Schema(description = "n-gram 对数似然")
+    private Map<String, double[]> features;
+
+    /**
+     * 训练样本
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "意图训练样本")
+    public static class Sample {
+
+        @Schema(description = "用户输入")
+        private String text;
+
+        @Schema(description = "意图代码")
+        private String intent;
+
+        /**
+         * 样本来源（seed / llm）
+         */
+        @Schema(description = "样本来源")
+        private String source;
+    }
+
+    /**
+     * 预测结果
+     *
+     * @param intent     意图代码
+     * @param confidence 后验概率
+     */
+    public record Prediction(String intent, double confidence) {
+    }
+
+    /**
+     * 训练模型
+     *
+     * @param samples  训练样本
+     * @param minNgram n-gram 最小长度
+     * @param maxNgram n-gram 最大长度
+     * @return 模型
+     */
+    public static NaiveBayesIntentModel train(List<Sample> samples, int minNgram, int maxNgram) {
+        Map<String, Integer> labelIndex = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            labelIndex.putIfAbsent(sample.getIntent(), labelIndex.size());
+        }
+        int classes = labelIndex.size();
+
+        int[] docCounts = new int[classes];
+        long[] totals = new long[classes];
+        Map<String, long[]> counts = new HashMap<>();
+        for (Sample sample : samples) {
+            int c = labelIndex.get(sample.getIntent());
+            docCounts[c]++;
+            for (String gram : ngrams(sample.getText(), minNgram, maxNgram)) {
+                counts.computeIfAbsent(gram, k -> new long[classes])[c]++;
+                totals[c]++;
+            }
+        }
+
+        int vocabulary = counts.size();
+        double[] logPriors = new double[classes];
+        for (int c = 0; c < classes; c++) {
+            logPriors[c] = Math.log((docCounts[c] + ALPHA) / (samples.size() + ALPHA * classes));
+        }
+        Map<String, double[]> features = new HashMap<>(counts.size() * 2);
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            double[] logLikelihood = new double[classes];
+            for (int c = 0; c < classes; c++) {
+                logLikelihood[c] = Math.log((entry.getValue()[c] + ALPHA) / (totals[c] + ALPHA * vocabulary));
+            }
+            features.put(entry.getKey(), logLikelihood);
+        }
+
+        NaiveBayesIntentModel model = new NaiveBayesIntentModel();
+        model.setLabels(new ArrayList<>(labelIndex.keySet()));
+        model.setMinNgram(minNgram);
+        model.setMaxNgram(maxNgram);
+        model.setSampleCount(samples.size());
+        model.setTrainedAt(System.currentTimeMillis());
+        model.setLogPriors(logPriors);
+        model.setFeatures(features);
+        return model;
+    }
+
+    /**
+     * 预测意图
+     *
+     * @param text 用户输入
+     * @return 预测结果；模型为空或输入中没有已知 n-gram 时返回 null
+     */
+    public Prediction predict(String text) {
+        if (labels == null || labels.isEmpty() || features == null) {
+            return null;
+        }
+        int classes = labels.size();
+        double[] likelihood = new double[classes];
+        int known = 0;
+        for (String gram : ngrams(text, minNgram, maxNgram)) {
+            double[] logLikelihood = features.get(gram);
+            if (logLikelihood != null) {
+                known++;
+                for (int c = 0; c < classes; c++) {
+                    likelihood[c] += logLikelihood[c];
+                }
+            }
+        }
+        if (known == 0) {
+            return null;
+        }
+
+        int orders = maxNgram - minNgram + 1;
+        int best = 0;
+        double[] scores = new double[classes];
+        for (int c = 0; c < classes; c++) {
+            scores[c] = logPriors[c] + likelihood[c] / orders;
+            if (scores[c] > scores[best]) {
+                best = c;
+            }
+        }
+        double sum = 0;
+        for (int c = 0; c < classes; c++) {
+            sum += Math.exp(scores[c] - scores[best]);
+        }
+        return new Prediction(labels.get(best), 1.0 / sum);
+    }
+
+    /**
+     * 切分字符 n-gram
+     */
+    static List<String> ngrams(String text, int minNgram, int maxNgram) {
+        String normalized = IntentResultCache.normalize(text);
+        List<String> grams = new ArrayList<>(normalized.length() * (maxNgram - minNgram + 1));
+        for (int n = minNgram; n <= maxNgram; n++) {
+            for (int i = 0; i + n <= normalized.length(); i++) {
+                grams.add(normalized.substring(i, i + n));
+            }
+        }
+        return grams;
+    }
+}
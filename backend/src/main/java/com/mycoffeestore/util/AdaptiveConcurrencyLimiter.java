@@ -0,0 +1,224 @@
+package com.mycoffeestore.util;
+
+import com.mycoffeestore.config.AgentProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限制器（Gradient 算法）
+ * <p>
+ * 不预设固定并发上限，而是根据上游延迟自动调整允许的在途请求数：
+ * <ul>
+ *     <li>每个请求结束时提交一次延迟样本：有首个文本增量时取首字延迟（TTFT），否则取完成耗时</li>
+ *     <li>长期延迟为样本的指数移动平均，梯度 = tolerance × 长期延迟 / 本次延迟，限制在 [0.5, 1]</li>
+ *     <li>新上限 = 当前上限 × 梯度 + √当前上限，再与当前上限按 smoothing 平滑，夹在 [minLimit, maxLimit]</li>
+ *     <li>延迟升高时梯度小于 1，上限随之收缩，超出上限的新请求直接拒绝；
+ *     上游出错或超时按 backoffRatio 乘性下调</li>
+ *     <li>在途请求不足上限一半时不再上调（下调不受影响），避免空闲时上限无限增长</li>
+ * </ul>
+ * 指标：{@code agent.concurrency.limit{name}}、{@code agent.concurrency.inflight{name}}、
+ * {@code agent.concurrency.rejected{name}}、{@code agent.concurrency.rtt{name}}
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 长期延迟 EMA 的预热样本数，之前使用简单平均
+     */
+    private static final int WARMUP_SAMPLES = 10;
+
+    private final String name;
+    private final AgentProperties.AdaptiveLimitConfig config;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /**
+     * 当前上限（浮点，取整后用于准入判断）
+     */
+    private volatile double estimatedLimit;
+
+    /**
+     * 长期延迟（纳秒），只在 {@link #onSample} 中读写
+     */
+    private double longRtt;
+    private long sampleCount;
+
+    private final Counter rejectedCounter;
+    private final Timer rttTimer;
+
+    /**
+     * 请求结束方式
+     */
+    public enum Outcome {
+        /**
+         * 正常完成，提交延迟样本
+         */
+        SUCCESS,
+        /**
+         * 上游出错或超时，乘性下调上限
+         */
+        DROPPED,
+        /**
+         * 客户端断开等与上游无关的结束，只释放名额
+         */
+        IGNORE
+    }
+
+    /**
+     * 准入令牌，每个被放行的请求持有一个，结束时必须释放
+     */
+    public final class Token {
+
+        private final long startNanos = System.nanoTime();
+        private final int inflightAtStart;
+        private volatile long firstByteNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Token(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /**
+         * 记录首个文本增量到达时间（只记录第一次）
+         */
+        public void onFirstByte() {
+            if (firstByteNanos == 0) {
+                firstByteNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * 释放令牌（幂等）
+         *
+         * @param outcome 结束方式
+         */
+        public void release(Outcome outcome) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            inflight.decrementAndGet();
+            long end = firstByteNanos != 0 ? firstByteNanos : System.nanoTime();
+            onSample(end - startNanos, inflightAtStart, outcome);
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter(String name, AgentProperties.AdaptiveLimitConfig config,
+                                      MeterRegistry meterRegistry) {
+        this.name = name;
+        this.config = config;
+        this.estimatedLimit = clamp(config.getInitialLimit());
+        Gauge.builder("agent.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("自适应并发上限")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("agent.concurrency.inflight", inflight, AtomicInteger::get)
+                .description("在途请求数")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("agent.concurrency.rejected")
+                .description("超出自适应并发上限被拒绝的请求数")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rttTimer = Timer.builder("agent.concurrency.rtt")
+                .description("用于调整并发上限的延迟样本（首字延迟或完成耗时）")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试获取准入令牌
+     *
+     * @return 令牌；超出当前上限时返回 null
+     */
+    public Token tryAcquire() {
+        if (!config.isEnabled()) {
+            return new Token(inflight.incrementAndGet());
+        }
+        while (true) {
+            int current = inflight.get();
+            if (current >= getLimit()) {
+                rejectedCounter.increment();
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return new Token(current + 1);
+            }
+        }
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 提交一次样本并调整上限
+     *
+     * @param rttNanos        延迟样本（纳秒）
+     * @param inflightAtStart 请求开始时的在途请求数
+     * @param outcome         结束方式
+     */
+    synchronized void onSample(long rttNanos, int inflightAtStart, Outcome outcome) {
+        if (outcome == Outcome.IGNORE || !config.isEnabled()) {
+            return;
+        }
+        if (outcome == Outcome.DROPPED) {
+            updateLimit(estimatedLimit * config.getBackoffRatio());
+            return;
+        }
+
+        rttTimer.record(rttNanos, TimeUnit.NANOSECONDS);
+        double shortRtt = Math.max(1, rttNanos);
+        sampleCount++;
+        if (sampleCount <= WARMUP_SAMPLES) {
+            longRtt += (shortRtt - longRtt) / sampleCount;
+        } else {
+            double factor = 2.0 / (config.getLongWindow() + 1);
+            longRtt = longRtt * (1 - factor) + shortRtt * factor;
+        }
+        // 长期延迟远高于当前延迟时（上游已恢复）加速回落，避免长期延迟拖住上限
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, config.getTolerance() * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+
+        // 应用自身负载不足时不上调；延迟升高导致的下调照常进行
+        if (newLimit > estimatedLimit && inflightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        updateLimit(estimatedLimit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing());
+    }
+
+    private void updateLimit(double newLimit) {
+        double clamped = clamp(newLimit);
+        if ((int) clamped != (int) estimatedLimit) {
+            log.debug("自适应并发上限调整: name={}, {} -> {}", name, (int) estimatedLimit, (int) clamped);
+        }
+        estimatedLimit = clamped;
+    }
+
+    private double clamp(double limit) {
+        return Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), limit));
+    }
+}
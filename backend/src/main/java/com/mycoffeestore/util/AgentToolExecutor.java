@@ -36,13 +36,20 @@ public class AgentToolExecutor {
     private final CartService cartService;
     private final OrderService orderService;
     private final ObjectMapper objectMapper;
+    private final ToolResultCache toolResultCache;
 
-    // 角色对应的可用工具
-    private static final Map<String, List<String>> ROLE_TOOLS = Map.of(
-        "coffee_advisor", List.of("search_coffee", "get_coffee_detail", "get_categories"),
-        "customer_service", List.of("get_order_detail", "get_order_list"),
-        "order_assistant", List.of("search_coffee", "add_to_cart", "get_cart", "create_order", "get_order_list", "get_order_detail")
-    );
+    private final ToolDefinitionRegistry toolRegistry;
+    private final ToolResultProjector toolResultProjector;
+
+    /**
+     * 判断工具是否只读
+     *
+     * @param toolName 工具名
+     * @return 只读工具返回 true；写操作（加购、下单）及未知工具返回 false
+     */
+    public boolean isReadOnly(String toolName) {
+        return toolRegistry.isReadOnly(toolName);
+    }
 
     /**
      * 执行工具调用
@@ -53,80 +60,57 @@ public class AgentToolExecutor {
      * @return 结果 JSON 字符串
      */
     public String executeTool(String toolName, String argsJson, Long userId) {
+        return executeTool(toolName, argsJson, userId, null);
+    }
+
+    /**
+     * 执行工具调用，并按 Agent 的投影配置把结果裁剪为返回给模型的紧凑 JSON
+     * （结果缓存中保存的始终是完整结果）
+     *
+     * @param toolName  工具名
+     * @param argsJson  参数 JSON 字符串
+     * @param userId    用户ID（可为 null，表示未登录）
+     * @param agentType Agent 类型（为 null 时不投影）
+     * @return 结果 JSON 字符串
+     */
+    public String executeTool(String toolName, String argsJson, Long userId, String agentType) {
         log.info("执行工具调用: {} 参数: {} userId: {}", toolName, argsJson, userId);
+        boolean project = toolResultProjector.isEnabled(agentType);
         try {
             JsonNode args = objectMapper.readTree(argsJson != null ? argsJson : "{}");
-            Object result = switch (toolName) {
-                case "search_coffee" -> {
-                    String category = args.has("category") ? args.get("category").asText() : null;
-                    int page = args.has("page") ? args.get("page").asInt() : 1;
-                    int size = args.has("size") ? args.get("size").asInt() : 10;
-                    yield coffeeService.list(category, page, size);
-                }
-                case "get_coffee_detail" -> {
-                    long coffeeId = args.get("coffeeId").asLong();
-                    yield coffeeService.detail(coffeeId);
-                }
-                case "get_categories" -> coffeeService.categories();
-                case "add_to_cart" -> {
-                    if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
-                    CartAddDTO dto = CartAddDTO.builder()
-                            .coffeeId(args.get("coffeeId").asLong())
-                            .quantity(args.get("quantity").asInt())
-                            .build();
-                    cartService.add(userId, dto);
-                    yield Map.of("success", true, "message", "已添加到购物车");
-                }
-                case "get_cart" -> {
-                    if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
-                    yield cartService.list(userId);
-                }
-                case "create_order" -> {
-                    if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
-                    String orderTypeStr = args.has("orderType") ? args.get("orderType").asText() : "dine_in";
-                    OrderType orderType = OrderType.fromCode(orderTypeStr);
-                    String remark = args.has("remark") ? args.get("remark").asText() : null;
-
-                    // 从 items 参数构造订单项
-                    List<OrderItemDTO> items = new ArrayList<>();
-                    if (args.has("items") && args.get("items").isArray()) {
-                        for (JsonNode itemNode : args.get("items")) {
-                            OrderItemDTO item = OrderItemDTO.builder()
-                                    .coffeeId(itemNode.get("coffeeId").asLong())
-                                    .quantity(itemNode.get("quantity").asInt())
-                                    .price(new BigDecimal(itemNode.get("price").asText()))
-                                    .build();
-                            items.add(item);
-                        }
-                    }
 
-                    if (items.isEmpty()) {
-                        yield Map.of("error", "订单项不能为空，请至少添加一个商品");
-                    }
-
-                    OrderCreateDTO dto = OrderCreateDTO.builder()
-                            .orderType(orderType)
-                            .items(items)
-                            .remark(remark)
-                            .build();
-                    yield orderService.create(userId, dto);
-                }
-                case "get_order_list" -> {
-                    if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
-                    String statusStr = args.has("status") ? args.get("status").asText() : null;
-                    OrderStatus status = statusStr != null ? OrderStatus.fromCode(statusStr) : null;
-                    int page = args.has("page") ? args.get("page").asInt() : 1;
-                    int size = args.has("size") ? args.get("size").asInt() : 10;
-                    yield orderService.list(userId, "user", status, page, size);
+            // 只读工具先查结果缓存（缓存的是序列化后的 JSON，投影后的结果按 Agent 缓存在同一条目中）
+            ToolResultCache.Key cacheKey = toolResultCache.keyOf(toolName, args, userId);
+            if (cacheKey != null) {
+                String cached = project
+                        ? toolResultCache.get(cacheKey, agentType,
+                                json -> toolResultProjector.project(agentType, toolName, objectMapper.readTree(json)))
+                        : toolResultCache.get(cacheKey);
+                if (cached != null) {
+                    return cached;
                 }
-                case "get_order_detail" -> {
-                    if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
-                    String orderId = args.get("orderId").asText();
-                    yield orderService.detail(userId, orderId);
+            }
+
+            // 注册了执行器的工具（包括覆盖内置工具的同名注册）由执行器执行，其余走内置分发
+            ToolDefinitionRegistry.ToolDefinition definition = toolRegistry.get(toolName);
+            Object result = definition != null && definition.handler() != null
+                    ? definition.handler().execute(args, userId)
+                    : executeBuiltin(toolName, args, userId);
+            boolean cacheable = cacheKey != null && !(result instanceof Map<?, ?> map && map.containsKey("error"));
+            if (!project) {
+                String json = objectMapper.writeValueAsString(result);
+                if (cacheable) {
+                    toolResultCache.put(cacheKey, json);
                 }
-                default -> Map.of("error", "未知工具: " + toolName);
-            };
-            return objectMapper.writeValueAsString(result);
+                return json;
+            }
+            // 投影时完整结果只在需要缓存时序列化
+            JsonNode tree = objectMapper.valueToTree(result);
+            String projected = toolResultProjector.project(agentType, toolName, tree);
+            if (cacheable) {
+                toolResultCache.put(cacheKey, objectMapper.writeValueAsString(tree), agentType, projected);
+            }
+            return projected;
         } catch (Exception e) {
             log.error("工具执行失败: {} - {}", toolName, e.getMessage(), e);
             try {
@@ -138,107 +122,93 @@ public class AgentToolExecutor {
     }
 
     /**
-     * 获取指定角色的工具定义列表（OpenAI function calling 格式）
+     * 内置工具分发
      *
-     * @param agentType 角色类型
-     * @return 工具定义列表
+     * @param toolName 工具名
+     * @param args     参数
+     * @param userId   用户ID（可为 null，表示未登录）
+     * @return 结果对象
      */
-    public List<Map<String, Object>> getToolDefinitions(String agentType) {
-        List<String> toolNames = ROLE_TOOLS.getOrDefault(agentType, List.of());
-        List<Map<String, Object>> tools = new ArrayList<>();
-
-        for (String name : toolNames) {
-            Map<String, Object> tool = buildToolDefinition(name);
-            if (tool != null) {
-                tools.add(tool);
+    private Object executeBuiltin(String toolName, JsonNode args, Long userId) {
+        return switch (toolName) {
+            case "search_coffee" -> {
+                String category = args.has("category") ? args.get("category").asText() : null;
+                int page = args.has("page") ? args.get("page").asInt() : 1;
+                int size = args.has("size") ? args.get("size").asInt() : 10;
+                yield coffeeService.list(category, page, size);
             }
-        }
-        return tools;
-    }
+            case "get_coffee_detail" -> {
+                long coffeeId = args.get("coffeeId").asLong();
+                yield coffeeService.detail(coffeeId);
+            }
+            case "get_categories" -> coffeeService.categories();
+            case "add_to_cart" -> {
+                if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
+                CartAddDTO dto = CartAddDTO.builder()
+                        .coffeeId(args.get("coffeeId").asLong())
+                        .quantity(args.get("quantity").asInt())
+                        .build();
+                cartService.add(userId, dto);
+                yield Map.of("success", true, "message", "已添加到购物车");
+            }
+            case "get_cart" -> {
+                if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
+                yield cartService.list(userId);
+            }
+            case "create_order" -> {
+                if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
+                String orderTypeStr = args.has("orderType") ? args.get("orderType").asText() : "dine_in";
+                OrderType orderType = OrderType.fromCode(orderTypeStr);
+                String remark = args.has("remark") ? args.get("remark").asText() : null;
 
-    private Map<String, Object> buildToolDefinition(String name) {
-        return switch (name) {
-            case "search_coffee" -> buildFunction("search_coffee", "搜索咖啡列表，支持按分类筛选",
-                Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "category", Map.of("type", "string", "description", "咖啡分类名称（可选）"),
-                        "page", Map.of("type", "integer", "description", "页码，默认1"),
-                        "size", Map.of("type", "integer", "description", "每页数量，默认10")
-                    ),
-                    "required", List.of()
-                ));
-            case "get_coffee_detail" -> buildFunction("get_coffee_detail", "获取某款咖啡的详细信息",
-                Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "coffeeId", Map.of("type", "integer", "description", "咖啡ID")
-                    ),
-                    "required", List.of("coffeeId")
-                ));
-            case "get_categories" -> buildFunction("get_categories", "获取所有咖啡分类列表",
-                Map.of("type", "object", "properties", Map.of(), "required", List.of()));
-            case "add_to_cart" -> buildFunction("add_to_cart", "将咖啡添加到用户购物车（需要用户已登录）",
-                Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "coffeeId", Map.of("type", "integer", "description", "咖啡ID"),
-                        "quantity", Map.of("type", "integer", "description", "数量")
-                    ),
-                    "required", List.of("coffeeId", "quantity")
-                ));
-            case "get_cart" -> buildFunction("get_cart", "获取用户购物车内容（需要用户已登录）",
-                Map.of("type", "object", "properties", Map.of(), "required", List.of()));
-            case "create_order" -> buildFunction("create_order", "为用户创建订单（需要用户已登录）",
-                Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "orderType", Map.of("type", "string", "description", "订单类型：dine_in（堂食）/ takeaway（外带）/ delivery（外卖）"),
-                        "items", Map.of("type", "array", "description", "订单项列表",
-                            "items", Map.of("type", "object",
-                                "properties", Map.of(
-                                    "coffeeId", Map.of("type", "integer", "description", "咖啡ID"),
-                                    "quantity", Map.of("type", "integer", "description", "数量"),
-                                    "price", Map.of("type", "number", "description", "单价")
-                                ),
-                                "required", List.of("coffeeId", "quantity", "price"))),
-                        "remark", Map.of("type", "string", "description", "备注（可选）")
-                    ),
-                    "required", List.of("orderType", "items")
-                ));
-            case "get_order_list" -> buildFunction("get_order_list", "查询用户订单列表（需要用户已登录）",
-                Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "status", Map.of("type", "string", "description", "订单状态筛选：pending/confirmed/preparing/ready/completed/cancelled（可选）"),
-                        "page", Map.of("type", "integer", "description", "页码，默认1"),
-                        "size", Map.of("type", "integer", "description", "每页数量，默认10")
-                    ),
-                    "required", List.of()
-                ));
-            case "get_order_detail" -> buildFunction("get_order_detail", "查询订单详情（需要用户已登录）",
-                Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "orderId", Map.of("type", "string", "description", "订单号")
-                    ),
-                    "required", List.of("orderId")
-                ));
-            default -> null;
+                // 从 items 参数构造订单项
+                List<OrderItemDTO> items = new ArrayList<>();
+                if (args.has("items") && args.get("items").isArray()) {
+                    for (JsonNode itemNode : args.get("items")) {
+                        OrderItemDTO item = OrderItemDTO.builder()
+                                .coffeeId(itemNode.get("coffeeId").asLong())
+                                .quantity(itemNode.get("quantity").asInt())
+                                .price(new BigDecimal(itemNode.get("price").asText()))
+                                .build();
+                        items.add(item);
+                    }
+                }
+
+                if (items.isEmpty()) {
+                    yield Map.of("error", "订单项不能为空，请至少添加一个商品");
+                }
+
+                OrderCreateDTO dto = OrderCreateDTO.builder()
+                        .orderType(orderType)
+                        .items(items)
+                        .remark(remark)
+                        .build();
+                yield orderService.create(userId, dto);
+            }
+            case "get_order_list" -> {
+                if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
+                String statusStr = args.has("status") ? args.get("status").asText() : null;
+                OrderStatus status = statusStr != null ? OrderStatus.fromCode(statusStr) : null;
+                int page = args.has("page") ? args.get("page").asInt() : 1;
+                int size = args.has("size") ? args.get("size").asInt() : 10;
+                yield orderService.list(userId, "user", status, page, size);
+            }
+            case "get_order_detail" -> {
+                if (userId == null) yield Map.of("error", "该操作需要登录，请先登录");
+                String orderId = args.get("orderId").asText();
+                yield orderService.detail(userId, orderId);
+            }
+            default -> Map.of("error", "未知工具: " + toolName);
         };
     }
 
     /**
-     * 构建 OpenAI function 工具定义
+     * 获取指定角色的工具定义列表（OpenAI function calling 格式）
+     *
+     * @param agentType 角色类型
+     * @return 工具定义列表（不可变，启动时编译）
      */
-    private Map<String, Object> buildFunction(String name, String description, Map<String, Object> parameters) {
-        return Map.of(
-            "type", "function",
-            "function", Map.of(
-                "name", name,
-                "description", description,
-                "parameters", parameters
-            )
-        );
+    public List<Map<String, Object>> getToolDefinitions(String agentType) {
+        return toolRegistry.forAgent(agentType).definitions();
     }
 }
@@ -0,0 +1,292 @@
+package com.mycoffeestore.util;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick 多关键词匹配器
+ * <p>
+ * 将若干分组的关键词预编译为一个自动机，对输入只扫描一遍即可得到每个分组命中的关键词数量。
+ * 匹配不区分大小写；同一关键词在输入中出现多次只计一次，与逐个 {@code String.contains} 的计数语义一致
+ * （分组内重复配置的关键词按重复次数计分）。
+ * <p>
+ * 实例构建后不可变，可在多线程间共享；需要更新关键词时重新构建并整体替换。
+ *
+ * @author zhoulu
+ * @since 2026-03-11
+ */
+public final class AhoCorasickMatcher {
+
+    private static final char[] EMPTY_KEYS = new char[0];
+    private static final int[] EMPTY_INTS = new int[0];
+
+    /**
+     * 分组名称（按构建顺序）
+     */
+    private final List<String> groups;
+
+    /**
+     * 分组名称 -> 分组下标
+     */
+    private final Map<String, Integer> groupIndex;
+
+    /**
+     * 每个状态的出边字符（有序）与目标状态
+     */
+    private final char[][] edgeKeys;
+    private final int[][] edgeTargets;
+
+    /**
+     * 失配指针
+     */
+    private final int[] fail;
+
+    /**
+     * 每个状态直接结束的关键词 ID
+     */
+    private final int[][] outputs;
+
+    /**
+     * 沿失配链最近的、有输出的状态（-1 表示没有）
+     */
+    private final int[] dictLink;
+
+    /**
+     * 关键词 ID -> 分组下标
+     */
+    private final int[] keywordGroup;
+
+    /**
+     * 关键词 ID -> 计分权重（分组内重复配置的次数）
+     */
+    private final int[] keywordWeight;
+
+    private AhoCorasickMatcher(List<String> groups, Map<String, Integer> groupIndex,
+                               char[][] edgeKeys, int[][] edgeTargets, int[] fail,
+                               int[][] outputs, int[] dictLink, int[] keywordGroup, int[] keywordWeight) {
+        this.groups = groups;
+        this.groupIndex = groupIndex;
+        this.edgeKeys = edgeKeys;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.dictLink = dictLink;
+        this.keywordGroup = keywordGroup;
+        this.keywordWeight = keywordWeight;
+    }
+
+    /**
+     * 根据分组关键词构建匹配器
+     *
+     * @param keywordGroups 分组名称 -> 关键词列表（保持迭代顺序）
+     * @return 匹配器
+     */
+    public static AhoCorasickMatcher build(Map<String, ? extends Collection<String>> keywordGroups) {
+        List<String> groups = new ArrayList<>(keywordGroups.keySet());
+        Map<String, Integer> groupIndex = new HashMap<>();
+        for (int i = 0; i < groups.size(); i++) {
+            groupIndex.put(groups.get(i), i);
+        }
+
+        // 1. 去重关键词：(分组, 关键词) -> 权重
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordGroupIds = new ArrayList<>();
+        List<Integer> keywordWeights = new ArrayList<>();
+        for (int g = 0; g < groups.size(); g++) {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            Collection<String> words = keywordGroups.get(groups.get(g));
+            if (words == null) {
+                continue;
+            }
+            for (String word : words) {
+                if (word != null && !word.isEmpty()) {
+                    weights.merge(word.toLowerCase(Locale.ROOT), 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                keywords.add(entry.getKey());
+                keywordGroupIds.add(g);
+                keywordWeights.add(entry.getValue());
+            }
+        }
+
+        // 2. 构建 Trie
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        nodeOutputs.add(new ArrayList<>());
+        for (int id = 0; id < keywords.size(); id++) {
+            String word = keywords.get(id);
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    nodeOutputs.add(new ArrayList<>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            nodeOutputs.get(state).add(id);
+        }
+
+        int size = trie.size();
+        char[][] edgeKeys = new char[size][];
+        int[][] edgeTargets = new int[size][];
+        int[][] outputs = new int[size][];
+        for (int s = 0; s < size; s++) {
+            TreeMap<Character, Integer> edges = trie.get(s);
+            if (edges.isEmpty()) {
+                edgeKeys[s] = EMPTY_KEYS;
+                edgeTargets[s] = EMPTY_INTS;
+            } else {
+                edgeKeys[s] = new char[edges.size()];
+                edgeTargets[s] = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    edgeKeys[s][i] = edge.getKey();
+                    edgeTargets[s][i] = edge.getValue();
+                    i++;
+                }
+            }
+            List<Integer> out = nodeOutputs.get(s);
+            outputs[s] = out.isEmpty() ? EMPTY_INTS : out.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // 3. BFS 计算失配指针与输出链接
+        int[] fail = new int[size];
+        int[] dictLink = new int[size];
+        Arrays.fill(dictLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int i = 0; i < edgeKeys[s].length; i++) {
+                char c = edgeKeys[s][i];
+                int t = edgeTargets[s][i];
+                int f = fail[s];
+                int next;
+                while ((next = step(edgeKeys, edgeTargets, f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[t] = next >= 0 ? next : 0;
+                dictLink[t] = outputs[fail[t]].length > 0 ? fail[t] : dictLink[fail[t]];
+                queue.add(t);
+            }
+        }
+
+        return new AhoCorasickMatcher(
+                Collections.unmodifiableList(groups),
+                Collections.unmodifiableMap(groupIndex),
+                edgeKeys, edgeTargets, fail, outputs, dictLink,
+                keywordGroupIds.stream().mapToInt(Integer::intValue).toArray(),
+                keywordWeights.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 单遍扫描输入，统计每个分组命中的关键词数量
+     *
+     * @param text 输入文本（为 null 时视为空串）
+     * @return 命中结果
+     */
+    public Hits match(String text) {
+        int[] counts = new int[groups.size()];
+        if (text == null || text.isEmpty() || keywordGroup.length == 0) {
+            return new Hits(counts);
+        }
+
+        boolean[] seen = new boolean[keywordGroup.length];
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(edgeKeys, edgeTargets, state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next >= 0 ? next : 0;
+
+            for (int s = outputs[state].length > 0 ? state : dictLink[state]; s >= 0; s = dictLink[s]) {
+                for (int id : outputs[s]) {
+                    if (!seen[id]) {
+                        seen[id] = true;
+                        counts[keywordGroup[id]] += keywordWeight[id];
+                    }
+                }
+            }
+        }
+        return new Hits(counts);
+    }
+
+    /**
+     * 获取分组名称列表
+     */
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * 获取关键词总数（去重后）
+     */
+    public int getKeywordCount() {
+        return keywordGroup.length;
+    }
+
+    private static int step(char[][] edgeKeys, int[][] edgeTargets, int state, char c) {
+        int i = Arrays.binarySearch(edgeKeys[state], c);
+        return i >= 0 ? edgeTargets[state][i] : -1;
+    }
+
+    /**
+     * 单次匹配结果：每个分组命中的关键词数量
+     */
+    public final class Hits {
+
+        private final int[] counts;
+
+        private Hits(int[] counts) {
+            this.counts = counts;
+        }
+
+        /**
+         * 获取指定分组的命中数，分组不存在时返回 0
+         */
+        public int count(String group) {
+            Integer index = groupIndex.get(group);
+            return index != null ? counts[index] : 0;
+        }
+
+        /**
+         * 指定分组是否有命中
+         */
+        public boolean matches(String group) {
+            return count(group) > 0;
+        }
+
+        /**
+         * 是否没有任何命中
+         */
+        public boolean isEmpty() {
+            for (int count : counts) {
+                if (count > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 转换为分组名称 -> 命中数
+         */
+        public Map<String, Integer> toMap() {
+            Map<String, Integer> map = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                map.put(groups.get(i), counts[i]);
+            }
+            return map;
+        }
+    }
+}
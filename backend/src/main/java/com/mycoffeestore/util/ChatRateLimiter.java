@@ -0,0 +1,132 @@
+package com.mycoffeestore.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mycoffeestore.config.AgentProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天请求限流器
+ * <p>
+ * 登录用户按 userId、未登录按客户端 IP 各自一个令牌桶，防止单个客户端突发请求耗尽上游配额：
+ * <ul>
+ *     <li>令牌桶按 {@code refillPerMinute} 匀速补充，最多累积 {@code capacity} 个</li>
+ *     <li>令牌桶对象存放在有界 Caffeine 缓存中，空闲超时后回收</li>
+ *     <li>桶状态的读写按键哈希分段加锁，不同分段的用户互不竞争</li>
+ * </ul>
+ * 指标：{@code agent.rate_limit.requests{result=allowed|rejected}}
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+@Slf4j
+@Component
+public class ChatRateLimiter {
+
+    private final AgentProperties.RateLimitConfig config;
+
+    /**
+     * 每个令牌的补充间隔（纳秒）
+     */
+    private final double nanosPerToken;
+
+    private final Object[] stripes;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final Counter allowedCounter;
+    private final Counter rejectedCounter;
+
+    /**
+     * 令牌桶状态，只在所属分段锁内读写
+     */
+    private static final class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefillNanos = now;
+        }
+    }
+
+    public ChatRateLimiter(AgentProperties agentProperties, MeterRegistry meterRegistry) {
+        this.config = agentProperties.getRateLimit();
+        this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / Math.max(config.getRefillPerMinute(), 1e-6);
+        this.stripes = new Object[Math.max(1, config.getStripes())];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaxKeys())
+                .expireAfterAccess(config.getIdleTimeout(), TimeUnit.SECONDS)
+                .build();
+        this.allowedCounter = Counter.builder("agent.rate_limit.requests")
+                .description("聊天请求限流结果")
+                .tag("result", "allowed")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("agent.rate_limit.requests")
+                .description("聊天请求限流结果")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param key 限流键（见 {@link #keyOf(Long, HttpServletRequest)}）
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key) {
+        if (!config.isEnabled()) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        int capacity = Math.max(1, config.getCapacity());
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(capacity, now));
+
+        boolean allowed;
+        synchronized (stripes[Math.floorMod(key.hashCode(), stripes.length)]) {
+            long elapsed = now - bucket.lastRefillNanos;
+            if (elapsed > 0) {
+                bucket.tokens = Math.min(capacity, bucket.tokens + elapsed / nanosPerToken);
+                bucket.lastRefillNanos = now;
+            }
+            allowed = bucket.tokens >= 1;
+            if (allowed) {
+                bucket.tokens -= 1;
+            }
+        }
+
+        if (allowed) {
+            allowedCounter.increment();
+        } else {
+            rejectedCounter.increment();
+            log.warn("聊天请求被限流: key={}", key);
+        }
+        return allowed;
+    }
+
+    /**
+     * 构建限流键：登录用户按 userId，未登录按客户端 IP
+     * 客户端 IP 取 {@code request.getRemoteAddr()}：部署在反向代理之后时由 server.forward-headers-strategy
+     * 只按受信代理转发的 X-Forwarded-For 还原，客户端自行携带的请求头不能绕过限流
+     *
+     * @param userId  用户ID（未登录为 null）
+     * @param request HTTP 请求
+     * @return 限流键
+     */
+    public static String keyOf(Long userId, HttpServletRequest request) {
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,195 @@
+package com.mycoffeestore.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mycoffeestore.config.ConversationCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Agent 会话历史缓存
+ * <p>
+ * 按会话（userId_agentType）缓存最近的消息历史，避免每轮对话都从数据库加载：
+ * <ul>
+ *     <li>按估算内存占用加权限制总量，超出时淘汰最久未使用的会话；会话空闲超时后过期</li>
+ *     <li>缓存的历史是不可变快照，追加消息通过按键原子的 compute 生成新快照，
+ *     同一会话的并发请求不会互相覆盖，已交给模型的消息列表也不会被修改</li>
+ *     <li>单个会话超过消息数上限时丢弃最早的非系统消息</li>
+ * </ul>
+ * 指标：{@code agent.conversation.cache.requests{result=hit|miss}}、
+ * {@code agent.conversation.cache.evictions{cause=size|expired}}、
+ * {@code agent.conversation.cache.size}、{@code agent.conversation.cache.weight}（估算字节数）
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Component
+public class ConversationHistoryCache {
+
+    /**
+     * 每条消息的固定开销估算（对象头、元数据 Map 等，字节）
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+
+    private final int maxMessages;
+    private final Cache<String, History> cache;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * 会话历史快照
+     *
+     * @param messages 消息（不可变）
+     * @param weight   估算字节数
+     */
+    private record History(List<Message> messages, int weight) {
+
+        static History of(List<Message> messages) {
+            int weight = 0;
+            for (Message message : messages) {
+                weight += weigh(message);
+            }
+            return new History(List.copyOf(messages), weight);
+        }
+    }
+
+    public ConversationHistoryCache(ConversationCacheProperties properties, MeterRegistry meterRegistry) {
+        this.maxMessages = Math.max(1, properties.getMaxMessages());
+
+        Counter sizeEvictions = evictionCounter(meterRegistry, "size");
+        Counter expiredEvictions = evictionCounter(meterRegistry, "expired");
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxWeight().toBytes())
+                .weigher((String key, History history) -> history.weight())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .evictionListener((String key, History history, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        expiredEvictions.increment();
+                    } else if (cause == RemovalCause.SIZE) {
+                        sizeEvictions.increment();
+                    }
+                })
+                .build();
+
+        this.hitCounter = Counter.builder("agent.conversation.cache.requests")
+                .description("Agent 会话历史缓存请求数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("agent.conversation.cache.requests")
+                .description("Agent 会话历史缓存请求数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("agent.conversation.cache.size", cache, Cache::estimatedSize)
+                .description("Agent 会话历史缓存会话数")
+                .register(meterRegistry);
+        Gauge.builder("agent.conversation.cache.weight", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Agent 会话历史缓存估算占用（字节）")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter evictionCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("agent.conversation.cache.evictions")
+                .description("Agent 会话历史缓存淘汰数")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 读取会话历史，未命中时加载并写入缓存
+     * 加载在调用线程中进行（不持有缓存内部锁），并发加载同一会话时保留先写入的结果
+     *
+     * @param conversationId 会话 ID
+     * @param loader         加载历史（数据库）
+     * @return 历史快照（不可变）
+     */
+    public List<Message> getOrLoad(String conversationId, Supplier<List<Message>> loader) {
+        History history = cache.getIfPresent(conversationId);
+        if (history != null) {
+            hitCounter.increment();
+            return history.messages();
+        }
+        missCounter.increment();
+        History loaded = trim(loader.get());
+        History existing = cache.asMap().putIfAbsent(conversationId, loaded);
+        return existing != null ? existing.messages() : loaded.messages();
+    }
+
+    /**
+     * 向会话追加一条消息
+     * 同一会话的追加按键串行执行；会话在读取之后被淘汰时以调用方持有的快照为基础重新写入
+     *
+     * @param conversationId 会话 ID
+     * @param base           调用方持有的历史快照
+     * @param message        新消息
+     * @return 追加后的历史快照（不可变）
+     */
+    public List<Message> append(String conversationId, List<Message> base, Message message) {
+        History updated = cache.asMap().compute(conversationId, (key, current) -> {
+            List<Message> messages = new ArrayList<>(current != null ? current.messages() : base);
+            messages.add(message);
+            return trim(messages);
+        });
+        return updated.messages();
+    }
+
+    /**
+     * 删除会话
+     *
+     * @param conversationId 会话 ID
+     */
+    public void invalidate(String conversationId) {
+        cache.invalidate(conversationId);
+    }
+
+    /**
+     * 当前缓存的会话数（估算）
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 执行挂起的淘汰与过期清理
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * 超出消息数上限时丢弃最早的非系统消息（开头的系统提示保留）
+     */
+    private History trim(List<Message> messages) {
+        int systemCount = 0;
+        while (systemCount < messages.size() && messages.get(systemCount) instanceof SystemMessage) {
+            systemCount++;
+        }
+        int overflow = messages.size() - systemCount - maxMessages;
+        if (overflow <= 0) {
+            return History.of(messages);
+        }
+        List<Message> trimmed = new ArrayList<>(messages.size() - overflow);
+        trimmed.addAll(messages.subList(0, systemCount));
+        trimmed.addAll(messages.subList(systemCount + overflow, messages.size()));
+        return History.of(trimmed);
+    }
+
+    /**
+     * 估算单条消息的内存占用（UTF-16 字符 2 字节 + 固定开销）
+     */
+    private static int weigh(Message message) {
+        String content = message.getContent();
+        return MESSAGE_OVERHEAD_BYTES + (content != null ? content.length() * 2 : 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mycoffeestore.util;
+
+import com.mycoffeestore.service.routing.LocalIntentClassifier;
+import com.mycoffeestore.service.routing.NaiveBayesIntentModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 本地意图分类器离线评估启动器
+ * 只在 {@code intent-eval} profile 下注册，正常启动不加载，例如：
+ * {@code java -Dintent.classifier.eval=true -jar app.jar --spring.profiles.active=intent-eval --spring.main.web-application-type=none}
+ * <p>
+ * 通过系统属性控制：
+ * <ul>
+ *     <li>{@code -Dintent.classifier.train=true}：先用种子样本 + LLM 标注样本重新训练并写入模型文件</li>
+ *     <li>{@code -Dintent.classifier.eval=true}：输出当前模型与留出法（20%）在 LLM 标注样本上的准确率</li>
+ * </ul>
+ *
+ * @author zhoulu
+ * @since 2026-03-13
+ */
+@Slf4j
+@Component
+@Profile("intent-eval")
+@RequiredArgsConstructor
+public class IntentClassifierEvalRunner implements CommandLineRunner {
+
+    private final LocalIntentClassifier localIntentClassifier;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if ("true".equals(System.getProperty("intent.classifier.train", "false"))) {
+            log.info("检测到 intent.classifier.train=true，开始训练本地意图分类器...");
+            localIntentClassifier.retrain();
+        }
+
+        if (!"true".equals(System.getProperty("intent.classifier.eval", "false"))) {
+            return;
+        }
+
+        List<NaiveBayesIntentModel.Sample> samples = localIntentClassifier.loadLoggedSamples();
+        if (samples.isEmpty()) {
+            log.warn("没有 LLM 标注样本，跳过本地意图分类器评估");
+            return;
+        }
+
+        NaiveBayesIntentModel model = localIntentClassifier.getModel();
+        if (model == null) {
+            model = localIntentClassifier.retrain();
+        }
+        report("当前模型（含训练样本）", localIntentClassifier.evaluate(model, samples));
+        report("留出法 20%", localIntentClassifier.evaluateHoldout(0.2, 42L));
+    }
+
+    private void report(String title, LocalIntentClassifier.EvaluationReport report) {
+        log.info("""
+                        本地意图分类器评估 [{}]
+                          样本数: {}, 准确率: {}
+                          采纳数: {}, 覆盖率: {}, 采纳准确率: {}
+                          分意图准确率: {}""",
+                title, report.getTotal(), percent(report.getAccuracy()),
+                report.getAccepted(), percent(report.getCoverage()), percent(report.getAcceptedAccuracy()),
+                report.getPerIntentAccuracy().entrySet().stream()
+                        .map(e -> e.getKey() + "=" + percent(e.getValue()))
+                        .toList());
+    }
+
+    private static String percent(double value) {
+        return String.format("%.1f%%", value * 100);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mycoffeestore.util;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 持有自适应并发令牌的 SSE 发射器
+ * <p>
+ * 服务层照常向其发送事件（事件构建器或整帧写入均可），无需感知限流：
+ * <ul>
+ *     <li>第一个文本增量（{@code "type":"text"}）发出时记录首字延迟</li>
+ *     <li>发出过错误事件（{@code "type":"error"}）或异常结束、超时，按上游失败释放令牌</li>
+ *     <li>正常 {@link #complete()} 按成功释放；客户端断开只释放名额，不参与上限调整</li>
+ * </ul>
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+public class LimitedSseEmitter extends SseEmitter {
+
+    private static final String TEXT_MARKER = "\"type\":\"text\"";
+    private static final String ERROR_MARKER = "\"type\":\"error\"";
+
+    private final AdaptiveConcurrencyLimiter.Token token;
+    private volatile boolean firstByteSeen;
+    private volatile boolean failed;
+
+    public LimitedSseEmitter(Long timeout, AdaptiveConcurrencyLimiter.Token token) {
+        super(timeout);
+        this.token = token;
+        super.onTimeout(() -> token.release(AdaptiveConcurrencyLimiter.Outcome.DROPPED));
+        super.onError(e -> token.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE));
+    }
+
+    @Override
+    public synchronized void send(SseEventBuilder builder) throws IOException {
+        send(builder.build());
+    }
+
+    /**
+     * 整帧写入（如 {@link SseEventEncoder}）同样经过检查
+     */
+    @Override
+    public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+        if (!firstByteSeen || !failed) {
+            inspect(items);
+        }
+        super.send(items);
+    }
+
+    /**
+     * 提前释放令牌（如执行线程池拒绝，请求未到达上游），之后的结束不再提交样本
+     *
+     * @param outcome 结束方式
+     */
+    public void release(AdaptiveConcurrencyLimiter.Outcome outcome) {
+        token.release(outcome);
+    }
+
+    @Override
+    public synchronized void complete() {
+        super.complete();
+        token.release(failed ? AdaptiveConcurrencyLimiter.Outcome.DROPPED : AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+    }
+
+    @Override
+    public synchronized void completeWithError(Throwable ex) {
+        super.completeWithError(ex);
+        token.release(AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+    }
+
+    @Override
+    public synchronized void onTimeout(Runnable callback) {
+        super.onTimeout(() -> {
+            callback.run();
+            token.release(AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+        });
+    }
+
+    @Override
+    public synchronized void onError(Consumer<Throwable> callback) {
+        super.onError(e -> {
+            callback.accept(e);
+            token.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+        });
+    }
+
+    private void inspect(Set<DataWithMediaType> items) {
+        for (DataWithMediaType item : items) {
+            if (item.getData() instanceof String data) {
+                if (!firstByteSeen && data.contains(TEXT_MARKER)) {
+                    firstByteSeen = true;
+                    token.onFirstByte();
+                } else if (data.contains(ERROR_MARKER)) {
+                    failed = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.mycoffeestore.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * LLM 请求合并器（single-flight）
+ * <p>
+ * 同一时刻完全相同的请求只向上游发起一次：
+ * <ul>
+ *     <li>请求键为请求体（模型、参数、消息、工具定义）的 SHA-256</li>
+ *     <li>第一个请求发起上游调用，其后到达的相同请求订阅同一个流，
+ *     已输出的分片会先重放给后到者，之后与第一个请求同步接收</li>
+ *     <li>上游结束（完成、出错）后立即移除，之后的请求重新发起调用，不做结果缓存</li>
+ *     <li>所有订阅者都取消时取消上游请求</li>
+ * </ul>
+ * 只应对低温度、输出确定性较高的 Agent 启用，由调用方按 Agent 配置决定是否经过合并器。
+ * <p>
+ * 指标：{@code llm.coalesce.requests{result=leader|follower}}、{@code llm.coalesce.inflight}
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    /**
+     * 请求键 -> 进行中的共享流
+     */
+    private final Map<String, Flux<String>> inflight = new ConcurrentHashMap<>();
+
+    private final Counter leaderCounter;
+    private final Counter followerCounter;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.leaderCounter = Counter.builder("llm.coalesce.requests")
+                .description("LLM 请求合并结果")
+                .tag("result", "leader")
+                .register(meterRegistry);
+        this.followerCounter = Counter.builder("llm.coalesce.requests")
+                .description("LLM 请求合并结果")
+                .tag("result", "follower")
+                .register(meterRegistry);
+        Gauge.builder("llm.coalesce.inflight", inflight, Map::size)
+                .description("进行中的可合并 LLM 请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 合并相同的请求
+     *
+     * @param requestBody 完整请求体（作为合并键）
+     * @param upstream    发起上游请求
+     * @return 共享的响应流
+     */
+    public Flux<String> coalesce(String requestBody, Supplier<Flux<String>> upstream) {
+        return Flux.defer(() -> coalesceByKey(keyOf(requestBody), upstream));
+    }
+
+    /**
+     * 按已计算好的请求键合并相同的请求
+     *
+     * @param key      请求体的 SHA-256（十六进制）
+     * @param upstream 发起上游请求
+     * @return 共享的响应流
+     */
+    public Flux<String> coalesceByKey(String key, Supplier<Flux<String>> upstream) {
+        return Flux.defer(() -> {
+            AtomicReference<Flux<String>> created = new AtomicReference<>();
+            Flux<String> shared = inflight.computeIfAbsent(key, k -> {
+                AtomicReference<Flux<String>> self = new AtomicReference<>();
+                Flux<String> flux = upstream.get()
+                        .doFinally(signal -> inflight.remove(k, self.get()))
+                        .replay()
+                        .refCount(1);
+                self.set(flux);
+                created.set(flux);
+                return flux;
+            });
+
+            if (created.get() == shared) {
+                leaderCounter.increment();
+            } else {
+                followerCounter.increment();
+                log.debug("合并相同的 LLM 请求: key={}", key);
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * 当前进行中的可合并请求数
+     */
+    public int inflightCount() {
+        return inflight.size();
+    }
+
+    static String keyOf(String requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(requestBody.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
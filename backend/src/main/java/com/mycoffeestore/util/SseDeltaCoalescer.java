@@ -0,0 +1,164 @@
+package com.mycoffeestore.util;
+
+import com.mycoffeestore.config.AgentProperties;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 文本增量合并器
+ * <p>
+ * 模型常常每个分片只输出一两个字，长回答会变成上千次小写入与 flush。合并器按流缓冲连续的文本增量：
+ * <ul>
+ *     <li>缓冲第一个增量时开始计时，达到写出间隔后写出</li>
+ *     <li>缓冲字符数达到上限时立即写出</li>
+ *     <li>工具调用、工具结果、结束、错误等非文本事件到达前，总是先写出已缓冲的文本，保证事件顺序不变</li>
+ *     <li>上游完成或出错时写出剩余文本；订阅取消时丢弃缓冲并取消上游</li>
+ * </ul>
+ * 只在写出 SSE 的边界使用，内部事件流（路由聚合、推测执行）仍是逐个增量。
+ * <p>
+ * 指标：{@code agent.sse.deltas}（收到的文本增量数）、{@code agent.sse.flushes{reason=interval|size|event|complete}}
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Component
+public class SseDeltaCoalescer {
+
+    private final AgentProperties.SseFlushConfig config;
+    private final Scheduler timer = Schedulers.parallel();
+
+    private final Counter deltaCounter;
+    private final Counter intervalFlushes;
+    private final Counter sizeFlushes;
+    private final Counter eventFlushes;
+    private final Counter completeFlushes;
+
+    public SseDeltaCoalescer(AgentProperties agentProperties, MeterRegistry meterRegistry) {
+        this.config = agentProperties.getSseFlush();
+        this.deltaCounter = Counter.builder("agent.sse.deltas")
+                .description("合并前的 SSE 文本增量数")
+                .register(meterRegistry);
+        this.intervalFlushes = flushCounter(meterRegistry, "interval");
+        this.sizeFlushes = flushCounter(meterRegistry, "size");
+        this.eventFlushes = flushCounter(meterRegistry, "event");
+        this.completeFlushes = flushCounter(meterRegistry, "complete");
+    }
+
+    private static Counter flushCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("agent.sse.flushes")
+                .description("合并后的 SSE 文本写出次数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 合并事件流中的连续文本增量
+     *
+     * @param events 原始事件流
+     * @return 合并后的事件流（未启用时原样返回）
+     */
+    public Flux<AgentEvent> coalesce(Flux<AgentEvent> events) {
+        if (!config.isEnabled()) {
+            return events;
+        }
+        long intervalMillis = Math.max(1, config.getIntervalMillis());
+        int maxBufferChars = Math.max(1, config.getMaxBufferChars());
+        return Flux.create(sink -> {
+            Stream stream = new Stream(sink, intervalMillis, maxBufferChars);
+            Disposable upstream = events.subscribe(stream::onEvent, stream::onError, stream::onComplete,
+                    Context.of(sink.contextView()));
+            sink.onDispose(() -> {
+                stream.cancelTimer();
+                upstream.dispose();
+            });
+        });
+    }
+
+    /**
+     * 单个流的合并状态；上游事件与定时写出在不同线程触发，由对象锁串行化
+     */
+    private final class Stream {
+
+        private final FluxSink<AgentEvent> sink;
+        private final long intervalMillis;
+        private final int maxBufferChars;
+        private final StringBuilder pending = new StringBuilder();
+        private Disposable scheduled;
+
+        Stream(FluxSink<AgentEvent> sink, long intervalMillis, int maxBufferChars) {
+            this.sink = sink;
+            this.intervalMillis = intervalMillis;
+            this.maxBufferChars = maxBufferChars;
+        }
+
+        synchronized void onEvent(AgentEvent event) {
+            if (isDelta(event)) {
+                deltaCounter.increment();
+                pending.append(event.content());
+                if (pending.length() >= maxBufferChars) {
+                    flush(sizeFlushes);
+                } else if (scheduled == null) {
+                    scheduled = timer.schedule(this::onTimer, intervalMillis, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            flush(eventFlushes);
+            sink.next(event);
+        }
+
+        synchronized void onTimer() {
+            scheduled = null;
+            flush(intervalFlushes);
+        }
+
+        synchronized void onError(Throwable error) {
+            flush(completeFlushes);
+            sink.error(error);
+        }
+
+        synchronized void onComplete() {
+            flush(completeFlushes);
+            sink.complete();
+        }
+
+        synchronized void cancelTimer() {
+            if (scheduled != null) {
+                scheduled.dispose();
+                scheduled = null;
+            }
+            pending.setLength(0);
+        }
+
+        private void flush(Counter reason) {
+            if (scheduled != null) {
+                scheduled.dispose();
+                scheduled = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            String content = pending.toString();
+            pending.setLength(0);
+            reason.increment();
+            sink.next(AgentEvent.text(content));
+        }
+    }
+
+    /**
+     * 可合并的文本增量：只有 type / content 两个字段的 message 文本事件
+     */
+    private static boolean isDelta(AgentEvent event) {
+        return "message".equals(event.name()) && event.isText()
+                && event.data().size() == 2 && event.content() != null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Agent 事件 SSE 编码器
+ * <p>
+ * 文本增量与结束事件是流中最常见的事件，使用预先编码好的模板拼接，只对文本内容做 JSON 转义，
+ * 不再为每个增量构建 Map 并走一遍 Jackson 序列化；其他事件仍按数据 Map 序列化。
+ * 写入 {@link SseEmitter} 时整帧（event / data / 空行）一次写出，与 {@code SseEmitter.event()} 的输出格式一致。
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Slf4j
+@Component
+public class SseEventEncoder {
+
+    private static final String TEXT_DATA_PREFIX = "{\"type\":\"" + AgentEvent.TYPE_TEXT + "\",\"content\":\"";
+    private static final String TEXT_DATA_SUFFIX = "\"}";
+    private static final String DONE_DATA = "{\"type\":\"" + AgentEvent.TYPE_DONE + "\"}";
+
+    private static final String MESSAGE_FRAME_PREFIX = "event:message\ndata:";
+    private static final String DONE_FRAME = "event:done\ndata:" + DONE_DATA + "\n\n";
+    private static final String FRAME_SUFFIX = "\n\n";
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+
+    public SseEventEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 编码事件数据（SSE data 字段内容）
+     *
+     * @param event Agent 事件
+     * @return JSON 字符串
+     */
+    public String encodeData(AgentEvent event) {
+        if (isPlainText(event)) {
+            return textData(event.content());
+        }
+        if (isPlainDone(event)) {
+            return DONE_DATA;
+        }
+        try {
+            return objectMapper.writeValueAsString(event.data());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("SSE 事件序列化失败", e);
+        }
+    }
+
+    /**
+     * 转换为响应式 SSE 事件
+     *
+     * @param event Agent 事件
+     * @return SSE 事件
+     */
+    public ServerSentEvent<String> toServerSentEvent(AgentEvent event) {
+        return ServerSentEvent.builder(encodeData(event))
+                .event(event.name())
+                .build();
+    }
+
+    /**
+     * 将事件整帧写入 SseEmitter，发送失败只记录日志
+     *
+     * @param emitter SSE 发射器
+     * @param event   Agent 事件
+     */
+    public void send(SseEmitter emitter, AgentEvent event) {
+        try {
+            emitter.send(Set.of(new ResponseBodyEmitter.DataWithMediaType(encodeFrame(event), TEXT_PLAIN_UTF8)));
+        } catch (IOException | IllegalStateException e) {
+            log.warn("SSE 发送失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 编码完整的 SSE 帧
+     */
+    String encodeFrame(AgentEvent event) {
+        if (isPlainDone(event)) {
+            return DONE_FRAME;
+        }
+        if (isPlainText(event)) {
+            return MESSAGE_FRAME_PREFIX + textData(event.content()) + FRAME_SUFFIX;
+        }
+        return "event:" + event.name() + "\ndata:" + encodeData(event) + FRAME_SUFFIX;
+    }
+
+    private static String textData(String content) {
+        return TEXT_DATA_PREFIX + new String(JsonStringEncoder.getInstance().quoteAsString(content)) + TEXT_DATA_SUFFIX;
+    }
+
+    /**
+     * 只有 type / content 两个字段的 message 文本事件
+     */
+    private static boolean isPlainText(AgentEvent event) {
+        return "message".equals(event.name()) && event.isText()
+                && event.data().size() == 2 && event.content() != null;
+    }
+
+    /**
+     * 只有 type 字段的 done 事件
+     */
+    private static boolean isPlainDone(AgentEvent event) {
+        return "done".equals(event.name()) && event.isDone() && event.data().size() == 1;
+    }
+}
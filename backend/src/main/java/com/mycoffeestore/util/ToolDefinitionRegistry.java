@@ -0,0 +1,283 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 工具定义注册表
+ * <p>
+ * 工具定义（OpenAI function calling 格式）在启动时按 Agent 类型编译一次：
+ * <ul>
+ *     <li>每个 Agent 类型对应一个不可变的 {@link CompiledTools}，包含定义列表和预先序列化好的 JSON 数组片段，
+ *     请求体直接拼入该片段，不再每轮重建嵌套 Map 并 {@code valueToTree}</li>
+ *     <li>内置工具与 {@link #ROLE_TOOLS} 在构造时注册；新工具通过 {@link #register} 注册并分配给 Agent 类型，
+ *     可同时提供执行器，不需要修改工具分发的 switch；同名注册覆盖内置工具时，执行器优先于内置分发</li>
+ *     <li>注册串行进行，整体重新编译后替换工具定义与编译结果两份不可变快照，读取路径无锁</li>
+ * </ul>
+ *
+ * @author zhoulu
+ * @since 2026-03-18
+ */
+@Slf4j
+@Component
+public class ToolDefinitionRegistry {
+
+    /**
+     * 角色对应的可用工具
+     */
+    private static final Map<String, List<String>> ROLE_TOOLS = Map.of(
+        "coffee_advisor", List.of("search_coffee", "get_coffee_detail", "get_categories"),
+        "customer_service", List.of("get_order_detail", "get_order_list"),
+        "order_assistant", List.of("search_coffee", "add_to_cart", "get_cart", "create_order", "get_order_list", "get_order_detail")
+    );
+
+    private static final CompiledTools EMPTY = new CompiledTools(List.of(), List.of(), "[]");
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 工具名 -> 工具定义（按注册顺序，只在注册时修改）
+     */
+    private final Map<String, ToolDefinition> tools = new LinkedHashMap<>();
+
+    /**
+     * 工具名 -> 工具定义（不可变快照，供读取路径使用）
+     */
+    private volatile Map<String, ToolDefinition> definitions = Map.of();
+
+    /**
+     * Agent 类型 -> 工具名列表
+     */
+    private final Map<String, List<String>> roleTools = new LinkedHashMap<>();
+
+    /**
+     * Agent 类型 -> 编译结果（不可变快照）
+     */
+    private volatile Map<String, CompiledTools> compiled = Map.of();
+
+    /**
+     * 工具执行器（注册的工具在内置分发之外执行）
+     */
+    @FunctionalInterface
+    public interface ToolHandler {
+
+        /**
+         * 执行工具
+         *
+         * @param args   参数
+         * @param userId 用户ID（可为 null，表示未登录）
+         * @return 结果对象（序列化为 JSON 返回给模型）
+         */
+        Object execute(JsonNode args, Long userId) throws Exception;
+    }
+
+    /**
+     * 工具定义
+     *
+     * @param name        工具名
+     * @param description 工具描述
+     * @param parameters  参数 JSON Schema
+     * @param readOnly    是否只读（只读工具同一轮内可以并发执行）
+     * @param handler     执行器（内置工具为 null，由 AgentToolExecutor 分发）
+     */
+    public record ToolDefinition(String name,
+                                 String description,
+                                 Map<String, Object> parameters,
+                                 boolean readOnly,
+                                 ToolHandler handler) {
+    }
+
+    /**
+     * 某个 Agent 类型的编译结果
+     *
+     * @param names       工具名
+     * @param definitions 工具定义（OpenAI function calling 格式，不可变）
+     * @param json        预先序列化的工具定义 JSON 数组
+     */
+    public record CompiledTools(List<String> names, List<Map<String, Object>> definitions, String json) {
+
+        public boolean isEmpty() {
+            return names.isEmpty();
+        }
+    }
+
+    public ToolDefinitionRegistry(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        registerBuiltinTools();
+        ROLE_TOOLS.forEach(roleTools::put);
+        compile();
+    }
+
+    /**
+     * 注册工具并分配给指定的 Agent 类型（同名工具覆盖原定义）
+     *
+     * @param definition 工具定义
+     * @param agentTypes 可使用该工具的 Agent 类型
+     */
+    public synchronized void register(ToolDefinition definition, String... agentTypes) {
+        tools.put(definition.name(), definition);
+        for (String agentType : agentTypes) {
+            List<String> names = new ArrayList<>(roleTools.getOrDefault(agentType, List.of()));
+            if (!names.contains(definition.name())) {
+                names.add(definition.name());
+            }
+            roleTools.put(agentType, List.copyOf(names));
+        }
+        compile();
+        log.info("注册 Agent 工具: {}，分配给: {}", definition.name(), List.of(agentTypes));
+    }
+
+    /**
+     * 获取 Agent 类型的编译结果
+     *
+     * @param agentType Agent 类型
+     * @return 编译结果；没有工具时为空结果
+     */
+    public CompiledTools forAgent(String agentType) {
+        return compiled.getOrDefault(agentType, EMPTY);
+    }
+
+    /**
+     * 获取工具定义
+     *
+     * @param toolName 工具名
+     * @return 工具定义；未注册时返回 null
+     */
+    public ToolDefinition get(String toolName) {
+        return definitions.get(toolName);
+    }
+
+    /**
+     * 判断工具是否只读
+     *
+     * @param toolName 工具名
+     * @return 只读工具返回 true；写操作及未知工具返回 false
+     */
+    public boolean isReadOnly(String toolName) {
+        ToolDefinition definition = get(toolName);
+        return definition != null && definition.readOnly();
+    }
+
+    /**
+     * 按 Agent 类型编译工具定义并替换快照（工具定义快照在编译结果之前发布）
+     */
+    private void compile() {
+        Map<String, CompiledTools> result = new LinkedHashMap<>();
+        roleTools.forEach((agentType, names) -> {
+            List<String> compiledNames = new ArrayList<>();
+            List<Map<String, Object>> definitions = new ArrayList<>();
+            for (String name : names) {
+                ToolDefinition definition = tools.get(name);
+                if (definition == null) {
+                    log.warn("Agent 工具未注册，已忽略: agentType={}, tool={}", agentType, name);
+                    continue;
+                }
+                compiledNames.add(name);
+                definitions.add(toFunction(definition));
+            }
+            try {
+                result.put(agentType, new CompiledTools(List.copyOf(compiledNames), List.copyOf(definitions),
+                        objectMapper.writeValueAsString(definitions)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("工具定义序列化失败: " + agentType, e);
+            }
+        });
+        definitions = Map.copyOf(tools);
+        compiled = Map.copyOf(result);
+    }
+
+    /**
+     * 构建 OpenAI function 工具定义
+     */
+    private static Map<String, Object> toFunction(ToolDefinition definition) {
+        return Map.of(
+            "type", "function",
+            "function", Map.of(
+                "name", definition.name(),
+                "description", definition.description(),
+                "parameters", definition.parameters()
+            )
+        );
+    }
+
+    private void builtin(String name, String description, boolean readOnly, Map<String, Object> parameters) {
+        tools.put(name, new ToolDefinition(name, description, parameters, readOnly, null));
+    }
+
+    private void registerBuiltinTools() {
+        builtin("search_coffee", "搜索咖啡列表，支持按分类筛选", true,
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "category", Map.of("type", "string", "description", "咖啡分类名称（可选）"),
+                    "page", Map.of("type", "integer", "description", "页码，默认1"),
+                    "size", Map.of("type", "integer", "description", "每页数量，默认10")
+                ),
+                "required", List.of()
+            ));
+        builtin("get_coffee_detail", "获取某款咖啡的详细信息", true,
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "coffeeId", Map.of("type", "integer", "description", "咖啡ID")
+                ),
+                "required", List.of("coffeeId")
+            ));
+        builtin("get_categories", "获取所有咖啡分类列表", true,
+            Map.of("type", "object", "properties", Map.of(), "required", List.of()));
+        builtin("add_to_cart", "将咖啡添加到用户购物车（需要用户已登录）", false,
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "coffeeId", Map.of("type", "integer", "description", "咖啡ID"),
+                    "quantity", Map.of("type", "integer", "description", "数量")
+                ),
+                "required", List.of("coffeeId", "quantity")
+            ));
+        builtin("get_cart", "获取用户购物车内容（需要用户已登录）", true,
+            Map.of("type", "object", "properties", Map.of(), "required", List.of()));
+        builtin("create_order", "为用户创建订单（需要用户已登录）", false,
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "orderType", Map.of("type", "string", "description", "订单类型：dine_in（堂食）/ takeaway（外带）/ delivery（外卖）"),
+                    "items", Map.of("type", "array", "description", "订单项列表",
+                        "items", Map.of("type", "object",
+                            "properties", Map.of(
+                                "coffeeId", Map.of("type", "integer", "description", "咖啡ID"),
+                                "quantity", Map.of("type", "integer", "description", "数量"),
+                                "price", Map.of("type", "number", "description", "单价")
+                            ),
+                            "required", List.of("coffeeId", "quantity", "price"))),
+                    "remark", Map.of("type", "string", "description", "备注（可选）")
+                ),
+                "required", List.of("orderType", "items")
+            ));
+        builtin("get_order_list", "查询用户订单列表（需要用户已登录）", true,
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "status", Map.of("type", "string", "description", "订单状态筛选：pending/confirmed/preparing/ready/completed/cancelled（可选）"),
+                    "page", Map.of("type", "integer", "description", "页码，默认1"),
+                    "size", Map.of("type", "integer", "description", "每页数量，默认10")
+                ),
+                "required", List.of()
+            ));
+        builtin("get_order_detail", "查询订单详情（需要用户已登录）", true,
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "orderId", Map.of("type", "string", "description", "订单号")
+                ),
+                "required", List.of("orderId")
+            ));
+    }
+}
@@ -0,0 +1,262 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mycoffeestore.config.ToolCacheProperties;
+import com.mycoffeestore.event.CatalogChangedEvent;
+import com.mycoffeestore.event.OrderChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent 工具结果缓存
+ * <p>
+ * 缓存只读工具序列化后的 JSON 结果，同一会话内和不同用户间的重复调用直接复用，
+ * 省去一次数据库查询和一次 {@code writeValueAsString}。
+ * <ul>
+ *     <li>按 Agent 投影后的结果（视图）与完整结果存于同一条目，命中时直接返回，不再解析与投影；
+ *     某个 Agent 首次命中他人写入的条目时由完整结果投影一次</li>
+ *     <li>缓存键：工具名 + 规范化参数（对象字段按字典序）+ 用户ID（仅用户相关的工具）</li>
+ *     <li>各工具 TTL 独立配置，未配置的工具不缓存</li>
+ *     <li>商品目录 / 订单变更事件在事务提交后使对应工具的缓存失效</li>
+ * </ul>
+ *
+ * @author zhoulu
+ * @since 2026-03-14
+ */
+@Slf4j
+@Component
+public class ToolResultCache {
+
+    private final ToolCacheProperties properties;
+
+    /**
+     * 参数规范化使用的 ObjectMapper（Map 按键排序输出）
+     */
+    private final ObjectMapper canonicalMapper;
+
+    private final Cache<Key, Entry> cache;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * 缓存键
+     *
+     * @param toolName 工具名
+     * @param args     规范化后的参数 JSON
+     * @param userId   用户ID（与用户无关的工具为 null）
+     */
+    public record Key(String toolName, String args, Long userId) {
+    }
+
+    /**
+     * 缓存值：序列化后的完整结果、按视图投影后的结果与该条目的有效期
+     */
+    private record Entry(String json, Map<String, String> views, long ttlNanos) {
+    }
+
+    /**
+     * 由完整结果生成视图
+     */
+    @FunctionalInterface
+    public interface ViewProjector {
+
+        /**
+         * @param json 序列化后的完整结果
+         * @return 视图（投影后的 JSON）
+         */
+        String project(String json) throws JsonProcessingException;
+    }
+
+    public ToolResultCache(ToolCacheProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfter(new Expiry<Key, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Entry value, long currentTime) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Entry value, long currentTime, long currentDuration) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Entry value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        this.hitCounter = Counter.builder("agent.tool.cache.requests")
+                .description("Agent 工具结果缓存请求数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("agent.tool.cache.requests")
+                .description("Agent 工具结果缓存请求数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("agent.tool.cache.size", cache, Cache::estimatedSize)
+                .description("Agent 工具结果缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * @param toolName 工具名
+     * @param args     已解析的参数
+     * @param userId   用户ID
+     * @return 缓存键；缓存未启用或工具不可缓存时返回 null
+     */
+    public Key keyOf(String toolName, JsonNode args, Long userId) {
+        ToolCacheProperties.ToolPolicy policy = policyOf(toolName);
+        if (policy == null) {
+            return null;
+        }
+        try {
+            String canonicalArgs = canonicalMapper.writeValueAsString(canonicalMapper.treeToValue(args, Object.class));
+            return new Key(toolName, canonicalArgs, policy.isUserScoped() ? userId : null);
+        } catch (JsonProcessingException e) {
+            log.debug("工具参数规范化失败，不缓存: {} - {}", toolName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 缓存键
+     * @return 序列化后的工具结果，未命中返回 null
+     */
+    public String get(Key key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return entry.json();
+    }
+
+    /**
+     * 读取缓存的视图；条目存在而视图未生成时由完整结果生成并写入条目
+     *
+     * @param key       缓存键
+     * @param view      视图名（Agent 类型）
+     * @param projector 由完整结果生成视图
+     * @return 视图，未命中返回 null
+     * @throws JsonProcessingException 生成视图失败
+     */
+    public String get(Key key, String view, ViewProjector projector) throws JsonProcessingException {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        String projected = entry.views().get(view);
+        if (projected == null) {
+            projected = projector.project(entry.json());
+            String existing = entry.views().putIfAbsent(view, projected);
+            projected = existing != null ? existing : projected;
+        }
+        return projected;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key  缓存键
+     * @param json 序列化后的工具结果
+     */
+    public void put(Key key, String json) {
+        ToolCacheProperties.ToolPolicy policy = policyOf(key.toolName());
+        if (policy != null) {
+            cache.put(key, new Entry(json, new ConcurrentHashMap<>(), TimeUnit.SECONDS.toNanos(policy.getTtl())));
+        }
+    }
+
+    /**
+     * 写入缓存，同时写入调用方已生成的视图
+     *
+     * @param key       缓存键
+     * @param json      序列化后的完整结果
+     * @param view      视图名（Agent 类型）
+     * @param projected 视图
+     */
+    public void put(Key key, String json, String view, String projected) {
+        ToolCacheProperties.ToolPolicy policy = policyOf(key.toolName());
+        if (policy != null) {
+            Map<String, String> views = new ConcurrentHashMap<>();
+            views.put(view, projected);
+            cache.put(key, new Entry(json, views, TimeUnit.SECONDS.toNanos(policy.getTtl())));
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 商品目录变更：使依赖商品数据的工具缓存失效
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        invalidate(ToolCacheProperties.INVALIDATE_ON_CATALOG, null);
+        log.debug("商品目录变更，工具结果缓存已失效: coffeeIds={}", event.getCoffeeIds());
+    }
+
+    /**
+     * 订单变更：使该用户依赖订单数据的工具缓存失效
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        invalidate(ToolCacheProperties.INVALIDATE_ON_ORDER, event.getUserId());
+        log.debug("订单变更，工具结果缓存已失效: userId={}, orderNo={}", event.getUserId(), event.getOrderNo());
+    }
+
+    /**
+     * 按失效事件删除缓存
+     *
+     * @param trigger 失效事件
+     * @param userId  只删除该用户的条目（与用户无关的条目总是删除）；为 null 时删除全部
+     */
+    private void invalidate(String trigger, Long userId) {
+        cache.asMap().keySet().removeIf(key -> {
+            ToolCacheProperties.ToolPolicy policy = properties.getTools().get(key.toolName());
+            boolean affected = policy == null || policy.getInvalidateOn().contains(trigger);
+            return affected && (userId == null || key.userId() == null || Objects.equals(userId, key.userId()));
+        });
+    }
+
+    private ToolCacheProperties.ToolPolicy policyOf(String toolName) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        ToolCacheProperties.ToolPolicy policy = properties.getTools().get(toolName);
+        return policy != null && policy.getTtl() > 0 ? policy : null;
+    }
+}
@@ -0,0 +1,170 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.mycoffeestore.config.ToolProjectionProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Agent 工具结果投影器
+ * <p>
+ * 工具结果原样序列化会带上图片地址、分页参数、内部状态码和空字段，这些内容每轮都会作为提示词重复发给模型。
+ * 投影在返回给模型前把结果裁剪为紧凑 JSON：
+ * <ul>
+ *     <li>字段白名单：只保留工具配置的字段（作用于各层对象）</li>
+ *     <li>数值压缩：金额等小数去掉末尾的 0，整数值的小数写为整数（28.00 → 28）</li>
+ *     <li>空值剔除：null 与空字符串不输出</li>
+ *     <li>文本截断：超长文本截断并以 … 结尾</li>
+ *     <li>列表截断：超出条数的部分以同级的 {@code <字段名>Omitted} 计数代替；根节点列表包装为 {@code {"list":[...],"omitted":n}}</li>
+ * </ul>
+ * 错误结果（包含 error 字段）不做投影。
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Component
+@RequiredArgsConstructor
+public class ToolResultProjector {
+
+    private static final String OMITTED_SUFFIX = "Omitted";
+    private static final String ELLIPSIS = "…";
+
+    private final ToolProjectionProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 投影规则（工具、Agent、全局配置合并后的结果）
+     *
+     * @param fields        保留的字段（null 表示全部保留）
+     * @param maxListItems  列表最多保留的条数
+     * @param maxTextLength 文本字段最大长度
+     */
+    private record Rule(Set<String> fields, int maxListItems, int maxTextLength) {
+
+        boolean keeps(String field) {
+            return fields == null || fields.contains(field);
+        }
+    }
+
+    /**
+     * 指定 Agent 是否启用投影
+     *
+     * @param agentType Agent 类型（为空表示非 Agent 调用）
+     * @return 是否启用
+     */
+    public boolean isEnabled(String agentType) {
+        return properties.isEnabledFor(agentType);
+    }
+
+    /**
+     * 投影工具结果
+     *
+     * @param agentType Agent 类型
+     * @param toolName  工具名
+     * @param result    工具结果
+     * @return 紧凑 JSON；未启用投影或错误结果时为原结果的 JSON
+     */
+    public String project(String agentType, String toolName, JsonNode result) throws JsonProcessingException {
+        if (!isEnabled(agentType) || result == null || result.has("error")) {
+            return objectMapper.writeValueAsString(result);
+        }
+        Rule rule = ruleOf(agentType, toolName);
+        JsonNode projected;
+        if (result.isArray() && result.size() > rule.maxListItems()) {
+            ObjectNode wrapper = JsonNodeFactory.instance.objectNode();
+            wrapper.set("list", compact(result, rule));
+            wrapper.put("omitted", result.size() - rule.maxListItems());
+            projected = wrapper;
+        } else {
+            projected = compact(result, rule);
+        }
+        return objectMapper.writeValueAsString(projected);
+    }
+
+    private Rule ruleOf(String agentType, String toolName) {
+        ToolProjectionProperties.ToolProjection tool = properties.getTools().get(toolName);
+        ToolProjectionProperties.AgentProjection agent = properties.getAgents().get(agentType);
+
+        int maxListItems = properties.getMaxListItems();
+        int maxTextLength = properties.getMaxTextLength();
+        if (agent != null && agent.getMaxListItems() != null) {
+            maxListItems = agent.getMaxListItems();
+        }
+        if (agent != null && agent.getMaxTextLength() != null) {
+            maxTextLength = agent.getMaxTextLength();
+        }
+        Set<String> fields = null;
+        if (tool != null) {
+            if (tool.getMaxListItems() != null) {
+                maxListItems = tool.getMaxListItems();
+            }
+            if (tool.getMaxTextLength() != null) {
+                maxTextLength = tool.getMaxTextLength();
+            }
+            if (tool.getFields() != null && !tool.getFields().isEmpty()) {
+                fields = Set.copyOf(tool.getFields());
+            }
+        }
+        return new Rule(fields, Math.max(1, maxListItems), Math.max(1, maxTextLength));
+    }
+
+    private JsonNode compact(JsonNode node, Rule rule) {
+        if (node.isObject()) {
+            ObjectNode result = JsonNodeFactory.instance.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                if (!rule.keeps(field.getKey()) || isEmpty(value)) {
+                    continue;
+                }
+                result.set(field.getKey(), compact(value, rule));
+                if (value.isArray() && value.size() > rule.maxListItems()) {
+                    result.put(field.getKey() + OMITTED_SUFFIX, value.size() - rule.maxListItems());
+                }
+            }
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = JsonNodeFactory.instance.arrayNode();
+            int limit = Math.min(node.size(), rule.maxListItems());
+            for (int i = 0; i < limit; i++) {
+                result.add(compact(node.get(i), rule));
+            }
+            return result;
+        }
+        if (node.isBigDecimal() || ((node.isDouble() || node.isFloat()) && Double.isFinite(node.doubleValue()))) {
+            return compactNumber(node.decimalValue());
+        }
+        if (node.isTextual() && node.textValue().codePointCount(0, node.textValue().length()) > rule.maxTextLength()) {
+            String text = node.textValue();
+            return TextNode.valueOf(text.substring(0, text.offsetByCodePoints(0, rule.maxTextLength())) + ELLIPSIS);
+        }
+        return node;
+    }
+
+    private static JsonNode compactNumber(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        if (stripped.scale() <= 0 && stripped.precision() - stripped.scale() <= 18) {
+            return LongNode.valueOf(stripped.longValueExact());
+        }
+        return DecimalNode.valueOf(stripped);
+    }
+
+    private static boolean isEmpty(JsonNode value) {
+        return value == null || value.isNull() || (value.isTextual() && value.textValue().isEmpty());
+    }
+}
@@ -0,0 +1,65 @@
+package com.mycoffeestore.ai.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 请求体增量构建器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-18
+ */
+@DisplayName("请求体增量构建器测试")
+public class ChatRequestBodyBuilderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("逐轮追加消息后的请求体与整体序列化一致，之前轮次的快照不受影响")
+    void testIncrementalBody() throws Exception {
+        ObjectNode head = objectMapper.createObjectNode();
+        head.put("model", "test-model");
+        head.put("stream", true);
+        ChatRequestBodyBuilder builder = new ChatRequestBodyBuilder(objectMapper, head);
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", "你是咖啡顾问"));
+        messages.add(Map.of("role", "user", "content", "推荐一款咖啡"));
+        ChatRequestBody first = builder.build(messages);
+
+        Map<String, Object> assistant = new HashMap<>();
+        assistant.put("role", "assistant");
+        assistant.put("content", null);
+        messages.add(assistant);
+        // 超过初始缓冲区，触发扩容
+        messages.add(Map.of("role", "tool", "tool_call_id", "call_a", "content", "拿铁".repeat(2000)));
+        ChatRequestBody second = builder.build(messages);
+
+        ObjectNode expected = head.deepCopy();
+        expected.set("messages", objectMapper.valueToTree(messages));
+        assertThat(objectMapper.readTree(second.toString())).isEqualTo(expected);
+        assertThat(objectMapper.readTree(first.toString()).get("messages")).hasSize(2);
+
+        DataBuffer buffer = second.write(DefaultDataBufferFactory.sharedInstance);
+        assertThat(buffer.toString(StandardCharsets.UTF_8)).isEqualTo(second.toString());
+        assertThat(buffer.readableByteCount()).isEqualTo(second.size());
+
+        byte[] sha = MessageDigest.getInstance("SHA-256").digest(second.toString().getBytes(StandardCharsets.UTF_8));
+        assertThat(second.key()).isEqualTo(HexFormat.of().formatHex(sha));
+        assertThat(second.key()).isEqualTo(second.key());
+    }
+}
@@ -0,0 +1,91 @@
+package com.mycoffeestore.ai.core;
+
+import com.mycoffeestore.ai.config.LlmProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LLM 提供商连接池测试
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@DisplayName("LLM 提供商连接池测试")
+public class LlmConnectionPoolsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LlmConnectionPools pools = new LlmConnectionPools(new LlmProperties(), meterRegistry);
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        pools.close();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private String startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private String post(String baseUrl, String providerCode) {
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(pools.httpClient(providerCode, baseUrl, 5000)))
+                .build()
+                .post()
+                .uri("/chat/completions")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("同一提供商的不同 WebClient 复用同一连接池，并注册连接池指标")
+    void testSharedPool() throws Exception {
+        String baseUrl = startServer();
+
+        assertThat(post(baseUrl, "modelscope")).isEqualTo("{}");
+        assertThat(post(baseUrl, "MODELSCOPE")).isEqualTo("{}");
+
+        // 第二次请求复用第一次留在池中的 keep-alive 连接
+        assertThat(meterRegistry.get("llm.pool.connections")
+                .tag("provider", "modelscope")
+                .tag("state", "allocated")
+                .gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("llm.pool.max_connections")
+                .tag("provider", "modelscope")
+                .gauge().value()).isEqualTo(64.0);
+    }
+
+    @Test
+    @DisplayName("未定义的提供商按代码使用独立连接池")
+    void testCustomProviderPool() throws Exception {
+        String baseUrl = startServer();
+
+        assertThat(post(baseUrl, "deepseek")).isEqualTo("{}");
+
+        assertThat(meterRegistry.find("llm.pool.connections").tag("provider", "deepseek").gauges()).isNotEmpty();
+        assertThat(meterRegistry.find("llm.pool.connections").tag("provider", "modelscope").gauges()).isEmpty();
+    }
+}
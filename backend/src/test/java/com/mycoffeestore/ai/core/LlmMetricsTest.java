@@ -0,0 +1,79 @@
+package com.mycoffeestore.ai.core;
+
+import com.mycoffeestore.exception.BusinessException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LLM 调用指标测试
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@DisplayName("LLM 调用指标测试")
+public class LlmMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LlmMetrics metrics = new LlmMetrics(registry);
+
+    @Test
+    @DisplayName("流式调用记录首字延迟、耗时、用量与生成速度，结束信号只记录一次")
+    void testStreamingCall() throws Exception {
+        LlmMetrics.Call call = metrics.start("coffee_advisor", "modelscope", "kimi");
+        Thread.sleep(20);
+        call.delta();
+        call.delta();
+        Thread.sleep(20);
+        call.usage(800, 40);
+        call.success();
+        call.error(new RuntimeException("ignored"));
+
+        Timer ttft = registry.get("llm.ttft").tags("agent", "coffee_advisor", "provider", "modelscope", "model", "kimi").timer();
+        assertThat(ttft.count()).isEqualTo(1);
+        assertThat(ttft.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+
+        assertThat(registry.get("llm.duration").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.find("llm.duration").tag("outcome", "error").timer().count()).isZero();
+        assertThat(registry.find("llm.errors").counter()).isNull();
+        assertThat(registry.get("llm.tokens").tag("type", "prompt").counter().count()).isEqualTo(800);
+        assertThat(registry.get("llm.tokens").tag("type", "completion").counter().count()).isEqualTo(40);
+
+        DistributionSummary speed = registry.get("llm.tokens.per_second").summary();
+        assertThat(speed.count()).isEqualTo(1);
+        // 40 个 Token 在首字之后约 20ms 内生成
+        assertThat(speed.max()).isGreaterThan(100).isLessThanOrEqualTo(2000);
+    }
+
+    @Test
+    @DisplayName("错误按类型计数，agent 标签可由 Reactor Context 或阻塞调用外层指定")
+    void testErrorsAndAgentTag() {
+        metrics.start(null, "modelscope", "kimi").error(new BusinessException(503, "AI 服务繁忙"));
+        assertThat(registry.get("llm.errors")
+                .tags("agent", LlmMetrics.UNKNOWN, "error", "business_503").counter().count()).isEqualTo(1);
+
+        String fromContext = Mono.deferContextual(context -> Mono.just(LlmMetrics.agentOf(context)))
+                .contextWrite(LlmMetrics.agentContext("order_assistant"))
+                .block();
+        assertThat(fromContext).isEqualTo("order_assistant");
+
+        String fromThread = LlmMetrics.callAs("intent_recognition",
+                () -> Mono.deferContextual(context -> Mono.just(LlmMetrics.agentOf(context))).block());
+        assertThat(fromThread).isEqualTo("intent_recognition");
+
+        String propagated = LlmMetrics.callAs("intent_recognition",
+                () -> Mono.deferContextual(context -> Mono.just(LlmMetrics.agentOf(context)))
+                        .subscribeOn(Schedulers.parallel())
+                        .contextWrite(LlmMetrics.currentAgentContext())
+                        .block());
+        assertThat(propagated).isEqualTo("intent_recognition");
+    }
+}
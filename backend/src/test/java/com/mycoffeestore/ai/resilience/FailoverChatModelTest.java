@@ -0,0 +1,122 @@
+package com.mycoffeestore.ai.resilience;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.ai.config.LlmProperties;
+import com.mycoffeestore.ai.modelscope.ModelScopeChatModel;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 故障转移 ChatModel 测试（本地桩服务模拟 OpenAI 兼容接口）
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@DisplayName("故障转移 ChatModel 测试")
+public class FailoverChatModelTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    /**
+     * 启动桩服务：延迟 delayMs 后以 status 返回固定内容
+     */
+    private ModelScopeChatModel stub(int status, AtomicLong delayMs, String content, AtomicInteger hits) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(delayMs.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"choices\":[{\"message\":{\"content\":\"" + content + "\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return new ModelScopeChatModel(
+                WebClient.create("http://localhost:" + server.getAddress().getPort()), objectMapper);
+    }
+
+    private LlmProperties.FailoverConfig config() {
+        LlmProperties.FailoverConfig config = new LlmProperties.FailoverConfig();
+        config.setEnabled(true);
+        config.setAttemptTimeout(5000L);
+        config.getCircuitBreaker().setMinimumCalls(3);
+        config.getCircuitBreaker().setSlidingWindowSize(5);
+        config.getCircuitBreaker().setOpenDuration(60000L);
+        return config;
+    }
+
+    @Test
+    @DisplayName("主提供商失败时转移到备用，失败率超阈值后熔断不再请求主提供商")
+    void testFailoverAndCircuitOpen() throws Exception {
+        AtomicInteger primaryHits = new AtomicInteger();
+        AtomicInteger secondaryHits = new AtomicInteger();
+        FailoverChatModel model = new FailoverChatModel(List.of(
+                new FailoverChatModel.MemberSpec("primary", stub(500, new AtomicLong(), "primary", primaryHits)),
+                new FailoverChatModel.MemberSpec("secondary", stub(200, new AtomicLong(), "secondary", secondaryHits))
+        ), config(), new SimpleMeterRegistry());
+
+        for (int i = 0; i < 5; i++) {
+            String content = model.call(new Prompt("你好")).getResult().getOutput().getContent();
+            assertThat(content).isEqualTo("secondary");
+        }
+
+        assertThat(primaryHits.get()).isEqualTo(3);
+        assertThat(secondaryHits.get()).isEqualTo(5);
+        assertThat(model.getMembers().get(0).getCircuitBreaker().getState())
+                .isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("主调用超过历史延迟分位数时发起对冲请求，先返回者胜出")
+    void testHedge() throws Exception {
+        LlmProperties.FailoverConfig config = config();
+        config.getHedge().setEnabled(true);
+        config.getHedge().setMinSamples(1);
+        config.getHedge().setMinDelay(100L);
+
+        AtomicLong primaryDelay = new AtomicLong();
+        FailoverChatModel model = new FailoverChatModel(List.of(
+                new FailoverChatModel.MemberSpec("primary", stub(200, primaryDelay, "primary", new AtomicInteger())),
+                new FailoverChatModel.MemberSpec("secondary", stub(200, new AtomicLong(), "secondary", new AtomicInteger()))
+        ), config, new SimpleMeterRegistry());
+        // 首次调用无延迟样本，不对冲，只记录一个快速样本
+        assertThat(model.call(new Prompt("你好")).getResult().getOutput().getContent()).isEqualTo("primary");
+
+        // 主提供商变慢，超过 max(100ms, 历史分位数) 后由备用提供商应答
+        primaryDelay.set(1500);
+        long start = System.currentTimeMillis();
+        String content = model.call(new Prompt("你好")).getResult().getOutput().getContent();
+
+        assertThat(content).isEqualTo("secondary");
+        assertThat(System.currentTimeMillis() - start).isLessThan(1500);
+    }
+}
@@ -0,0 +1,121 @@
+package com.mycoffeestore.ai.stream;
+
+import com.mycoffeestore.benchmark.BenchmarkResources;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 流式响应解析器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-10
+ */
+@DisplayName("流式响应解析器测试")
+public class ChatStreamParserTest {
+
+    @Test
+    @DisplayName("解析文本增量 - 带 data: 前缀")
+    void testParseContentWithPrefix() {
+        ChatStreamChunk chunk = ChatStreamParser.parse(
+                "data: {\"id\":\"x\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"你好\"},\"finish_reason\":null}]}  ");
+
+        assertThat(chunk).isNotNull();
+        assertThat(chunk.getContent()).isEqualTo("你好");
+        assertThat(chunk.getIndex()).isEqualTo(0);
+        assertThat(chunk.getFinishReason()).isNull();
+        assertThat(chunk.hasToolCalls()).isFalse();
+    }
+
+    @Test
+    @DisplayName("解析文本增量 - 已去掉前缀")
+    void testParseContentWithoutPrefix() {
+        ChatStreamChunk chunk = ChatStreamParser.parse(
+                "{\"choices\":[{\"delta\":{\"role\":\"assistant\",\"content\":null},\"finish_reason\":\"stop\"}]}");
+
+        assertThat(chunk).isNotNull();
+        assertThat(chunk.getRole()).isEqualTo("assistant");
+        assertThat(chunk.hasContent()).isFalse();
+        assertThat(chunk.getFinishReason()).isEqualTo("stop");
+    }
+
+    @Test
+    @DisplayName("忽略空行、[DONE] 和无 choices 的数据")
+    void testIgnoreNonContentLines() {
+        assertThat(ChatStreamParser.parse("")).isNull();
+        assertThat(ChatStreamParser.parse("   ")).isNull();
+        assertThat(ChatStreamParser.parse("data: [DONE]")).isNull();
+        assertThat(ChatStreamParser.parse("[DONE]")).isNull();
+        assertThat(ChatStreamParser.parse("{\"choices\":[],\"usage\":{\"total_tokens\":10}}")).isNull();
+        assertThat(ChatStreamParser.parse("data: {broken")).isNull();
+        assertThat(ChatStreamParser.isDone("data: [DONE]")).isTrue();
+        assertThat(ChatStreamParser.isDone("data: {}")).isFalse();
+    }
+
+    @Test
+    @DisplayName("解析最后一个块中的 usage")
+    void testParseUsage() {
+        ChatStreamChunk chunk = ChatStreamParser.parse(
+                "data: {\"id\":\"x\",\"choices\":[],\"usage\":{\"prompt_tokens\":812,\"completion_tokens\":64,\"total_tokens\":876}}");
+
+        assertThat(chunk).isNotNull();
+        assertThat(chunk.hasContent()).isFalse();
+        assertThat(chunk.hasToolCalls()).isFalse();
+        assertThat(chunk.getUsage().getPromptTokens()).isEqualTo(812);
+        assertThat(chunk.getUsage().getCompletionTokens()).isEqualTo(64);
+
+        // 每个块都带 "usage": null 的提供商
+        ChatStreamChunk content = ChatStreamParser.parse(
+                "{\"choices\":[{\"delta\":{\"content\":\"好\"}}],\"usage\":null}");
+        assertThat(content.getContent()).isEqualTo("好");
+        assertThat(content.getUsage()).isNull();
+    }
+
+    @Test
+    @DisplayName("解析录制的工具调用流 - 按 index 累积参数")
+    void testParseRecordedToolCallStream() {
+        List<String> lines = BenchmarkResources.readLines("llm/modelscope-stream-tool-calls.txt");
+
+        StringBuilder content = new StringBuilder();
+        Map<Integer, String> names = new HashMap<>();
+        Map<Integer, String> ids = new HashMap<>();
+        Map<Integer, StringBuilder> args = new HashMap<>();
+        String finishReason = null;
+
+        for (String line : lines) {
+            ChatStreamChunk chunk = ChatStreamParser.parse(line);
+            if (chunk == null) {
+                continue;
+            }
+            if (chunk.hasContent()) {
+                content.append(chunk.getContent());
+            }
+            for (ChatStreamChunk.ToolCallDelta tc : chunk.getToolCalls()) {
+                if (tc.getId() != null) {
+                    ids.put(tc.getIndex(), tc.getId());
+                }
+                if (tc.getName() != null) {
+                    names.put(tc.getIndex(), tc.getName());
+                }
+                if (tc.getArguments() != null) {
+                    args.computeIfAbsent(tc.getIndex(), k -> new StringBuilder()).append(tc.getArguments());
+                }
+            }
+            if (chunk.getFinishReason() != null) {
+                finishReason = chunk.getFinishReason();
+            }
+        }
+
+        assertThat(content.toString()).isEqualTo("好的，我来帮你查一下这几款咖啡的详情。");
+        assertThat(names).hasSize(3).containsValue("get_coffee_detail");
+        assertThat(ids).hasSize(3);
+        assertThat(args.get(0).toString()).isEqualTo("{\"coffeeId\": 3}");
+        assertThat(args.get(2).toString()).isEqualTo("{\"coffeeId\": 12}");
+        assertThat(finishReason).isEqualTo("tool_calls");
+    }
+}
@@ -0,0 +1,39 @@
+package com.mycoffeestore.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试资源加载工具
+ *
+ * @author zhoulu
+ * @since 2026-03-10
+ */
+public final class BenchmarkResources {
+
+    private BenchmarkResources() {
+    }
+
+    /**
+     * 按行读取 classpath 下的录制数据
+     *
+     * @param path classpath 路径
+     * @return 非空行列表
+     */
+    public static List<String> readLines(String path) {
+        try (InputStream in = BenchmarkResources.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到基准测试资源: " + path);
+            }
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return Arrays.stream(text.split("\n"))
+                    .filter(line -> !line.isBlank())
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("读取基准测试资源失败: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.mycoffeestore.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.ai.stream.ChatStreamChunk;
+import com.mycoffeestore.ai.stream.ChatStreamParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式响应解析基准测试
+ * <p>
+ * 对比原先 trim/substring + {@code objectMapper.readTree} 的解析方式与 {@link ChatStreamParser}，
+ * 输入为录制的 ModelScope 流式响应（纯文本回答与多工具调用两种）。
+ * 使用 GC profiler 观察每个 token 的分配量（gc.alloc.rate.norm，单位 B/op，op 为一次整条流解析）。
+ * <p>
+ * 运行方式：在 IDE 中直接执行 {@link #main(String[])}，或
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mycoffeestore.benchmark.ChatStreamParserBenchmark}
+ *
+ * @author zhoulu
+ * @since 2026-03-10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatStreamParserBenchmark {
+
+    @Param({"llm/modelscope-stream-text.txt", "llm/modelscope-stream-tool-calls.txt"})
+    private String transcript;
+
+    private List<String> lines;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkResources.readLines(transcript);
+    }
+
+    /**
+     * 原实现：每行 trim/substring 后构建完整 JsonNode 树
+     */
+    @Benchmark
+    public void readTree(Blackhole blackhole) {
+        StringBuilder content = new StringBuilder();
+        List<String> toolArgs = new ArrayList<>();
+        for (String line : lines) {
+            String data = line.trim();
+            if (data.startsWith("data:")) {
+                data = data.substring(5).trim();
+            }
+            if (data.isEmpty() || data.equals("[DONE]")) {
+                continue;
+            }
+            try {
+                JsonNode json = objectMapper.readTree(data);
+                JsonNode choices = json.get("choices");
+                if (choices == null || !choices.isArray() || choices.isEmpty()) {
+                    continue;
+                }
+                JsonNode delta = choices.get(0).get("delta");
+                if (delta == null) {
+                    continue;
+                }
+                if (delta.has("content") && !delta.get("content").isNull()) {
+                    content.append(delta.get("content").asText());
+                }
+                if (delta.has("tool_calls") && delta.get("tool_calls").isArray()) {
+                    for (JsonNode tc : delta.get("tool_calls")) {
+                        JsonNode func = tc.get("function");
+                        if (func != null && func.has("arguments")) {
+                            toolArgs.add(func.get("arguments").asText());
+                        }
+                    }
+                }
+                blackhole.consume(choices.get(0).get("finish_reason"));
+            } catch (Exception e) {
+                blackhole.consume(e);
+            }
+        }
+        blackhole.consume(content);
+        blackhole.consume(toolArgs);
+    }
+
+    /**
+     * 新实现：Jackson 流式解析，只提取需要的字段
+     */
+    @Benchmark
+    public void streamingParser(Blackhole blackhole) {
+        StringBuilder content = new StringBuilder();
+        List<String> toolArgs = new ArrayList<>();
+        for (String line : lines) {
+            ChatStreamChunk chunk = ChatStreamParser.parse(line);
+            if (chunk == null) {
+                continue;
+            }
+            if (chunk.hasContent()) {
+                content.append(chunk.getContent());
+            }
+            for (ChatStreamChunk.ToolCallDelta tc : chunk.getToolCalls()) {
+                if (tc.getArguments() != null) {
+                    toolArgs.add(tc.getArguments());
+                }
+            }
+            blackhole.consume(chunk.getFinishReason());
+        }
+        blackhole.consume(content);
+        blackhole.consume(toolArgs);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChatStreamParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,151 @@
+package com.mycoffeestore.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.agent.routing.AgentRoutingConfig;
+import com.mycoffeestore.agent.routing.RoutingKeywordMatcher;
+import com.mycoffeestore.ai.config.ModelScopeChatOptions;
+import com.mycoffeestore.config.IntentCacheProperties;
+import com.mycoffeestore.config.IntentClassifierProperties;
+import com.mycoffeestore.config.RoutingKeywordProperties;
+import com.mycoffeestore.service.routing.IntentRecognitionService;
+import com.mycoffeestore.service.routing.IntentResultCache;
+import com.mycoffeestore.service.routing.LocalIntentClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LLM 意图识别本地开销基准测试
+ * <p>
+ * 使用立即返回固定 JSON 的桩 ChatModel，排除网络耗时，只比较每次请求在本地的准备与解析开销：
+ * <ul>
+ *     <li>before：每次重建意图描述、格式化系统提示词、新建 ChatClient/ChatOptions，正则每次编译</li>
+ *     <li>after：{@link IntentRecognitionService} 复用预构建的提示词与 ChatClient，流式解析 JSON</li>
+ * </ul>
+ * 运行方式同 {@link ChatStreamParserBenchmark}。
+ *
+ * @author zhoulu
+ * @since 2026-03-11
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntentRecognitionBenchmark {
+
+    /**
+     * 不命中任何关键词的输入，保证走 LLM 分支
+     */
+    private static final String USER_INPUT = "今天天气怎么样";
+
+    private static final String LLM_RESPONSE =
+            "{\"intent\": \"general\", \"confidence\": 0.82, \"reasoning\": \"用户在闲聊天气，与咖啡和订单无关\"}";
+
+    private ChatModel stubChatModel;
+
+    private IntentRecognitionService service;
+
+    @Setup
+    public void setUp() {
+        stubChatModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return new ChatResponse(List.of(new Generation(new AssistantMessage(LLM_RESPONSE))));
+            }
+        };
+        RoutingKeywordMatcher keywordMatcher = new RoutingKeywordMatcher(new RoutingKeywordProperties(), new ObjectMapper());
+        keywordMatcher.init();
+        // 关闭结果缓存，只衡量单次 LLM 分支的本地开销
+        IntentCacheProperties cacheProperties = new IntentCacheProperties();
+        cacheProperties.setEnabled(false);
+        IntentResultCache intentResultCache = new IntentResultCache(cacheProperties, new SimpleMeterRegistry());
+        // 本地分类器关闭，保证每次都走到 LLM 调用路径
+        IntentClassifierProperties classifierProperties = new IntentClassifierProperties();
+        classifierProperties.setEnabled(false);
+        LocalIntentClassifier localIntentClassifier = new LocalIntentClassifier(classifierProperties, new ObjectMapper());
+        service = new IntentRecognitionService(stubChatModel, keywordMatcher, intentResultCache, localIntentClassifier);
+        service.init();
+    }
+
+    @Benchmark
+    public void before(Blackhole blackhole) {
+        String intentDescriptions = String.join("\n",
+                Arrays.stream(AgentRoutingConfig.IntentType.values())
+                        .map(intent -> String.format("- %s: %s", intent.getCode(), intent.getDescription()))
+                        .toArray(String[]::new));
+        Message systemMessage = new SystemMessage(String.format("""
+                你是意图识别专家。分析用户输入，识别其意图类型。
+
+                ## 支持的意图类型
+                %s
+
+                ## 输出格式（JSON）
+                {
+                  "intent": "意图类型代码",
+                  "confidence": 置信度(0.0-1.0),
+                  "reasoning": "识别理由"
+                }
+
+                仅返回 JSON，不要包含其他内容。
+                """, intentDescriptions));
+        ChatClient chatClient = ChatClient.builder(stubChatModel)
+                .defaultOptions(ModelScopeChatOptions.builder()
+                        .temperature(0.3)
+                        .maxTokens(200)
+                        .build())
+                .build();
+
+        String responseText = chatClient.prompt()
+                .messages(systemMessage, new UserMessage(USER_INPUT))
+                .call()
+                .chatResponse()
+                .getResult().getOutput().getContent();
+
+        blackhole.consume(extractJsonValue(responseText, "intent"));
+        blackhole.consume(extractJsonValue(responseText, "confidence"));
+    }
+
+    @Benchmark
+    public void after(Blackhole blackhole) {
+        blackhole.consume(service.recognizeIntent(USER_INPUT));
+    }
+
+    /**
+     * 原实现：每次调用编译正则
+     */
+    private static String extractJsonValue(String json, String key) {
+        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\"?([^,}\\\"]+)\"?");
+        Matcher m = p.matcher(json);
+        return m.find() ? m.group(1).trim() : "";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IntentRecognitionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.mycoffeestore.benchmark;
+
+import com.mycoffeestore.config.RoutingKeywordProperties;
+import com.mycoffeestore.util.AhoCorasickMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由关键词匹配基准测试
+ * <p>
+ * 对比一条用户消息在 V2 路由中的关键词开销：
+ * <ul>
+ *     <li>contains：原实现，route/getRouteReason/getConfidence 各自对每个关键词执行 {@code String.contains}，
+ *     再加上意图识别的一轮扫描</li>
+ *     <li>ahoCorasick：共享自动机单遍扫描，得到所有分组的命中数</li>
+ * </ul>
+ * 运行方式同 {@link ChatStreamParserBenchmark}。
+ *
+ * @author zhoulu
+ * @since 2026-03-11
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordMatcherBenchmark {
+
+    @Param({
+            "你好",
+            "帮我推荐一款不太酸的拿铁，顺便看看我的订单到哪了",
+            "I would like to buy a latte and check the delivery address of the store near me, thanks"
+    })
+    private String message;
+
+    private Map<String, List<String>> groups;
+
+    private AhoCorasickMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        groups = new RoutingKeywordProperties().getGroups();
+        matcher = AhoCorasickMatcher.build(groups);
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        String lower = message.toLowerCase();
+        // route + getRouteReason + getConfidence 各扫描一遍路由关键词
+        for (int pass = 0; pass < 3; pass++) {
+            blackhole.consume(count(lower, "router_order"));
+            blackhole.consume(count(lower, "router_coffee") + count(lower, "router_coffee_product"));
+            blackhole.consume(count(lower, "router_service"));
+        }
+        // 意图识别再扫描一遍意图关键词
+        for (String intent : List.of("order_purchase", "complaint", "consult", "order_query")) {
+            blackhole.consume(count(lower, intent));
+        }
+    }
+
+    @Benchmark
+    public void ahoCorasick(Blackhole blackhole) {
+        AhoCorasickMatcher.Hits hits = matcher.match(message);
+        blackhole.consume(hits.count("router_order"));
+        blackhole.consume(hits.count("router_coffee") + hits.count("router_coffee_product"));
+        blackhole.consume(hits.count("router_service"));
+        for (String intent : List.of("order_purchase", "complaint", "consult", "order_query")) {
+            blackhole.consume(hits.count(intent));
+        }
+    }
+
+    private int count(String message, String group) {
+        int count = 0;
+        for (String keyword : groups.get(group)) {
+            if (message.contains(keyword.toLowerCase())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(KeywordMatcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,382 @@
+package com.mycoffeestore.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Agent 聊天接口压测驱动
+ * <p>
+ * 以固定并发（闭环：每个并发槽位结束一次对话后立即开始下一次）向 V1 / V2 SSE 聊天接口发起请求，统计：
+ * <ul>
+ *     <li>首字延迟：请求发出到第一个文本事件</li>
+ *     <li>完成耗时：请求发出到事件流结束</li>
+ *     <li>错误率：非 200 状态码、error / routing_error 事件、未收到结束事件即断开、超时，按类型分别计数</li>
+ * </ul>
+ * 延迟只统计成功的对话，报告 p50 / p95 / p99 / max。
+ * <p>
+ * 通常配合 {@link MockLlmServer} 使用，应用需关闭用户 / IP 限流（{@code --agent.rate-limit.enabled=false}），
+ * 否则单机压测会被限流为 429。运行方式：
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mycoffeestore.loadtest.AgentLoadDriver
+ * -Dexec.args="base-url=http://localhost:8080/api concurrency=50 requests=500 versions=v1,v2"}
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+public class AgentLoadDriver {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final List<String[]> PROMPTS = List.of(
+            new String[]{"coffee_advisor", "推荐一款适合下午喝的咖啡"},
+            new String[]{"coffee_advisor", "有没有不太苦的拿铁？"},
+            new String[]{"customer_service", "你们几点开门？配送多久能到？"},
+            new String[]{"order_assistant", "我想看看菜单"}
+    );
+
+    /**
+     * 接口版本
+     */
+    public enum ApiVersion {
+        /**
+         * 指定 Agent，事件流以 done 结束
+         */
+        V1("/v1/agent/chat", "done"),
+        /**
+         * 智能路由，事件流以 routing_complete 结束
+         */
+        V2("/v2/agent/chat", "routing_complete");
+
+        private final String path;
+        private final String terminalEvent;
+
+        ApiVersion(String path, String terminalEvent) {
+            this.path = path;
+            this.terminalEvent = terminalEvent;
+        }
+    }
+
+    /**
+     * 压测配置
+     */
+    @Getter
+    @Builder
+    public static class Options {
+
+        /**
+         * 应用地址（包含 context-path）
+         */
+        @Builder.Default
+        private final String baseUrl = "http://localhost:8080/api";
+
+        /**
+         * 并发对话数
+         */
+        @Builder.Default
+        private final int concurrency = 20;
+
+        /**
+         * 每个版本的总对话数
+         */
+        @Builder.Default
+        private final int requests = 200;
+
+        /**
+         * 单次对话超时
+         */
+        @Builder.Default
+        private final Duration timeout = Duration.ofSeconds(60);
+
+        /**
+         * JWT（为空表示未登录）
+         */
+        private final String token;
+    }
+
+    /**
+     * 单次对话结果
+     *
+     * @param ttftNanos  首字延迟（未收到文本时为 -1）
+     * @param totalNanos 完成耗时
+     * @param error      错误类型（成功为 null）
+     */
+    public record ChatResult(long ttftNanos, long totalNanos, String error) {
+
+        public boolean success() {
+            return error == null;
+        }
+    }
+
+    private final Options options;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService timeoutScheduler;
+
+    public AgentLoadDriver(Options options) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.timeoutScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-driver-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 对指定版本执行一轮压测
+     *
+     * @param version 接口版本
+     * @return 压测报告
+     */
+    public LoadReport run(ApiVersion version) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, options.getConcurrency()));
+        List<Future<ChatResult>> futures = new ArrayList<>(options.getRequests());
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < options.getRequests(); i++) {
+                String[] prompt = PROMPTS.get(i % PROMPTS.size());
+                futures.add(workers.submit(() -> chatOnce(version, prompt[0], prompt[1])));
+            }
+            List<ChatResult> results = new ArrayList<>(futures.size());
+            for (Future<ChatResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(new ChatResult(-1, 0, "driver_" + e.getCause().getClass().getSimpleName()));
+                }
+            }
+            return LoadReport.of(version, results, System.nanoTime() - start);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 发起一次对话并读完事件流
+     */
+    ChatResult chatOnce(ApiVersion version, String agentType, String message) {
+        long start = System.nanoTime();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(options.getBaseUrl() + version.path))
+                .timeout(options.getTimeout())
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody(version, agentType, message)));
+        if (options.getToken() != null && !options.getToken().isBlank()) {
+            request.header("Authorization", "Bearer " + options.getToken());
+        }
+
+        HttpResponse<Stream<String>> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        } catch (IOException e) {
+            return new ChatResult(-1, System.nanoTime() - start, "connect");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ChatResult(-1, System.nanoTime() - start, "interrupted");
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            return new ChatResult(-1, System.nanoTime() - start, "http_" + response.statusCode());
+        }
+
+        // 超时后关闭响应流，读取线程随之结束
+        AtomicBoolean timedOut = new AtomicBoolean();
+        long remaining = options.getTimeout().toNanos() - (System.nanoTime() - start);
+        ScheduledFuture<?> deadline = timeoutScheduler.schedule(() -> {
+            timedOut.set(true);
+            response.body().close();
+        }, Math.max(0, remaining), TimeUnit.NANOSECONDS);
+
+        long ttft = -1;
+        String error = null;
+        boolean terminated = false;
+        String eventName = "message";
+        try (Stream<String> lines = response.body()) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext() && error == null && !terminated) {
+                String line = iterator.next();
+                if (line.startsWith("event:")) {
+                    eventName = line.substring("event:".length()).trim();
+                    continue;
+                }
+                if (!line.startsWith("data:")) {
+                    if (line.isEmpty()) {
+                        eventName = "message";
+                    }
+                    continue;
+                }
+                JsonNode data = OBJECT_MAPPER.readTree(line.substring("data:".length()));
+                String type = data.path("type").asText();
+                if (ttft < 0 && "text".equals(type)) {
+                    ttft = System.nanoTime() - start;
+                }
+                if ("error".equals(eventName) || "routing_error".equals(eventName) || "error".equals(type)) {
+                    error = data.has("code") ? "error_" + data.get("code").asText() : "error_event";
+                } else if (version.terminalEvent.equals(eventName)) {
+                    terminated = true;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            error = "bad_event";
+        } catch (IOException | UncheckedIOException e) {
+            if (!timedOut.get()) {
+                error = "disconnect";
+            }
+        } finally {
+            deadline.cancel(false);
+        }
+        if (error == null && timedOut.get()) {
+            error = "timeout";
+        } else if (error == null && !terminated) {
+            error = "incomplete";
+        }
+        return new ChatResult(ttft, System.nanoTime() - start, error);
+    }
+
+    private static String requestBody(ApiVersion version, String agentType, String message) {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        if (version == ApiVersion.V1) {
+            body.put("agentType", agentType);
+            body.putArray("messages").addObject().put("role", "user").put("content", message);
+        } else {
+            body.put("message", message);
+            body.put("agentType", "auto");
+        }
+        return body.toString();
+    }
+
+    /**
+     * 压测报告
+     *
+     * @param version      接口版本
+     * @param requests     对话数
+     * @param errors       错误类型 -> 次数
+     * @param ttftMillis   首字延迟分位数（毫秒）
+     * @param totalMillis  完成耗时分位数（毫秒）
+     * @param wallMillis   总耗时（毫秒）
+     */
+    public record LoadReport(ApiVersion version, int requests, Map<String, Long> errors,
+                             Percentiles ttftMillis, Percentiles totalMillis, long wallMillis) {
+
+        static LoadReport of(ApiVersion version, List<ChatResult> results, long wallNanos) {
+            Map<String, Long> errors = new TreeMap<>();
+            List<Long> ttft = new ArrayList<>();
+            List<Long> total = new ArrayList<>();
+            for (ChatResult result : results) {
+                if (!result.success()) {
+                    errors.merge(result.error(), 1L, Long::sum);
+                    continue;
+                }
+                if (result.ttftNanos() >= 0) {
+                    ttft.add(result.ttftNanos());
+                }
+                total.add(result.totalNanos());
+            }
+            return new LoadReport(version, results.size(), errors,
+                    Percentiles.of(ttft), Percentiles.of(total), TimeUnit.NANOSECONDS.toMillis(wallNanos));
+        }
+
+        public long errorCount() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public double errorRate() {
+            return requests == 0 ? 0 : (double) errorCount() / requests;
+        }
+
+        public String format() {
+            return String.format("%s  对话 %d，错误 %d（%.2f%%）%s，耗时 %.1fs，%.1f 次/秒%n"
+                            + "    首字延迟  %s%n"
+                            + "    完成耗时  %s",
+                    version, requests, errorCount(), errorRate() * 100, errors.isEmpty() ? "" : " " + errors,
+                    wallMillis / 1000.0, wallMillis == 0 ? 0 : requests * 1000.0 / wallMillis,
+                    ttftMillis.format(), totalMillis.format());
+        }
+    }
+
+    /**
+     * 延迟分位数（毫秒，最近秩法）
+     */
+    public record Percentiles(int count, double p50, double p95, double p99, double max) {
+
+        static Percentiles of(List<Long> nanos) {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                return new Percentiles(0, 0, 0, 0, 0);
+            }
+            return new Percentiles(sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.95),
+                    percentile(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000.0);
+        }
+
+        static double percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1] / 1_000_000.0;
+        }
+
+        public String format() {
+            return String.format("n=%d  p50=%.0fms  p95=%.0fms  p99=%.0fms  max=%.0fms", count, p50, p95, p99, max);
+        }
+    }
+
+    /**
+     * 解析 key=value 形式的命令行参数（可带 -- 前缀）
+     */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator > 0) {
+                options.put(option.substring(0, separator), option.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 独立运行，参数：base-url、concurrency、requests、versions（v1,v2）、timeout（毫秒）、token
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = parseArgs(args);
+        AgentLoadDriver driver = new AgentLoadDriver(Options.builder()
+                .baseUrl(arguments.getOrDefault("base-url", "http://localhost:8080/api"))
+                .concurrency(Integer.parseInt(arguments.getOrDefault("concurrency", "20")))
+                .requests(Integer.parseInt(arguments.getOrDefault("requests", "200")))
+                .timeout(Duration.ofMillis(Long.parseLong(arguments.getOrDefault("timeout", "60000"))))
+                .token(arguments.get("token"))
+                .build());
+        for (String version : Arrays.asList(arguments.getOrDefault("versions", "v1,v2").split(","))) {
+            LoadReport report = driver.run(ApiVersion.valueOf(version.trim().toUpperCase()));
+            System.out.println(report.format());
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.mycoffeestore.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mycoffeestore.benchmark.BenchmarkResources;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OpenAI 兼容的模拟 LLM 服务
+ * <p>
+ * 回放录制的 ModelScope 流式响应（{@code llm/*.txt}），用于在不消耗上游配额的情况下压测 Agent 链路：
+ * <ul>
+ *     <li>任意以 {@code /chat/completions} 结尾的 POST 请求；请求带工具定义且最后一条消息不是工具结果时，
+ *     按 {@code toolCallRate} 概率回放工具调用录制，否则回放纯文本录制，因此工具轮次能自然结束</li>
+ *     <li>流式请求先返回响应头，等待首字延迟后逐个分片写出，分片间隔为每 Token 延迟；
+ *     请求 {@code stream_options.include_usage} 时在 [DONE] 前追加用量分片</li>
+ *     <li>非流式请求把录制的分片合并为一个 chat.completion 响应</li>
+ *     <li>故障注入：按 {@code errorRate} 直接返回错误状态码；按 {@code stallRate} 在流中途停顿 {@code stallDuration}
+ *     后断开连接（不发送 [DONE]）；所有延迟按 {@code jitter} 比例随机抖动</li>
+ * </ul>
+ * 进程内使用：{@code new MockLlmServer(Options.builder().ttft(Duration.ofMillis(500)).build()).start()}，
+ * 之后把 {@code modelscope.base-url}（V1）或 LLM 提供商的 Base URL（V2）指向 {@link #baseUrl()}。
+ * <p>
+ * 独立运行：{@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mycoffeestore.loadtest.MockLlmServer
+ * -Dexec.args="port=18080 ttft=800 token-delay=30 error-rate=0.02 stall-rate=0.01 stall=30000"}，
+ * 再以 {@code --modelscope.base-url=http://localhost:18080/v1} 启动应用。
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Slf4j
+public class MockLlmServer implements AutoCloseable {
+
+    public static final String TEXT_TRANSCRIPT = "llm/modelscope-stream-text.txt";
+    public static final String TOOL_CALLS_TRANSCRIPT = "llm/modelscope-stream-tool-calls.txt";
+
+    private static final String DONE_LINE = "data: [DONE]";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Options options;
+    @Getter
+    private final AtomicLong requests = new AtomicLong();
+    @Getter
+    private final AtomicLong injectedErrors = new AtomicLong();
+    @Getter
+    private final AtomicLong injectedStalls = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MockLlmServer(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * 模拟服务配置（时间均为 {@link Duration}，比例为 0~1）
+     */
+    @Getter
+    @Builder
+    public static class Options {
+
+        /**
+         * 监听端口（0 表示随机端口）
+         */
+        @Builder.Default
+        private final int port = 0;
+
+        /**
+         * 首字延迟（响应头之后到第一个分片）
+         */
+        @Builder.Default
+        private final Duration ttft = Duration.ZERO;
+
+        /**
+         * 分片之间的延迟
+         */
+        @Builder.Default
+        private final Duration tokenDelay = Duration.ZERO;
+
+        /**
+         * 延迟的随机抖动比例（0.2 表示 ±20%）
+         */
+        @Builder.Default
+        private final double jitter = 0;
+
+        /**
+         * 直接返回错误的请求比例
+         */
+        @Builder.Default
+        private final double errorRate = 0;
+
+        /**
+         * 错误状态码
+         */
+        @Builder.Default
+        private final int errorStatus = 503;
+
+        /**
+         * 流中途停顿并断开的请求比例
+         */
+        @Builder.Default
+        private final double stallRate = 0;
+
+        /**
+         * 停顿时长
+         */
+        @Builder.Default
+        private final Duration stallDuration = Duration.ofSeconds(30);
+
+        /**
+         * 带工具定义的请求回放工具调用录制的比例
+         */
+        @Builder.Default
+        private final double toolCallRate = 1.0;
+
+        /**
+         * 处理请求的线程数（每个打开的流占用一个线程）
+         */
+        @Builder.Default
+        private final int workerThreads = 256;
+
+        /**
+         * 纯文本录制
+         */
+        @Builder.Default
+        private final List<String> textTranscript = BenchmarkResources.readLines(TEXT_TRANSCRIPT);
+
+        /**
+         * 工具调用录制
+         */
+        @Builder.Default
+        private final List<String> toolCallsTranscript = BenchmarkResources.readLines(TOOL_CALLS_TRANSCRIPT);
+    }
+
+    /**
+     * 启动服务
+     *
+     * @return 当前实例
+     */
+    public MockLlmServer start() throws IOException {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(options.workerThreads, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("mock-llm-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("模拟 LLM 服务已启动: {}", baseUrl());
+        return this;
+    }
+
+    /**
+     * OpenAI 兼容的 Base URL（以 /v1 结尾）
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())
+                    || !exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                sendJson(exchange, 404, error("not found", "invalid_request_error"));
+                return;
+            }
+            requests.incrementAndGet();
+            JsonNode request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < options.errorRate) {
+                injectedErrors.incrementAndGet();
+                sendJson(exchange, options.errorStatus, error("mock upstream error", "server_error"));
+                return;
+            }
+            List<String> transcript = selectTranscript(request, random);
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, request, transcript, random);
+            } else {
+                sendJson(exchange, 200, OBJECT_MAPPER.writeValueAsString(assemble(transcript)));
+            }
+        } catch (IOException e) {
+            // 客户端提前断开
+            log.debug("模拟 LLM 连接中断: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private List<String> selectTranscript(JsonNode request, ThreadLocalRandom random) {
+        JsonNode messages = request.path("messages");
+        boolean afterToolResult = messages.size() > 0
+                && "tool".equals(messages.get(messages.size() - 1).path("role").asText());
+        boolean hasTools = request.path("tools").size() > 0;
+        if (hasTools && !afterToolResult && random.nextDouble() < options.toolCallRate) {
+            return options.toolCallsTranscript;
+        }
+        return options.textTranscript;
+    }
+
+    private void stream(HttpExchange exchange, JsonNode request, List<String> transcript,
+                        ThreadLocalRandom random) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        out.flush();
+
+        int total = (int) transcript.stream().filter(line -> !DONE_LINE.equals(line)).count();
+        int stallAt = random.nextDouble() < options.stallRate ? random.nextInt(1, Math.max(2, total)) : -1;
+        sleep(options.ttft, random);
+        int chunks = 0;
+        for (String line : transcript) {
+            if (DONE_LINE.equals(line)) {
+                continue;
+            }
+            if (chunks == stallAt) {
+                injectedStalls.incrementAndGet();
+                Thread.sleep(options.stallDuration.toMillis());
+                // 不发送 [DONE]，直接断开
+                return;
+            }
+            if (chunks > 0) {
+                sleep(options.tokenDelay, random);
+            }
+            writeEvent(out, line);
+            chunks++;
+        }
+        if (request.path("stream_options").path("include_usage").asBoolean(false)) {
+            ObjectNode usage = OBJECT_MAPPER.createObjectNode();
+            usage.putArray("choices");
+            usage.putObject("usage")
+                    .put("prompt_tokens", estimatePromptTokens(request))
+                    .put("completion_tokens", chunks);
+            writeEvent(out, "data: " + OBJECT_MAPPER.writeValueAsString(usage));
+        }
+        writeEvent(out, DONE_LINE);
+    }
+
+    private static void writeEvent(OutputStream out, String line) throws IOException {
+        out.write((line + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 把录制的增量分片合并为非流式响应
+     */
+    static ObjectNode assemble(List<String> transcript) throws IOException {
+        StringBuilder content = new StringBuilder();
+        Map<Integer, ObjectNode> toolCalls = new HashMap<>();
+        String finishReason = "stop";
+        ObjectNode response = OBJECT_MAPPER.createObjectNode();
+        for (String line : transcript) {
+            if (!line.startsWith("data:") || DONE_LINE.equals(line)) {
+                continue;
+            }
+            JsonNode chunk = OBJECT_MAPPER.readTree(line.substring("data:".length()));
+            response.put("id", chunk.path("id").asText()).put("model", chunk.path("model").asText());
+            JsonNode choice = chunk.path("choices").path(0);
+            JsonNode delta = choice.path("delta");
+            if (delta.hasNonNull("content")) {
+                content.append(delta.get("content").asText());
+            }
+            for (JsonNode call : delta.path("tool_calls")) {
+                ObjectNode merged = toolCalls.computeIfAbsent(call.path("index").asInt(), index -> {
+                    ObjectNode node = OBJECT_MAPPER.createObjectNode();
+                    node.put("type", "function");
+                    node.putObject("function").put("name", "").put("arguments", "");
+                    return node;
+                });
+                if (call.hasNonNull("id")) {
+                    merged.put("id", call.get("id").asText());
+                }
+                ObjectNode function = (ObjectNode) merged.get("function");
+                JsonNode fn = call.path("function");
+                if (fn.hasNonNull("name")) {
+                    function.put("name", function.get("name").asText() + fn.get("name").asText());
+                }
+                if (fn.hasNonNull("arguments")) {
+                    function.put("arguments", function.get("arguments").asText() + fn.get("arguments").asText());
+                }
+            }
+            if (choice.hasNonNull("finish_reason")) {
+                finishReason = choice.get("finish_reason").asText();
+            }
+        }
+        response.put("object", "chat.completion");
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0).put("finish_reason", finishReason);
+        ObjectNode message = choice.putObject("message");
+        message.put("role", "assistant").put("content", content.toString());
+        if (!toolCalls.isEmpty()) {
+            ArrayNode calls = message.putArray("tool_calls");
+            toolCalls.keySet().stream().sorted().forEach(index -> calls.add(toolCalls.get(index)));
+        }
+        return response;
+    }
+
+    private void sleep(Duration delay, ThreadLocalRandom random) throws InterruptedException {
+        long millis = delay.toMillis();
+        if (millis <= 0) {
+            return;
+        }
+        if (options.jitter > 0) {
+            millis = Math.round(millis * (1 + (random.nextDouble() * 2 - 1) * options.jitter));
+        }
+        TimeUnit.MILLISECONDS.sleep(Math.max(0, millis));
+    }
+
+    private static int estimatePromptTokens(JsonNode request) {
+        return Math.max(1, request.path("messages").toString().length() / 4);
+    }
+
+    private static String error(String message, String type) {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.putObject("error").put("message", message).put("type", type);
+        return body.toString();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * 独立运行，参数格式 key=value：port、ttft、token-delay、jitter、error-rate、error-status、stall-rate、stall、
+     * tool-call-rate、threads（时间单位毫秒）
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = AgentLoadDriver.parseArgs(args);
+        MockLlmServer server = new MockLlmServer(Options.builder()
+                .port(Integer.parseInt(options.getOrDefault("port", "18080")))
+                .ttft(Duration.ofMillis(Long.parseLong(options.getOrDefault("ttft", "800"))))
+                .tokenDelay(Duration.ofMillis(Long.parseLong(options.getOrDefault("token-delay", "30"))))
+                .jitter(Double.parseDouble(options.getOrDefault("jitter", "0.2")))
+                .errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .errorStatus(Integer.parseInt(options.getOrDefault("error-status", "503")))
+                .stallRate(Double.parseDouble(options.getOrDefault("stall-rate", "0")))
+                .stallDuration(Duration.ofMillis(Long.parseLong(options.getOrDefault("stall", "30000"))))
+                .toolCallRate(Double.parseDouble(options.getOrDefault("tool-call-rate", "1.0")))
+                .workerThreads(Integer.parseInt(options.getOrDefault("threads", "256")))
+                .build())
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,184 @@
+package com.mycoffeestore.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.ai.core.LlmMetrics;
+import com.mycoffeestore.config.AgentProperties;
+import com.mycoffeestore.config.ModelScopeProperties;
+import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import com.mycoffeestore.service.impl.agent.AgentServiceImpl;
+import com.mycoffeestore.util.AgentToolExecutor;
+import com.mycoffeestore.util.RequestCoalescer;
+import com.mycoffeestore.util.SseDeltaCoalescer;
+import com.mycoffeestore.util.SseEventEncoder;
+import com.mycoffeestore.util.ToolDefinitionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 模拟 LLM 服务与压测驱动测试
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@DisplayName("模拟 LLM 服务测试")
+public class MockLlmServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    /**
+     * 模拟服务的响应
+     */
+    private record Reply(int status, List<String> lines, long elapsedMillis) {
+    }
+
+    private Reply post(MockLlmServer server, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl() + "/chat/completions"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        List<String> lines = response.body().filter(line -> !line.isEmpty()).toList();
+        return new Reply(response.statusCode(), lines, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    @Test
+    @DisplayName("流式回放：带工具定义时回放工具调用，工具结果之后回放文本，按需追加用量分片")
+    void testStreamReplay() throws Exception {
+        try (MockLlmServer server = new MockLlmServer(MockLlmServer.Options.builder()
+                .ttft(Duration.ofMillis(100))
+                .build()).start()) {
+            Reply toolRound = post(server, """
+                    {"stream":true,"tools":[{"type":"function"}],"messages":[{"role":"user","content":"hi"}]}""");
+            assertThat(toolRound.status()).isEqualTo(200);
+            assertThat(toolRound.elapsedMillis()).isGreaterThanOrEqualTo(100);
+            assertThat(String.join("\n", toolRound.lines())).contains("tool_calls");
+            assertThat(toolRound.lines()).last().isEqualTo("data: [DONE]");
+
+            Reply textRound = post(server, """
+                    {"stream":true,"tools":[{"type":"function"}],"stream_options":{"include_usage":true},
+                     "messages":[{"role":"user","content":"hi"},{"role":"tool","content":"{}"}]}""");
+            assertThat(String.join("\n", textRound.lines())).doesNotContain("tool_calls");
+            String usage = textRound.lines().get(textRound.lines().size() - 2);
+            assertThat(objectMapper.readTree(usage.substring("data:".length())).at("/usage/completion_tokens").asInt())
+                    .isEqualTo(textRound.lines().size() - 2);
+
+            Reply blocking = post(server, """
+                    {"tools":[{"type":"function"}],"messages":[{"role":"user","content":"hi"}]}""");
+            JsonNode message = objectMapper.readTree(blocking.lines().get(0)).at("/choices/0/message");
+            assertThat(message.at("/tool_calls").size()).isEqualTo(3);
+            assertThat(message.at("/tool_calls/0/function/name").asText()).isEqualTo("get_coffee_detail");
+            assertThat(objectMapper.readTree(message.at("/tool_calls/0/function/arguments").asText()).isObject()).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("故障注入：错误状态码、流中途停顿后断开且不发送 [DONE]")
+    void testFaultInjection() throws Exception {
+        String body = """
+                {"stream":true,"messages":[{"role":"user","content":"hi"}]}""";
+        try (MockLlmServer failing = new MockLlmServer(MockLlmServer.Options.builder()
+                .errorRate(1).errorStatus(429).build()).start()) {
+            assertThat(post(failing, body).status()).isEqualTo(429);
+            assertThat(failing.getInjectedErrors().get()).isEqualTo(1);
+        }
+        try (MockLlmServer stalling = new MockLlmServer(MockLlmServer.Options.builder()
+                .stallRate(1).stallDuration(Duration.ofMillis(300)).build()).start()) {
+            Reply reply = post(stalling, body);
+            assertThat(reply.status()).isEqualTo(200);
+            assertThat(reply.elapsedMillis()).isGreaterThanOrEqualTo(300);
+            assertThat(reply.lines()).doesNotContain("data: [DONE]");
+            assertThat(stalling.getInjectedStalls().get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("压测报告：错误按类型计数，延迟分位数按最近秩法计算")
+    void testLoadReport() {
+        List<AgentLoadDriver.ChatResult> results = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            results.add(new AgentLoadDriver.ChatResult(i * 1_000_000L, i * 10_000_000L, null));
+        }
+        results.add(new AgentLoadDriver.ChatResult(-1, 5_000_000L, "http_503"));
+        results.add(new AgentLoadDriver.ChatResult(-1, 60_000_000_000L, "timeout"));
+
+        AgentLoadDriver.LoadReport report = AgentLoadDriver.LoadReport.of(
+                AgentLoadDriver.ApiVersion.V1, results, 2_000_000_000L);
+
+        assertThat(report.errorCount()).isEqualTo(2);
+        assertThat(report.errors()).containsEntry("http_503", 1L).containsEntry("timeout", 1L);
+        assertThat(report.ttftMillis().p50()).isEqualTo(50);
+        assertThat(report.ttftMillis().p95()).isEqualTo(95);
+        assertThat(report.ttftMillis().p99()).isEqualTo(99);
+        assertThat(report.totalMillis().max()).isEqualTo(1000);
+        assertThat(report.format())
+                .startsWith("V1  对话 102，错误 2")
+                .contains("{http_503=1, timeout=1}")
+                .contains("首字延迟  n=100  p50=50ms  p95=95ms  p99=99ms  max=100ms")
+                .contains("完成耗时  n=100  p50=500ms  p95=950ms  p99=990ms  max=1000ms");
+    }
+
+    @Test
+    @DisplayName("Agent 直连模拟服务：工具调用轮次与文本轮次按录制回放并正常结束")
+    void testAgentAgainstMockServer() throws Exception {
+        try (MockLlmServer server = new MockLlmServer(MockLlmServer.Options.builder()
+                .tokenDelay(Duration.ofMillis(1))
+                .build()).start()) {
+            ModelScopeProperties properties = new ModelScopeProperties();
+            properties.setBaseUrl(server.baseUrl());
+            properties.setModel("moonshotai/Kimi-K2.5");
+            AgentToolExecutor toolExecutor = mock(AgentToolExecutor.class);
+            when(toolExecutor.executeTool(eq("get_coffee_detail"), any(), any(), any()))
+                    .thenReturn("{\"coffeeId\":12,\"name\":\"拿铁\",\"price\":28}");
+
+            AgentServiceImpl agentService = new AgentServiceImpl(
+                    WebClient.builder().baseUrl(server.baseUrl()).build(),
+                    properties,
+                    toolExecutor,
+                    objectMapper,
+                    new AgentProperties(),
+                    new RequestCoalescer(new SimpleMeterRegistry()),
+                    new ToolDefinitionRegistry(objectMapper),
+                    new LlmMetrics(new SimpleMeterRegistry()),
+                    new SseDeltaCoalescer(new AgentProperties(), new SimpleMeterRegistry()),
+                    new SseEventEncoder(objectMapper));
+            agentService.init();
+
+            AgentChatRequestDTO request = AgentChatRequestDTO.builder()
+                    .agentType("coffee_advisor")
+                    .messages(List.of(AgentChatRequestDTO.Message.builder().role("user").content("推荐几款咖啡").build()))
+                    .build();
+            List<AgentEvent> events = agentService.events(request, null).collectList().block(Duration.ofSeconds(10));
+            agentService.destroy();
+
+            assertThat(events).extracting(AgentEvent::type).contains("tool_call", "tool_result");
+            assertThat(events.get(events.size() - 1).isDone()).isTrue();
+            String text = events.stream().filter(AgentEvent::isText).map(AgentEvent::content).collect(Collectors.joining());
+            String expected = MockLlmServer.assemble(MockLlmServer.Options.builder().build().getTextTranscript())
+                    .at("/choices/0/message/content").asText();
+            assertThat(text).endsWith(expected);
+            assertThat(server.getRequests().get()).isEqualTo(2);
+        }
+    }
+}
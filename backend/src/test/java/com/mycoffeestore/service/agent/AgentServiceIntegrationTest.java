@@ -2,11 +2,20 @@ package com.mycoffeestore.service.agent;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.ai.core.ChatRequestBody;
+import com.mycoffeestore.ai.core.LlmMetrics;
+import com.mycoffeestore.config.AgentProperties;
 import com.mycoffeestore.config.ModelScopeProperties;
 import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
+import com.mycoffeestore.dto.agent.AgentEvent;
 import com.mycoffeestore.service.coffee.CoffeeService;
 import com.mycoffeestore.service.impl.agent.AgentServiceImpl;
 import com.mycoffeestore.util.AgentToolExecutor;
+import com.mycoffeestore.util.RequestCoalescer;
+import com.mycoffeestore.util.SseDeltaCoalescer;
+import com.mycoffeestore.util.SseEventEncoder;
+import com.mycoffeestore.util.ToolDefinitionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,15 +23,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -74,15 +88,27 @@ public class AgentServiceIntegrationTest {
         // 配置 WebClient 链式调用
         when(modelScopeWebClient.post()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(eq("/chat/completions"))).thenReturn(requestBodySpec);
-        when(requestBodySpec.bodyValue(any())).thenReturn(requestBodySpec);
+        when(requestBodySpec.body(any())).thenReturn(requestBodySpec);
         when(requestBodySpec.retrieve()).thenReturn(responseSpec);
 
-        agentService = new AgentServiceImpl(
+        agentService = newAgentService(new AgentProperties());
+    }
+
+    private AgentServiceImpl newAgentService(AgentProperties agentProperties) {
+        AgentServiceImpl service = new AgentServiceImpl(
                 modelScopeWebClient,
                 modelScopeProperties,
                 toolExecutor,
-                objectMapper
+                objectMapper,
+                agentProperties,
+                new RequestCoalescer(new SimpleMeterRegistry()),
+                new ToolDefinitionRegistry(objectMapper),
+                new LlmMetrics(new SimpleMeterRegistry()),
+                new SseDeltaCoalescer(agentProperties, new SimpleMeterRegistry()),
+                new SseEventEncoder(objectMapper)
         );
+        service.init();
+        return service;
     }
 
     // ==================== 咖啡顾问 Agent 测试 ====================
@@ -157,7 +183,7 @@ public class AgentServiceIntegrationTest {
                 "total", 1
         ));
 
-        when(toolExecutor.executeTool(eq("search_coffee"), any(), any()))
+        when(toolExecutor.executeTool(eq("search_coffee"), any(), any(), any()))
                 .thenReturn(objectMapper.writeValueAsString(Map.of(
                         "list", mockCoffees,
                         "total", 1
@@ -179,7 +205,7 @@ public class AgentServiceIntegrationTest {
 
         // Then
         future.join();
-        verify(toolExecutor, atLeastOnce()).executeTool(eq("search_coffee"), any(), any());
+        verify(toolExecutor, timeout(2000).atLeastOnce()).executeTool(eq("search_coffee"), any(), any(), any());
     }
 
     // ==================== 订单助手 Agent 测试 ====================
@@ -202,7 +228,7 @@ public class AgentServiceIntegrationTest {
         SseEmitter emitter = new SseEmitter(60000L);
 
         // Mock 工具执行结果
-        when(toolExecutor.executeTool(eq("create_order"), any(), eq(userId)))
+        when(toolExecutor.executeTool(eq("create_order"), any(), eq(userId), any()))
                 .thenReturn("{\"success\":true,\"orderId\":\"ORD123\"}");
 
         String sseResponse = """
@@ -242,7 +268,7 @@ public class AgentServiceIntegrationTest {
 
         SseEmitter emitter = new SseEmitter(60000L);
 
-        when(toolExecutor.executeTool(eq("get_order_list"), any(), eq(userId)))
+        when(toolExecutor.executeTool(eq("get_order_list"), any(), eq(userId), any()))
                 .thenReturn("{\"list\":[],\"total\":0}");
 
         String sseResponse = """
@@ -317,7 +343,7 @@ public class AgentServiceIntegrationTest {
 
         SseEmitter emitter = new SseEmitter(60000L);
 
-        when(toolExecutor.executeTool(eq("get_order_detail"), any(), eq(userId)))
+        when(toolExecutor.executeTool(eq("get_order_detail"), any(), eq(userId), any()))
                 .thenReturn("{\"orderId\":\"ORD123\",\"status\":\"preparing\"}");
 
         String sseResponse = """
@@ -357,7 +383,7 @@ public class AgentServiceIntegrationTest {
         SseEmitter emitter = new SseEmitter(60000L);
 
         // Mock 工具执行器返回错误
-        when(toolExecutor.executeTool(eq("add_to_cart"), any(), any()))
+        when(toolExecutor.executeTool(eq("add_to_cart"), any(), any(), any()))
                 .thenReturn("{\"error\":\"该操作需要登录，请先登录\"}");
 
         String sseResponse = """
@@ -375,7 +401,330 @@ public class AgentServiceIntegrationTest {
 
         // Then
         future.join();
-        verify(toolExecutor).executeTool(eq("add_to_cart"), any(), isNull());
+        verify(toolExecutor, timeout(2000)).executeTool(eq("add_to_cart"), any(), isNull(), any());
+    }
+
+    @Test
+    @DisplayName("工具调用 - 同一轮只读工具并发执行，结果按原顺序拼入")
+    void testReadOnlyToolsParallelExecution() throws Exception {
+        // Given
+        AgentChatRequestDTO request = AgentChatRequestDTO.builder()
+                .agentType("coffee_advisor")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("看看 3、7、12 号咖啡的详情")
+                                .build()
+                ))
+                .build();
+
+        SseEmitter emitter = new SseEmitter(60000L);
+
+        // 每个工具耗时约 300ms，编号越大完成越早，完成顺序与调用顺序相反
+        when(toolExecutor.isReadOnly("get_coffee_detail")).thenReturn(true);
+        when(toolExecutor.executeTool(eq("get_coffee_detail"), any(), any(), any())).thenAnswer(invocation -> {
+            String args = invocation.getArgument(1);
+            long coffeeId = objectMapper.readTree(args).get("coffeeId").asLong();
+            Thread.sleep(400 - coffeeId * 10);
+            return "{\"id\":" + coffeeId + "}";
+        });
+
+        String toolCallResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_a","function":{"name":"get_coffee_detail","arguments":"{\\"coffeeId\\":3}"}}]}}]}
+                data: {"choices":[{"delta":{"tool_calls":[{"index":1,"id":"call_b","function":{"name":"get_coffee_detail","arguments":"{\\"coffeeId\\":7}"}}]}}]}
+                data: {"choices":[{"delta":{"tool_calls":[{"index":2,"id":"call_c","function":{"name":"get_coffee_detail","arguments":"{\\"coffeeId\\":12}"}}]}}]}
+                data: [DONE]
+                """;
+        when(responseSpec.bodyToFlux(String.class))
+                .thenReturn(Flux.just(toolCallResponse.split("\n")))
+                .thenReturn(Flux.just("data: [DONE]"));
+
+        ArgumentCaptor<ChatRequestBody> bodyCaptor = ArgumentCaptor.forClass(ChatRequestBody.class);
+
+        // When
+        long start = System.currentTimeMillis();
+        agentService.chatStream(request, null, emitter);
+
+        // Then：第二轮请求在三个工具全部完成后发出，总耗时接近单个工具而不是三者之和
+        verify(requestBodySpec, timeout(2000).times(2)).body(bodyCaptor.capture());
+        assertThat(System.currentTimeMillis() - start).isLessThan(800);
+
+        JsonNode messages = objectMapper.readTree(bodyCaptor.getAllValues().get(1).toString()).get("messages");
+        List<String> toolCallIds = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        for (JsonNode message : messages) {
+            if ("tool".equals(message.get("role").asText())) {
+                toolCallIds.add(message.get("tool_call_id").asText());
+                contents.add(message.get("content").asText());
+            }
+        }
+        assertThat(toolCallIds).containsExactly("call_a", "call_b", "call_c");
+        assertThat(contents).containsExactly("{\"id\":3}", "{\"id\":7}", "{\"id\":12}");
+    }
+
+    @Test
+    @DisplayName("工具调用 - 写操作超时时提示结果未知，不让模型重试")
+    void testWriteToolTimeout() {
+        // Given
+        AgentProperties agentProperties = new AgentProperties();
+        agentProperties.getToolExecution().setTimeout(1);
+        AgentServiceImpl service = newAgentService(agentProperties);
+        AgentChatRequestDTO request = AgentChatRequestDTO.builder()
+                .agentType("order_assistant")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("下单，外带")
+                                .build()
+                ))
+                .build();
+
+        when(toolExecutor.isReadOnly("create_order")).thenReturn(false);
+        when(toolExecutor.executeTool(eq("create_order"), any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(3000);
+            return "{\"orderId\":1}";
+        });
+
+        String toolCallResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_a","function":{"name":"create_order","arguments":"{\\"orderType\\":\\"takeaway\\"}"}}]}}]}
+                data: [DONE]
+                """;
+        when(responseSpec.bodyToFlux(String.class))
+                .thenReturn(Flux.just(toolCallResponse.split("\n")))
+                .thenReturn(Flux.just("data: [DONE]"));
+
+        // When
+        List<AgentEvent> events = service.events(request, 1L)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        service.destroy();
+
+        // Then
+        Object result = events.stream()
+                .filter(event -> "tool_result".equals(event.type()))
+                .findFirst()
+                .map(event -> event.data().get("result"))
+                .orElseThrow();
+        assertThat(result.toString()).contains("请勿重试").doesNotContain("请稍后重试");
+    }
+
+    @Test
+    @DisplayName("工具调用 - 写操作排队超时未开始执行时提示可以重试，之后也不再执行")
+    void testWriteToolQueueTimeout() throws Exception {
+        // Given：工具线程池只有一个线程，被另一个对话的慢查询占用
+        AgentProperties agentProperties = new AgentProperties();
+        agentProperties.getToolExecution().setParallelism(1);
+        agentProperties.getToolExecution().setTimeout(1);
+        AgentServiceImpl service = newAgentService(agentProperties);
+        AgentChatRequestDTO queryRequest = AgentChatRequestDTO.builder()
+                .agentType("coffee_advisor")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("3 号咖啡怎么样")
+                                .build()
+                ))
+                .build();
+        AgentChatRequestDTO orderRequest = AgentChatRequestDTO.builder()
+                .agentType("order_assistant")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("下单，外带")
+                                .build()
+                ))
+                .build();
+
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(toolExecutor.isReadOnly("get_coffee_detail")).thenReturn(true);
+        when(toolExecutor.executeTool(eq("get_coffee_detail"), any(), any(), any())).thenAnswer(invocation -> {
+            busy.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "{\"id\":3}";
+        });
+
+        String queryResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_a","function":{"name":"get_coffee_detail","arguments":"{\\"coffeeId\\":3}"}}]}}]}
+                data: [DONE]
+                """;
+        String orderResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_b","function":{"name":"create_order","arguments":"{\\"orderType\\":\\"takeaway\\"}"}}]}}]}
+                data: [DONE]
+                """;
+        when(responseSpec.bodyToFlux(String.class))
+                .thenReturn(Flux.just(queryResponse.split("\n")))
+                .thenReturn(Flux.just(orderResponse.split("\n")))
+                .thenReturn(Flux.just("data: [DONE]"));
+
+        CompletableFuture<List<AgentEvent>> query = service.events(queryRequest, null).collectList().toFuture();
+        assertThat(busy.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When：下单工具在队列中等待超过超时时间
+        List<AgentEvent> events = service.events(orderRequest, 1L)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        release.countDown();
+
+        // Then：结果提示未执行、可以重试，而不是结果未知
+        Object result = events.stream()
+                .filter(event -> "tool_result".equals(event.type()))
+                .findFirst()
+                .map(event -> event.data().get("result"))
+                .orElseThrow();
+        assertThat(result.toString()).contains("未执行").doesNotContain("请勿重试");
+        assertThat(events).noneMatch(event -> "tool_call".equals(event.type()));
+
+        query.get(5, TimeUnit.SECONDS);
+        verify(toolExecutor, after(500).never()).executeTool(eq("create_order"), any(), any(), any());
+        service.destroy();
+    }
+
+    @Test
+    @DisplayName("工具调用 - 取消订阅后，已在线程池队列中的写操作不再执行")
+    void testQueuedWriteToolSkippedAfterDispose() throws Exception {
+        // Given：工具线程池只有一个线程，被另一个对话的慢查询占用
+        AgentProperties agentProperties = new AgentProperties();
+        agentProperties.getToolExecution().setParallelism(1);
+        AgentServiceImpl service = newAgentService(agentProperties);
+        AgentChatRequestDTO queryRequest = AgentChatRequestDTO.builder()
+                .agentType("coffee_advisor")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("3 号咖啡怎么样")
+                                .build()
+                ))
+                .build();
+        AgentChatRequestDTO orderRequest = AgentChatRequestDTO.builder()
+                .agentType("order_assistant")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("下单，外带")
+                                .build()
+                ))
+                .build();
+
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(toolExecutor.isReadOnly("get_coffee_detail")).thenReturn(true);
+        when(toolExecutor.executeTool(eq("get_coffee_detail"), any(), any(), any())).thenAnswer(invocation -> {
+            busy.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "{\"id\":3}";
+        });
+
+        String queryResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_a","function":{"name":"get_coffee_detail","arguments":"{\\"coffeeId\\":3}"}}]}}]}
+                data: [DONE]
+                """;
+        String orderResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_b","function":{"name":"create_order","arguments":"{\\"orderType\\":\\"takeaway\\"}"}}]}}]}
+                data: [DONE]
+                """;
+        when(responseSpec.bodyToFlux(String.class))
+                .thenReturn(Flux.just(queryResponse.split("\n")))
+                .thenReturn(Flux.just(orderResponse.split("\n")))
+                .thenReturn(Flux.just("data: [DONE]"));
+
+        CompletableFuture<List<AgentEvent>> query = service.events(queryRequest, null).collectList().toFuture();
+        assertThat(busy.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When：下单请求的工具提交后排在队列中，此时客户端断开
+        Disposable order = service.events(orderRequest, 1L).subscribe();
+        order.dispose();
+        release.countDown();
+
+        // Then
+        query.get(5, TimeUnit.SECONDS);
+        verify(toolExecutor, after(500).never()).executeTool(eq("create_order"), any(), any(), any());
+        service.destroy();
+    }
+
+    @Test
+    @DisplayName("响应式接口 - 工具轮次与文本事件按顺序组合")
+    void testReactiveChatWithToolRound() throws Exception {
+        // Given
+        AgentChatRequestDTO request = AgentChatRequestDTO.builder()
+                .agentType("coffee_advisor")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("3 号咖啡怎么样")
+                                .build()
+                ))
+                .build();
+
+        when(toolExecutor.isReadOnly("get_coffee_detail")).thenReturn(true);
+        when(toolExecutor.executeTool(eq("get_coffee_detail"), any(), any(), any())).thenReturn("{\"id\":3}");
+
+        String toolCallResponse = """
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"id":"call_a","function":{"name":"get_coffee_detail","arguments":"{\\"coffeeId\\":3}"}}]}}]}
+                data: [DONE]
+                """;
+        String textResponse = """
+                data: {"choices":[{"delta":{"content":"这款"}}]}
+                data: {"choices":[{"delta":{"content":"很香"}}]}
+                data: [DONE]
+                """;
+        when(responseSpec.bodyToFlux(String.class))
+                .thenReturn(Flux.just(toolCallResponse.split("\n")))
+                .thenReturn(Flux.just(textResponse.split("\n")));
+
+        // When
+        List<ServerSentEvent<String>> events = agentService.chat(request, null)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        // 连续的文本增量合并为一个事件写出
+        List<String> types = new ArrayList<>();
+        for (ServerSentEvent<String> event : events) {
+            types.add(objectMapper.readTree(event.data()).get("type").asText());
+        }
+        assertThat(types).containsExactly("tool_call", "tool_result", "text", "done");
+        assertThat(objectMapper.readTree(events.get(2).data()).get("content").asText()).isEqualTo("这款很香");
+        assertThat(events.get(events.size() - 1).event()).isEqualTo("done");
+    }
+
+    @Test
+    @DisplayName("事件流接口 - 文本增量可累积为完整输出，上游失败时以 error 事件结束")
+    void testAgentEvents() {
+        // Given
+        AgentChatRequestDTO request = AgentChatRequestDTO.builder()
+                .agentType("coffee_advisor")
+                .messages(List.of(
+                        AgentChatRequestDTO.Message.builder()
+                                .role("user")
+                                .content("推荐一款咖啡")
+                                .build()
+                ))
+                .build();
+        String textResponse = """
+                data: {"choices":[{"delta":{"content":"推荐"}}]}
+                data: {"choices":[{"delta":{"content":"拿铁"}}]}
+                data: [DONE]
+                """;
+        when(responseSpec.bodyToFlux(String.class))
+                .thenReturn(Flux.just(textResponse.split("\n")))
+                .thenReturn(Flux.error(new RuntimeException("upstream down")));
+
+        // When
+        List<AgentEvent> events = agentService.events(request, null)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        List<AgentEvent> failed = agentService.events(request, null)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        StringBuilder output = new StringBuilder();
+        events.stream().filter(AgentEvent::isText).forEach(event -> output.append(event.content()));
+        assertThat(output.toString()).isEqualTo("推荐拿铁");
+        assertThat(events.get(events.size() - 1).isDone()).isTrue();
+        assertThat(failed).hasSize(1);
+        assertThat(failed.get(0).isError()).isTrue();
     }
 
     @Test
@@ -396,11 +745,11 @@ public class AgentServiceIntegrationTest {
         SseEmitter emitter = new SseEmitter(60000L);
 
         // Mock 第一个工具调用：search_coffee
-        when(toolExecutor.executeTool(eq("search_coffee"), any(), eq(userId)))
+        when(toolExecutor.executeTool(eq("search_coffee"), any(), eq(userId), any()))
                 .thenReturn("{\"list\":[{\"id\":1,\"name\":\"拿铁\"}],\"total\":1}");
 
         // Mock 第二个工具调用：add_to_cart
-        when(toolExecutor.executeTool(eq("add_to_cart"), any(), eq(userId)))
+        when(toolExecutor.executeTool(eq("add_to_cart"), any(), eq(userId), any()))
                 .thenReturn("{\"success\":true,\"message\":\"已添加到购物车\"}");
 
         // 模拟多轮工具调用的响应
@@ -586,7 +935,7 @@ public class AgentServiceIntegrationTest {
         when(responseSpec.bodyToFlux(String.class))
                 .thenReturn(Flux.just(sseResponse.split("\n")));
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<ChatRequestBody> bodyCaptor = ArgumentCaptor.forClass(ChatRequestBody.class);
 
         // When
         CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -595,9 +944,9 @@ public class AgentServiceIntegrationTest {
 
         // Then
         future.join();
-        verify(requestBodySpec).bodyValue(bodyCaptor.capture());
+        verify(requestBodySpec).body(bodyCaptor.capture());
 
-        JsonNode requestBody = objectMapper.readTree(bodyCaptor.getValue());
+        JsonNode requestBody = objectMapper.readTree(bodyCaptor.getValue().toString());
         JsonNode messages = requestBody.get("messages");
 
         assertThat(messages.isArray()).isTrue();
@@ -629,7 +978,7 @@ public class AgentServiceIntegrationTest {
         when(responseSpec.bodyToFlux(String.class))
                 .thenReturn(Flux.just(sseResponse.split("\n")));
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<ChatRequestBody> bodyCaptor = ArgumentCaptor.forClass(ChatRequestBody.class);
 
         // When
         CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -638,9 +987,9 @@ public class AgentServiceIntegrationTest {
 
         // Then
         future.join();
-        verify(requestBodySpec).bodyValue(bodyCaptor.capture());
+        verify(requestBodySpec).body(bodyCaptor.capture());
 
-        JsonNode requestBody = objectMapper.readTree(bodyCaptor.getValue());
+        JsonNode requestBody = objectMapper.readTree(bodyCaptor.getValue().toString());
         JsonNode messages = requestBody.get("messages");
 
         JsonNode systemMessage = messages.get(0);
@@ -678,7 +1027,7 @@ public class AgentServiceIntegrationTest {
         when(responseSpec.bodyToFlux(String.class))
                 .thenReturn(Flux.just(sseResponse.split("\n")));
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<ChatRequestBody> bodyCaptor = ArgumentCaptor.forClass(ChatRequestBody.class);
 
         // When
         CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -687,9 +1036,9 @@ public class AgentServiceIntegrationTest {
 
         // Then
         future.join();
-        verify(requestBodySpec).bodyValue(bodyCaptor.capture());
+        verify(requestBodySpec).body(bodyCaptor.capture());
 
-        JsonNode requestBody = objectMapper.readTree(bodyCaptor.getValue());
+        JsonNode requestBody = objectMapper.readTree(bodyCaptor.getValue().toString());
         JsonNode messages = requestBody.get("messages");
 
         // 应该包含 system + 3 条对话消息
@@ -1,15 +1,24 @@
 package com.mycoffeestore.service.agent;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.ToolCacheProperties;
+import com.mycoffeestore.config.ToolProjectionProperties;
 import com.mycoffeestore.dto.cart.CartAddDTO;
 import com.mycoffeestore.dto.order.OrderCreateDTO;
 import com.mycoffeestore.dto.order.OrderItemDTO;
 import com.mycoffeestore.enums.OrderStatus;
+import com.mycoffeestore.event.CatalogChangedEvent;
 import com.mycoffeestore.enums.OrderType;
 import com.mycoffeestore.service.cart.CartService;
 import com.mycoffeestore.service.coffee.CoffeeService;
 import com.mycoffeestore.service.order.OrderService;
 import com.mycoffeestore.util.AgentToolExecutor;
+import com.mycoffeestore.util.ToolDefinitionRegistry;
+import com.mycoffeestore.util.ToolResultCache;
+import com.mycoffeestore.util.ToolResultProjector;
+import com.mycoffeestore.vo.coffee.CoffeeCategoryVO;
+import com.mycoffeestore.vo.coffee.CoffeeDetailVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,6 +29,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -48,15 +58,22 @@ public class AgentToolExecutorTest {
 
     private ObjectMapper objectMapper;
     private AgentToolExecutor toolExecutor;
+    private ToolResultCache toolResultCache;
+    private ToolDefinitionRegistry toolRegistry;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
+        toolResultCache = new ToolResultCache(new ToolCacheProperties(), objectMapper, new SimpleMeterRegistry());
+        toolRegistry = new ToolDefinitionRegistry(objectMapper);
         toolExecutor = new AgentToolExecutor(
                 coffeeService,
                 cartService,
                 orderService,
-                objectMapper
+                objectMapper,
+                toolResultCache,
+                toolRegistry,
+                new ToolResultProjector(new ToolProjectionProperties(), objectMapper)
         );
     }
 
@@ -127,6 +144,55 @@ public class AgentToolExecutorTest {
         );
     }
 
+    @Test
+    @DisplayName("工具定义 - 预编译 JSON 片段与定义列表一致")
+    void testCompiledToolDefinitionJson() throws Exception {
+        // When
+        ToolDefinitionRegistry.CompiledTools compiled = toolRegistry.forAgent("coffee_advisor");
+
+        // Then
+        assertThat(objectMapper.readTree(compiled.json()))
+                .isEqualTo(objectMapper.valueToTree(compiled.definitions()));
+        assertThat(compiled.names()).containsExactly("search_coffee", "get_coffee_detail", "get_categories");
+    }
+
+    @Test
+    @DisplayName("工具定义 - 注册新工具后分配给 Agent 并可执行")
+    void testRegisterTool() throws Exception {
+        // Given
+        toolRegistry.register(new ToolDefinitionRegistry.ToolDefinition(
+                "get_store_hours", "查询门店营业时间", Map.of("type", "object", "properties", Map.of()),
+                true, (args, userId) -> Map.of("open", "07:00", "close", "21:00")), "customer_service");
+
+        // When
+        List<String> names = toolRegistry.forAgent("customer_service").names();
+        String result = toolExecutor.executeTool("get_store_hours", "{}", null);
+
+        // Then
+        assertThat(names).containsExactly("get_order_detail", "get_order_list", "get_store_hours");
+        assertThat(toolRegistry.forAgent("customer_service").json()).contains("get_store_hours");
+        assertThat(toolExecutor.isReadOnly("get_store_hours")).isTrue();
+        assertThat(objectMapper.readTree(result).get("open").asText()).isEqualTo("07:00");
+    }
+
+    @Test
+    @DisplayName("工具定义 - 同名注册覆盖内置工具时由注册的执行器执行")
+    void testRegisterOverridesBuiltinTool() throws Exception {
+        // Given
+        toolRegistry.register(new ToolDefinitionRegistry.ToolDefinition(
+                "get_categories", "获取咖啡分类（外部目录）", Map.of("type", "object", "properties", Map.of()),
+                true, (args, userId) -> List.of(Map.of("code", "seasonal", "name", "季节限定"))), "coffee_advisor");
+
+        // When
+        String result = toolExecutor.executeTool("get_categories", "{}", null);
+
+        // Then
+        assertThat(objectMapper.readTree(result).get(0).get("code").asText()).isEqualTo("seasonal");
+        assertThat(toolRegistry.forAgent("coffee_advisor").names())
+                .containsExactly("search_coffee", "get_coffee_detail", "get_categories");
+        verify(coffeeService, never()).categories();
+    }
+
     @Test
     @DisplayName("工具定义 - 通用聊天无工具")
     void testGeneralChatToolDefinitions() {
@@ -569,6 +635,76 @@ public class AgentToolExecutorTest {
         assertThat(resultMap.get("error")).isNotNull();
     }
 
+    // ==================== 工具结果缓存测试 ====================
+
+    @Test
+    @DisplayName("工具缓存 - 参数顺序不同的重复调用命中缓存")
+    void testReadOnlyToolResultCached() throws Exception {
+        // Given
+        when(coffeeService.detail(3L)).thenReturn(CoffeeDetailVO.builder().coffeeId(3L).name("拿铁").build());
+
+        // When
+        String first = toolExecutor.executeTool("get_coffee_detail", "{\"coffeeId\":3,\"lang\":\"zh\"}", 1L);
+        String second = toolExecutor.executeTool("get_coffee_detail", "{\"lang\":\"zh\", \"coffeeId\":3}", 2L);
+
+        // Then
+        assertThat(second).isEqualTo(first);
+        verify(coffeeService, times(1)).detail(3L);
+    }
+
+    @Test
+    @DisplayName("工具缓存 - 投影后的结果按 Agent 缓存，命中时不再重新投影")
+    void testProjectedResultCachedPerAgent() throws Exception {
+        // Given
+        ToolResultProjector projector = spy(new ToolResultProjector(new ToolProjectionProperties(), objectMapper));
+        AgentToolExecutor executor = new AgentToolExecutor(coffeeService, cartService, orderService,
+                objectMapper, toolResultCache, toolRegistry, projector);
+        when(coffeeService.detail(3L)).thenReturn(CoffeeDetailVO.builder().coffeeId(3L).name("拿铁").build());
+
+        // When
+        String first = executor.executeTool("get_coffee_detail", "{\"coffeeId\":3}", 1L, "coffee_advisor");
+        String second = executor.executeTool("get_coffee_detail", "{\"coffeeId\":3}", 1L, "coffee_advisor");
+        String other = executor.executeTool("get_coffee_detail", "{\"coffeeId\":3}", 1L, "customer_service");
+        String third = executor.executeTool("get_coffee_detail", "{\"coffeeId\":3}", 1L, "customer_service");
+
+        // Then：每个 Agent 只投影一次，查询只执行一次
+        assertThat(second).isEqualTo(first);
+        assertThat(third).isEqualTo(other);
+        verify(projector, times(1)).project(eq("coffee_advisor"), eq("get_coffee_detail"), any());
+        verify(projector, times(1)).project(eq("customer_service"), eq("get_coffee_detail"), any());
+        verify(coffeeService, times(1)).detail(3L);
+    }
+
+    @Test
+    @DisplayName("工具缓存 - 商品目录变更后失效")
+    void testToolResultCacheInvalidatedByCatalogChange() throws Exception {
+        // Given
+        when(coffeeService.categories()).thenReturn(List.of(
+                CoffeeCategoryVO.builder().code("latte").name("拿铁").count(3).build()));
+        toolExecutor.executeTool("get_categories", "{}", null);
+
+        // When
+        toolResultCache.onCatalogChanged(new CatalogChangedEvent(Set.of(1L)));
+        toolExecutor.executeTool("get_categories", "{}", null);
+
+        // Then
+        verify(coffeeService, times(2)).categories();
+    }
+
+    @Test
+    @DisplayName("工具缓存 - 错误结果不缓存")
+    void testErrorResultNotCached() throws Exception {
+        // Given
+        when(coffeeService.detail(999L)).thenThrow(new RuntimeException("咖啡不存在"));
+
+        // When
+        toolExecutor.executeTool("get_coffee_detail", "{\"coffeeId\":999}", null);
+        toolExecutor.executeTool("get_coffee_detail", "{\"coffeeId\":999}", null);
+
+        // Then
+        verify(coffeeService, times(2)).detail(999L);
+    }
+
     // ==================== 工具参数验证测试 ====================
 
     @Test
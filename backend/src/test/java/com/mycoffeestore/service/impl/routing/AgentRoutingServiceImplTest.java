@@ -0,0 +1,449 @@
+package com.mycoffeestore.service.impl.routing;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.agent.AgentRegistry;
+import com.mycoffeestore.agent.routing.AgentRoutingConfig;
+import com.mycoffeestore.config.AdaptiveLimiters;
+import com.mycoffeestore.config.AgentConfig;
+import com.mycoffeestore.config.AgentExecutors;
+import com.mycoffeestore.config.AgentProperties;
+import com.mycoffeestore.config.SpeculativeRoutingProperties;
+import com.mycoffeestore.dto.agent.AgentChatRequestDTO;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import com.mycoffeestore.service.agent.ReactiveAgentService;
+import com.mycoffeestore.service.memory.ConversationMemoryService;
+import com.mycoffeestore.service.routing.IntentRecognitionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 智能路由编排测试
+ * 使用桩 Agent 事件流验证各执行策略的流式转发、上下文传递与取消
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("智能路由编排测试")
+public class AgentRoutingServiceImplTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Mock
+    private IntentRecognitionService intentRecognitionService;
+
+    @Mock
+    private AgentRegistry agentRegistry;
+
+    @Mock
+    private ConversationMemoryService memoryService;
+
+    @Mock
+    private ReactiveAgentService reactiveAgentService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<AgentRoutingConfig.IntentType, AgentRoutingConfig.RouteRule> routeRules = new ConcurrentHashMap<>();
+    private final List<AgentChatRequestDTO> requests = new CopyOnWriteArrayList<>();
+
+    private AgentExecutors agentExecutors;
+    private AgentRoutingServiceImpl routingService;
+    private CapturingEmitter emitter;
+
+    @BeforeEach
+    void setUp() {
+        AgentProperties agentProperties = new AgentProperties();
+        agentExecutors = new AgentExecutors(agentProperties, meterRegistry);
+        routingService = newRoutingService(agentExecutors);
+        emitter = new CapturingEmitter();
+
+        lenient().when(agentRegistry.getAgentConfig(anyString())).thenAnswer(invocation ->
+                AgentConfig.AgentConfigInfo.builder()
+                        .name(invocation.getArgument(0))
+                        .systemPrompt("你是 " + invocation.getArgument(0))
+                        .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        agentExecutors.shutdown();
+    }
+
+    private AgentRoutingServiceImpl newRoutingService(AgentExecutors executors) {
+        AgentProperties agentProperties = new AgentProperties();
+        return new AgentRoutingServiceImpl(intentRecognitionService, agentRegistry, memoryService,
+                reactiveAgentService, objectMapper, executors, new AdaptiveLimiters(agentProperties, meterRegistry),
+                new SpeculativeRoutingProperties(), meterRegistry, routeRules);
+    }
+
+    /**
+     * 按 Agent 名称返回桩事件流，并记录各 Agent 收到的请求
+     */
+    private void stubAgents(Map<String, Flux<AgentEvent>> branches) {
+        when(reactiveAgentService.events(any(), any(), any())).thenAnswer(invocation -> {
+            AgentChatRequestDTO request = invocation.getArgument(0);
+            requests.add(request);
+            return branches.get(request.getAgentType());
+        });
+    }
+
+    private static AgentRoutingConfig.RouteRule rule(AgentRoutingConfig.IntentType intentType,
+                                                    AgentRoutingConfig.ExecutionStrategy strategy,
+                                                    String... agents) {
+        return AgentRoutingConfig.RouteRule.builder()
+                .intentType(intentType)
+                .strategy(strategy)
+                .agentChain(List.of(agents))
+                .priority(1)
+                .aggregateResults(true)
+                .contextPassing(AgentRoutingConfig.ContextPassingConfig.builder()
+                        .passMessageHistory(true)
+                        .passToolResults(false)
+                        .passReasoning(false)
+                        .maxHistoryRounds(5)
+                        .build())
+                .build();
+    }
+
+    private static IntentRecognitionService.IntentRecognitionResult intent(AgentRoutingConfig.IntentType intentType,
+                                                                          String method) {
+        return IntentRecognitionService.IntentRecognitionResult.builder()
+                .intentType(intentType)
+                .confidence(0.9)
+                .recognitionMethod(method)
+                .build();
+    }
+
+    private static AgentRoutingConfig.RouteRule parallelRule(AgentRoutingConfig.ParallelMergeMode mode,
+                                                            Long parallelTimeout, String... agents) {
+        AgentRoutingConfig.RouteRule rule = rule(AgentRoutingConfig.IntentType.CONSULT,
+                AgentRoutingConfig.ExecutionStrategy.PARALLEL, agents);
+        rule.setParallelMergeMode(mode);
+        rule.setParallelTimeout(parallelTimeout);
+        return rule;
+    }
+
+    private AgentRoutingServiceImpl.ExecutionContext context(AgentRoutingConfig.RouteRule routeRule) {
+        return AgentRoutingServiceImpl.ExecutionContext.builder()
+                .userId(1L)
+                .userInput("我想买一杯拿铁")
+                .executionHistory(new ArrayList<>())
+                .contextData(new ConcurrentHashMap<>())
+                .emitter(emitter)
+                .intentResult(intent(routeRule.getIntentType(), "llm"))
+                .routeRule(routeRule)
+                .build();
+    }
+
+    @Test
+    @DisplayName("顺序执行：文本增量到达即推送，不等待 Agent 结束")
+    void testForwardTokensAsTheyArrive() {
+        Sinks.Many<AgentEvent> advisor = Sinks.many().unicast().onBackpressureBuffer();
+        stubAgents(Map.of(
+                "coffee_advisor", advisor.asFlux(),
+                "order_assistant", Flux.just(AgentEvent.text("已下单"), AgentEvent.done())));
+        AgentRoutingServiceImpl.ExecutionContext context = context(rule(AgentRoutingConfig.IntentType.ORDER_PURCHASE,
+                AgentRoutingConfig.ExecutionStrategy.SEQUENTIAL, "coffee_advisor", "order_assistant"));
+
+        StepVerifier.create(routingService.executeSequential(context))
+                .then(() -> advisor.tryEmitNext(AgentEvent.text("推荐")))
+                .then(() -> assertThat(emitter.texts()).containsExactly("推荐"))
+                .then(() -> advisor.tryEmitNext(AgentEvent.text("拿铁")))
+                .then(() -> assertThat(emitter.texts()).containsExactly("推荐", "拿铁"))
+                .then(() -> {
+                    advisor.tryEmitNext(AgentEvent.done());
+                    advisor.tryEmitComplete();
+                })
+                .assertNext(result -> {
+                    assertThat(result.getSuccess()).isTrue();
+                    assertThat(result.getFinalOutput()).isEqualTo("推荐拿铁\n\n已下单");
+                    assertThat(result.getExecutionRecords()).hasSize(2);
+                })
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        assertThat(emitter.texts()).containsExactly("推荐", "拿铁", "已下单");
+        assertThat(emitter.names()).doesNotContain("done");
+    }
+
+    @Test
+    @DisplayName("顺序执行：上一步累积的输出传递给下一个 Agent")
+    void testPassPreviousOutput() {
+        stubAgents(Map.of(
+                "coffee_advisor", Flux.just(AgentEvent.text("推荐"), AgentEvent.text("拿铁"), AgentEvent.done()),
+                "order_assistant", Flux.just(AgentEvent.text("已下单"), AgentEvent.done())));
+        AgentRoutingServiceImpl.ExecutionContext context = context(rule(AgentRoutingConfig.IntentType.ORDER_PURCHASE,
+                AgentRoutingConfig.ExecutionStrategy.SEQUENTIAL, "coffee_advisor", "order_assistant"));
+
+        StepVerifier.create(routingService.executeSequential(context))
+                .assertNext(result -> assertThat(result.getSuccess()).isTrue())
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0).getMessages())
+                .noneMatch(message -> message.getContent().contains("[上下文信息]"));
+        assertThat(requests.get(1).getAgentType()).isEqualTo("order_assistant");
+        assertThat(requests.get(1).getMessages())
+                .anyMatch(message -> "system".equals(message.getRole())
+                        && message.getContent().contains("前一个 Agent (coffee_advisor) 的处理结果：\n推荐拿铁"));
+    }
+
+    @Test
+    @DisplayName("推测执行未命中：断开推测的事件流，按识别结果重新路由")
+    void testSpeculativeMissDisposesConnection() throws Exception {
+        routeRules.put(AgentRoutingConfig.IntentType.ORDER_PURCHASE, rule(AgentRoutingConfig.IntentType.ORDER_PURCHASE,
+                AgentRoutingConfig.ExecutionStrategy.SINGLE, "order_assistant"));
+        routeRules.put(AgentRoutingConfig.IntentType.CONSULT, rule(AgentRoutingConfig.IntentType.CONSULT,
+                AgentRoutingConfig.ExecutionStrategy.SINGLE, "coffee_advisor"));
+        when(intentRecognitionService.recognizeLocally(anyString())).thenReturn(null);
+        when(intentRecognitionService.predictIntent(anyString()))
+                .thenReturn(intent(AgentRoutingConfig.IntentType.ORDER_PURCHASE, "keyword"));
+        when(intentRecognitionService.recognizeIntent(anyString()))
+                .thenReturn(intent(AgentRoutingConfig.IntentType.CONSULT, "llm"));
+
+        CountDownLatch speculativeCancelled = new CountDownLatch(1);
+        stubAgents(Map.of(
+                "order_assistant", Flux.<AgentEvent>never().doOnCancel(speculativeCancelled::countDown),
+                "coffee_advisor", Flux.just(AgentEvent.text("推荐拿铁"), AgentEvent.done())));
+
+        AgentChatRequestDTO request = AgentChatRequestDTO.builder()
+                .messages(List.of(AgentChatRequestDTO.Message.builder().role("user").content("拿铁怎么样").build()))
+                .build();
+        routingService.processRoutingChat(request, 1L, emitter);
+
+        assertThat(emitter.awaitCompletion()).isTrue();
+        assertThat(speculativeCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(requests).extracting(AgentChatRequestDTO::getAgentType)
+                .containsExactly("order_assistant", "coffee_advisor");
+        assertThat(emitter.texts()).containsExactly("推荐拿铁");
+        assertThat(emitter.names()).contains("intent_recognized", "routing_complete");
+        assertThat(meterRegistry.get("routing.speculative").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("并行首个成功：采用最先成功的分支，落败分支被取消")
+    void testFirstSuccessfulCancelsLosers() throws Exception {
+        CompletableFuture<Void> loserSubscribed = new CompletableFuture<>();
+        CountDownLatch loserCancelled = new CountDownLatch(1);
+        stubAgents(Map.of(
+                "coffee_advisor", Flux.just(AgentEvent.text("推荐拿铁"), AgentEvent.done())
+                        .delaySubscription(Mono.fromFuture(loserSubscribed)),
+                "customer_service", Flux.<AgentEvent>never()
+                        .doOnSubscribe(subscription -> loserSubscribed.complete(null))
+                        .doOnCancel(loserCancelled::countDown)));
+        AgentRoutingServiceImpl.ExecutionContext context = context(parallelRule(
+                AgentRoutingConfig.ParallelMergeMode.FIRST_SUCCESSFUL, null, "coffee_advisor", "customer_service"));
+
+        StepVerifier.create(routingService.executeParallel(context))
+                .assertNext(result -> {
+                    assertThat(result.getSuccess()).isTrue();
+                    assertThat(result.getFinalOutput()).isEqualTo("## coffee_advisor 的处理结果\n\n推荐拿铁");
+                    assertThat(result.getExecutionRecords())
+                            .extracting(AgentRoutingServiceImpl.AgentExecutionRecord::getAgentName)
+                            .containsExactly("coffee_advisor");
+                })
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        assertThat(loserCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.texts()).containsExactly("## coffee_advisor 的处理结果\n\n推荐拿铁");
+    }
+
+    @Test
+    @DisplayName("并行截止时间：超时分支被取消并记为失败，返回已完成的部分结果")
+    void testDeadlinePartialResults() throws Exception {
+        CountDownLatch slowCancelled = new CountDownLatch(1);
+        stubAgents(Map.of(
+                "coffee_advisor", Flux.just(AgentEvent.text("推荐拿铁"), AgentEvent.done()),
+                "customer_service", Flux.<AgentEvent>never().doOnCancel(slowCancelled::countDown)));
+        AgentRoutingServiceImpl.ExecutionContext context = context(parallelRule(
+                AgentRoutingConfig.ParallelMergeMode.ALL_WITH_DEADLINE, 200L, "coffee_advisor", "customer_service"));
+
+        StepVerifier.create(routingService.executeParallel(context))
+                .assertNext(result -> {
+                    assertThat(result.getSuccess()).isTrue();
+                    assertThat(result.getFinalOutput()).isEqualTo("## coffee_advisor 的处理结果\n\n推荐拿铁");
+                    assertThat(result.getExecutionRecords()).hasSize(2);
+                    AgentRoutingServiceImpl.AgentExecutionRecord timedOut = result.getExecutionRecords().get(1);
+                    assertThat(timedOut.getAgentName()).isEqualTo("customer_service");
+                    assertThat(timedOut.getStatus()).isEqualTo(AgentRoutingServiceImpl.ExecutionStatus.FAILED);
+                    assertThat(timedOut.getErrorMessage()).isEqualTo("执行超时");
+                })
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        assertThat(slowCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("并行交错：各分支的文本增量带 Agent 标签推送，合并后不再重复推送")
+    void testInterleavedLabels() {
+        stubAgents(Map.of(
+                "coffee_advisor", Flux.just(AgentEvent.text("推荐拿铁"), AgentEvent.done()),
+                "customer_service", Flux.just(AgentEvent.text("门店九点营业"), AgentEvent.done())));
+        AgentRoutingServiceImpl.ExecutionContext context = context(parallelRule(
+                AgentRoutingConfig.ParallelMergeMode.INTERLEAVED, null, "coffee_advisor", "customer_service"));
+
+        StepVerifier.create(routingService.executeParallel(context))
+                .assertNext(result -> assertThat(result.getFinalOutput())
+                        .isEqualTo("## coffee_advisor 的处理结果\n\n推荐拿铁\n\n## customer_service 的处理结果\n\n门店九点营业"))
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        Map<Object, Object> labels = emitter.events().stream()
+                .filter(event -> AgentEvent.TYPE_TEXT.equals(event.data().get("type")))
+                .collect(Collectors.toMap(event -> event.data().get("content"), event -> event.data().get("agentName")));
+        assertThat(labels).containsOnly(
+                Map.entry("推荐拿铁", "coffee_advisor"),
+                Map.entry("门店九点营业", "customer_service"));
+    }
+
+    @Test
+    @DisplayName("并行分支被线程池拒绝：该分支记为服务繁忙，其余分支照常合并")
+    void testRejectedBranch() {
+        AtomicInteger scheduled = new AtomicInteger();
+        AgentExecutors rejecting = mock(AgentExecutors.class);
+        when(rejecting.parallel()).thenReturn(Schedulers.fromExecutor(command -> {
+            if (scheduled.getAndIncrement() > 0) {
+                throw new RejectedExecutionException("队列已满");
+            }
+            command.run();
+        }));
+        routingService = newRoutingService(rejecting);
+        stubAgents(Map.of("coffee_advisor", Flux.just(AgentEvent.text("推荐拿铁"), AgentEvent.done())));
+        AgentRoutingServiceImpl.ExecutionContext context = context(parallelRule(
+                AgentRoutingConfig.ParallelMergeMode.ALL_WITH_DEADLINE, null, "coffee_advisor", "customer_service"));
+
+        StepVerifier.create(routingService.executeParallel(context))
+                .assertNext(result -> {
+                    assertThat(result.getSuccess()).isTrue();
+                    assertThat(result.getFinalOutput()).isEqualTo("## coffee_advisor 的处理结果\n\n推荐拿铁");
+                    AgentRoutingServiceImpl.AgentExecutionRecord rejected = result.getExecutionRecords().get(1);
+                    assertThat(rejected.getAgentName()).isEqualTo("customer_service");
+                    assertThat(rejected.getStatus()).isEqualTo(AgentRoutingServiceImpl.ExecutionStatus.FAILED);
+                    assertThat(rejected.getErrorMessage()).isEqualTo("服务繁忙，请稍后重试");
+                })
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        assertThat(requests).extracting(AgentChatRequestDTO::getAgentType).containsExactly("coffee_advisor");
+    }
+
+    @Test
+    @DisplayName("并行执行链中重复的 Agent：按分支顺序分别保留输出")
+    void testDuplicateAgentsKeptBySequence() {
+        when(reactiveAgentService.events(any(), any(), any())).thenReturn(
+                Flux.just(AgentEvent.text("推荐拿铁"), AgentEvent.done()),
+                Flux.just(AgentEvent.text("推荐美式"), AgentEvent.done()));
+        AgentRoutingServiceImpl.ExecutionContext context = context(parallelRule(
+                AgentRoutingConfig.ParallelMergeMode.ALL_WITH_DEADLINE, null, "coffee_advisor", "coffee_advisor"));
+
+        StepVerifier.create(routingService.executeParallel(context))
+                .assertNext(result -> {
+                    assertThat(result.getExecutionRecords()).hasSize(2);
+                    assertThat(result.getFinalOutput()).contains("推荐拿铁", "推荐美式");
+                    assertThat(result.getFinalOutput().lines().filter("## coffee_advisor 的处理结果"::equals))
+                            .hasSize(2);
+                })
+                .expectComplete()
+                .verify(TIMEOUT);
+    }
+
+    /**
+     * 记录发送事件的 SSE 发射器
+     */
+    static class CapturingEmitter extends SseEmitter {
+
+        /**
+         * 已发送的事件
+         *
+         * @param name 事件名称
+         * @param data 事件数据
+         */
+        record SentEvent(String name, Map<String, Object> data) {
+        }
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final List<SentEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder frame = new StringBuilder();
+            builder.build().forEach(item -> frame.append(item.getData()));
+            String name = null;
+            String data = null;
+            for (String line : frame.toString().split("\n")) {
+                if (line.startsWith("event:")) {
+                    name = line.substring("event:".length());
+                } else if (line.startsWith("data:")) {
+                    data = line.substring("data:".length());
+                }
+            }
+            events.add(new SentEvent(name, objectMapper.readValue(data, new TypeReference<Map<String, Object>>() {
+            })));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        boolean awaitCompletion() throws InterruptedException {
+            return completed.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        List<SentEvent> events() {
+            return List.copyOf(events);
+        }
+
+        List<String> names() {
+            return events().stream().map(SentEvent::name).toList();
+        }
+
+        /**
+         * 文本增量（按发送顺序）
+         */
+        List<String> texts() {
+            return events().stream()
+                    .filter(event -> AgentEvent.TYPE_TEXT.equals(event.data().get("type")))
+                    .map(event -> (String) event.data().get("content"))
+                    .toList();
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.mycoffeestore.service.memory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.AgentExecutors;
+import com.mycoffeestore.config.AgentProperties;
 import com.mycoffeestore.config.RedisProperties;
 import com.mycoffeestore.dto.agent.MemoryMessage;
 import com.mycoffeestore.entity.ConversationMemory;
 import com.mycoffeestore.mapper.ConversationMemoryMapper;
 import com.mycoffeestore.service.impl.memory.ConversationMemoryServiceImpl;
 import com.mybatisflex.core.query.QueryWrapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -30,6 +33,7 @@ import java.util.concurrent.TimeUnit;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -76,7 +80,8 @@ public class ConversationMemoryServiceTest {
                 redisTemplate,
                 conversationMemoryMapper,
                 objectMapper,
-                redisProperties
+                redisProperties,
+                new AgentExecutors(new AgentProperties(), new SimpleMeterRegistry())
         );
 
         // 配置 Redis 连接 Mock
@@ -463,26 +468,41 @@ public class ConversationMemoryServiceTest {
     void testUpdateLastActiveTime() {
         // Given
         String sessionId = "session_test_007";
+        when(conversationMemoryMapper.batchUpdateLastActiveAt(anyMap())).thenReturn(1);
 
-        ConversationMemory existingMemory = ConversationMemory.builder()
-                .sessionId(sessionId)
-                .userId(1L)
-                .agentType("coffee_advisor")
-                .messages("[]")
-                .lastActiveAt(LocalDateTime.now().minusHours(1))
-                .build();
+        // When
+        memoryService.updateLastActiveTime(sessionId);
 
-        // Mock 操作
-        when(conversationMemoryMapper.selectOneByQuery(any(QueryWrapper.class)))
-                .thenReturn(existingMemory);
-        when(conversationMemoryMapper.update(any(ConversationMemory.class))).thenReturn(1);
+        // Then - 活跃时间只记录在内存中，不立即写库
+        verify(conversationMemoryMapper, never()).batchUpdateLastActiveAt(anyMap());
+
+        memoryService.flushLastActiveTimes();
+
+        ArgumentCaptor<Map<String, LocalDateTime>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(conversationMemoryMapper).batchUpdateLastActiveAt(captor.capture());
+        assertThat(captor.getValue()).containsOnlyKeys(sessionId);
+        assertThat(captor.getValue().get(sessionId)).isAfter(LocalDateTime.now().minusMinutes(1));
+        verify(conversationMemoryMapper, never()).selectOneByQuery(any(QueryWrapper.class));
+    }
+
+    @Test
+    @DisplayName("会话管理 - 多次活跃合并为一次批量更新")
+    void testCoalesceLastActiveTime() {
+        // Given
+        when(conversationMemoryMapper.batchUpdateLastActiveAt(anyMap())).thenReturn(2);
 
         // When
-        memoryService.updateLastActiveTime(sessionId);
+        for (int i = 0; i < 10; i++) {
+            memoryService.updateLastActiveTime("session_a");
+            memoryService.updateLastActiveTime("session_b");
+        }
+        memoryService.flushLastActiveTimes();
+        memoryService.flushLastActiveTimes();
 
         // Then
-        verify(conversationMemoryMapper).update(any(ConversationMemory.class));
-        assertThat(existingMemory.getLastActiveAt()).isAfter(LocalDateTime.now().minusMinutes(1));
+        ArgumentCaptor<Map<String, LocalDateTime>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(conversationMemoryMapper, times(1)).batchUpdateLastActiveAt(captor.capture());
+        assertThat(captor.getValue()).containsOnlyKeys("session_a", "session_b");
     }
 
     @Test
@@ -69,6 +69,21 @@ public class AgentRoutingServiceTest {
         }
     }
 
+    @Test
+    @DisplayName("测试意图预测（推测执行）")
+    public void testPredictIntent() {
+        if (intentRecognitionService == null) {
+            return;
+        }
+
+        IntentRecognitionService.IntentRecognitionResult prediction =
+                intentRecognitionService.predictIntent("我想买一杯美式咖啡");
+
+        assertThat(prediction).isNotNull();
+        assertThat(prediction.getIntentType()).isEqualTo(AgentRoutingConfig.IntentType.ORDER_PURCHASE);
+        assertThat(prediction.getRecognitionMethod()).isEqualTo("keyword");
+    }
+
     @Test
     @DisplayName("测试投诉意图识别")
     public void testComplaintIntentRecognition() {
@@ -0,0 +1,134 @@
+package com.mycoffeestore.service.routing;
+
+import com.mycoffeestore.agent.routing.AgentRoutingConfig;
+import com.mycoffeestore.config.IntentCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * LLM 意图识别结果缓存测试
+ *
+ * @author zhoulu
+ * @since 2026-03-12
+ */
+@DisplayName("LLM 意图识别结果缓存测试")
+public class IntentResultCacheTest {
+
+    private IntentResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new IntentResultCache(new IntentCacheProperties(), new SimpleMeterRegistry());
+    }
+
+    private static IntentRecognitionService.IntentRecognitionResult result(String method) {
+        return IntentRecognitionService.IntentRecognitionResult.builder()
+                .intentType(AgentRoutingConfig.IntentType.CONSULT)
+                .confidence(0.8)
+                .recommendedAgents(List.of("coffee_advisor"))
+                .recognitionMethod(method)
+                .build();
+    }
+
+    @Test
+    @DisplayName("规范化 - 去掉空白和标点并转小写")
+    void testNormalize() {
+        assertThat(IntentResultCache.normalize(" 推荐一杯 咖啡！")).isEqualTo("推荐一杯咖啡");
+        assertThat(IntentResultCache.normalize("Latte, please?")).isEqualTo("latteplease");
+        assertThat(IntentResultCache.normalize(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("相同规范化输入命中缓存")
+    void testHitAfterMiss() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.getOrLoad("推荐一杯咖啡", () -> {
+            calls.incrementAndGet();
+            return result("llm");
+        });
+        IntentRecognitionService.IntentRecognitionResult cached = cache.getOrLoad("推荐一杯咖啡！！", () -> {
+            calls.incrementAndGet();
+            return result("llm");
+        });
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(cached.getRecognitionMethod()).isEqualTo(IntentResultCache.METHOD_CACHE);
+        assertThat(cached.getUserInput()).isEqualTo("推荐一杯咖啡！！");
+        assertThat(cache.hitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("降级结果不缓存")
+    void testFallbackNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.getOrLoad("我的订单到哪了", () -> {
+            calls.incrementAndGet();
+            return result("llm_fallback");
+        });
+        cache.getOrLoad("我的订单到哪了", () -> {
+            calls.incrementAndGet();
+            return result("llm");
+        });
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("并发相同输入只调用一次上游")
+    void testSingleFlight() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<IntentRecognitionService.IntentRecognitionResult>> futures = new java.util.ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.getOrLoad("推荐一杯咖啡", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return result("llm");
+                })));
+            }
+
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<IntentRecognitionService.IntentRecognitionResult> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS).getIntentType())
+                        .isEqualTo(AgentRoutingConfig.IntentType.CONSULT);
+            }
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("上游抛出 Error 时结束共享调用，之后的相同输入重新调用")
+    void testLoaderError() {
+        assertThatThrownBy(() -> cache.getOrLoad("推荐一杯咖啡", () -> {
+            throw new StackOverflowError("boom");
+        })).isInstanceOf(StackOverflowError.class);
+
+        IntentRecognitionService.IntentRecognitionResult loaded = cache.getOrLoad("推荐一杯咖啡", () -> result("llm"));
+        assertThat(loaded.getRecognitionMethod()).isEqualTo("llm");
+    }
+}
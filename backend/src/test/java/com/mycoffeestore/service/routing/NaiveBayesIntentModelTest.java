@@ -0,0 +1,78 @@
+package com.mycoffeestore.service.routing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.IntentClassifierProperties;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * 字符 n-gram 朴素贝叶斯意图模型测试
+ *
+ * @author zhoulu
+ * @since 2026-03-13
+ */
+@DisplayName("朴素贝叶斯意图模型测试")
+public class NaiveBayesIntentModelTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static LocalIntentClassifier classifier;
+    private static List<NaiveBayesIntentModel.Sample> seedSamples;
+    private static NaiveBayesIntentModel model;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        IntentClassifierProperties properties = new IntentClassifierProperties();
+        properties.setModelPath(null);
+        properties.setSampleLogPath(null);
+        classifier = new LocalIntentClassifier(properties, OBJECT_MAPPER);
+        seedSamples = classifier.loadSeedSamples();
+        model = NaiveBayesIntentModel.train(seedSamples, properties.getMinNgram(), properties.getMaxNgram());
+    }
+
+    @Test
+    @DisplayName("种子样本达到默认最少训练样本数，训练后能识别常见意图")
+    void testPredict() {
+        // 只有种子样本时模型也能参与识别
+        assertThat(seedSamples).hasSizeGreaterThanOrEqualTo(new IntentClassifierProperties().getMinTrainingSamples());
+        assertThat(model.predict("帮我下单一杯拿铁").intent()).isEqualTo("order_purchase");
+        assertThat(model.predict("我的订单到哪里了").intent()).isEqualTo("order_query");
+        assertThat(model.predict("咖啡太难喝了我要投诉").intent()).isEqualTo("complaint");
+        assertThat(model.predict("有什么推荐的咖啡").intent()).isEqualTo("consult");
+    }
+
+    @Test
+    @DisplayName("没有已知 n-gram 时不做判定")
+    void testUnknownInput() {
+        assertThat(model.predict("xyz")).isNull();
+        assertThat(model.predict("")).isNull();
+    }
+
+    @Test
+    @DisplayName("模型序列化后预测结果不变")
+    void testRoundTrip() throws Exception {
+        NaiveBayesIntentModel loaded = OBJECT_MAPPER.readValue(
+                OBJECT_MAPPER.writeValueAsString(model), NaiveBayesIntentModel.class);
+
+        NaiveBayesIntentModel.Prediction expected = model.predict("有没有不太酸的咖啡推荐");
+        NaiveBayesIntentModel.Prediction actual = loaded.predict("有没有不太酸的咖啡推荐");
+        assertThat(actual.intent()).isEqualTo(expected.intent());
+        assertThat(actual.confidence()).isCloseTo(expected.confidence(), offset(1e-9));
+    }
+
+    @Test
+    @DisplayName("训练集上的评估报告")
+    void testEvaluate() {
+        LocalIntentClassifier.EvaluationReport report = classifier.evaluate(model, seedSamples);
+
+        assertThat(report.getTotal()).isEqualTo(seedSamples.size());
+        assertThat(report.getAccuracy()).isGreaterThan(0.9);
+        assertThat(report.getPerIntentAccuracy()).containsKeys("order_purchase", "complaint", "consult", "order_query", "general");
+    }
+}
@@ -0,0 +1,89 @@
+package com.mycoffeestore.util;
+
+import com.mycoffeestore.config.AgentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 自适应并发限制器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+@DisplayName("自适应并发限制器测试")
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(300);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(3000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit) {
+        AgentProperties.AdaptiveLimitConfig config = new AgentProperties.AdaptiveLimitConfig();
+        config.setInitialLimit(initialLimit);
+        config.setMinLimit(2);
+        return new AdaptiveConcurrencyLimiter("test", config, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("在途请求达到上限后拒绝，释放后重新放行")
+    void testAdmission() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(3);
+
+        List<AdaptiveConcurrencyLimiter.Token> tokens = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tokens.add(limiter.tryAcquire());
+        }
+        assertThat(tokens).doesNotContainNull();
+        assertThat(limiter.tryAcquire()).isNull();
+        assertThat(meterRegistry.get("agent.concurrency.rejected").counter().count()).isEqualTo(1);
+
+        tokens.get(0).release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+        tokens.get(0).release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+        assertThat(limiter.getInflight()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("满载且延迟稳定时上调，延迟升高时收缩")
+    void testGradient() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(20);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(FAST, limiter.getLimit(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        int healthyLimit = limiter.getLimit();
+        assertThat(healthyLimit).isGreaterThan(20);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(SLOW, limiter.getLimit(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertThat(limiter.getLimit()).isLessThan(healthyLimit / 2);
+    }
+
+    @Test
+    @DisplayName("负载不足一半时不上调但延迟升高时照常收缩，上游失败时乘性下调")
+    void testAppLimitedAndDrop() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(20);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(FAST, 1, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(20);
+
+        limiter.onSample(FAST, 20, AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+        assertThat(limiter.getLimit()).isEqualTo(18);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(SLOW, 1, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertThat(limiter.getLimit()).isLessThan(18);
+    }
+}
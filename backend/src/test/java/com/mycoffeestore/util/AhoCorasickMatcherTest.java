@@ -0,0 +1,78 @@
+package com.mycoffeestore.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Aho-Corasick 多关键词匹配器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-11
+ */
+@DisplayName("Aho-Corasick 多关键词匹配器测试")
+public class AhoCorasickMatcherTest {
+
+    @Test
+    @DisplayName("单遍扫描统计各分组命中数")
+    void testCountPerGroup() {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        groups.put("order", List.of("订单", "我的订单", "order"));
+        groups.put("coffee", List.of("拿铁", "推荐"));
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(groups);
+
+        AhoCorasickMatcher.Hits hits = matcher.match("推荐一杯拿铁，再查下我的订单 ORDER");
+
+        assertThat(hits.count("order")).isEqualTo(3);
+        assertThat(hits.count("coffee")).isEqualTo(2);
+        assertThat(hits.count("unknown")).isZero();
+        assertThat(hits.isEmpty()).isFalse();
+    }
+
+    @Test
+    @DisplayName("重复出现的关键词只计一次，重复配置的关键词按次数计分")
+    void testDuplicateSemantics() {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        groups.put("complaint", List.of("投诉", "慢", "投诉"));
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(groups);
+
+        assertThat(matcher.match("投诉投诉投诉").count("complaint")).isEqualTo(2);
+        assertThat(matcher.match("太慢了").count("complaint")).isEqualTo(1);
+        assertThat(matcher.match(null).isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("与逐个 String.contains 的结果一致")
+    void testConsistentWithContains() {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        groups.put("a", List.of("he", "she", "his", "hers"));
+        groups.put("b", List.of("Order", "订单", "我的订单", "单"));
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(groups);
+
+        Random random = new Random(42);
+        String alphabet = "heshirsOrdr订单我的x ";
+        for (int round = 0; round < 5000; round++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String text = sb.toString();
+            String lower = text.toLowerCase();
+
+            AhoCorasickMatcher.Hits hits = matcher.match(text);
+            for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+                long expected = group.getValue().stream()
+                        .filter(keyword -> lower.contains(keyword.toLowerCase()))
+                        .count();
+                assertThat(hits.count(group.getKey())).as(text).isEqualTo((int) expected);
+            }
+        }
+    }
+}
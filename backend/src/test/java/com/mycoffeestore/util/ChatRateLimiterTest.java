@@ -0,0 +1,65 @@
+package com.mycoffeestore.util;
+
+import com.mycoffeestore.config.AgentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 聊天请求限流器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-16
+ */
+@DisplayName("聊天请求限流器测试")
+public class ChatRateLimiterTest {
+
+    private ChatRateLimiter newLimiter(int capacity, double refillPerMinute) {
+        AgentProperties properties = new AgentProperties();
+        properties.getRateLimit().setCapacity(capacity);
+        properties.getRateLimit().setRefillPerMinute(refillPerMinute);
+        return new ChatRateLimiter(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("突发请求超过桶容量后被拒绝，不同用户互不影响")
+    void testBurst() {
+        ChatRateLimiter limiter = newLimiter(3, 1);
+
+        assertThat(limiter.tryAcquire("user:1")).isTrue();
+        assertThat(limiter.tryAcquire("user:1")).isTrue();
+        assertThat(limiter.tryAcquire("user:1")).isTrue();
+        assertThat(limiter.tryAcquire("user:1")).isFalse();
+
+        assertThat(limiter.tryAcquire("user:2")).isTrue();
+    }
+
+    @Test
+    @DisplayName("令牌按速率补充")
+    void testRefill() throws Exception {
+        // 每 10ms 补充一个令牌
+        ChatRateLimiter limiter = newLimiter(1, 6000);
+
+        assertThat(limiter.tryAcquire("user:1")).isTrue();
+        assertThat(limiter.tryAcquire("user:1")).isFalse();
+        Thread.sleep(30);
+        assertThat(limiter.tryAcquire("user:1")).isTrue();
+    }
+
+    @Test
+    @DisplayName("登录用户按 userId，未登录按客户端 IP 限流")
+    void testKeyOf() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.2");
+
+        assertThat(ChatRateLimiter.keyOf(7L, request)).isEqualTo("user:7");
+        assertThat(ChatRateLimiter.keyOf(null, request)).isEqualTo("ip:10.0.0.2");
+
+        // 客户端自带的 X-Forwarded-For 不参与限流键，受信代理的转发头由容器还原到 remoteAddr
+        request.addHeader("X-Forwarded-For", "203.0.113.5, 10.0.0.1");
+        assertThat(ChatRateLimiter.keyOf(null, request)).isEqualTo("ip:10.0.0.2");
+    }
+}
@@ -0,0 +1,103 @@
+package com.mycoffeestore.util;
+
+import com.mycoffeestore.config.ConversationCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Agent 会话历史缓存测试
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@DisplayName("会话历史缓存测试")
+public class ConversationHistoryCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ConversationHistoryCache cache(ConversationCacheProperties properties) {
+        return new ConversationHistoryCache(properties, registry);
+    }
+
+    @Test
+    @DisplayName("命中后不再加载；并发追加同一会话不丢消息，已返回的快照不被修改")
+    void testConcurrentAppend() throws Exception {
+        ConversationCacheProperties properties = new ConversationCacheProperties();
+        properties.setMaxMessages(1000);
+        ConversationHistoryCache cache = cache(properties);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Message> base = cache.getOrLoad("1_coffee_advisor", () -> {
+            loads.incrementAndGet();
+            return List.of(new SystemMessage("你是咖啡顾问"));
+        });
+        cache.getOrLoad("1_coffee_advisor", List::of);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<List<Message>>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String content = "消息" + i;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> cache.append("1_coffee_advisor", base, new UserMessage(content)), pool));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        pool.shutdown();
+
+        List<Message> history = cache.getOrLoad("1_coffee_advisor", List::of);
+        assertThat(history).hasSize(201);
+        assertThat(history.get(0)).isInstanceOf(SystemMessage.class);
+        assertThat(base).hasSize(1);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(registry.get("agent.conversation.cache.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(registry.get("agent.conversation.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("超出消息数上限时丢弃最早的非系统消息")
+    void testTrimKeepsSystemPrompt() {
+        ConversationCacheProperties properties = new ConversationCacheProperties();
+        properties.setMaxMessages(3);
+        ConversationHistoryCache cache = cache(properties);
+
+        List<Message> history = cache.getOrLoad("guest_customer_service", () -> List.of(new SystemMessage("客服")));
+        for (int i = 0; i < 5; i++) {
+            history = cache.append("guest_customer_service", history, new UserMessage("问题" + i));
+        }
+
+        assertThat(history).extracting(Message::getContent).containsExactly("客服", "问题2", "问题3", "问题4");
+    }
+
+    @Test
+    @DisplayName("按内存占用淘汰最久未使用的会话并计数")
+    void testWeightedEviction() {
+        ConversationCacheProperties properties = new ConversationCacheProperties();
+        properties.setMaxWeight(DataSize.ofKilobytes(64));
+        ConversationHistoryCache cache = cache(properties);
+        String longMessage = "咖".repeat(4000);
+
+        for (int i = 0; i < 20; i++) {
+            cache.getOrLoad("user_" + i, () -> List.of(new UserMessage(longMessage)));
+        }
+        cache.cleanUp();
+
+        // 每个会话约 8KB，64KB 上限最多保留 8 个
+        assertThat(cache.size()).isLessThanOrEqualTo(8);
+        assertThat(registry.get("agent.conversation.cache.evictions").tag("cause", "size").counter().count())
+                .isGreaterThanOrEqualTo(12);
+        assertThat(registry.get("agent.conversation.cache.weight").gauge().value()).isLessThanOrEqualTo(64 * 1024);
+    }
+}
@@ -0,0 +1,81 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.AgentProperties;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 持有自适应并发令牌的 SSE 发射器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@DisplayName("持有并发令牌的 SSE 发射器测试")
+public class LimitedSseEmitterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SseEventEncoder encoder = new SseEventEncoder(new ObjectMapper());
+
+    private AdaptiveConcurrencyLimiter newLimiter() {
+        AgentProperties.AdaptiveLimitConfig config = new AgentProperties.AdaptiveLimitConfig();
+        config.setInitialLimit(20);
+        config.setMinLimit(2);
+        return new AdaptiveConcurrencyLimiter("test", config, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("经编码器整帧写入：首个文本增量记录首字延迟，正常结束按成功提交样本")
+    void testEncoderSuccess() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        LimitedSseEmitter emitter = new LimitedSseEmitter(60000L, limiter.tryAcquire());
+
+        encoder.send(emitter, AgentEvent.text("你好"));
+        Thread.sleep(200);
+        encoder.send(emitter, AgentEvent.done());
+        emitter.complete();
+
+        Timer rtt = meterRegistry.get("agent.concurrency.rtt").timer();
+        assertThat(rtt.count()).isEqualTo(1);
+        assertThat(rtt.max(TimeUnit.MILLISECONDS)).isLessThan(200);
+        assertThat(limiter.getLimit()).isEqualTo(20);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    @DisplayName("经编码器写入错误事件：结束时按上游失败释放，上限乘性下调")
+    void testEncoderError() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        LimitedSseEmitter emitter = new LimitedSseEmitter(60000L, limiter.tryAcquire());
+
+        encoder.send(emitter, AgentEvent.message(Map.of("type", "error", "message", "AI 服务暂时不可用")));
+        emitter.complete();
+
+        assertThat(meterRegistry.get("agent.concurrency.rtt").timer().count()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(18);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    @DisplayName("提前按 IGNORE 释放：之后的繁忙错误事件与结束不再调整上限")
+    void testReleaseBeforeError() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        LimitedSseEmitter emitter = new LimitedSseEmitter(60000L, limiter.tryAcquire());
+
+        emitter.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+        emitter.send(SseEmitter.event().name("error").data("{\"type\":\"error\",\"code\":503}"));
+        emitter.complete();
+
+        assertThat(limiter.getLimit()).isEqualTo(20);
+        assertThat(limiter.getInflight()).isZero();
+    }
+}
@@ -0,0 +1,79 @@
+package com.mycoffeestore.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LLM 请求合并器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-17
+ */
+@DisplayName("LLM 请求合并器测试")
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry());
+
+    private Flux<String> upstream(AtomicInteger calls) {
+        return Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just("a", "b", "c").delayElements(Duration.ofMillis(50));
+        });
+    }
+
+    @Test
+    @DisplayName("同时到达的相同请求只调用一次上游，后到者收到完整重放")
+    void testCoalesceIdentical() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        Flux<String> first = coalescer.coalesce("{\"messages\":[1]}", () -> upstream(calls));
+        Flux<String> second = coalescer.coalesce("{\"messages\":[1]}", () -> upstream(calls));
+
+        var firstResult = first.collectList().toFuture();
+        Thread.sleep(80);
+        List<String> secondResult = second.collectList().block(Duration.ofSeconds(5));
+
+        assertThat(firstResult.get()).containsExactly("a", "b", "c");
+        assertThat(secondResult).containsExactly("a", "b", "c");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("不同请求或上游结束后的请求各自调用上游")
+    void testDistinctAndSequential() {
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.coalesce("{\"messages\":[1]}", () -> upstream(calls)).blockLast(Duration.ofSeconds(5));
+        coalescer.coalesce("{\"messages\":[2]}", () -> upstream(calls)).blockLast(Duration.ofSeconds(5));
+        coalescer.coalesce("{\"messages\":[1]}", () -> upstream(calls)).blockLast(Duration.ofSeconds(5));
+
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("上游出错时所有订阅者都收到错误，之后可重新发起")
+    void testErrorPropagates() {
+        AtomicInteger calls = new AtomicInteger();
+        Flux<String> failing = Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.<String>error(new IllegalStateException("boom")).delaySubscription(Duration.ofMillis(50));
+        });
+
+        Flux<String> first = coalescer.coalesce("{}", () -> failing);
+        Flux<String> second = coalescer.coalesce("{}", () -> failing);
+
+        var merged = Flux.merge(first.onErrorReturn("error"), second.onErrorReturn("error"))
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(merged).containsExactly("error", "error");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,91 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycoffeestore.config.AgentProperties;
+import com.mycoffeestore.dto.agent.AgentEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SSE 文本增量合并器与事件编码器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@DisplayName("SSE 文本增量合并测试")
+public class SseDeltaCoalescerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private SseDeltaCoalescer coalescer(long intervalMillis, int maxBufferChars) {
+        AgentProperties properties = new AgentProperties();
+        properties.getSseFlush().setIntervalMillis(intervalMillis);
+        properties.getSseFlush().setMaxBufferChars(maxBufferChars);
+        return new SseDeltaCoalescer(properties, registry);
+    }
+
+    @Test
+    @DisplayName("连续增量合并写出，工具与结束事件前先写出已缓冲文本，顺序不变")
+    void testFlushBeforeEvents() {
+        AgentEvent toolCall = AgentEvent.message(Map.of("type", "tool_call", "tool", "search_coffee"));
+        Flux<AgentEvent> events = Flux.just(
+                AgentEvent.text("我"), AgentEvent.text("帮你"), AgentEvent.text("查一下"),
+                toolCall,
+                AgentEvent.text("推荐"), AgentEvent.text("拿铁"),
+                AgentEvent.done());
+
+        List<AgentEvent> result = coalescer(10_000, 1024).coalesce(events).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(result).extracting(AgentEvent::type).containsExactly("text", "tool_call", "text", "done");
+        assertThat(result.get(0).content()).isEqualTo("我帮你查一下");
+        assertThat(result.get(2).content()).isEqualTo("推荐拿铁");
+        assertThat(registry.get("agent.sse.deltas").counter().count()).isEqualTo(5);
+        assertThat(registry.get("agent.sse.flushes").tag("reason", "event").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("达到间隔或缓冲长度时写出，上游结束时写出剩余文本")
+    void testIntervalAndSizeFlush() {
+        Flux<AgentEvent> slow = Flux.concat(
+                Flux.just(AgentEvent.text("a"), AgentEvent.text("b")),
+                Flux.just(AgentEvent.text("c")).delaySubscription(Duration.ofMillis(200)));
+
+        List<AgentEvent> byInterval = coalescer(30, 1024).coalesce(slow).collectList().block(Duration.ofSeconds(5));
+        assertThat(byInterval).extracting(AgentEvent::content).containsExactly("ab", "c");
+
+        List<AgentEvent> bySize = coalescer(10_000, 4)
+                .coalesce(Flux.just("ab", "cd", "ef", "g").map(AgentEvent::text))
+                .collectList().block(Duration.ofSeconds(5));
+        assertThat(bySize).extracting(AgentEvent::content).containsExactly("abcd", "efg");
+        assertThat(registry.get("agent.sse.flushes").tag("reason", "size").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("预编码模板与 Jackson 序列化结果等价")
+    void testEncoderTemplates() throws Exception {
+        SseEventEncoder encoder = new SseEventEncoder(objectMapper);
+
+        String text = encoder.encodeData(AgentEvent.text("换行\n\"引号\"\\ 与 emoji ☕"));
+        assertThat(objectMapper.readTree(text))
+                .isEqualTo(objectMapper.valueToTree(Map.of("type", "text", "content", "换行\n\"引号\"\\ 与 emoji ☕")));
+        assertThat(text).doesNotContain("\n");
+
+        assertThat(encoder.encodeData(AgentEvent.done())).isEqualTo("{\"type\":\"done\"}");
+        assertThat(encoder.encodeFrame(AgentEvent.done())).isEqualTo("event:done\ndata:{\"type\":\"done\"}\n\n");
+        assertThat(encoder.encodeFrame(AgentEvent.text("hi")))
+                .isEqualTo("event:message\ndata:{\"type\":\"text\",\"content\":\"hi\"}\n\n");
+
+        Map<String, Object> toolResult = Map.of("type", "tool_result", "tool", "get_cart", "result", "{}");
+        assertThat(objectMapper.readTree(encoder.encodeData(AgentEvent.message(toolResult))))
+                .isEqualTo(objectMapper.valueToTree(toolResult));
+    }
+}
@@ -0,0 +1,302 @@
+package com.mycoffeestore.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.mycoffeestore.common.result.PageResult;
+import com.mycoffeestore.config.ToolProjectionProperties;
+import com.mycoffeestore.vo.cart.CartItemVO;
+import com.mycoffeestore.vo.cart.CartListVO;
+import com.mycoffeestore.vo.coffee.CoffeeDetailVO;
+import com.mycoffeestore.vo.coffee.CoffeeListItemVO;
+import com.mycoffeestore.vo.order.OrderDetailVO;
+import com.mycoffeestore.vo.order.OrderItemDetailVO;
+import com.mycoffeestore.vo.order.OrderListItemVO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Agent 工具结果投影器测试
+ *
+ * @author zhoulu
+ * @since 2026-03-19
+ */
+@Slf4j
+@DisplayName("Agent 工具结果投影器测试")
+public class ToolResultProjectorTest {
+
+    private static final LocalDateTime CREATE_TIME = LocalDateTime.of(2026, 3, 18, 10, 12, 33);
+
+    private static final String[] COFFEE_NAMES = {
+        "埃塞俄比亚美式", "哥伦比亚拿铁", "焦糖玛奇朵", "燕麦拿铁", "冷萃咖啡",
+        "澳白", "摩卡", "卡布奇诺", "耶加雪菲手冲", "西达摩冷萃"
+    };
+
+    /**
+     * 与 Spring Boot 自动配置的 ObjectMapper 一致：时间序列化为 ISO 字符串
+     */
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final ToolProjectionProperties properties = new ToolProjectionProperties();
+    private final ToolResultProjector projector = new ToolResultProjector(properties, objectMapper);
+
+    @Test
+    @DisplayName("字段白名单、数值压缩、空值剔除与列表截断")
+    void testProjection() throws Exception {
+        String json = projector.project("coffee_advisor", "search_coffee", objectMapper.valueToTree(coffeePage(8)));
+        JsonNode projected = objectMapper.readTree(json);
+
+        assertThat(projected.has("page")).isFalse();
+        assertThat(projected.get("total").asLong()).isEqualTo(8);
+        assertThat(projected.get("list")).hasSize(5);
+        assertThat(projected.get("listOmitted").asInt()).isEqualTo(3);
+
+        JsonNode first = projected.get("list").get(0);
+        assertThat(first.has("imageUrl")).isFalse();
+        assertThat(first.has("status")).isFalse();
+        assertThat(first.has("originalPrice")).isFalse();
+        assertThat(first.get("price").isIntegralNumber()).isTrue();
+        assertThat(first.get("price").asInt()).isEqualTo(28);
+        assertThat(projected.get("list").get(1).get("price").decimalValue()).isEqualByComparingTo("29.5");
+        assertThat(first.get("description").asText()).endsWith("…");
+        assertThat(first.get("description").asText().codePointCount(0, first.get("description").asText().length()))
+                .isEqualTo(properties.getMaxTextLength() + 1);
+    }
+
+    @Test
+    @DisplayName("Agent 覆盖配置、关闭投影与错误结果")
+    void testAgentOverrideAndPassthrough() throws Exception {
+        ToolProjectionProperties.AgentProjection advisor = new ToolProjectionProperties.AgentProjection();
+        advisor.setMaxListItems(2);
+        properties.getAgents().put("coffee_advisor", advisor);
+        ToolProjectionProperties.AgentProjection service = new ToolProjectionProperties.AgentProjection();
+        service.setEnabled(false);
+        properties.getAgents().put("customer_service", service);
+
+        JsonNode page = objectMapper.valueToTree(coffeePage(8));
+        assertThat(objectMapper.readTree(projector.project("coffee_advisor", "search_coffee", page)).get("list")).hasSize(2);
+
+        String full = objectMapper.writeValueAsString(page);
+        assertThat(projector.project("customer_service", "search_coffee", page)).isEqualTo(full);
+        assertThat(projector.project(null, "search_coffee", page)).isEqualTo(full);
+
+        JsonNode error = objectMapper.valueToTree(Map.of("error", "该操作需要登录，请先登录"));
+        assertThat(projector.project("order_assistant", "get_cart", error)).isEqualTo(objectMapper.writeValueAsString(error));
+
+        // 根节点列表截断后包装为对象
+        JsonNode categories = objectMapper.valueToTree(IntStream.range(0, 25)
+                .mapToObj(i -> Map.of("code", "c" + i, "name", "分类" + i, "count", i))
+                .toList());
+        JsonNode projected = objectMapper.readTree(projector.project("coffee_advisor", "get_categories", categories));
+        assertThat(projected.get("list")).hasSize(20);
+        assertThat(projected.get("omitted").asInt()).isEqualTo(5);
+    }
+
+    /**
+     * 按 Agent 端到端测试（AgentE2ETest）各场景中的工具调用，对比投影前后返回给模型的工具结果 Token 数
+     * <p>
+     * AgentE2ETest 需要完整的 Spring 上下文与真实模型，这里用各场景工具返回的典型业务数据计算；
+     * Token 数按常见 BPE 分词器估算：非 ASCII 字符每个 1 个 Token，ASCII 字符每 4 个 1 个 Token。
+     */
+    @Test
+    @DisplayName("端到端场景工具结果 Token 对比报告")
+    void testTokenReport() throws Exception {
+        Map<String, List<ToolCall>> scenarios = new LinkedHashMap<>();
+        scenarios.put("场景1：咖啡推荐", List.of(
+                new ToolCall("coffee_advisor", "search_coffee", coffeePage(10))));
+        scenarios.put("场景2：下单流程", List.of(
+                new ToolCall("order_assistant", "search_coffee", coffeePage(10)),
+                new ToolCall("order_assistant", "create_order", orderDetail("20260318101233001", 2))));
+        scenarios.put("场景3：智能路由查订单", List.of(
+                new ToolCall("order_assistant", "get_order_list", orderPage(6))));
+        scenarios.put("场景4：推荐后下单", List.of(
+                new ToolCall("coffee_advisor", "search_coffee", coffeePage(10)),
+                new ToolCall("order_assistant", "get_cart", cart(3)),
+                new ToolCall("order_assistant", "create_order", orderDetail("20260318101233002", 3))));
+        scenarios.put("场景5：工具调用链", List.of(
+                new ToolCall("order_assistant", "search_coffee", coffeePage(1)),
+                new ToolCall("order_assistant", "get_coffee_detail", coffeeDetail(5)),
+                new ToolCall("order_assistant", "add_to_cart", Map.of("success", true, "message", "已添加到购物车"))));
+        scenarios.put("场景6：多轮对话", List.of(
+                new ToolCall("coffee_advisor", "search_coffee", coffeePage(1)),
+                new ToolCall("coffee_advisor", "get_coffee_detail", coffeeDetail(1))));
+        scenarios.put("场景7：错误处理", List.of(
+                new ToolCall("coffee_advisor", "search_coffee", Map.of("error", "工具执行失败: 数据库连接失败"))));
+        scenarios.put("场景10：长会话（5 轮推荐）", IntStream.range(0, 5)
+                .mapToObj(i -> new ToolCall("coffee_advisor", "search_coffee", coffeePage(10)))
+                .toList());
+
+        StringBuilder report = new StringBuilder("\n工具结果 Token 对比（投影前 → 投影后）\n");
+        int totalBefore = 0;
+        int totalAfter = 0;
+        for (Map.Entry<String, List<ToolCall>> scenario : scenarios.entrySet()) {
+            int before = 0;
+            int after = 0;
+            for (ToolCall call : scenario.getValue()) {
+                JsonNode tree = objectMapper.valueToTree(call.result());
+                before += estimateTokens(objectMapper.writeValueAsString(tree));
+                after += estimateTokens(projector.project(call.agentType(), call.toolName(), tree));
+            }
+            assertThat(after).isLessThanOrEqualTo(before);
+            report.append(String.format("%-20s %6d → %6d  (-%.1f%%)%n", scenario.getKey(), before, after,
+                    before == 0 ? 0.0 : 100.0 * (before - after) / before));
+            totalBefore += before;
+            totalAfter += after;
+        }
+        double saving = 100.0 * (totalBefore - totalAfter) / totalBefore;
+        report.append(String.format("%-20s %6d → %6d  (-%.1f%%)%n", "合计", totalBefore, totalAfter, saving));
+        log.info("{}", report);
+
+        assertThat(saving).isGreaterThan(30.0);
+    }
+
+    private record ToolCall(String agentType, String toolName, Object result) {
+    }
+
+    /**
+     * Token 数估算：非 ASCII 字符每个 1 个 Token，ASCII 字符每 4 个 1 个 Token
+     */
+    private static int estimateTokens(String text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (codePoint < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return other + (ascii + 3) / 4;
+    }
+
+    private static PageResult<CoffeeListItemVO> coffeePage(int size) {
+        List<CoffeeListItemVO> list = IntStream.range(0, size)
+                .mapToObj(i -> CoffeeListItemVO.builder()
+                        .coffeeId((long) i + 1)
+                        .name(COFFEE_NAMES[i % COFFEE_NAMES.length])
+                        .description(description(i))
+                        .price(i % 2 == 0 ? new BigDecimal("28.00") : new BigDecimal("29.50"))
+                        .originalPrice(null)
+                        .category(i % 3 == 0 ? "americano" : "latte")
+                        .imageUrl("https://cdn.mycoffeestore.com/images/coffee/" + (i + 1) + "/cover.jpg")
+                        .stock(100 - i)
+                        .status(1)
+                        .build())
+                .toList();
+        return PageResult.<CoffeeListItemVO>builder().total((long) size).page(1).size(10).list(list).build();
+    }
+
+    private static CoffeeDetailVO coffeeDetail(long coffeeId) {
+        int index = (int) (coffeeId - 1);
+        return CoffeeDetailVO.builder()
+                .coffeeId(coffeeId)
+                .name(COFFEE_NAMES[index % COFFEE_NAMES.length])
+                .description(description(index))
+                .price(new BigDecimal("35.00"))
+                .originalPrice(new BigDecimal("38.00"))
+                .category("latte")
+                .categoryName("拿铁")
+                .imageUrl("https://cdn.mycoffeestore.com/images/coffee/" + coffeeId + "/cover.jpg")
+                .images(List.of(
+                        "https://cdn.mycoffeestore.com/images/coffee/" + coffeeId + "/1.jpg",
+                        "https://cdn.mycoffeestore.com/images/coffee/" + coffeeId + "/2.jpg",
+                        "https://cdn.mycoffeestore.com/images/coffee/" + coffeeId + "/3.jpg"))
+                .stock(86)
+                .status(1)
+                .sales(1280)
+                .createTime(CREATE_TIME)
+                .build();
+    }
+
+    private static CartListVO cart(int size) {
+        List<CartItemVO> items = IntStream.range(0, size)
+                .mapToObj(i -> CartItemVO.builder()
+                        .cartId((long) i + 100)
+                        .coffeeId((long) i + 1)
+                        .coffeeName(COFFEE_NAMES[i])
+                        .imageUrl("https://cdn.mycoffeestore.com/images/coffee/" + (i + 1) + "/cover.jpg")
+                        .price(new BigDecimal("28.00"))
+                        .quantity(1)
+                        .subtotal(new BigDecimal("28.00"))
+                        .stock(100 - i)
+                        .status(1)
+                        .build())
+                .toList();
+        return CartListVO.builder()
+                .totalQuantity(size)
+                .totalPrice(new BigDecimal("28.00").multiply(BigDecimal.valueOf(size)))
+                .items(items)
+                .build();
+    }
+
+    private static List<OrderItemDetailVO> orderItems(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> OrderItemDetailVO.builder()
+                        .itemId((long) i + 1000)
+                        .coffeeId((long) i + 1)
+                        .coffeeName(COFFEE_NAMES[i])
+                        .imageUrl("https://cdn.mycoffeestore.com/images/coffee/" + (i + 1) + "/cover.jpg")
+                        .quantity(1)
+                        .price(new BigDecimal("32.00"))
+                        .subtotal(new BigDecimal("32.00"))
+                        .build())
+                .toList();
+    }
+
+    private static OrderDetailVO orderDetail(String orderId, int itemCount) {
+        return OrderDetailVO.builder()
+                .orderId(orderId)
+                .userId(1L)
+                .username("test_user")
+                .totalAmount(new BigDecimal("32.00").multiply(BigDecimal.valueOf(itemCount)))
+                .orderType("dine_in")
+                .orderTypeName("堂食")
+                .status("pending")
+                .statusName("待确认")
+                .remark("")
+                .items(orderItems(itemCount))
+                .createTime(CREATE_TIME)
+                .updateTime(CREATE_TIME)
+                .build();
+    }
+
+    private static PageResult<OrderListItemVO> orderPage(int size) {
+        List<OrderListItemVO> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add(OrderListItemVO.builder()
+                    .orderId("2026031810123300" + i)
+                    .totalAmount(new BigDecimal("64.00"))
+                    .orderType("takeaway")
+                    .orderTypeName("外带")
+                    .status("completed")
+                    .statusName("已完成")
+                    .itemCount(2)
+                    .items(orderItems(2))
+                    .createTime(CREATE_TIME.minusDays(i))
+                    .build());
+        }
+        return PageResult.<OrderListItemVO>builder().total((long) size).page(1).size(10).list(list).build();
+    }
+
+    private static String description(int index) {
+        return COFFEE_NAMES[index % COFFEE_NAMES.length]
+                + "，精选阿拉比卡咖啡豆中度烘焙，入口顺滑，带有坚果与黑巧克力的风味，酸度柔和，回甘持久，适合搭配牛奶或燕麦奶饮用，冷热皆宜。";
+    }
+}